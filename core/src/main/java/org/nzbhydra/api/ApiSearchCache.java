@@ -0,0 +1,213 @@
+package org.nzbhydra.api;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.nzbhydra.logging.MdcThreadPoolExecutor;
+import org.nzbhydra.mapping.newznab.NewznabResponse;
+import org.nzbhydra.searching.SearchCoalescer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Caches the responses of API searches. The cache is bounded by the estimated memory used by the cached responses, the least recently
+ * used responses are evicted first.
+ * <p>
+ * Concurrent requests for the same search are only executed once, all callers get the same response. When a cached response is older than
+ * the requested cache time but not older than twice that time it's still returned while the search is repeated in the background.
+ */
+@Component
+public class ApiSearchCache implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(ApiSearchCache.class);
+
+    private static final int MAX_CACHE_AGE_HOURS = 24;
+    private static final int MAX_PARALLEL_REFRESHES = 4;
+    /**
+     * Rough estimate of the memory used by a response (without items) and by every search result item contained in it
+     */
+    static final int RESPONSE_SIZE_ESTIMATE = 2 * 1024;
+    static final int ITEM_SIZE_ESTIMATE = 2 * 1024;
+
+    private final ConfigProvider configProvider;
+
+    //Replaced when the config changes, read by request threads
+    private volatile Cache<Integer, CacheEntry> cache;
+    private int cacheSizeMb;
+    private final SearchCoalescer<Integer, NewznabResponse> runningSearches = new SearchCoalescer<>();
+    private MdcThreadPoolExecutor refreshExecutor;
+    protected Clock clock = Clock.systemUTC();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong failedRefreshes = new AtomicLong();
+
+    @Autowired
+    public ApiSearchCache(ConfigProvider configProvider) {
+        this.configProvider = configProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        cache = createCache(configProvider.getBaseConfig().getSearching().getApiCacheSizeMb());
+        refreshExecutor = MdcThreadPoolExecutor.newWithInheritedMdc(0, MAX_PARALLEL_REFRESHES, 60, TimeUnit.SECONDS, new SynchronousQueue<>());
+        refreshExecutor.setThreadFactory(new ThreadFactoryBuilder().setNameFormat("api-cache-refresh-%d").setDaemon(true).build());
+    }
+
+    /**
+     * Returns the cached response for the given key if it's not older than the given cache time. Otherwise the search is executed (or a
+     * search already running for the same key is waited for) and its response is cached.
+     *
+     * @param key              Identifies the search
+     * @param cacheTimeMinutes How old a cached response may be
+     * @param search           Executes the search. May be called in a background thread
+     */
+    public NewznabResponse get(int key, int cacheTimeMinutes, Supplier<NewznabResponse> search) {
+        CacheEntry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            Instant now = clock.instant();
+            Instant freshUntil = entry.getCreated().plus(Duration.ofMinutes(cacheTimeMinutes));
+            if (now.isBefore(freshUntil)) {
+                hits.incrementAndGet();
+                logger.info("Returning cached search result. Next update of search will be done at {}", freshUntil);
+                return entry.getResponse();
+            }
+            if (now.isBefore(freshUntil.plus(Duration.ofMinutes(cacheTimeMinutes)))) {
+                staleHits.incrementAndGet();
+                logger.info("Returning cached search result and updating it in the background because cache time is exceeded");
+                refreshInBackground(key, search);
+                return entry.getResponse();
+            }
+            logger.info("Updating search because cache time is exceeded");
+        }
+        misses.incrementAndGet();
+        return executeOnce(key, search);
+    }
+
+    private void refreshInBackground(int key, Supplier<NewznabResponse> search) {
+        if (runningSearches.isRunning(key)) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> {
+                try {
+                    executeOnce(key, search);
+                    refreshes.incrementAndGet();
+                } catch (Exception e) {
+                    failedRefreshes.incrementAndGet();
+                    logger.warn("Unable to update cached search result: {}", e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            logger.debug("Not updating cached search result because the maximum number of updates is already running");
+        }
+    }
+
+    /**
+     * Executes the search and caches its response. If the same search is already running its response is used instead.
+     */
+    private NewznabResponse executeOnce(int key, Supplier<NewznabResponse> search) {
+        return runningSearches.execute(key, () -> {
+            NewznabResponse response = search.get();
+            CacheEntry entry = new CacheEntry(response, clock.instant(), estimateSize(response));
+            logger.info("Putting search result into cache");
+            cache.put(key, entry);
+            return response;
+        }, () -> logger.info("Same search is already running, waiting for its results"), UnaryOperator.identity());
+    }
+
+    static int estimateSize(NewznabResponse response) {
+        if (response instanceof StreamedNewznabResponse) {
+            return RESPONSE_SIZE_ESTIMATE + ((StreamedNewznabResponse) response).getNumberOfItems() * ITEM_SIZE_ESTIMATE;
+        }
+        return RESPONSE_SIZE_ESTIMATE;
+    }
+
+    private Cache<Integer, CacheEntry> createCache(int sizeMb) {
+        cacheSizeMb = sizeMb;
+        return CacheBuilder.newBuilder()
+                .concurrencyLevel(1) //Only one segment so that the least recently used entry of all is evicted
+                .maximumWeight(sizeMb * 1024L * 1024L)
+                .<Integer, CacheEntry>weigher((key, value) -> value.getSize())
+                .expireAfterWrite(MAX_CACHE_AGE_HOURS, TimeUnit.HOURS)
+                .removalListener(notification -> {
+                    if (notification.getCause() == RemovalCause.SIZE) {
+                        evictions.incrementAndGet();
+                        logger.debug("Removed oldest entry from cache because its size limit of {}MB is reached", cacheSizeMb);
+                    }
+                })
+                .build();
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        int newSizeMb = configChangedEvent.getNewConfig().getSearching().getApiCacheSizeMb();
+        if (newSizeMb != cacheSizeMb) {
+            logger.info("Cache size changed from {}MB to {}MB, clearing cache", cacheSizeMb, newSizeMb);
+            cache = createCache(newSizeMb);
+        }
+    }
+
+    @EventListener
+    public void onShutdown(ShutdownEvent event) {
+        if (refreshExecutor != null) {
+            refreshExecutor.shutdownNow();
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "apiSearchCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits.get());
+        metrics.put("staleHits", staleHits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("coalesced", runningSearches.getNumberOfCoalescedSearches());
+        metrics.put("evictions", evictions.get());
+        metrics.put("refreshes", refreshes.get());
+        metrics.put("failedRefreshes", failedRefreshes.get());
+        metrics.put("entries", cache.size());
+        metrics.put("estimatedSizeBytes", cache.asMap().values().stream().mapToLong(CacheEntry::getSize).sum());
+        metrics.put("runningSearches", runningSearches.getNumberOfRunningSearches());
+        return metrics;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CacheEntry {
+        private final NewznabResponse response;
+        private final Instant created;
+        private final int size;
+    }
+
+}
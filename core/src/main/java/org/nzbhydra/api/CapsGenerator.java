@@ -0,0 +1,155 @@
+package org.nzbhydra.api;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.hash.Hashing;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.mapping.newznab.OutputType;
+import org.nzbhydra.mapping.newznab.caps.*;
+import org.nzbhydra.web.PooledJaxbMarshaller;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.xml.transform.stream.StreamResult;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Generates the response for caps requests. The response only changes when the config is changed so it's serialized once and the bytes
+ * are reused until then.
+ */
+@Component
+public class CapsGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(CapsGenerator.class);
+
+    /**
+     * Names of the newznab main categories, used when no configured category contains a main category but only some of its subcategories
+     */
+    private static final Map<Integer, String> MAIN_CATEGORY_NAMES = ImmutableMap.<Integer, String>builder()
+            .put(1000, "Console")
+            .put(2000, "Movies")
+            .put(3000, "Audio")
+            .put(4000, "PC")
+            .put(5000, "TV")
+            .put(6000, "XXX")
+            .put(7000, "Books")
+            .put(8000, "Other")
+            .build();
+
+    @Autowired
+    private ConfigProvider configProvider;
+    @Autowired
+    private PooledJaxbMarshaller marshaller;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private volatile CachedCaps cachedCaps;
+
+    /**
+     * @return The serialized caps in the requested format
+     */
+    public CachedCapsResponse getCaps(OutputType outputType) {
+        CachedCaps caps = cachedCaps;
+        if (caps == null) {
+            caps = createCachedCaps();
+            cachedCaps = caps;
+        }
+        return outputType == OutputType.JSON ? caps.getJson() : caps.getXml();
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        cachedCaps = null;
+    }
+
+    private CachedCaps createCachedCaps() {
+        logger.debug("Generating caps");
+        CapsRoot capsRoot = createCapsRoot();
+        try {
+            ByteArrayOutputStream xml = new ByteArrayOutputStream();
+            marshaller.marshal(capsRoot, new StreamResult(xml));
+            byte[] json = objectMapper.writeValueAsBytes(capsRoot);
+            return new CachedCaps(new CachedCapsResponse(xml.toByteArray()), new CachedCapsResponse(json));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Unable to serialize caps", e);
+        }
+    }
+
+    protected CapsRoot createCapsRoot() {
+        CapsRoot capsRoot = new CapsRoot();
+        capsRoot.setRetention(new CapsRetention(3000));
+        capsRoot.setLimits(new CapsLimits(100, 100)); //later link to global setting when implemented
+
+        CapsServer capsServer = new CapsServer();
+        capsServer.setEmail("theotherp@gmx.de");
+        capsServer.setTitle("NZBHydra 2");
+        capsServer.setUrl("https://github.com/theotherp/nzbhydra2");
+        capsRoot.setServer(capsServer);
+
+        CapsSearching capsSearching = new CapsSearching();
+        capsSearching.setSearch(new CapsSearch("yes", "q,cat,limit,offset,minage,maxage,minsize,maxsize"));
+        capsSearching.setTvSearch(new CapsSearch("yes", "q,rid,tvdbid,tvmazeid,traktid,season,ep,cat,limit,offset,minage,maxage,minsize,maxsize"));
+        capsSearching.setMovieSearch(new CapsSearch("yes", "q,imdbid,tmdbid,cat,limit,offset,minage,maxage,minsize,maxsize"));
+        capsSearching.setBookSearch(new CapsSearch("yes", "q,author,title,cat,limit,offset,minage,maxage,minsize,maxsize"));
+        capsSearching.setAudioSearch(new CapsSearch("no", ""));
+        capsRoot.setSearching(capsSearching);
+
+        capsRoot.setCategories(new CapsCategories(createCapsCategories(configProvider.getBaseConfig().getCategoriesConfig().getCategories())));
+        return capsRoot;
+    }
+
+    /**
+     * Creates the caps category tree from the newznab categories of the configured categories. Every newznab number is listed once, using
+     * the name of the first configured category containing it. Subcategories are listed below their main category.
+     */
+    protected static List<CapsCategory> createCapsCategories(List<Category> categories) {
+        Map<Integer, String> namesByNumber = new TreeMap<>();
+        for (Category category : categories) {
+            for (Integer number : category.getNewznabCategories()) {
+                namesByNumber.putIfAbsent(number, category.getName());
+            }
+        }
+
+        Map<Integer, CapsCategory> mainCategories = new TreeMap<>();
+        for (Map.Entry<Integer, String> entry : namesByNumber.entrySet()) {
+            int number = entry.getKey();
+            int mainNumber = number / 1000 * 1000;
+            CapsCategory mainCategory = mainCategories.computeIfAbsent(mainNumber, x -> new CapsCategory(x, namesByNumber.getOrDefault(x, MAIN_CATEGORY_NAMES.getOrDefault(x, "Other")), new ArrayList<>()));
+            if (number != mainNumber) {
+                mainCategory.getSubCategories().add(new CapsCategory(number, entry.getValue()));
+            }
+        }
+        return new ArrayList<>(mainCategories.values());
+    }
+
+    @Getter
+    @AllArgsConstructor
+    private static class CachedCaps {
+        private final CachedCapsResponse xml;
+        private final CachedCapsResponse json;
+    }
+
+    @Getter
+    public static class CachedCapsResponse {
+        private final byte[] body;
+        private final String etag;
+
+        public CachedCapsResponse(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + Hashing.sha256().hashBytes(body).toString().substring(0, 32) + "\"";
+        }
+    }
+
+}
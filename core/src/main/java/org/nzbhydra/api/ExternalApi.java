@@ -3,9 +3,9 @@ package org.nzbhydra.api;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
 import com.google.common.base.Throwables;
-import lombok.AllArgsConstructor;
-import lombok.Data;
 import org.apache.catalina.connector.ClientAbortException;
+import org.nzbhydra.api.CapsGenerator.CachedCapsResponse;
+import org.nzbhydra.api.RssFeedPrefetcher.PrefetchedResult;
 import org.nzbhydra.config.CategoriesConfig;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.downloading.DownloadResult;
@@ -16,11 +16,11 @@ import org.nzbhydra.mapping.newznab.ActionAttribute;
 import org.nzbhydra.mapping.newznab.NewznabParameters;
 import org.nzbhydra.mapping.newznab.NewznabResponse;
 import org.nzbhydra.mapping.newznab.OutputType;
-import org.nzbhydra.mapping.newznab.caps.*;
 import org.nzbhydra.mapping.newznab.xml.NewznabXmlError;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.searching.CategoryProvider;
 import org.nzbhydra.searching.SearchResult;
+import org.nzbhydra.searching.SearchResultItem;
 import org.nzbhydra.searching.SearchType;
 import org.nzbhydra.searching.Searcher;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
@@ -38,23 +38,17 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
-import java.time.Clock;
-import java.time.Instant;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Stream;
 
 @RestController
 public class ExternalApi {
 
-    private static final int MAX_CACHE_SIZE = 5;
-    private static final int MAX_CACHE_AGE_HOURS = 24;
-
     private static final Logger logger = LoggerFactory.getLogger(ExternalApi.class);
 
     @Value("${nzbhydra.dev.noApiKey:false}")
@@ -74,11 +68,14 @@ public class ExternalApi {
     private NewznabJsonTransformer newznabJsonTransformer;
     @Autowired
     private CategoryProvider categoryProvider;
-    protected Clock clock = Clock.systemUTC();
+    @Autowired
+    protected ApiSearchCache apiSearchCache;
+    @Autowired
+    private CapsGenerator capsGenerator;
+    @Autowired
+    private RssFeedPrefetcher rssFeedPrefetcher;
     private Random random = new Random();
 
-    private ConcurrentMap<Integer, CacheEntryValue> cache = new ConcurrentHashMap<>();
-
 
     @RequestMapping(value = {"/api", "/rss", "/torznab/api"}, consumes = MediaType.ALL_VALUE)
     public ResponseEntity<? extends Object> api(NewznabParameters params) throws Exception {
@@ -90,17 +87,22 @@ public class ExternalApi {
         }
 
         if (Stream.of(ActionAttribute.SEARCH, ActionAttribute.BOOK, ActionAttribute.TVSEARCH, ActionAttribute.MOVIE).anyMatch(x -> x == params.getT())) {
-            if (params.getCachetime() != null) {
-                return handleCachingSearch(params);
+            Optional<Integer> cacheTime = params.getCachetime() != null ? Optional.of(params.getCachetime()) : configProvider.getBaseConfig().getSearching().getApiCacheTimeMinutes();
+            NewznabResponse searchResult;
+            Optional<PrefetchedResult> prefetchedResult = rssFeedPrefetcher.getPrefetchedResult(params, isTorznabCall());
+            if (prefetchedResult.isPresent()) {
+                searchResult = transformResults(prefetchedResult.get().getSearchResult(), params, prefetchedResult.get().getSearchRequest());
+            } else if (cacheTime.isPresent()) {
+                searchResult = apiSearchCache.get(Objects.hash(params.cacheKey(), isTorznabCall()), cacheTime.get(), SessionStorage.withCurrentSession(() -> search(params)));
+            } else {
+                searchResult = search(params);
             }
-            NewznabResponse searchResult = search(params);
             HttpHeaders httpHeaders = new HttpHeaders();
             httpHeaders.set(HttpHeaders.CONTENT_TYPE, searchResult.getContentHeader());
             if (params.getO() != OutputType.JSON) {
                 searchResult.setSearchType(isTorznabCall() ? "torznab" : "newznab");
             }
             return new ResponseEntity<>(searchResult, httpHeaders, HttpStatus.OK);
-
         }
 
         if (params.getT() == ActionAttribute.GET) {
@@ -108,7 +110,7 @@ public class ExternalApi {
         }
 
         if (params.getT() == ActionAttribute.CAPS) {
-            return getCaps();
+            return getCaps(params);
         }
 
         logger.error("Incorrect API request: {}", params);
@@ -116,121 +118,27 @@ public class ExternalApi {
         return new ResponseEntity<Object>(error, HttpStatus.OK);
     }
 
-    protected ResponseEntity<?> handleCachingSearch(NewznabParameters params) {
-        //Remove old entries
-        cache.entrySet().removeIf(x -> x.getValue().getLastUpdate().isBefore(clock.instant().minus(MAX_CACHE_AGE_HOURS, ChronoUnit.HOURS)));
-
-        CacheEntryValue cacheEntryValue;
-        if (cache.containsKey(params.cacheKey())) {
-            cacheEntryValue = cache.get(params.cacheKey());
-            if (cacheEntryValue.getLastUpdate().isAfter(clock.instant().minus(params.getCachetime(), ChronoUnit.MINUTES))) {
-                Instant nextUpdate = cacheEntryValue.getLastUpdate().plus(params.getCachetime(), ChronoUnit.MINUTES);
-                logger.info("Returning cached search result. Next update of search will be done at {}", nextUpdate);
-                return new ResponseEntity<>(cacheEntryValue.getSearchResult(), HttpStatus.OK);
-            } else {
-                logger.info("Updating search because cache time is exceeded");
-            }
-        }
-        //Remove oldest entry when max size is reached
-        if (cache.size() == MAX_CACHE_SIZE) {
-            Optional<Entry<Integer, CacheEntryValue>> keyToEvict = cache.entrySet().stream().min(Comparator.comparing(o -> o.getValue().getLastUpdate()));
-            //Should always be the case anyway
-            logger.info("Removing oldest entry from cache because its limit of {} is reached", MAX_CACHE_SIZE);
-            keyToEvict.ifPresent(newznabParametersCacheEntryValueEntry -> cache.remove(newznabParametersCacheEntryValueEntry.getKey()));
+    protected ResponseEntity<?> getCaps(NewznabParameters params) {
+        CachedCapsResponse caps = capsGenerator.getCaps(params.getO());
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(params.getO() == OutputType.JSON ? MediaType.APPLICATION_JSON_UTF8 : MediaType.APPLICATION_XML);
+        headers.setETag(caps.getEtag());
+        if (isEtagMatching(caps.getEtag())) {
+            return new ResponseEntity<>(headers, HttpStatus.NOT_MODIFIED);
         }
-
-        NewznabResponse searchResult = search(params);
-        logger.info("Putting search result into cache");
-        cache.put(params.cacheKey(), new CacheEntryValue(params, clock.instant(), searchResult));
-        return new ResponseEntity<>(searchResult, HttpStatus.OK);
+        return new ResponseEntity<>(caps.getBody(), headers, HttpStatus.OK);
     }
 
-    protected ResponseEntity<?> getCaps() {
-        CapsRoot capsRoot = new CapsRoot();
-        capsRoot.setRetention(new CapsRetention(3000));
-        capsRoot.setLimits(new CapsLimits(100, 100)); //later link to global setting when implemented
-
-        CapsServer capsServer = new CapsServer();
-        capsServer.setEmail("theotherp@gmx.de");
-        capsServer.setTitle("NZBHydra 2");
-        capsServer.setUrl("https://github.com/theotherp/nzbhydra2");
-        capsRoot.setServer(capsServer);
-
-        CapsSearching capsSearching = new CapsSearching();
-        capsSearching.setSearch(new CapsSearch("yes", "q,cat,limit,offset,minage,maxage,minsize,maxsize"));
-        capsSearching.setTvSearch(new CapsSearch("yes", "q,rid,tvdbid,tvmazeid,traktid,season,ep,cat,limit,offset,minage,maxage,minsize,maxsize"));
-        capsSearching.setMovieSearch(new CapsSearch("yes", "q,imdbid,tmdbid,cat,limit,offset,minage,maxage,minsize,maxsize"));
-        capsSearching.setBookSearch(new CapsSearch("yes", "q,author,title,cat,limit,offset,minage,maxage,minsize,maxsize"));
-        capsSearching.setAudioSearch(new CapsSearch("no", ""));
-        capsRoot.setSearching(capsSearching);
-
-        List<CapsCategory> mainCategories = new ArrayList<>();
-        mainCategories.add(new CapsCategory(1000, "Console", Arrays.asList(
-                new CapsCategory(1010, "NDS"),
-                new CapsCategory(1020, "PSP"),
-                new CapsCategory(1030, "Wii"),
-                new CapsCategory(1040, "XBox"),
-                new CapsCategory(1050, "Xbox 360"),
-                new CapsCategory(1060, "Wiiware"),
-                new CapsCategory(1070, "Xbox 360 DLC")
-        )));
-        mainCategories.add(new CapsCategory(2000, "Movies", Arrays.asList(
-                new CapsCategory(2010, "Foreign"),
-                new CapsCategory(2020, "Other"),
-                new CapsCategory(2030, "SD"),
-                new CapsCategory(2040, "HD"),
-                new CapsCategory(2045, "UHD"),
-                new CapsCategory(2050, "Bluray"),
-                new CapsCategory(2060, "3D")
-        )));
-        mainCategories.add(new CapsCategory(3000, "Audio", Arrays.asList(
-                new CapsCategory(3010, "MP3"),
-                new CapsCategory(3020, "Video"),
-                new CapsCategory(3030, "Audiobook"),
-                new CapsCategory(3040, "Lossless")
-        )));
-        mainCategories.add(new CapsCategory(4000, "PC", Arrays.asList(
-                new CapsCategory(4010, "0day"),
-                new CapsCategory(4020, "ISO"),
-                new CapsCategory(4030, "Mac"),
-                new CapsCategory(4040, "Mobile Oher"),
-                new CapsCategory(4050, "Games"),
-                new CapsCategory(4060, "Mobile IOS"),
-                new CapsCategory(4070, "Mobile Android")
-        )));
-        mainCategories.add(new CapsCategory(5000, "TV", Arrays.asList(
-                new CapsCategory(5020, "Foreign"),
-                new CapsCategory(5030, "SD"),
-                new CapsCategory(5040, "HD"),
-                new CapsCategory(5045, "UHD"),
-                new CapsCategory(5050, "Other"),
-                new CapsCategory(5060, "Sport"),
-                new CapsCategory(5070, "Anime"),
-                new CapsCategory(5080, "Documentary")
-        )));
-        mainCategories.add(new CapsCategory(6000, "XXX", Arrays.asList(
-                new CapsCategory(6010, "DVD"),
-                new CapsCategory(6020, "WMV"),
-                new CapsCategory(6030, "XviD"),
-                new CapsCategory(6040, "x264"),
-                new CapsCategory(6050, "Pack"),
-                new CapsCategory(6060, "Imgset"),
-                new CapsCategory(6070, "Other")
-        )));
-        mainCategories.add(new CapsCategory(7000, "Books", Arrays.asList(
-                new CapsCategory(7010, "Mags"),
-                new CapsCategory(7020, "Ebook"),
-                new CapsCategory(7030, "COmics")
-        )));
-        mainCategories.add(new CapsCategory(8000, "Other", Arrays.asList(
-                new CapsCategory(8010, "Misc")
-        )));
-
-
-        capsRoot.setCategories(new CapsCategories(mainCategories));
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_XML);
-        return new ResponseEntity<>(capsRoot, headers, HttpStatus.OK);
+    private boolean isEtagMatching(String etag) {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        if (!(requestAttributes instanceof ServletRequestAttributes)) {
+            return false;
+        }
+        String ifNoneMatch = ((ServletRequestAttributes) requestAttributes).getRequest().getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        return Stream.of(ifNoneMatch.split(",")).map(String::trim).map(x -> x.startsWith("W/") ? x.substring(2) : x).anyMatch(x -> x.equals("*") || x.equals(etag));
     }
 
     protected ResponseEntity<?> getNzb(NewznabParameters params) throws MissingParameterException, UnknownErrorException {
@@ -260,6 +168,7 @@ public class ExternalApi {
             searchRequest.setDownloadType(org.nzbhydra.searching.DownloadType.NZB);
         }
         SearchResult searchResult = searcher.search(searchRequest);
+        rssFeedPrefetcher.addSearchResults(params, isTorznabCall(), searchResult, searchRequest);
 
         NewznabResponse transformedResults = transformResults(searchResult, params, searchRequest);
         logger.info("Search took {}ms. Returning {} results", stopwatch.elapsed(TimeUnit.MILLISECONDS), searchResult.getSearchResultItems().size());
@@ -298,16 +207,22 @@ public class ExternalApi {
 
 
     protected NewznabResponse transformResults(SearchResult searchResult, NewznabParameters params, SearchRequest searchRequest) {
-        Stopwatch stopwatch = Stopwatch.createStarted();
-        NewznabResponse response;
         int total = searchResult.getNumberOfTotalAvailableResults() - searchResult.getNumberOfRejectedResults() - searchResult.getNumberOfRemovedDuplicates();
+        List<SearchResultItem> searchResultItems = searchResult.getSearchResultItems();
+        //The results are only transformed when the response is written
         if (params.getO() == OutputType.JSON) {
-            response = newznabJsonTransformer.transformToRoot(searchResult.getSearchResultItems(), params.getOffset(), total, searchRequest);
-        } else {
-            response = newznabXmlTransformer.getRssRoot(searchResult.getSearchResultItems(), params.getOffset(), total, searchRequest);
+            return new StreamedNewznabResponse("application/json; charset=UTF-8", "json", searchResultItems.size(), (outputStream, formatted) -> {
+                Stopwatch stopwatch = Stopwatch.createStarted();
+                newznabJsonTransformer.writeJson(searchResultItems, params.getOffset(), total, searchRequest, formatted, outputStream);
+                logger.debug(LoggingMarkers.PERFORMANCE, "Writing results took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+            });
         }
-        logger.debug(LoggingMarkers.PERFORMANCE, "Transforming results took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
-        return response;
+        boolean torznab = isTorznabCall();
+        return new StreamedNewznabResponse("application/xml", torznab ? "torznab" : "newznab", searchResultItems.size(), (outputStream, formatted) -> {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            newznabXmlTransformer.writeRss(searchResultItems, params.getOffset(), total, searchRequest, torznab, formatted, outputStream);
+            logger.debug(LoggingMarkers.PERFORMANCE, "Writing results took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        });
     }
 
 
@@ -350,35 +265,4 @@ public class ExternalApi {
         return searchRequest;
     }
 
-
-    @Data
-    @AllArgsConstructor
-    private static class CacheEntryValue {
-        private final NewznabParameters params;
-        private final Instant lastUpdate;
-        private final NewznabResponse searchResult;
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-            if (o == null || getClass() != o.getClass()) {
-                return false;
-            }
-            if (!super.equals(o)) {
-                return false;
-            }
-            CacheEntryValue that = (CacheEntryValue) o;
-            return com.google.common.base.Objects.equal(params, that.params) &&
-                    com.google.common.base.Objects.equal(lastUpdate, that.lastUpdate) &&
-                    com.google.common.base.Objects.equal(searchResult, that.searchResult);
-        }
-
-        @Override
-        public int hashCode() {
-            return com.google.common.base.Objects.hashCode(super.hashCode(), params, lastUpdate, searchResult);
-        }
-    }
-
 }
@@ -16,6 +16,11 @@
 
 package org.nzbhydra.api;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.downloading.FileHandler;
 import org.nzbhydra.mapping.newznab.json.*;
@@ -23,11 +28,17 @@ import org.nzbhydra.searching.SearchResultItem;
 import org.nzbhydra.searching.SearchResultItem.DownloadType;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map.Entry;
 import java.util.stream.Collectors;
 
 @Component
@@ -36,6 +47,8 @@ public class NewznabJsonTransformer {
     private static final String APPLICATION_TYPE_NZB = "application/x-nzb";
     private static final String APPLICATION_TYPE_TORRENT = "application/x-bittorrent";
 
+    private static final ObjectMapper OBJECT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
     @Autowired
     protected FileHandler nzbHandler;
     @Autowired
@@ -63,6 +76,50 @@ public class NewznabJsonTransformer {
         return rssRoot;
     }
 
+    /**
+     * Writes the same JSON as {@link #transformToRoot(List, Integer, int, SearchRequest)} would return directly to the output stream. Only
+     * one item is kept in memory at a time.
+     *
+     * @param formatted If true the JSON is pretty printed
+     */
+    void writeJson(List<SearchResultItem> searchResultItems, Integer offset, int total, SearchRequest searchRequest, boolean formatted, OutputStream outputStream) throws IOException {
+        //Serialize the root without items to keep the properties and their order as defined by the classes, then stream the items in its place
+        ObjectNode rootNode = OBJECT_MAPPER.valueToTree(transformToRoot(Collections.emptyList(), offset, total, searchRequest));
+        try (JsonGenerator generator = OBJECT_MAPPER.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            if (formatted) {
+                generator.useDefaultPrettyPrinter();
+            }
+            generator.writeStartObject();
+            Iterator<Entry<String, JsonNode>> rootFields = rootNode.fields();
+            while (rootFields.hasNext()) {
+                Entry<String, JsonNode> rootField = rootFields.next();
+                generator.writeFieldName(rootField.getKey());
+                if (!rootField.getKey().equals("channel")) {
+                    generator.writeTree(rootField.getValue());
+                    continue;
+                }
+                generator.writeStartObject();
+                Iterator<Entry<String, JsonNode>> channelFields = rootField.getValue().fields();
+                while (channelFields.hasNext()) {
+                    Entry<String, JsonNode> channelField = channelFields.next();
+                    generator.writeFieldName(channelField.getKey());
+                    if (channelField.getKey().equals("item")) {
+                        generator.writeStartArray();
+                        for (SearchResultItem searchResultItem : searchResultItems) {
+                            generator.writeObject(buildRssItem(searchResultItem, searchRequest));
+                        }
+                        generator.writeEndArray();
+                    } else {
+                        generator.writeTree(channelField.getValue());
+                    }
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+    }
+
     NewznabJsonItem buildRssItem(SearchResultItem searchResultItem, SearchRequest searchRequest) {
         NewznabJsonItem rssItem = new NewznabJsonItem();
         String link = nzbHandler.getDownloadLink(searchResultItem.getSearchResultId(), false, DownloadType.NZB);
@@ -16,6 +16,7 @@
 
 package org.nzbhydra.api;
 
+import com.google.common.base.Strings;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.downloading.FileHandler;
 import org.nzbhydra.mapping.newznab.xml.*;
@@ -27,6 +28,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.util.ArrayList;
@@ -41,6 +47,13 @@ public class NewznabXmlTransformer {
 
     private static final String APPLICATION_TYPE_NZB = "application/x-nzb";
     private static final String APPLICATION_TYPE_TORRENT = "application/x-bittorrent";
+    private static final String NEWZNAB_NAMESPACE = "http://www.newznab.com/DTD/2010/feeds/attributes/";
+    private static final String TORZNAB_NAMESPACE = "http://torznab.com/schemas/2015/feed";
+    private static final String ATOM_NAMESPACE = "http://www.w3.org/2005/Atom";
+    private static final char[] INDENTATION = ("\n" + Strings.repeat(" ", 40)).toCharArray();
+
+    private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
+    private static final JaxbPubdateAdapter PUBDATE_ADAPTER = new JaxbPubdateAdapter();
 
     @Autowired
     protected FileHandler nzbHandler;
@@ -70,6 +83,78 @@ public class NewznabXmlTransformer {
         return rssRoot;
     }
 
+    /**
+     * Writes the same RSS as {@link #getRssRoot(List, Integer, int, SearchRequest)} would return directly to the output stream. Only one
+     * item is kept in memory at a time.
+     *
+     * @param torznab   If true the attributes are written using the torznab namespace
+     * @param formatted If true the XML is indented
+     */
+    void writeRss(List<SearchResultItem> searchResultItems, Integer offset, int total, SearchRequest searchRequest, boolean torznab, boolean formatted, OutputStream outputStream) throws IOException {
+        try {
+            RssWriter writer = new RssWriter(XML_OUTPUT_FACTORY.createXMLStreamWriter(outputStream, "UTF-8"), formatted);
+            writer.writer.writeStartDocument("UTF-8", "1.0");
+            writer.startElement(null, "rss");
+            writer.writer.writeNamespace("atom", ATOM_NAMESPACE);
+            writer.writer.writeNamespace(torznab ? "torznab" : "newznab", torznab ? TORZNAB_NAMESPACE : NEWZNAB_NAMESPACE);
+            writer.writer.writeAttribute("version", "2.0");
+            writer.startElement(null, "channel");
+            writer.textElement("title", "NZBHydra 2");
+            writer.textElement("link", "https://www.github.com/theotherp/nzbhydra2");
+            writer.textElement("webMaster", "theotherp@gmx.de");
+            writer.textElement("generator", "NZBHydra2");
+            if (searchRequest.getDownloadType() == org.nzbhydra.searching.DownloadType.NZB) {
+                writer.emptyElement(NEWZNAB_NAMESPACE, "response");
+                writer.attribute("offset", offset == null ? 0 : offset);
+                writer.attribute("total", total);
+            }
+            for (SearchResultItem searchResultItem : searchResultItems) {
+                writeItem(writer, buildRssItem(searchResultItem, searchRequest), torznab);
+            }
+            writer.endElement(); //channel
+            writer.endElement(); //rss
+            writer.writer.writeEndDocument();
+            writer.writer.flush();
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to write RSS: " + e.getMessage(), e);
+        }
+    }
+
+    private void writeItem(RssWriter writer, NewznabXmlItem item, boolean torznab) throws XMLStreamException {
+        writer.startElement(null, "item");
+        writer.textElement("title", item.getTitle());
+        writer.textElement("link", item.getLink());
+        if (item.getEnclosure() != null) {
+            writer.emptyElement(null, "enclosure");
+            writer.attribute("url", item.getEnclosure().getUrl());
+            writer.attribute("length", item.getEnclosure().getLength());
+            writer.attribute("type", item.getEnclosure().getType());
+        }
+        if (item.getPubDate() != null) {
+            writer.textElement("pubDate", PUBDATE_ADAPTER.marshal(item.getPubDate()));
+        }
+        if (item.getRssGuid() != null) {
+            writer.startElement(null, "guid");
+            writer.attribute("isPermaLink", item.getRssGuid().isPermaLink());
+            if (item.getRssGuid().getGuid() != null) {
+                writer.writer.writeCharacters(item.getRssGuid().getGuid());
+            }
+            writer.endInlineElement();
+        }
+        writer.textElement("description", item.getDescription());
+        writer.textElement("comments", item.getComments());
+        writer.textElement("category", item.getCategory());
+        if (item.getGrabs() != null) {
+            writer.textElement("grabs", String.valueOf(item.getGrabs()));
+        }
+        for (NewznabAttribute attribute : torznab ? item.getTorznabAttributes() : item.getNewznabAttributes()) {
+            writer.emptyElement(torznab ? TORZNAB_NAMESPACE : NEWZNAB_NAMESPACE, "attr");
+            writer.attribute("name", attribute.getName());
+            writer.attribute("value", attribute.getValue());
+        }
+        writer.endElement();
+    }
+
     NewznabXmlItem buildRssItem(SearchResultItem searchResultItem, SearchRequest searchRequest) {
         NewznabXmlItem rssItem = new NewznabXmlItem();
         boolean isNzb = searchRequest.getDownloadType() == org.nzbhydra.searching.DownloadType.NZB;
@@ -110,4 +195,76 @@ public class NewznabXmlTransformer {
             return null;
         }
     }
+
+    /**
+     * Wraps an {@link XMLStreamWriter} and indents the elements if formatted output is wanted. Elements with a null text are skipped like
+     * JAXB does it.
+     */
+    private static class RssWriter {
+        private final XMLStreamWriter writer;
+        private final boolean formatted;
+        private int depth = 0;
+
+        RssWriter(XMLStreamWriter writer, boolean formatted) throws XMLStreamException {
+            this.writer = writer;
+            this.formatted = formatted;
+            writer.setPrefix("newznab", NEWZNAB_NAMESPACE);
+            writer.setPrefix("torznab", TORZNAB_NAMESPACE);
+        }
+
+        void startElement(String namespace, String name) throws XMLStreamException {
+            indent();
+            if (namespace == null) {
+                writer.writeStartElement(name);
+            } else {
+                writer.writeStartElement(namespace, name);
+            }
+            depth++;
+        }
+
+        void emptyElement(String namespace, String name) throws XMLStreamException {
+            indent();
+            if (namespace == null) {
+                writer.writeEmptyElement(name);
+            } else {
+                writer.writeEmptyElement(namespace, name);
+            }
+        }
+
+        void textElement(String name, String text) throws XMLStreamException {
+            if (text == null) {
+                return;
+            }
+            indent();
+            writer.writeStartElement(name);
+            writer.writeCharacters(text);
+            writer.writeEndElement();
+        }
+
+        void attribute(String name, Object value) throws XMLStreamException {
+            if (value != null) {
+                writer.writeAttribute(name, String.valueOf(value));
+            }
+        }
+
+        void endElement() throws XMLStreamException {
+            depth--;
+            indent();
+            writer.writeEndElement();
+        }
+
+        /**
+         * Ends an element which only contains text
+         */
+        void endInlineElement() throws XMLStreamException {
+            depth--;
+            writer.writeEndElement();
+        }
+
+        private void indent() throws XMLStreamException {
+            if (formatted) {
+                writer.writeCharacters(INDENTATION, 0, Math.min(1 + depth * 4, INDENTATION.length));
+            }
+        }
+    }
 }
@@ -0,0 +1,277 @@
+package org.nzbhydra.api;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.base.Strings;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import org.nzbhydra.config.CategoriesConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.nzbhydra.logging.LoggingMarkers;
+import org.nzbhydra.mapping.newznab.ActionAttribute;
+import org.nzbhydra.mapping.newznab.NewznabParameters;
+import org.nzbhydra.searching.CategoryProvider;
+import org.nzbhydra.searching.DownloadType;
+import org.nzbhydra.searching.SearchResult;
+import org.nzbhydra.searching.SearchResultItem;
+import org.nzbhydra.searching.SearchType;
+import org.nzbhydra.searching.Searcher;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+import org.nzbhydra.searching.searchrequests.SearchRequestFactory;
+import org.nzbhydra.tasks.HydraTask;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Answers API searches without query or other restrictions (as made by the RSS sync of Sonarr, Radarr, etc.) from feeds which are
+ * polled in the background. When such a search is made the first time it's executed normally, its feed is registered and filled with the
+ * results of that search. From then on the feed is polled regularly and the results of all polls are merged, so that following searches
+ * can be answered immediately.
+ * <p>
+ * Feeds which aren't requested anymore are removed after a while.
+ */
+@Component
+public class RssFeedPrefetcher implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(RssFeedPrefetcher.class);
+
+    private static final long MINUTE = 1000 * 60;
+    /**
+     * Feeds not requested for this long are not polled anymore
+     */
+    private static final Duration FEED_EXPIRY = Duration.ofHours(1);
+    /**
+     * Feeds not successfully polled for this long (or three poll intervals if that's longer) are not used to answer searches (e.g. because
+     * all polls failed)
+     */
+    private static final Duration MAX_FEED_AGE = Duration.ofMinutes(30);
+    /**
+     * Maximum number of results kept for every feed
+     */
+    protected static final int MAX_FEED_ITEMS = 500;
+    private static final int POLL_LIMIT = 100;
+
+    @Autowired
+    private ConfigProvider configProvider;
+    @Autowired
+    private Searcher searcher;
+    @Autowired
+    private SearchRequestFactory searchRequestFactory;
+    @Autowired
+    private CategoryProvider categoryProvider;
+
+    private final ConcurrentMap<FeedKey, Feed> feeds = new ConcurrentHashMap<>();
+    private final Random random = new Random();
+    protected Clock clock = Clock.systemUTC();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong failedPolls = new AtomicLong();
+
+    /**
+     * @param params  The parameters of the API search
+     * @param torznab If the search was made using the torznab API
+     * @return The results of the feed matching the search or empty if the search has any restrictions or its feed wasn't polled yet
+     */
+    public Optional<PrefetchedResult> getPrefetchedResult(NewznabParameters params, boolean torznab) {
+        if (!configProvider.getBaseConfig().getSearching().isPrefetchRssFeeds() || !isRssSearch(params)) {
+            return Optional.empty();
+        }
+        FeedKey key = new FeedKey(SearchType.valueOf(params.getT().name()), torznab ? DownloadType.TORRENT : DownloadType.NZB, normalizeCategories(params.getCat()));
+        Instant now = clock.instant();
+        Feed feed = feeds.computeIfAbsent(key, x -> {
+            logger.info("Registering RSS feed for {}. It will be polled regularly from now on", x);
+            return new Feed(now);
+        });
+        feed.lastRequested = now;
+        if (feed.lastPolled == null || feed.lastPolled.plus(getMaxFeedAge()).isBefore(now)) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        List<SearchResultItem> items = feed.items;
+        int limit = params.getLimit() == null ? POLL_LIMIT : params.getLimit();
+        SearchResult searchResult = new SearchResult();
+        searchResult.setSearchResultItems(new ArrayList<>(items.subList(0, Math.min(limit, items.size()))));
+        searchResult.setNumberOfTotalAvailableResults(items.size());
+        logger.info("Returning {} results of RSS feed polled at {}", searchResult.getSearchResultItems().size(), feed.lastPolled);
+        return Optional.of(new PrefetchedResult(searchResult, feed.searchRequest));
+    }
+
+    /**
+     * Fills the feed of the search (if one is registered) with the results of a search executed normally, so that the feed can be used
+     * before it's polled the first time.
+     */
+    public void addSearchResults(NewznabParameters params, boolean torznab, SearchResult searchResult, SearchRequest searchRequest) {
+        if (!configProvider.getBaseConfig().getSearching().isPrefetchRssFeeds() || !isRssSearch(params)) {
+            return;
+        }
+        FeedKey key = new FeedKey(SearchType.valueOf(params.getT().name()), torznab ? DownloadType.TORRENT : DownloadType.NZB, normalizeCategories(params.getCat()));
+        Feed feed = feeds.get(key);
+        if (feed != null && feed.lastPolled == null) {
+            merge(feed, searchResult, searchRequest);
+            logger.debug("Filled RSS feed for {} with {} results of search", key, feed.items.size());
+        }
+    }
+
+    /**
+     * Checks every minute if any feed needs to be polled. The interval for polling the feeds is configurable.
+     */
+    @HydraTask(configId = "prefetchRssFeeds", name = "Prefetch RSS feeds", interval = MINUTE)
+    public void prefetch() {
+        if (!configProvider.getBaseConfig().getSearching().isPrefetchRssFeeds()) {
+            feeds.clear();
+            return;
+        }
+        Instant now = clock.instant();
+        Duration pollInterval = Duration.ofMinutes(configProvider.getBaseConfig().getSearching().getPrefetchRssFeedsIntervalMinutes());
+        for (Map.Entry<FeedKey, Feed> entry : feeds.entrySet()) {
+            if (entry.getValue().lastRequested.plus(FEED_EXPIRY).isBefore(now)) {
+                logger.info("Removing RSS feed for {} because it wasn't requested since {}", entry.getKey(), entry.getValue().lastRequested);
+                feeds.remove(entry.getKey());
+                continue;
+            }
+            Instant lastPollAttempt = entry.getValue().lastPollAttempt;
+            if (lastPollAttempt != null && lastPollAttempt.plus(pollInterval).isAfter(now)) {
+                continue;
+            }
+            entry.getValue().lastPollAttempt = now;
+            try {
+                poll(entry.getKey(), entry.getValue());
+            } catch (Exception e) {
+                failedPolls.incrementAndGet();
+                logger.warn("Unable to poll RSS feed for {}: {}", entry.getKey(), e.getMessage());
+            } finally {
+                MDC.remove("SEARCH");
+            }
+        }
+    }
+
+    private void poll(FeedKey key, Feed feed) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        SearchRequest searchRequest = searchRequestFactory.getSearchRequest(key.getSearchType(), SearchSource.API, categoryProvider.fromSearchNewznabCategories(key.getCategories(), CategoriesConfig.allCategory), random.nextInt(1000000), 0, POLL_LIMIT);
+        searchRequest.setDownloadType(key.getDownloadType());
+        if (!key.getCategories().isEmpty()) {
+            searchRequest.getInternalData().setNewznabCategories(key.getCategories());
+        }
+        SearchResult searchResult = searcher.search(searchRequest);
+        polls.incrementAndGet();
+        merge(feed, searchResult, searchRequest);
+        logger.debug(LoggingMarkers.PERFORMANCE, "Polling RSS feed for {} took {}ms. Feed contains {} results", key, stopwatch.elapsed(TimeUnit.MILLISECONDS), feed.items.size());
+    }
+
+    private void merge(Feed feed, SearchResult searchResult, SearchRequest searchRequest) {
+        //A search may fill the feed while it is polled
+        synchronized (feed) {
+            //The results are deduplicated by the searcher. Results found by earlier polls are kept so that callers don't miss any if the feeds move fast
+            Map<Long, SearchResultItem> merged = new LinkedHashMap<>();
+            for (SearchResultItem item : searchResult.getSearchResultItems()) {
+                merged.put(item.getSearchResultId(), item);
+            }
+            for (SearchResultItem item : feed.items) {
+                merged.putIfAbsent(item.getSearchResultId(), item);
+            }
+            feed.items = Collections.unmodifiableList(merged.values().stream()
+                    .sorted(Comparator.comparing(SearchResultItem::getBestDate, Comparator.nullsLast(Comparator.reverseOrder())))
+                    .limit(MAX_FEED_ITEMS)
+                    .collect(Collectors.toList()));
+            feed.searchRequest = searchRequest;
+            feed.lastPolled = clock.instant();
+        }
+    }
+
+    private Duration getMaxFeedAge() {
+        Duration threePollIntervals = Duration.ofMinutes(3L * configProvider.getBaseConfig().getSearching().getPrefetchRssFeedsIntervalMinutes());
+        return threePollIntervals.compareTo(MAX_FEED_AGE) > 0 ? threePollIntervals : MAX_FEED_AGE;
+    }
+
+    /**
+     * @return true if the search only filters by type and category, i.e. returns the latest results
+     */
+    protected static boolean isRssSearch(NewznabParameters params) {
+        if (Stream.of(ActionAttribute.SEARCH, ActionAttribute.BOOK, ActionAttribute.TVSEARCH, ActionAttribute.MOVIE).noneMatch(x -> x == params.getT())) {
+            return false;
+        }
+        boolean noTextRestrictions = Stream.of(params.getQ(), params.getRid(), params.getTvdbid(), params.getTvmazeid(), params.getTraktId(), params.getImdbid(), params.getTmdbid(), params.getEp(), params.getAuthor(), params.getTitle(), params.getGenre())
+                .allMatch(Strings::isNullOrEmpty);
+        boolean noOtherRestrictions = Stream.of(params.getSeason(), params.getMinage(), params.getMaxage(), params.getMinsize(), params.getMaxsize()).allMatch(Objects::isNull);
+        return noTextRestrictions && noOtherRestrictions && (params.getOffset() == null || params.getOffset() == 0);
+    }
+
+    private static List<Integer> normalizeCategories(List<Integer> categories) {
+        if (categories == null) {
+            return Collections.emptyList();
+        }
+        return categories.stream().distinct().sorted().collect(Collectors.toList());
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        //Indexers, categories or filters may have changed, so the results of earlier polls may be wrong now
+        logger.debug("Clearing prefetched RSS feeds because config changed");
+        feeds.clear();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "rssFeedPrefetcher";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hits", hits.get());
+        metrics.put("misses", misses.get());
+        metrics.put("polls", polls.get());
+        metrics.put("failedPolls", failedPolls.get());
+        metrics.put("feeds", feeds.size());
+        return metrics;
+    }
+
+    @Getter
+    @AllArgsConstructor
+    public static class PrefetchedResult {
+        private final SearchResult searchResult;
+        private final SearchRequest searchRequest;
+    }
+
+    @Data
+    @AllArgsConstructor
+    private static class FeedKey {
+        private SearchType searchType;
+        private DownloadType downloadType;
+        private List<Integer> categories;
+    }
+
+    private static class Feed {
+        private volatile Instant lastRequested;
+        private volatile Instant lastPolled;
+        private volatile Instant lastPollAttempt;
+        private volatile SearchRequest searchRequest;
+        private volatile List<SearchResultItem> items = Collections.emptyList();
+
+        Feed(Instant lastRequested) {
+            this.lastRequested = lastRequested;
+        }
+    }
+
+}
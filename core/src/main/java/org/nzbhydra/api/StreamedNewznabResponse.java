@@ -0,0 +1,73 @@
+package org.nzbhydra.api;
+
+import org.nzbhydra.mapping.newznab.NewznabResponse;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A newznab or torznab search response which is not built as a whole but written directly to the output stream when the response is
+ * sent. Can be written more than once, e.g. when it's cached.
+ */
+public class StreamedNewznabResponse extends NewznabResponse {
+
+    private final String contentHeader;
+    private final int numberOfItems;
+    private final ResponseWriter responseWriter;
+    private String searchType;
+
+    /**
+     * @param numberOfItems The number of items written by the response writer
+     */
+    public StreamedNewznabResponse(String contentHeader, String searchType, int numberOfItems, ResponseWriter responseWriter) {
+        this.contentHeader = contentHeader;
+        this.searchType = searchType;
+        this.numberOfItems = numberOfItems;
+        this.responseWriter = responseWriter;
+    }
+
+    /**
+     * @param formatted If true the output is indented
+     */
+    public void writeTo(OutputStream outputStream, boolean formatted) throws IOException {
+        responseWriter.write(outputStream, formatted);
+    }
+
+    public int getNumberOfItems() {
+        return numberOfItems;
+    }
+
+    @Override
+    public String getContentHeader() {
+        return contentHeader;
+    }
+
+    @Override
+    public String getSearchType() {
+        return searchType;
+    }
+
+    @Override
+    public void setSearchType(String searchType) {
+        this.searchType = searchType;
+    }
+
+    @Override
+    public String toXmlString() {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        try {
+            writeTo(outputStream, true);
+        } catch (IOException e) {
+            return null;
+        }
+        return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    public interface ResponseWriter {
+        void write(OutputStream outputStream, boolean formatted) throws IOException;
+    }
+
+}
@@ -10,7 +10,7 @@ import org.nzbhydra.config.sensitive.SensitiveData;
 import org.nzbhydra.indexers.Indexer.BackendType;
 import org.nzbhydra.mapping.newznab.ActionAttribute;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
-import org.nzbhydra.searching.IndexerForSearchSelector;
+import org.nzbhydra.searching.IndexerEligibilityIndex;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 import java.time.Instant;
@@ -52,6 +52,7 @@ public class IndexerConfig extends ValidatingConfig<IndexerConfig> {
     private Long disabledUntil = null;
     private int disabledLevel;
     private Integer loadLimitOnRandom = null;
+    private Integer maxConcurrentCalls = null;
     private String name;
     @SensitiveData
     private String password = null;
@@ -84,6 +85,10 @@ public class IndexerConfig extends ValidatingConfig<IndexerConfig> {
         return Optional.ofNullable(loadLimitOnRandom);
     }
 
+    public Optional<Integer> getMaxConcurrentCalls() {
+        return Optional.ofNullable(maxConcurrentCalls);
+    }
+
     public Optional<Integer> getGeneralMinSize() {
         return Optional.ofNullable(generalMinSize);
     }
@@ -153,7 +158,7 @@ public class IndexerConfig extends ValidatingConfig<IndexerConfig> {
         ConfigValidationResult validationResult = new ConfigValidationResult();
 
         for (String schedule : getSchedule()) {
-            Matcher matcher = IndexerForSearchSelector.SCHEDULER_PATTERN.matcher(schedule);
+            Matcher matcher = IndexerEligibilityIndex.SCHEDULER_PATTERN.matcher(schedule);
             if (!matcher.matches()) {
                 validationResult.getErrorMessages().add("Indexer " + getName() + " contains an invalid schedule: " + schedule);
             }
@@ -164,6 +169,9 @@ public class IndexerConfig extends ValidatingConfig<IndexerConfig> {
         if (getDownloadLimit().isPresent() && getDownloadLimit().get() <= 0) {
             validationResult.getErrorMessages().add("Indexer " + getName() + " has a download limit of 0 or lower which doesn't make sense: ");
         }
+        if (getMaxConcurrentCalls().isPresent() && getMaxConcurrentCalls().get() <= 0) {
+            validationResult.getErrorMessages().add("Indexer " + getName() + " has a maximum of concurrent calls of 0 or lower which doesn't make sense");
+        }
 
         return validationResult;
     }
@@ -17,6 +17,9 @@ import java.util.Optional;
 @ConfigurationProperties
 public class SearchingConfig extends ValidatingConfig<SearchingConfig> {
 
+    private boolean adaptiveIndexerTimeouts = false;
+    private int apiCacheSizeMb = 50;
+    private Integer apiCacheTimeMinutes = null;
     @JsonFormat(shape = Shape.STRING)
     private SearchSourceRestriction applyRestrictions = SearchSourceRestriction.BOTH;
 
@@ -27,18 +30,24 @@ public class SearchingConfig extends ValidatingConfig<SearchingConfig> {
     private String forbiddenRegex;
     private List<String> forbiddenWords = new ArrayList<>();
     private SearchSourceRestriction generateQueries = SearchSourceRestriction.NONE;
+    private boolean hedgeIndexerRequests = false;
+    private Integer hitLimitBurstPercent = null;
     @JsonFormat(shape = Shape.STRING)
     private SearchSourceRestriction idFallbackToQueryGeneration = SearchSourceRestriction.NONE;
     private boolean ignorePassworded = false;
     private boolean ignoreTemporarilyDisabled = false;
+    private int indexerThreadPoolSize = 50;
     private int keepSearchResultsForDays = 14;
     private String language = "en";
     private boolean loadAllCachedOnInternal;
     private Integer maxAge;
     @JsonFormat(shape = Shape.STRING)
     private FileDownloadAccessType nzbAccessType = FileDownloadAccessType.REDIRECT;
+    private boolean prefetchRssFeeds = false;
+    private int prefetchRssFeedsIntervalMinutes = 10;
     private List<String> removeTrailing = new ArrayList<>();
     private String requiredRegex;
+    private Integer returnApiResultsAfterMs = null;
     private List<String> requiredWords = new ArrayList<>();
     private boolean showQuickFilterButtons = true;
     private Integer timeout = 30;
@@ -63,6 +72,18 @@ public class SearchingConfig extends ValidatingConfig<SearchingConfig> {
         return Optional.ofNullable(Strings.emptyToNull(requiredRegex));
     }
 
+    public Optional<Integer> getApiCacheTimeMinutes() {
+        return Optional.ofNullable(apiCacheTimeMinutes);
+    }
+
+    public Optional<Integer> getHitLimitBurstPercent() {
+        return Optional.ofNullable(hitLimitBurstPercent);
+    }
+
+    public Optional<Integer> getReturnApiResultsAfterMs() {
+        return Optional.ofNullable(returnApiResultsAfterMs);
+    }
+
     public Optional<String> getUserAgent() {
         return Optional.ofNullable(Strings.emptyToNull(userAgent));
     }
@@ -78,6 +99,24 @@ public class SearchingConfig extends ValidatingConfig<SearchingConfig> {
         List<String> warnings = new ArrayList<>();
         checkRegex(errors, requiredRegex, "The required regex in \"Searching\" is invalid");
         checkRegex(errors, forbiddenRegex, "The forbidden in \"Searching\" is invalid");
+        if (getReturnApiResultsAfterMs().isPresent() && getReturnApiResultsAfterMs().get() <= 0) {
+            errors.add("The time after which API results are returned must be empty or greater than 0");
+        }
+        if (getApiCacheTimeMinutes().isPresent() && getApiCacheTimeMinutes().get() <= 0) {
+            errors.add("The API cache time must be empty or greater than 0");
+        }
+        if (apiCacheSizeMb <= 0) {
+            errors.add("The API cache size must be greater than 0");
+        }
+        if (getHitLimitBurstPercent().isPresent() && (getHitLimitBurstPercent().get() <= 0 || getHitLimitBurstPercent().get() > 100)) {
+            errors.add("The hit limit burst must be empty or between 1 and 100 percent");
+        }
+        if (prefetchRssFeedsIntervalMinutes <= 0) {
+            errors.add("The interval for prefetching RSS feeds must be greater than 0");
+        }
+        if (indexerThreadPoolSize <= 0) {
+            errors.add("The number of threads used to call indexers must be greater than 0");
+        }
 
         if (applyRestrictions == SearchSourceRestriction.NONE) {
             if (!getRequiredWords().isEmpty() || !getForbiddenWords().isEmpty()) {
@@ -16,6 +16,8 @@ import org.springframework.web.bind.annotation.*;
 import java.io.File;
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 @RestController
 public class DebugInfosWeb {
@@ -24,6 +26,8 @@ public class DebugInfosWeb {
     private LogContentProvider logContentProvider;
     @Autowired
     private org.nzbhydra.debuginfos.DebugInfosProvider debugInfos;
+    @Autowired
+    private List<MetricsProvider> metricsProviders;
 
     private static final Logger logger = LoggerFactory.getLogger(DebugInfosWeb.class);
 
@@ -70,6 +74,16 @@ public class DebugInfosWeb {
         }
     }
 
+    @Secured({"ROLE_ADMIN"})
+    @RequestMapping(value = "/internalapi/debuginfos/metrics", method = RequestMethod.GET)
+    public Map<String, Map<String, Object>> getMetrics() {
+        Map<String, Map<String, Object>> metrics = new TreeMap<>();
+        for (MetricsProvider metricsProvider : metricsProviders) {
+            metrics.put(metricsProvider.getMetricsName(), metricsProvider.getMetrics());
+        }
+        return metrics;
+    }
+
     @Secured({"ROLE_ADMIN"})
     @RequestMapping(value = "/internalapi/debuginfos/executesqlquery", method = RequestMethod.POST)
     public GenericResponse executeSqlQuery(@RequestBody String sql) throws IOException {
@@ -0,0 +1,14 @@
+package org.nzbhydra.debuginfos;
+
+import java.util.Map;
+
+/**
+ * Implemented by components which collect runtime metrics (queue sizes, counters, ...). All metrics are available under /internalapi/debuginfos/metrics
+ */
+public interface MetricsProvider {
+
+    String getMetricsName();
+
+    Map<String, Object> getMetrics();
+
+}
@@ -13,6 +13,7 @@ import org.nzbhydra.okhttp.HydraOkHttp3ClientHttpRequestFactory;
 import org.nzbhydra.searching.SearchModuleProvider;
 import org.nzbhydra.searching.SearchResultEntity;
 import org.nzbhydra.searching.SearchResultItem.DownloadType;
+import org.nzbhydra.searching.SearchResultPersister;
 import org.nzbhydra.searching.SearchResultRepository;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.nzbhydra.web.UrlCalculator;
@@ -46,6 +47,8 @@ public class FileHandler {
     @Autowired
     protected SearchResultRepository searchResultRepository;
     @Autowired
+    protected SearchResultPersister searchResultPersister;
+    @Autowired
     protected FileDownloadRepository downloadRepository;
     @Autowired
     protected SearchModuleProvider searchModuleProvider;
@@ -57,6 +60,7 @@ public class FileHandler {
     protected UrlCalculator urlCalculator;
 
     public DownloadResult getFileByGuid(long guid, FileDownloadAccessType fileDownloadAccessType, SearchSource accessSource) throws InvalidSearchResultIdException {
+        searchResultPersister.flushIfPending(guid);
         SearchResultEntity result = searchResultRepository.findOne(guid);
         if (result == null) {
             logger.error("Download request with invalid/outdated GUID {}", guid);
@@ -200,6 +204,7 @@ public class FileHandler {
     }
 
     public NfoResult getNfo(Long searchResultId) {
+        searchResultPersister.flushIfPending(searchResultId);
         SearchResultEntity result = searchResultRepository.findOne(searchResultId);
         if (result == null) {
             logger.error("Download request with invalid/outdated search result ID " + searchResultId);
@@ -222,7 +227,7 @@ public class FileHandler {
         Request request = new Request.Builder().url(result.getLink()).build();
         Indexer indexerByName = searchModuleProvider.getIndexerByName(result.getIndexer().getName());
         Integer timeout = indexerByName.getConfig().getTimeout().orElse(configProvider.getBaseConfig().getSearching().getTimeout());
-        try (Response response = clientHttpRequestFactory.getOkHttpClientBuilder(request.url().uri()).readTimeout(timeout, TimeUnit.SECONDS).connectTimeout(timeout, TimeUnit.SECONDS).build().newCall(request).execute()) {
+        try (Response response = clientHttpRequestFactory.getOkHttpClient(request.url().uri(), timeout).newCall(request).execute()) {
             if (!response.isSuccessful()) {
                 throw new IOException("Unsuccessful NZB download from URL " + result.getLink() + ". Message: " + response.message());
             }
@@ -23,6 +23,7 @@ import org.nzbhydra.downloading.DownloadResult;
 import org.nzbhydra.downloading.FileHandler;
 import org.nzbhydra.downloading.InvalidSearchResultIdException;
 import org.nzbhydra.searching.SearchResultEntity;
+import org.nzbhydra.searching.SearchResultPersister;
 import org.nzbhydra.searching.SearchResultRepository;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.slf4j.Logger;
@@ -51,9 +52,12 @@ public class TorrentFileHandler {
     protected ConfigProvider configProvider;
     @Autowired
     private SearchResultRepository searchResultRepository;
+    @Autowired
+    private SearchResultPersister searchResultPersister;
 
     public DownloadResult getTorrentByGuid(long guid, FileDownloadAccessType accessType, SearchRequest.SearchSource accessSource) throws InvalidSearchResultIdException {
         //Get result. if link contains magnet: return redirect to magnet URI. otherwise return file
+        searchResultPersister.flushIfPending(guid);
         SearchResultEntity result = searchResultRepository.findOne(guid);
         if (result == null) {
             logger.error("Download request with invalid/outdated GUID {}", guid);
@@ -12,6 +12,7 @@ import org.nzbhydra.mediainfo.InfoProvider;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.mediainfo.InfoProviderException;
 import org.nzbhydra.mediainfo.MediaInfo;
+import org.nzbhydra.okhttp.WebAccess.ResponseBodyReader;
 import org.nzbhydra.searching.*;
 import org.nzbhydra.searching.SearchResultAcceptor.AcceptorResult;
 import org.nzbhydra.searching.searchrequests.InternalData.FallbackState;
@@ -22,15 +23,10 @@ import org.slf4j.Marker;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Component;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.util.UriComponentsBuilder;
 
-import javax.persistence.EntityExistsException;
 import java.net.URI;
 import java.time.Instant;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeParseException;
-import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
@@ -45,12 +41,10 @@ public abstract class Indexer<T> {
         NEWZNAB
     }
 
-    protected static final List<Integer> DISABLE_PERIODS = Arrays.asList(0, 15, 30, 60, 3 * 60, 6 * 60, 12 * 60, 24 * 60);
     private static final Logger logger = LoggerFactory.getLogger(Indexer.class);
 
-    List<DateTimeFormatter> DATE_FORMATs = Arrays.asList(DateTimeFormatter.RFC_1123_DATE_TIME, DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH));
+    protected final RssDateParser dateParser = new RssDateParser();
 
-    private final Object lock = "";
 
     protected IndexerEntity indexer;
     protected IndexerConfig config;
@@ -60,11 +54,13 @@ public abstract class Indexer<T> {
     @Autowired
     protected IndexerRepository indexerRepository;
     @Autowired
-    protected SearchResultRepository searchResultRepository;
+    protected SearchResultPersister searchResultPersister;
     @Autowired
-    protected IndexerApiAccessRepository indexerApiAccessRepository;
+    protected IndexerApiAccessWriter indexerApiAccessWriter;
     @Autowired
-    protected IndexerApiAccessEntityShortRepository indexerApiAccessShortRepository;
+    protected IndexerStatusStore indexerStatusStore;
+    @Autowired
+    protected IndexerCircuitBreaker indexerCircuitBreaker;
     @Autowired
     protected IndexerWebAccess indexerWebAccess;
     @Autowired
@@ -194,38 +190,31 @@ public abstract class Indexer<T> {
         return query;
     }
 
-    @Transactional
     protected List<SearchResultItem> persistSearchResults(List<SearchResultItem> searchResultItems) {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        synchronized (lock) { //Locking per indexer prevents multiple threads trying to save the same "new" results to the database
-            ArrayList<SearchResultEntity> searchResultEntities = new ArrayList<>();
-            Set<Long> alreadySavedIds = searchResultRepository.findAllIdsByIdIn(searchResultItems.stream().map(SearchResultIdCalculator::calculateSearchResultId).collect(Collectors.toList()));
-            for (SearchResultItem item : searchResultItems) {
-                long guid = SearchResultIdCalculator.calculateSearchResultId(item);
-                if (!alreadySavedIds.contains(guid)) {
-                    SearchResultEntity searchResultEntity = new SearchResultEntity();
-
-                    //Set all entity relevant data
-                    searchResultEntity.setIndexer(indexer);
-                    searchResultEntity.setTitle(item.getTitle());
-                    searchResultEntity.setLink(item.getLink());
-                    searchResultEntity.setDetails(item.getDetails());
-                    searchResultEntity.setIndexerGuid(item.getIndexerGuid());
-                    searchResultEntity.setFirstFound(Instant.now());
-                    searchResultEntity.setDownloadType(item.getDownloadType());
-                    searchResultEntity.setPubDate(item.getPubDate());
-                    searchResultEntities.add(searchResultEntity);
-                }
-                //LATER Unify guid and searchResultId which are the same
-                item.setGuid(guid);
-                item.setSearchResultId(guid);
-            }
-            try {
-                searchResultRepository.save(searchResultEntities);
-            } catch (EntityExistsException e) {
-                logger.error("Unable to save the search results to the database", e);
-            }
+        List<SearchResultEntity> searchResultEntities = new ArrayList<>();
+        for (SearchResultItem item : searchResultItems) {
+            long guid = SearchResultIdCalculator.calculateSearchResultId(item);
+            SearchResultEntity searchResultEntity = new SearchResultEntity();
+
+            //Set all entity relevant data
+            searchResultEntity.setId(guid);
+            searchResultEntity.setIndexer(indexer);
+            searchResultEntity.setTitle(item.getTitle());
+            searchResultEntity.setLink(item.getLink());
+            searchResultEntity.setDetails(item.getDetails());
+            searchResultEntity.setIndexerGuid(item.getIndexerGuid());
+            searchResultEntity.setFirstFound(Instant.now());
+            searchResultEntity.setDownloadType(item.getDownloadType());
+            searchResultEntity.setPubDate(item.getPubDate());
+            searchResultEntities.add(searchResultEntity);
+
+            //LATER Unify guid and searchResultId which are the same
+            item.setGuid(guid);
+            item.setSearchResultId(guid);
         }
+        //Results already in the database are skipped by the persister. The IDs are calculated, so the results can be used before they're written
+        searchResultPersister.persist(searchResultEntities);
 
         getLogger().debug(LoggingMarkers.PERFORMANCE, "Handling of {} search results took {}ms", searchResultItems.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
         return searchResultItems;
@@ -236,28 +225,18 @@ public abstract class Indexer<T> {
         if (getConfig().getDisabledLevel() > 0) {
             debug("Indexer was successfully called after {} failed attempts in a row", getConfig().getDisabledLevel());
         }
-        getConfig().setState(IndexerConfig.State.ENABLED);
-        getConfig().setLastError(null);
-        getConfig().setDisabledUntil(null);
-        getConfig().setDisabledLevel(0);
-        configProvider.getBaseConfig().saveInternal();
+        indexerCircuitBreaker.recordSuccess(getConfig(), responseTime);
         saveApiAccess(accessType, responseTime, IndexerAccessResult.SUCCESSFUL, true);
     }
 
     protected void handleFailure(String reason, Boolean disablePermanently, IndexerApiAccessType accessType, Long responseTime, IndexerAccessResult accessResult) {
         if (disablePermanently) {
             getLogger().warn("Because an unrecoverable error occurred {} will be permanently disabled until reenabled by the user", indexer.getName());
-            getConfig().setState(IndexerConfig.State.DISABLED_SYSTEM);
+            indexerStatusStore.setStatus(getConfig(), IndexerConfig.State.DISABLED_SYSTEM, getConfig().getDisabledUntil(), getConfig().getDisabledLevel(), reason);
         } else {
-            getConfig().setState(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
-            getConfig().setDisabledLevel(getConfig().getDisabledLevel() + 1);
-            long minutesToAdd = DISABLE_PERIODS.get(Math.min(DISABLE_PERIODS.size() - 1, getConfig().getDisabledLevel()));
-            Instant disabledUntil = Instant.now().plus(minutesToAdd, ChronoUnit.MINUTES);
-            getConfig().setDisabledUntil(disabledUntil.toEpochMilli());
-            getLogger().warn("Because an error occurred {} will be temporarily disabled until {}. This is error number {} in a row", indexer.getName(), disabledUntil, getConfig().getDisabledLevel());
+            //The circuit breaker decides if the indexer is disabled, depending on how many of the recent calls failed
+            indexerCircuitBreaker.recordFailure(getConfig(), reason);
         }
-        getConfig().setLastError(reason);
-        configProvider.getBaseConfig().saveInternal();
 
         saveApiAccess(accessType, responseTime, accessResult, false);
     }
@@ -268,9 +247,8 @@ public abstract class Indexer<T> {
         apiAccess.setResponseTime(responseTime);
         apiAccess.setResult(accessResult);
         apiAccess.setTime(Instant.now());
-        indexerApiAccessRepository.save(apiAccess);
-
-        indexerApiAccessShortRepository.save(new IndexerApiAccessEntityShort(indexer, successful));
+        //Written in the background
+        indexerApiAccessWriter.save(apiAccess, new IndexerApiAccessEntityShort(indexer, successful));
     }
 
     protected void handleIndexerAccessException(IndexerAccessException e, IndexerApiAccessType accessType) {
@@ -330,6 +308,24 @@ public abstract class Indexer<T> {
         return result;
     }
 
+    /**
+     * Like {@link #getAndStoreResultToDatabase(URI, Class, IndexerApiAccessType)} but lets the reader parse the response while it's being received
+     *
+     * @param uri           URI to call
+     * @param reader        Reads the response body
+     * @param apiAccessType The API access type, needed for the database entry
+     * @param <T>           Type returned by the reader
+     * @return The parsed web response
+     * @throws IndexerAccessException
+     */
+    protected <T> T getAndStoreStreamedResultToDatabase(URI uri, ResponseBodyReader<T> reader, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        T result = indexerWebAccess.getStreamed(uri, config, reader);
+        long responseTime = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+        handleSuccess(apiAccessType, responseTime);
+        return result;
+    }
+
     <T> T callInderWebAccess(URI uri, Class<T> responseType) throws IndexerAccessException {
         return indexerWebAccess.get(uri, config, responseType);
     }
@@ -439,15 +435,11 @@ public abstract class Indexer<T> {
     }
 
     public Optional<Instant> tryParseDate(String dateString) {
-        for (DateTimeFormatter formatter : DATE_FORMATs) {
-            try {
-                Instant instant = Instant.from(formatter.parse(dateString));
-                return Optional.of(instant);
-            } catch (DateTimeParseException e) {
-                logger.debug("Unable to parse date string " + dateString);
-            }
+        Optional<Instant> instant = dateParser.parse(dateString);
+        if (!instant.isPresent()) {
+            logger.debug("Unable to parse date string {}", dateString);
         }
-        return Optional.empty();
+        return instant;
     }
 
 
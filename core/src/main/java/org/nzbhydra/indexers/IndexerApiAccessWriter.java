@@ -0,0 +1,140 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.nzbhydra.logging.LoggingMarkers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Writes indexer API accesses to the database in the background so that indexer calls don't have to wait for the database. Accesses are
+ * queued and written in batches every few hundred milliseconds.
+ */
+@Component
+public class IndexerApiAccessWriter implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerApiAccessWriter.class);
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 200;
+    private static final long FLUSH_INTERVAL_MS = 300;
+
+    private final IndexerApiAccessRepository indexerApiAccessRepository;
+    private final IndexerApiAccessEntityShortRepository indexerApiAccessShortRepository;
+    private final IndexerLimitTracker indexerLimitTracker;
+
+    private final BlockingQueue<QueuedApiAccess> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong writtenAccesses = new AtomicLong();
+    private final AtomicLong failedAccesses = new AtomicLong();
+
+    @Autowired
+    public IndexerApiAccessWriter(IndexerApiAccessRepository indexerApiAccessRepository, IndexerApiAccessEntityShortRepository indexerApiAccessShortRepository, IndexerLimitTracker indexerLimitTracker) {
+        this.indexerApiAccessRepository = indexerApiAccessRepository;
+        this.indexerApiAccessShortRepository = indexerApiAccessShortRepository;
+        this.indexerLimitTracker = indexerLimitTracker;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("apiaccess-writer").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the API access and its short version for being written. Only blocks if the queue is full, in which case the queue is written by the calling thread.
+     * The access is counted for the indexer's hit limit right away.
+     */
+    public void save(IndexerApiAccessEntity apiAccess, IndexerApiAccessEntityShort apiAccessShort) {
+        indexerLimitTracker.recordApiHit(apiAccessShort.getIndexer_id(), apiAccessShort.getTime());
+        QueuedApiAccess queuedApiAccess = new QueuedApiAccess(apiAccess, apiAccessShort);
+        while (!queue.offer(queuedApiAccess)) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all queued API accesses to the database.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<QueuedApiAccess> batch = new ArrayList<>();
+            while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unexpected error while writing API accesses to the database", e);
+        }
+    }
+
+    private void write(List<QueuedApiAccess> batch) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            //Hibernate uses JDBC batches for these (see hibernate.jdbc.batch_size)
+            indexerApiAccessRepository.save(batch.stream().map(x -> x.apiAccess).collect(Collectors.toList()));
+            indexerApiAccessShortRepository.save(batch.stream().map(x -> x.apiAccessShort).collect(Collectors.toList()));
+            writtenAccesses.addAndGet(batch.size());
+            logger.debug(LoggingMarkers.PERFORMANCE, "Writing {} API accesses to the database took {}ms", batch.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            failedAccesses.addAndGet(batch.size());
+            logger.error("Unable to save {} API accesses to the database", batch.size(), e);
+        }
+    }
+
+    @EventListener
+    public void onShutdown(ShutdownEvent event) {
+        if (!queue.isEmpty()) {
+            logger.debug("Writing {} queued API accesses to the database", queue.size());
+        }
+        executor.shutdownNow();
+        flushQuietly();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "indexerApiAccessWriter";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("backlog", queue.size());
+        metrics.put("writtenAccesses", writtenAccesses.get());
+        metrics.put("failedAccesses", failedAccesses.get());
+        return metrics;
+    }
+
+    private static class QueuedApiAccess {
+        private final IndexerApiAccessEntity apiAccess;
+        private final IndexerApiAccessEntityShort apiAccessShort;
+
+        QueuedApiAccess(IndexerApiAccessEntity apiAccess, IndexerApiAccessEntityShort apiAccessShort) {
+            this.apiAccess = apiAccess;
+            this.apiAccessShort = apiAccessShort;
+        }
+    }
+
+}
@@ -0,0 +1,245 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.nzbhydra.logging.MdcThreadPoolExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Provides the long-lived thread pools used to call indexers. Searches (one task per indexer and search) and the web calls made by them
+ * run in separate pools so that a search task waiting for its web call can never block the web call from being executed.
+ * <p>
+ * The number of web calls running in parallel per indexer can be limited using {@link IndexerConfig#getMaxConcurrentCalls()}.
+ */
+@Component
+public class IndexerCallExecutor implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerCallExecutor.class);
+
+    private static final int QUEUE_CAPACITY = 1000;
+
+    private ConfigProvider configProvider;
+
+    private MdcThreadPoolExecutor searchExecutor;
+    private MdcThreadPoolExecutor webAccessExecutor;
+    private final AtomicLong rejectedSearches = new AtomicLong();
+    private final AtomicLong rejectedWebAccesses = new AtomicLong();
+    private final ConcurrentMap<String, IndexerPermits> permitsByIndexer = new ConcurrentHashMap<>();
+
+    @Autowired
+    public IndexerCallExecutor(ConfigProvider configProvider) {
+        this.configProvider = configProvider;
+    }
+
+    @PostConstruct
+    public void init() {
+        int poolSize = configProvider.getBaseConfig().getSearching().getIndexerThreadPoolSize();
+        searchExecutor = createExecutor(poolSize, "indexer-search-%d", rejectedSearches);
+        webAccessExecutor = createExecutor(poolSize, "indexer-webaccess-%d", rejectedWebAccesses);
+        logger.debug("Created indexer thread pools with {} threads each", poolSize);
+    }
+
+    private MdcThreadPoolExecutor createExecutor(int poolSize, String nameFormat, AtomicLong rejectionCounter) {
+        MdcThreadPoolExecutor executor = MdcThreadPoolExecutor.newWithInheritedMdc(poolSize, poolSize, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(QUEUE_CAPACITY));
+        executor.allowCoreThreadTimeOut(true);
+        executor.setThreadFactory(new ThreadFactoryBuilder().setNameFormat(nameFormat).setDaemon(true).build());
+        executor.setRejectedExecutionHandler((runnable, pool) -> {
+            rejectionCounter.incrementAndGet();
+            throw new RejectedExecutionException("Too many indexer calls queued. Active threads: " + pool.getActiveCount() + ", queue size: " + pool.getQueue().size());
+        });
+        return executor;
+    }
+
+    public ExecutorService getSearchExecutor() {
+        return searchExecutor;
+    }
+
+    /**
+     * Executes a call to the given indexer in the web access pool. If a maximum number of concurrent calls is configured for the indexer and
+     * all permits are taken the call is queued for that indexer and only handed to the pool when one of its running calls is finished. So
+     * calls waiting for an indexer never occupy a pool thread and can't block calls to other indexers.
+     *
+     * @throws RejectedExecutionException if the pool is saturated
+     */
+    public <T> Future<T> submitWebAccess(IndexerConfig indexerConfig, Callable<T> callable) {
+        Optional<IndexerPermits> permits = getPermits(indexerConfig);
+        if (!permits.isPresent()) {
+            return webAccessExecutor.submit(callable);
+        }
+        PermitTask<T> task = new PermitTask<>(callable, permits.get());
+        permits.get().submit(task);
+        return task;
+    }
+
+    protected Optional<IndexerPermits> getPermits(IndexerConfig indexerConfig) {
+        if (!indexerConfig.getMaxConcurrentCalls().isPresent()) {
+            return Optional.empty();
+        }
+        int maxConcurrentCalls = indexerConfig.getMaxConcurrentCalls().get();
+        IndexerPermits indexerPermits = permitsByIndexer.compute(indexerConfig.getName(), (name, existing) -> {
+            if (existing != null && existing.maxConcurrentCalls == maxConcurrentCalls) {
+                return existing;
+            }
+            //Calls running or waiting for an old instance will be executed and release their permits there, no harm done
+            return new IndexerPermits(maxConcurrentCalls);
+        });
+        return Optional.of(indexerPermits);
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        int poolSize = configChangedEvent.getNewConfig().getSearching().getIndexerThreadPoolSize();
+        resize(searchExecutor, poolSize);
+        resize(webAccessExecutor, poolSize);
+        permitsByIndexer.keySet().removeIf(name -> configChangedEvent.getNewConfig().getIndexers().stream().noneMatch(x -> x.getName().equals(name)));
+    }
+
+    private void resize(ThreadPoolExecutor executor, int poolSize) {
+        if (executor.getMaximumPoolSize() == poolSize) {
+            return;
+        }
+        logger.debug("Changing indexer thread pool size from {} to {}", executor.getMaximumPoolSize(), poolSize);
+        //Core size may never be larger than the max size, so the order matters
+        if (poolSize > executor.getMaximumPoolSize()) {
+            executor.setMaximumPoolSize(poolSize);
+            executor.setCorePoolSize(poolSize);
+        } else {
+            executor.setCorePoolSize(poolSize);
+            executor.setMaximumPoolSize(poolSize);
+        }
+    }
+
+    @EventListener
+    public void onShutdown(ShutdownEvent event) {
+        if (searchExecutor.getActiveCount() > 0) {
+            logger.debug("Waiting up to 10 seconds for {} indexer searches to finish", searchExecutor.getActiveCount());
+        }
+        searchExecutor.shutdown();
+        webAccessExecutor.shutdown();
+        try {
+            searchExecutor.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            logger.warn("Waited too long for termination of indexer searches, interrupting");
+            Thread.currentThread().interrupt();
+        }
+        webAccessExecutor.shutdownNow();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "indexerCalls";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("searchActiveThreads", searchExecutor.getActiveCount());
+        metrics.put("searchQueueDepth", searchExecutor.getQueue().size());
+        metrics.put("searchRejections", rejectedSearches.get());
+        metrics.put("webAccessActiveThreads", webAccessExecutor.getActiveCount());
+        metrics.put("webAccessQueueDepth", webAccessExecutor.getQueue().size());
+        metrics.put("webAccessRejections", rejectedWebAccesses.get());
+        for (Map.Entry<String, IndexerPermits> entry : permitsByIndexer.entrySet()) {
+            metrics.put("waitingForPermit." + entry.getKey(), entry.getValue().getWaitingCalls());
+        }
+        return metrics;
+    }
+
+    protected class IndexerPermits {
+        private final int maxConcurrentCalls;
+        private int runningCalls;
+        private final Queue<PermitTask<?>> waitingCalls = new ArrayDeque<>();
+
+        IndexerPermits(int maxConcurrentCalls) {
+            this.maxConcurrentCalls = maxConcurrentCalls;
+        }
+
+        void submit(PermitTask<?> task) {
+            synchronized (this) {
+                if (runningCalls >= maxConcurrentCalls) {
+                    waitingCalls.add(task);
+                    return;
+                }
+                runningCalls++;
+            }
+            try {
+                webAccessExecutor.execute(task);
+            } catch (RejectedExecutionException e) {
+                release();
+                throw e;
+            }
+        }
+
+        /**
+         * Hands the next waiting call to the pool or frees the permit if no call is waiting
+         */
+        void release() {
+            while (true) {
+                PermitTask<?> next;
+                synchronized (this) {
+                    next = waitingCalls.poll();
+                    if (next == null) {
+                        runningCalls--;
+                        return;
+                    }
+                }
+                if (next.isCancelled()) {
+                    continue;
+                }
+                try {
+                    webAccessExecutor.execute(next);
+                    return;
+                } catch (RejectedExecutionException e) {
+                    next.reject(e);
+                }
+            }
+        }
+
+        synchronized int getWaitingCalls() {
+            return waitingCalls.size();
+        }
+    }
+
+    private static class PermitTask<T> extends FutureTask<T> {
+        private final IndexerPermits permits;
+        //The task may be handed to the pool by the thread of another call, so the MDC of the submitting thread is kept here
+        private final Map<String, String> mdcContext = MDC.getCopyOfContextMap();
+
+        PermitTask(Callable<T> callable, IndexerPermits permits) {
+            super(callable);
+            this.permits = permits;
+        }
+
+        @Override
+        public void run() {
+            try {
+                MdcThreadPoolExecutor.wrap(super::run, mdcContext).run();
+            } finally {
+                permits.release();
+            }
+        }
+
+        void reject(Exception e) {
+            setException(e);
+        }
+    }
+
+}
@@ -0,0 +1,280 @@
+package org.nzbhydra.indexers;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Circuit breaker for indexers. The state is derived from the indexer status which is persisted by the {@link IndexerStatusStore}:
+ * <ul>
+ * <li>Closed: The indexer is enabled and was not disabled before. It's opened when too many of the recent calls failed or when almost all of
+ * them were slow, i.e. took longer than half of the indexer's timeout. A slow indexer delays every search even if it never times out.</li>
+ * <li>Open: The indexer is temporarily disabled. The longer it's failing the longer it stays open.</li>
+ * <li>Half open: The time the indexer was disabled for has passed. Only one call is allowed to test if the indexer works again.
+ * If it succeeds the circuit is closed, otherwise it's opened again.</li>
+ * </ul>
+ */
+@Component
+public class IndexerCircuitBreaker implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerCircuitBreaker.class);
+
+    /**
+     * How long an indexer stays disabled, depending on how often in a row it was disabled
+     */
+    protected static final List<Integer> OPEN_PERIODS_MINUTES = Arrays.asList(0, 15, 30, 60, 3 * 60, 6 * 60, 12 * 60, 24 * 60);
+    /**
+     * Number of recent calls used to calculate the failure rate
+     */
+    protected static final int WINDOW_SIZE = 10;
+    /**
+     * The circuit is opened when at least this many of the recent calls failed...
+     */
+    protected static final int MIN_FAILURES = 2;
+    /**
+     * ... and at least this share of them
+     */
+    protected static final double FAILURE_RATE_THRESHOLD = 0.5;
+    /**
+     * Successful calls taking longer than this share of the indexer's timeout are slow
+     */
+    protected static final double SLOW_CALL_TIMEOUT_SHARE = 0.5;
+    /**
+     * The circuit is opened when at least this many of the recent calls were slow...
+     */
+    protected static final int MIN_SLOW_CALLS = 5;
+    /**
+     * ... and at least this share of them
+     */
+    protected static final double SLOW_CALL_RATE_THRESHOLD = 0.8;
+    /**
+     * If the result of a test call is not reported within this time another call may be made
+     */
+    private static final long PROBE_TIMEOUT_MS = TimeUnit.MINUTES.toMillis(2);
+
+    public enum CircuitState {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final ConfigProvider configProvider;
+    private final IndexerStatusStore indexerStatusStore;
+    private final ConcurrentMap<String, IndexerCircuit> circuits = new ConcurrentHashMap<>();
+
+    private final AtomicLong openedCircuits = new AtomicLong();
+    private final AtomicLong openedCircuitsBecauseSlow = new AtomicLong();
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong rejectedCalls = new AtomicLong();
+
+    protected Clock clock = Clock.systemUTC();
+
+    @Autowired
+    public IndexerCircuitBreaker(ConfigProvider configProvider, IndexerStatusStore indexerStatusStore) {
+        this.configProvider = configProvider;
+        this.indexerStatusStore = indexerStatusStore;
+    }
+
+    public CircuitState getState(IndexerConfig config) {
+        if (config.getState() == IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY) {
+            boolean openPeriodOver = config.getDisabledUntil() == null || !Instant.ofEpochMilli(config.getDisabledUntil()).isAfter(clock.instant());
+            return openPeriodOver ? CircuitState.HALF_OPEN : CircuitState.OPEN;
+        }
+        //The level is kept when an indexer is reenabled after the open period and only reset after a successful call
+        if (config.getState() == IndexerConfig.State.ENABLED && config.getDisabledLevel() > 0) {
+            return CircuitState.HALF_OPEN;
+        }
+        return CircuitState.CLOSED;
+    }
+
+    /**
+     * @return true if the indexer may be called. If the circuit is half open only one caller is allowed until the result of its call is reported.
+     */
+    public boolean tryAcquirePermission(IndexerConfig config) {
+        CircuitState state = getState(config);
+        if (state == CircuitState.CLOSED) {
+            return true;
+        }
+        if (state == CircuitState.HALF_OPEN && getCircuit(config).tryStartProbe(clock.millis())) {
+            logger.debug("Allowing call to {} to test if it works again", config.getName());
+            probes.incrementAndGet();
+            return true;
+        }
+        rejectedCalls.incrementAndGet();
+        return false;
+    }
+
+    /**
+     * @param responseTime The time the call took in milliseconds, if known. Used to detect slow calls
+     */
+    public void recordSuccess(IndexerConfig config, Long responseTime) {
+        IndexerCircuit circuit = getCircuit(config);
+        boolean slow = responseTime != null && responseTime > getSlowCallThresholdMs(config);
+        circuit.record(false, slow);
+        circuit.endProbe();
+        CircuitState state = getState(config);
+        //A slow test call still shows that the indexer is reachable again, so the circuit is only opened because of slow calls when closed
+        if (state == CircuitState.CLOSED && slow && circuit.isSlowCallRateExceeded()) {
+            openedCircuitsBecauseSlow.incrementAndGet();
+            open(config, circuit, String.format("Indexer responded slowly: %d of the last %d calls took longer than %dms", circuit.getSlowCalls(), circuit.getCalls(), getSlowCallThresholdMs(config)));
+            return;
+        }
+        if (state != CircuitState.CLOSED) {
+            logger.info("Closing circuit for {} after successful call", config.getName());
+        }
+        //Usually nothing changes here, in which case nothing is written
+        indexerStatusStore.setStatus(config, IndexerConfig.State.ENABLED, null, 0, null);
+    }
+
+    public void recordFailure(IndexerConfig config, String reason) {
+        IndexerCircuit circuit = getCircuit(config);
+        circuit.record(true, false);
+        circuit.endProbe();
+        CircuitState state = getState(config);
+        if (state == CircuitState.CLOSED && !circuit.isFailureRateExceeded()) {
+            logger.debug("Not disabling {} after error because only {} of the last {} calls failed", config.getName(), circuit.getFailures(), circuit.getCalls());
+            return;
+        }
+        open(config, circuit, reason);
+    }
+
+    private void open(IndexerConfig config, IndexerCircuit circuit, String reason) {
+        int disabledLevel = config.getDisabledLevel() + 1;
+        long minutesToAdd = OPEN_PERIODS_MINUTES.get(Math.min(OPEN_PERIODS_MINUTES.size() - 1, disabledLevel));
+        Instant disabledUntil = clock.instant().plus(minutesToAdd, ChronoUnit.MINUTES);
+        indexerStatusStore.setStatus(config, IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY, disabledUntil.toEpochMilli(), disabledLevel, reason);
+        circuit.reset();
+        openedCircuits.incrementAndGet();
+        logger.warn("Because of \"{}\" {} will be temporarily disabled until {}. This is error number {} in a row", reason, config.getName(), disabledUntil, disabledLevel);
+    }
+
+    private long getSlowCallThresholdMs(IndexerConfig config) {
+        int timeout = config.getTimeout().orElseGet(() -> configProvider.getBaseConfig().getSearching().getTimeout());
+        return (long) (TimeUnit.SECONDS.toMillis(timeout) * SLOW_CALL_TIMEOUT_SHARE);
+    }
+
+    public CircuitStatus getStatus(IndexerConfig config) {
+        IndexerCircuit circuit = getCircuit(config);
+        return new CircuitStatus(getState(config), circuit.getCalls(), circuit.getFailures(), circuit.getSlowCalls());
+    }
+
+    private IndexerCircuit getCircuit(IndexerConfig config) {
+        return circuits.computeIfAbsent(Objects.toString(config.getName(), ""), x -> new IndexerCircuit());
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "indexerCircuitBreaker";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("openedCircuits", openedCircuits.get());
+        metrics.put("openedCircuitsBecauseSlow", openedCircuitsBecauseSlow.get());
+        metrics.put("probes", probes.get());
+        metrics.put("rejectedCalls", rejectedCalls.get());
+        return metrics;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class CircuitStatus {
+        private CircuitState state;
+        private int recentCalls;
+        private int recentFailures;
+        private int recentSlowCalls;
+    }
+
+    /**
+     * The results of the recent calls to an indexer and the test call running while the circuit is half open
+     */
+    private static class IndexerCircuit {
+        private final boolean[] recentFailures = new boolean[WINDOW_SIZE];
+        private final boolean[] recentSlowCalls = new boolean[WINDOW_SIZE];
+        private int next;
+        private int calls;
+        private int failures;
+        private int slowCalls;
+        private long probeStarted;
+
+        synchronized void record(boolean failed, boolean slow) {
+            if (calls == WINDOW_SIZE) {
+                if (recentFailures[next]) {
+                    failures--;
+                }
+                if (recentSlowCalls[next]) {
+                    slowCalls--;
+                }
+            } else {
+                calls++;
+            }
+            recentFailures[next] = failed;
+            recentSlowCalls[next] = slow;
+            if (failed) {
+                failures++;
+            }
+            if (slow) {
+                slowCalls++;
+            }
+            next = (next + 1) % WINDOW_SIZE;
+        }
+
+        synchronized boolean isFailureRateExceeded() {
+            return failures >= MIN_FAILURES && failures >= calls * FAILURE_RATE_THRESHOLD;
+        }
+
+        synchronized boolean isSlowCallRateExceeded() {
+            return slowCalls >= MIN_SLOW_CALLS && slowCalls >= calls * SLOW_CALL_RATE_THRESHOLD;
+        }
+
+        synchronized void reset() {
+            Arrays.fill(recentFailures, false);
+            Arrays.fill(recentSlowCalls, false);
+            next = 0;
+            calls = 0;
+            failures = 0;
+            slowCalls = 0;
+        }
+
+        synchronized boolean tryStartProbe(long now) {
+            if (probeStarted > 0 && now - probeStarted < PROBE_TIMEOUT_MS) {
+                return false;
+            }
+            probeStarted = now;
+            return true;
+        }
+
+        synchronized void endProbe() {
+            probeStarted = 0;
+        }
+
+        synchronized int getCalls() {
+            return calls;
+        }
+
+        synchronized int getFailures() {
+            return failures;
+        }
+
+        synchronized int getSlowCalls() {
+            return slowCalls;
+        }
+    }
+
+}
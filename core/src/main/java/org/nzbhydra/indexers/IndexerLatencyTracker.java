@@ -0,0 +1,142 @@
+package org.nzbhydra.indexers;
+
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps a histogram of the response times of the last successful or timed out calls to every indexer. The percentiles are used to adapt timeouts and
+ * to decide when to send a hedged request to an indexer that's slower than usual.
+ */
+@Component
+public class IndexerLatencyTracker implements MetricsProvider {
+
+    /**
+     * Number of most recent calls the histogram of an indexer is built from
+     */
+    protected static final int WINDOW_SIZE = 200;
+    /**
+     * No percentiles are reported for indexers with fewer calls than this
+     */
+    protected static final int MIN_SAMPLES = 20;
+    /**
+     * Upper bounds of the histogram buckets in ms. Each bucket is 25% larger than the previous one so percentiles are never off by more than that
+     */
+    private static final long[] BUCKET_BOUNDS;
+
+    static {
+        List<Long> bounds = new ArrayList<>();
+        for (double bound = 10; bound < 10 * 60 * 1000; bound *= 1.25) {
+            bounds.add((long) bound);
+        }
+        bounds.add(Long.MAX_VALUE);
+        BUCKET_BOUNDS = bounds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    private final ConcurrentMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong hedgedRequests = new AtomicLong();
+    private final AtomicLong hedgedRequestsWon = new AtomicLong();
+
+    public void recordResponseTime(String indexerName, long responseTimeMs) {
+        if (indexerName == null) {
+            return;
+        }
+        histograms.computeIfAbsent(indexerName, x -> new LatencyHistogram()).add(responseTimeMs);
+    }
+
+    /**
+     * @param percentile Between 0 and 1
+     * @return The response time in ms which the given share of recent calls didn't exceed or empty if not enough calls were made yet
+     */
+    public Optional<Long> getPercentile(String indexerName, double percentile) {
+        LatencyHistogram histogram = indexerName == null ? null : histograms.get(indexerName);
+        return histogram == null ? Optional.empty() : histogram.getPercentile(percentile);
+    }
+
+    public void recordHedgedRequest(boolean won) {
+        hedgedRequests.incrementAndGet();
+        if (won) {
+            hedgedRequestsWon.incrementAndGet();
+        }
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        Set<String> indexerNames = configChangedEvent.getNewConfig().getIndexers().stream().map(IndexerConfig::getName).collect(Collectors.toSet());
+        histograms.keySet().retainAll(indexerNames);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "indexerLatencies";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("hedgedRequests", hedgedRequests.get());
+        metrics.put("hedgedRequestsWon", hedgedRequestsWon.get());
+        new TreeMap<>(histograms).forEach((indexerName, histogram) -> {
+            Map<String, Object> indexerMetrics = new LinkedHashMap<>();
+            indexerMetrics.put("samples", histogram.getSize());
+            indexerMetrics.put("p50", histogram.getPercentile(0.5).orElse(null));
+            indexerMetrics.put("p95", histogram.getPercentile(0.95).orElse(null));
+            indexerMetrics.put("p99", histogram.getPercentile(0.99).orElse(null));
+            metrics.put(indexerName, indexerMetrics);
+        });
+        return metrics;
+    }
+
+    private static class LatencyHistogram {
+        private final int[] counts = new int[BUCKET_BOUNDS.length];
+        /**
+         * Ring buffer of the buckets of the last calls so that the oldest call can be removed from the counts
+         */
+        private final int[] recentBuckets = new int[WINDOW_SIZE];
+        private int next;
+        private int size;
+
+        synchronized void add(long responseTimeMs) {
+            int bucket = Arrays.binarySearch(BUCKET_BOUNDS, responseTimeMs);
+            if (bucket < 0) {
+                bucket = -bucket - 1;
+            }
+            if (size == WINDOW_SIZE) {
+                counts[recentBuckets[next]]--;
+            } else {
+                size++;
+            }
+            counts[bucket]++;
+            recentBuckets[next] = bucket;
+            next = (next + 1) % WINDOW_SIZE;
+        }
+
+        synchronized int getSize() {
+            return size;
+        }
+
+        synchronized Optional<Long> getPercentile(double percentile) {
+            if (size < MIN_SAMPLES) {
+                return Optional.empty();
+            }
+            int target = (int) Math.ceil(percentile * size);
+            int seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= target) {
+                    return Optional.of(BUCKET_BOUNDS[i]);
+                }
+            }
+            return Optional.of(BUCKET_BOUNDS[BUCKET_BOUNDS.length - 1]);
+        }
+    }
+
+}
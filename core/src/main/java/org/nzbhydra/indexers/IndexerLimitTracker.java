@@ -0,0 +1,270 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.base.Stopwatch;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.nzbhydra.downloading.FileDownloadEntity;
+import org.nzbhydra.downloading.FileDownloadEvent;
+import org.nzbhydra.downloading.FileDownloadRepository;
+import org.nzbhydra.logging.LoggingMarkers;
+import org.nzbhydra.searching.SearchModuleProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps the times of the most recent API hits and downloads of indexers with hit or download limits in memory so that checking if a limit
+ * is reached doesn't need any database query. For every indexer only as many times as its limit are kept. The times are loaded from the
+ * database when the application is started or when a limit is changed and are then updated with every API hit and download.
+ * <p>
+ * Optionally API hits can be throttled using a token bucket per indexer so that the hit limit isn't used up in one go.
+ */
+@Component
+public class IndexerLimitTracker implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerLimitTracker.class);
+
+    @PersistenceContext
+    private EntityManager entityManager;
+    @Autowired
+    private FileDownloadRepository fileDownloadRepository;
+    @Autowired
+    private SearchModuleProvider searchModuleProvider;
+    @Autowired
+    private ConfigProvider configProvider;
+
+    private final ConcurrentMap<Integer, RecentAccesses> apiHits = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, RecentAccesses> downloads = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Integer, TokenBucket> tokenBuckets = new ConcurrentHashMap<>();
+
+    protected Clock clock = Clock.systemUTC();
+
+    private final AtomicLong databaseLoads = new AtomicLong();
+    private final AtomicLong throttledHits = new AtomicLong();
+
+    @EventListener
+    public void onApplicationReady(ApplicationReadyEvent event) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (Indexer indexer : searchModuleProvider.getIndexers()) {
+            try {
+                if (indexer.getConfig().getHitLimit().isPresent()) {
+                    getOldestOfRecentApiHits(indexer.getIndexerEntity(), indexer.getConfig().getHitLimit().get());
+                }
+                if (indexer.getConfig().getDownloadLimit().isPresent()) {
+                    getOldestOfRecentDownloads(indexer.getIndexerEntity(), indexer.getConfig().getDownloadLimit().get());
+                }
+            } catch (Exception e) {
+                logger.error("Unable to load recent API hits and downloads of indexer {}", indexer.getName(), e);
+            }
+        }
+        logger.debug(LoggingMarkers.PERFORMANCE, "Loading recent API hits and downloads of indexers took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * @return The time of the oldest of the last <tt>hitLimit</tt> API hits or empty if fewer API hits were made
+     */
+    public Optional<Instant> getOldestOfRecentApiHits(IndexerEntity indexerEntity, int hitLimit) {
+        return getWindow(apiHits, indexerEntity, hitLimit, this::loadApiHits).getOldestIfFull();
+    }
+
+    /**
+     * @return The time of the oldest of the last <tt>downloadLimit</tt> downloads or empty if fewer downloads were made
+     */
+    public Optional<Instant> getOldestOfRecentDownloads(IndexerEntity indexerEntity, int downloadLimit) {
+        return getWindow(downloads, indexerEntity, downloadLimit, this::loadDownloads).getOldestIfFull();
+    }
+
+    /**
+     * If a hit limit burst is configured API hits are spread over the day: Only that part of the hit limit may be used at once and then
+     * hits become available again at the rate allowed by the hit limit.
+     *
+     * @return true if the indexer must not be hit right now even though its hit limit is not yet reached
+     */
+    public boolean isThrottled(IndexerEntity indexerEntity, int hitLimit) {
+        Optional<Integer> burstPercent = configProvider.getBaseConfig().getSearching().getHitLimitBurstPercent();
+        if (!burstPercent.isPresent()) {
+            tokenBuckets.remove(indexerEntity.getId());
+            return false;
+        }
+        int capacity = Math.max(1, hitLimit * burstPercent.get() / 100);
+        TokenBucket tokenBucket = tokenBuckets.compute(indexerEntity.getId(), (id, existing) -> existing != null && existing.hitLimit == hitLimit && existing.capacity == capacity ? existing : new TokenBucket(hitLimit, capacity, clock.millis()));
+        if (tokenBucket.hasToken(clock.millis())) {
+            return false;
+        }
+        throttledHits.incrementAndGet();
+        return true;
+    }
+
+    public void recordApiHit(int indexerId, Instant time) {
+        RecentAccesses recentAccesses = apiHits.get(indexerId);
+        if (recentAccesses != null) {
+            recentAccesses.add(time);
+        }
+        TokenBucket tokenBucket = tokenBuckets.get(indexerId);
+        if (tokenBucket != null) {
+            tokenBucket.take(clock.millis());
+        }
+    }
+
+    @EventListener
+    public void onFileDownload(FileDownloadEvent event) {
+        FileDownloadEntity downloadEntity = event.getDownloadEntity();
+        if (downloadEntity.getSearchResult() == null || downloadEntity.getSearchResult().getIndexer() == null) {
+            return;
+        }
+        RecentAccesses recentAccesses = downloads.get(downloadEntity.getSearchResult().getIndexer().getId());
+        if (recentAccesses != null) {
+            recentAccesses.add(downloadEntity.getTime());
+        }
+    }
+
+    private RecentAccesses getWindow(ConcurrentMap<Integer, RecentAccesses> windows, IndexerEntity indexerEntity, int limit, BiFunction<IndexerEntity, Integer, List<Instant>> loader) {
+        RecentAccesses recentAccesses = windows.get(indexerEntity.getId());
+        if (recentAccesses != null && recentAccesses.capacity == limit) {
+            return recentAccesses;
+        }
+        //Not yet loaded or the limit was changed
+        return windows.compute(indexerEntity.getId(), (id, existing) -> {
+            if (existing != null && existing.capacity == limit) {
+                return existing;
+            }
+            databaseLoads.incrementAndGet();
+            RecentAccesses loaded = new RecentAccesses(limit);
+            List<Instant> times = loader.apply(indexerEntity, limit);
+            //Loaded newest first
+            for (int i = times.size() - 1; i >= 0; i--) {
+                loaded.add(times.get(i));
+            }
+            return loaded;
+        });
+    }
+
+    private List<Instant> loadApiHits(IndexerEntity indexerEntity, int limit) {
+        Query query = entityManager.createNativeQuery("SELECT x.TIME FROM INDEXERAPIACCESS_SHORT x WHERE x.INDEXER_ID = (:indexerId) ORDER BY TIME DESC LIMIT (:hitLimit)");
+        query.setParameter("indexerId", indexerEntity.getId());
+        query.setParameter("hitLimit", limit);
+        List<?> resultList = query.getResultList();
+        return resultList.stream().map(x -> ((Timestamp) x).toInstant()).collect(Collectors.toList());
+    }
+
+    private List<Instant> loadDownloads(IndexerEntity indexerEntity, int limit) {
+        return fileDownloadRepository.findBySearchResultIndexerOrderByTimeDesc(indexerEntity, new PageRequest(0, limit)).getContent().stream().map(FileDownloadEntity::getTime).collect(Collectors.toList());
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "indexerLimitTracker";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("trackedApiHitLimits", apiHits.size());
+        metrics.put("trackedDownloadLimits", downloads.size());
+        metrics.put("databaseLoads", databaseLoads.get());
+        metrics.put("throttledHits", throttledHits.get());
+        return metrics;
+    }
+
+    /**
+     * The most recent access times of one indexer in a ring buffer, sorted from oldest to newest and never more than the limit
+     */
+    private static class RecentAccesses {
+        private final int capacity;
+        private final long[] times;
+        private int start;
+        private int size;
+
+        RecentAccesses(int capacity) {
+            this.capacity = capacity;
+            this.times = new long[Math.max(capacity, 0)];
+        }
+
+        synchronized void add(Instant instant) {
+            long time = instant.toEpochMilli();
+            if (capacity <= 0 || size == capacity && time <= get(0)) {
+                //Older than all times we need to know
+                return;
+            }
+            if (size == capacity) {
+                start = (start + 1) % capacity;
+                size--;
+            }
+            //Accesses are usually recorded in order so this rarely needs to move anything
+            int position = size;
+            while (position > 0 && get(position - 1) > time) {
+                set(position, get(position - 1));
+                position--;
+            }
+            set(position, time);
+            size++;
+        }
+
+        synchronized Optional<Instant> getOldestIfFull() {
+            return capacity > 0 && size == capacity ? Optional.of(Instant.ofEpochMilli(get(0))) : Optional.empty();
+        }
+
+        private long get(int index) {
+            return times[(start + index) % capacity];
+        }
+
+        private void set(int index, long time) {
+            times[(start + index) % capacity] = time;
+        }
+    }
+
+    /**
+     * Allows up to <tt>capacity</tt> API hits in short succession and then only as many as the refill rate allows.
+     */
+    private static class TokenBucket {
+        private final int hitLimit;
+        private final int capacity;
+        private final double tokensPerMilli;
+        private double tokens;
+        private long lastRefill;
+
+        TokenBucket(int hitLimit, int capacity, long now) {
+            this.hitLimit = hitLimit;
+            this.capacity = capacity;
+            this.tokensPerMilli = hitLimit / (double) TimeUnit.DAYS.toMillis(1);
+            this.tokens = capacity;
+            this.lastRefill = now;
+        }
+
+        synchronized boolean hasToken(long now) {
+            refill(now);
+            return tokens >= 1;
+        }
+
+        synchronized void take(long now) {
+            refill(now);
+            tokens--;
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerMilli);
+                lastRefill = now;
+            }
+        }
+    }
+
+}
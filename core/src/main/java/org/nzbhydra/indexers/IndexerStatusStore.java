@@ -0,0 +1,178 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.genericstorage.GenericStorage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the runtime status of indexers (state, disabled until, disabled level and last error) in memory and persists it separately from
+ * the config file. Indexers are called all the time and their status usually doesn't change, so the status is only written when it
+ * actually changed and then at most every few seconds.
+ */
+@Component
+public class IndexerStatusStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerStatusStore.class);
+
+    protected static final String STORAGE_KEY = "IndexerStatuses";
+    private static final long WRITE_DELAY_MS = 5000;
+
+    private final ConfigProvider configProvider;
+    private final GenericStorage genericStorage;
+
+    private final AtomicBoolean changed = new AtomicBoolean();
+    private final Object writeLock = new Object();
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    public IndexerStatusStore(ConfigProvider configProvider, GenericStorage genericStorage) {
+        this.configProvider = configProvider;
+        this.genericStorage = genericStorage;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            load();
+        } catch (Exception e) {
+            logger.error("Unable to load indexer statuses", e);
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("indexerstatus-writer").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(this::writeIfChangedQuietly, WRITE_DELAY_MS, WRITE_DELAY_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sets the status of the given indexer. Does nothing if the status is the same as before.
+     *
+     * @return true if the status was changed
+     */
+    public boolean setStatus(IndexerConfig config, IndexerConfig.State state, Long disabledUntil, int disabledLevel, String lastError) {
+        synchronized (config) {
+            if (config.getState() == state && Objects.equals(config.getDisabledUntil(), disabledUntil) && config.getDisabledLevel() == disabledLevel && Objects.equals(config.getLastError(), lastError)) {
+                return false;
+            }
+            apply(config, state, disabledUntil, disabledLevel, lastError);
+        }
+        changed.set(true);
+        return true;
+    }
+
+    /**
+     * Writes the statuses of all indexers if any status was changed since the last write.
+     */
+    public void writeIfChanged() {
+        synchronized (writeLock) {
+            if (!changed.getAndSet(false)) {
+                return;
+            }
+            IndexerStatuses statuses = new IndexerStatuses();
+            for (IndexerConfig config : configProvider.getBaseConfig().getIndexers()) {
+                synchronized (config) {
+                    statuses.getStatuses().put(config.getName(), new IndexerStatus(config.getState(), config.getDisabledUntil(), config.getDisabledLevel(), config.getLastError()));
+                }
+            }
+            try {
+                genericStorage.save(STORAGE_KEY, statuses);
+            } catch (Exception e) {
+                changed.set(true);
+                throw e;
+            }
+        }
+    }
+
+    private void writeIfChangedQuietly() {
+        try {
+            writeIfChanged();
+        } catch (Exception e) {
+            logger.error("Unable to write indexer statuses", e);
+        }
+    }
+
+    private void load() {
+        Optional<IndexerStatuses> statuses = genericStorage.get(STORAGE_KEY, IndexerStatuses.class);
+        if (!statuses.isPresent()) {
+            //Statuses were only saved in the config until now, nothing to do
+            return;
+        }
+        for (IndexerConfig config : configProvider.getBaseConfig().getIndexers()) {
+            IndexerStatus status = statuses.get().getStatuses().get(config.getName());
+            //The user's decision to enable or disable an indexer is stored in the config. In case the statuses weren't written after a config change we trust the config
+            if (status == null || status.getState() == null || status.getState() == IndexerConfig.State.DISABLED_USER || config.getState() == IndexerConfig.State.DISABLED_USER) {
+                continue;
+            }
+            logger.debug("Loaded status {} for indexer {}", status.getState(), config.getName());
+            apply(config, status.getState(), status.getDisabledUntil(), status.getDisabledLevel(), status.getLastError());
+        }
+    }
+
+    private void apply(IndexerConfig config, IndexerConfig.State state, Long disabledUntil, int disabledLevel, String lastError) {
+        //The setters clear the values while the indexer is enabled. When an indexer is reenabled after having been disabled temporarily the level
+        //is kept, so the values must be set while the old state is still active
+        if (state == IndexerConfig.State.ENABLED || state == IndexerConfig.State.DISABLED_USER) {
+            setValues(config, disabledUntil, disabledLevel, lastError);
+            config.setState(state);
+        } else {
+            config.setState(state);
+            setValues(config, disabledUntil, disabledLevel, lastError);
+        }
+    }
+
+    private void setValues(IndexerConfig config, Long disabledUntil, int disabledLevel, String lastError) {
+        config.setDisabledUntil(disabledUntil);
+        config.setDisabledLevel(disabledLevel);
+        config.setLastError(lastError);
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        //The user may have enabled or disabled indexers
+        changed.set(true);
+    }
+
+    @EventListener
+    public void onShutdown(ShutdownEvent event) {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        writeIfChangedQuietly();
+    }
+
+    @Data
+    @NoArgsConstructor
+    public static class IndexerStatuses implements Serializable {
+        private Map<String, IndexerStatus> statuses = new HashMap<>();
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class IndexerStatus implements Serializable {
+        private IndexerConfig.State state;
+        private Long disabledUntil;
+        private int disabledLevel;
+        private String lastError;
+    }
+
+}
@@ -33,10 +33,12 @@ public class IndexerStatusesCleanupTask {
     private static final long MINUTE = 1000 * 60;
 
     private ConfigProvider configProvider;
+    private IndexerStatusStore indexerStatusStore;
 
     @Autowired
-    public IndexerStatusesCleanupTask(ConfigProvider configProvider) {
+    public IndexerStatusesCleanupTask(ConfigProvider configProvider, IndexerStatusStore indexerStatusStore) {
         this.configProvider = configProvider;
+        this.indexerStatusStore = indexerStatusStore;
     }
 
     @HydraTask(configId = "cleanUpIndexerStatuses", name = "Clean up indexer statuses", interval = MINUTE)
@@ -46,11 +48,8 @@ public class IndexerStatusesCleanupTask {
                 //Do not reset the level. When the indexer is called the next time (when disabledUntil is in the past)
                 //and an error occurs the level is increased and the indexer gets disabled for a longer time
                 logger.debug("Setting indexer {} back to enabled after having been temporarily disabled until {}", config.getName(), Instant.ofEpochMilli(config.getDisabledUntil()));
-                config.setState(IndexerConfig.State.ENABLED);
-                config.setDisabledUntil(null);
-                config.setLastError(null);
+                indexerStatusStore.setStatus(config, IndexerConfig.State.ENABLED, null, config.getDisabledLevel(), null);
             }
         }
-        configProvider.getBaseConfig().saveInternal();
     }
 }
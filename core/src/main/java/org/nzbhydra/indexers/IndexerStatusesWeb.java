@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.indexers.IndexerCircuitBreaker.CircuitStatus;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -19,6 +20,8 @@ public class IndexerStatusesWeb {
 
     @Autowired
     private ConfigProvider configProvider;
+    @Autowired
+    private IndexerCircuitBreaker indexerCircuitBreaker;
 
     @Secured({"ROLE_USER"})
     @RequestMapping(value = "/internalapi/indexerstatuses")
@@ -33,13 +36,20 @@ public class IndexerStatusesWeb {
                                 .thenComparing(o -> o.getName().toLowerCase())
                 )
                 .map(
-                        x -> new IndexerStatus(
-                                x.getName(),
-                                x.getState().name(),
-                                x.getDisabledLevel(),
-                                (x.getDisabledUntil() == null ? null : Instant.ofEpochMilli(x.getDisabledUntil())),
-                                x.getLastError()
-                        )
+                        x -> {
+                            CircuitStatus circuitStatus = indexerCircuitBreaker.getStatus(x);
+                            return new IndexerStatus(
+                                    x.getName(),
+                                    x.getState().name(),
+                                    x.getDisabledLevel(),
+                                    (x.getDisabledUntil() == null ? null : Instant.ofEpochMilli(x.getDisabledUntil())),
+                                    x.getLastError(),
+                                    circuitStatus.getState().name(),
+                                    circuitStatus.getRecentCalls(),
+                                    circuitStatus.getRecentFailures(),
+                                    circuitStatus.getRecentSlowCalls()
+                            );
+                        }
                 )
                 .collect(Collectors.toList());
     }
@@ -52,6 +62,10 @@ public class IndexerStatusesWeb {
         private int level;
         private Instant disabledUntil;
         private String lastError;
+        private String circuitState;
+        private int recentCalls;
+        private int recentFailures;
+        private int recentSlowCalls;
 
     }
 
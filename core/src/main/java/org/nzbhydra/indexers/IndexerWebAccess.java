@@ -1,5 +1,6 @@
 package org.nzbhydra.indexers;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.io.BaseEncoding;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
@@ -7,7 +8,7 @@ import org.nzbhydra.indexers.exceptions.IndexerAccessException;
 import org.nzbhydra.indexers.exceptions.IndexerProgramErrorException;
 import org.nzbhydra.indexers.exceptions.IndexerUnreachableException;
 import org.nzbhydra.okhttp.WebAccess;
-import org.nzbhydra.web.WebConfiguration;
+import org.nzbhydra.okhttp.WebAccess.ResponseBodyReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,20 +19,32 @@ import javax.xml.transform.stream.StreamSource;
 import java.io.StringReader;
 import java.net.SocketTimeoutException;
 import java.net.URI;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Component
 public class IndexerWebAccess {
 
     private static final Logger logger = LoggerFactory.getLogger(IndexerWebAccess.class);
 
+    /**
+     * With adaptive timeouts an indexer gets this many times its 99th percentile response time, but never more than the configured timeout
+     */
+    private static final int ADAPTIVE_TIMEOUT_FACTOR = 3;
+    private static final int MIN_ADAPTIVE_TIMEOUT_SECONDS = 5;
+
     @Autowired
     protected ConfigProvider configProvider;
     @Autowired
     protected WebAccess webAccess;
-    protected Unmarshaller unmarshaller = new WebConfiguration().marshaller();
+    @Autowired
+    protected IndexerCallExecutor indexerCallExecutor;
+    @Autowired
+    protected Unmarshaller unmarshaller;
+    @Autowired
+    protected IndexerLatencyTracker indexerLatencyTracker;
 
 
     @SuppressWarnings("unchecked")
@@ -40,7 +53,50 @@ public class IndexerWebAccess {
     }
 
     public <T> T get(URI uri, IndexerConfig indexerConfig, Class responseType) throws IndexerAccessException {
-        int timeout = indexerConfig.getTimeout().orElse(configProvider.getBaseConfig().getSearching().getTimeout());
+        int timeout = getTimeout(indexerConfig);
+        Map<String, String> headers = getHeaders(indexerConfig);
+        return execute(indexerConfig, timeout, () -> {
+            String response = webAccess.callUrl(uri.toString(), headers, timeout);
+            if (responseType == String.class) {
+                return (T) response;
+            }
+            return (T) unmarshaller.unmarshal(new StreamSource(new StringReader(response)));
+        });
+    }
+
+    /**
+     * Calls the URI and lets the reader parse the response while it's being received. Use for large responses which don't need to be kept as a whole.
+     */
+    public <T> T getStreamed(URI uri, IndexerConfig indexerConfig, ResponseBodyReader<T> reader) throws IndexerAccessException {
+        int timeout = getTimeout(indexerConfig);
+        Map<String, String> headers = getHeaders(indexerConfig);
+        return execute(indexerConfig, timeout, () -> webAccess.callUrl(uri.toString(), headers, timeout, reader));
+    }
+
+    protected int getTimeout(IndexerConfig indexerConfig) {
+        int configuredTimeout = indexerConfig.getTimeout().orElse(configProvider.getBaseConfig().getSearching().getTimeout());
+        if (!configProvider.getBaseConfig().getSearching().isAdaptiveIndexerTimeouts()) {
+            return configuredTimeout;
+        }
+        Optional<Long> p99 = indexerLatencyTracker.getPercentile(indexerConfig.getName(), 0.99);
+        if (!p99.isPresent()) {
+            return configuredTimeout;
+        }
+        int adaptiveTimeout = (int) Math.max(MIN_ADAPTIVE_TIMEOUT_SECONDS, Math.ceil(p99.get() * ADAPTIVE_TIMEOUT_FACTOR / 1000D));
+        return Math.min(configuredTimeout, adaptiveTimeout);
+    }
+
+    /**
+     * @return The time after which a second request should be sent if the first one didn't return yet. Only hedged if the indexer has neither a hit limit nor a limit of concurrent calls
+     */
+    private Optional<Long> getHedgeDelay(IndexerConfig indexerConfig) {
+        if (!configProvider.getBaseConfig().getSearching().isHedgeIndexerRequests() || indexerConfig.getHitLimit().isPresent() || indexerConfig.getMaxConcurrentCalls().isPresent()) {
+            return Optional.empty();
+        }
+        return indexerLatencyTracker.getPercentile(indexerConfig.getName(), 0.95);
+    }
+
+    private Map<String, String> getHeaders(IndexerConfig indexerConfig) {
         String userAgent = indexerConfig.getUserAgent().orElse(configProvider.getBaseConfig().getSearching().getUserAgent().orElse("NZBHydra2"));
 
         Map<String, String> headers = new HashMap<>();
@@ -49,36 +105,93 @@ public class IndexerWebAccess {
         if (indexerConfig.getUsername().isPresent() && indexerConfig.getPassword().isPresent()) {
             headers.put("Authorization", "Basic " + BaseEncoding.base64().encode((indexerConfig.getUsername().get() + ":" + indexerConfig.getPassword().get()).getBytes()));
         }
+        return headers;
+    }
 
-        Future<T> future;
-        ExecutorService executorService = Executors.newSingleThreadExecutor();
+    private <T> T execute(IndexerConfig indexerConfig, int timeout, Callable<T> call) throws IndexerAccessException {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger runningAttempts = new AtomicInteger();
+        AtomicReference<Exception> lastError = new AtomicReference<>();
+        List<Future<T>> futures = new ArrayList<>();
+        Stopwatch stopwatch = Stopwatch.createStarted();
         try {
-            future = executorService.submit(() -> {
-                String response = webAccess.callUrl(uri.toString(), headers, timeout);
-                if (responseType == String.class) {
-                    return (T) response;
-                }
-                return (T) unmarshaller.unmarshal(new StreamSource(new StringReader(response)));
-            });
+            futures.add(indexerCallExecutor.submitWebAccess(indexerConfig, attempt(indexerConfig, call, result, runningAttempts, lastError, false)));
         } catch (RejectedExecutionException e) {
-            logger.error("Unexpected execution exception while executing call for indexer " + indexerConfig.getName() + ". This will hopefully be fixed soon", e);
-            throw new IndexerProgramErrorException("Unexpected error in hydra code. Sorry...");
-        } finally {
-            executorService.shutdown();
+            logger.error("Unable to execute call for indexer " + indexerConfig.getName() + ": " + e.getMessage());
+            throw new IndexerProgramErrorException("Too many indexer calls at the same time. Try increasing the number of indexer threads");
         }
+        long timeoutMs = TimeUnit.SECONDS.toMillis(timeout + 1); //Give it one second more than the actual timeout
         try {
-            return future.get(timeout + 1, TimeUnit.SECONDS); //Give it one second more than the actual timeout
+            Optional<Long> hedgeDelay = getHedgeDelay(indexerConfig);
+            if (hedgeDelay.isPresent() && hedgeDelay.get() < timeoutMs) {
+                try {
+                    return result.get(hedgeDelay.get(), TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    logger.debug("Indexer {} did not respond within {}ms. Sending hedged request", indexerConfig.getName(), hedgeDelay.get());
+                    try {
+                        futures.add(indexerCallExecutor.submitWebAccess(indexerConfig, attempt(indexerConfig, call, result, runningAttempts, lastError, true)));
+                    } catch (RejectedExecutionException e1) {
+                        logger.debug("Unable to send hedged request to indexer {}: {}", indexerConfig.getName(), e1.getMessage());
+                        if (runningAttempts.decrementAndGet() == 0) {
+                            //The first attempt failed in the meantime and no other attempt will complete the result
+                            result.completeExceptionally(lastError.get() != null ? lastError.get() : e1);
+                        }
+                    }
+                }
+            }
+            return result.get(Math.max(0, timeoutMs - stopwatch.elapsed(TimeUnit.MILLISECONDS)), TimeUnit.MILLISECONDS);
         } catch (ExecutionException e) {
             if (e.getCause() instanceof SocketTimeoutException) {
+                recordTimeout(indexerConfig, timeout, stopwatch);
                 throw new IndexerUnreachableException("Connection with indexer timed out with a time out of " + timeout + " seconds: " + e.getCause().getMessage());
             }
             throw new IndexerUnreachableException("Error while communicating with indexer " + indexerConfig.getName() + ". Server returned: " + e.getMessage(), e.getCause());
         } catch (TimeoutException e) {
+            recordTimeout(indexerConfig, timeout, stopwatch);
             throw new IndexerAccessException("Indexer did not complete request within " + timeout + " seconds");
         } catch (Exception e) {
             throw new RuntimeException("Unexpected error while accessing indexer", e);
+        } finally {
+            //Stops the request still running if the other one was faster or if the timeout was hit
+            futures.forEach(x -> x.cancel(true));
         }
     }
 
+    /**
+     * The response time of a call which timed out is unknown but at least as long as the timeout. It's recorded anyway, otherwise an adaptive timeout
+     * which is too short for an indexer that became slower would never be raised again because no call completes within it.
+     */
+    private void recordTimeout(IndexerConfig indexerConfig, int timeout, Stopwatch stopwatch) {
+        indexerLatencyTracker.recordResponseTime(indexerConfig.getName(), Math.max(TimeUnit.SECONDS.toMillis(timeout), stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+    }
+
+    /**
+     * Wraps the call so that the first successful response completes the result and the response time is tracked. The result only fails if all attempts failed.
+     */
+    private <T> Callable<T> attempt(IndexerConfig indexerConfig, Callable<T> call, CompletableFuture<T> result, AtomicInteger runningAttempts, AtomicReference<Exception> lastError, boolean hedged) {
+        runningAttempts.incrementAndGet();
+        return () -> {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            try {
+                T response = call.call();
+                indexerLatencyTracker.recordResponseTime(indexerConfig.getName(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                boolean first = result.complete(response);
+                if (hedged) {
+                    indexerLatencyTracker.recordHedgedRequest(first);
+                }
+                return response;
+            } catch (Exception e) {
+                if (hedged) {
+                    indexerLatencyTracker.recordHedgedRequest(false);
+                }
+                lastError.set(e);
+                if (runningAttempts.decrementAndGet() == 0) {
+                    result.completeExceptionally(e);
+                }
+                throw e;
+            }
+        };
+    }
+
 
 }
@@ -71,6 +71,45 @@ public class Newznab extends Indexer<Xml> {
         paramValueToIdMap.put("traktid", IdType.TRAKT);
     }
 
+    /**
+     * Maps newznab attribute names to the code which transfers their values to the search result item.
+     */
+    protected static final Map<String, AttributeHandler> NEWZNAB_ATTRIBUTE_HANDLERS = new HashMap<>();
+
+    static {
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("usenetdate", (indexer, item, value, categories) -> indexer.tryParseDate(value).ifPresent(item::setUsenetDate));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("password", (indexer, item, value, categories) -> {
+            try {
+                if (Integer.parseInt(value) > 0) {
+                    item.setPassworded(true);
+                }
+            } catch (NumberFormatException e) {
+                indexer.error("Unable to parse password value " + value);
+            }
+        });
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("nfo", (indexer, item, value, categories) -> item.setHasNfo(value.equals("1") ? HasNfo.YES : HasNfo.NO));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("poster", (indexer, item, value, categories) -> {
+            if (!value.equals("not available")) {
+                item.setPoster(value);
+            }
+        });
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("group", (indexer, item, value, categories) -> {
+            if (!value.equals("not available")) {
+                item.setGroup(value);
+            }
+        });
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("files", (indexer, item, value, categories) -> item.setFiles(Integer.valueOf(value)));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("comments", (indexer, item, value, categories) -> item.setCommentsCount(Integer.valueOf(value)));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("grabs", (indexer, item, value, categories) -> item.setGrabs(Integer.valueOf(value)));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("guid", (indexer, item, value, categories) -> item.setIndexerGuid(value));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("size", (indexer, item, value, categories) -> item.setSize(Long.valueOf(value)));
+        NEWZNAB_ATTRIBUTE_HANDLERS.put("category", (indexer, item, value, categories) -> {
+            if (!"None".equals(value)) {
+                categories.add(Integer.parseInt(value));
+            }
+        });
+    }
+
     @Autowired
     private Unmarshaller unmarshaller;
     private ConcurrentHashMap<Integer, Category> idToCategory = new ConcurrentHashMap<>();
@@ -265,11 +304,14 @@ public class Newznab extends Indexer<Xml> {
     }
 
     protected Xml getAndStoreResultToDatabase(URI uri, IndexerApiAccessType apiAccessType) throws IndexerAccessException {
-        Xml response = getAndStoreResultToDatabase(uri, Xml.class, apiAccessType);
+        //Items are read while the response is being received, the complete response is never kept in memory. They're converted to search results
+        //afterwards so that only the time needed to receive the response is counted as the indexer's response time
+        NewznabXmlStreamReader reader = new NewznabXmlStreamReader(dateParser);
+        Xml response = getAndStoreStreamedResultToDatabase(uri, source -> reader.read(source.inputStream()), apiAccessType);
         if (response instanceof NewznabXmlError) {
             //Base class doesn't know any RssErrors so we must handle this case specially
             handleRssError((NewznabXmlError) response, uri.toString());
-        } else if (!(response instanceof NewznabXmlRoot)) {
+        } else if (!(response instanceof NewznabXmlRoot || response instanceof NewznabStreamedResponse)) {
             throw new UnknownResponseException("Indexer returned unknown response");
         }
         return response;
@@ -321,9 +363,10 @@ public class Newznab extends Indexer<Xml> {
 
     @Override
     protected List<SearchResultItem> getSearchResultItems(Xml rssRoot) {
+        List<NewznabXmlItem> items = rssRoot instanceof NewznabStreamedResponse ? ((NewznabStreamedResponse) rssRoot).getItems() : ((NewznabXmlRoot) rssRoot).getRssChannel().getItems();
         List<SearchResultItem> searchResultItems = new ArrayList<>();
 
-        for (NewznabXmlItem item : ((NewznabXmlRoot) rssRoot).getRssChannel().getItems()) {
+        for (NewznabXmlItem item : items) {
             SearchResultItem searchResultItem = createSearchResultItem(item);
             searchResultItems.add(searchResultItem);
         }
@@ -332,7 +375,7 @@ public class Newznab extends Indexer<Xml> {
     }
 
     protected void completeIndexerSearchResult(Xml response, IndexerSearchResult indexerSearchResult, AcceptorResult acceptorResult, SearchRequest searchRequest, int offset, Integer limit) {
-        NewznabXmlResponse newznabResponse = ((NewznabXmlRoot) response).getRssChannel().getNewznabResponse();
+        NewznabXmlResponse newznabResponse = getNewznabResponse(response);
         if (newznabResponse != null) {
             indexerSearchResult.setTotalResultsKnown(true);
             if (newznabResponse.getTotal() != null) { //Animetosho doesn't provide a total number of results
@@ -352,6 +395,20 @@ public class Newznab extends Indexer<Xml> {
         }
     }
 
+    protected NewznabXmlResponse getNewznabResponse(Xml response) {
+        if (response instanceof NewznabStreamedResponse) {
+            return ((NewznabStreamedResponse) response).getNewznabResponse();
+        }
+        return ((NewznabXmlRoot) response).getRssChannel().getNewznabResponse();
+    }
+
+    protected int getNumberOfItems(Xml response) {
+        if (response instanceof NewznabStreamedResponse) {
+            return ((NewznabStreamedResponse) response).getItems().size();
+        }
+        return ((NewznabXmlRoot) response).getRssChannel().getItems().size();
+    }
+
     protected SearchResultItem createSearchResultItem(NewznabXmlItem item) {
         SearchResultItem searchResultItem = new SearchResultItem();
         searchResultItem.setLink(item.getLink());
@@ -392,51 +449,15 @@ public class Newznab extends Indexer<Xml> {
     }
 
     protected void parseAttributes(NewznabXmlItem item, SearchResultItem searchResultItem) {
-        Map<String, String> attributes = item.getNewznabAttributes().stream().collect(Collectors.toMap(NewznabAttribute::getName, NewznabAttribute::getValue, (a, b) -> b));
-        List<Integer> newznabCategories = item.getNewznabAttributes().stream().filter(x -> x.getName().equals("category") && !"None".equals(x.getValue())).map(newznabAttribute -> Integer.parseInt(newznabAttribute.getValue())).collect(Collectors.toList());
+        Map<String, String> attributes = new HashMap<>();
         searchResultItem.setAttributes(attributes);
+        List<Integer> newznabCategories = new ArrayList<>(2);
+        applyAttributes(item.getNewznabAttributes(), NEWZNAB_ATTRIBUTE_HANDLERS, searchResultItem, newznabCategories);
 
-        if (attributes.containsKey("usenetdate")) {
-            tryParseDate(attributes.get("usenetdate")).ifPresent(searchResultItem::setUsenetDate);
-        }
-        if (attributes.containsKey("password")) {
-            String passwordValue = attributes.get("password");
-            try {
-                if (Integer.parseInt(passwordValue) > 0) {
-                    searchResultItem.setPassworded(true);
-                }
-            } catch (NumberFormatException e) {
-                error("Unable to parse password value " + passwordValue);
-            }
-        }
-        if (attributes.containsKey("nfo")) {
-            searchResultItem.setHasNfo(attributes.get("nfo").equals("1") ? HasNfo.YES : HasNfo.NO);
-        }
         if (attributes.containsKey("info") && (config.getBackend() == BackendType.NNTMUX || config.getBackend() == BackendType.NZEDB)) {
             //Info attribute is always a link to an NFO
             searchResultItem.setHasNfo(HasNfo.YES);
         }
-        if (attributes.containsKey("poster") && !attributes.get("poster").equals("not available")) {
-            searchResultItem.setPoster(attributes.get("poster"));
-        }
-        if (attributes.containsKey("group") && !attributes.get("group").equals("not available")) {
-            searchResultItem.setGroup(attributes.get("group"));
-        }
-        if (attributes.containsKey("files")) {
-            searchResultItem.setFiles(Integer.valueOf(attributes.get("files")));
-        }
-        if (attributes.containsKey("comments")) {
-            searchResultItem.setCommentsCount(Integer.valueOf(attributes.get("comments")));
-        }
-        if (attributes.containsKey("grabs")) {
-            searchResultItem.setGrabs(Integer.valueOf(attributes.get("grabs")));
-        }
-        if (attributes.containsKey("guid")) {
-            searchResultItem.setIndexerGuid(attributes.get("guid"));
-        }
-        if (attributes.containsKey("size")) {
-            searchResultItem.setSize(Long.valueOf(attributes.get("size")));
-        }
 
         computeCategory(searchResultItem, newznabCategories);
 
@@ -453,6 +474,21 @@ public class Newznab extends Indexer<Xml> {
         }
     }
 
+    /**
+     * Adds all attributes to the search result item's attributes and calls the handler registered for the attribute's name, if any.
+     * Attributes are handled in the order they appear in, so if an attribute is contained more than once the last value wins.
+     */
+    protected void applyAttributes(List<NewznabAttribute> attributes, Map<String, AttributeHandler> handlers, SearchResultItem searchResultItem, List<Integer> categories) {
+        Map<String, String> resultAttributes = searchResultItem.getAttributes();
+        for (NewznabAttribute attribute : attributes) {
+            resultAttributes.put(attribute.getName(), attribute.getValue());
+            AttributeHandler handler = handlers.get(attribute.getName());
+            if (handler != null) {
+                handler.handle(this, searchResultItem, attribute.getValue(), categories);
+            }
+        }
+    }
+
     protected void computeCategory(SearchResultItem searchResultItem, List<Integer> newznabCategories) {
         if (!newznabCategories.isEmpty()) {
             Integer mostSpecific = newznabCategories.stream().max(Integer::compareTo).get();
@@ -486,6 +522,14 @@ public class Newznab extends Indexer<Xml> {
         }
     }
 
+    @FunctionalInterface
+    protected interface AttributeHandler {
+        /**
+         * @param categories Collects the numeric categories found in the attributes
+         */
+        void handle(Newznab indexer, SearchResultItem item, String value, List<Integer> categories);
+    }
+
     protected Logger getLogger() {
         return logger;
     }
@@ -0,0 +1,23 @@
+package org.nzbhydra.indexers;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlItem;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlResponse;
+import org.nzbhydra.mapping.newznab.xml.Xml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a newznab or torznab search response read by {@link NewznabXmlStreamReader}. Contains only the items and the newznab response
+ * element. The items are converted to search results after the indexer call has completed.
+ */
+@Data
+@EqualsAndHashCode(callSuper = false)
+public class NewznabStreamedResponse extends Xml {
+
+    private NewznabXmlResponse newznabResponse;
+    private List<NewznabXmlItem> items = new ArrayList<>();
+
+}
@@ -0,0 +1,198 @@
+package org.nzbhydra.indexers;
+
+import org.nzbhydra.mapping.newznab.xml.NewznabAttribute;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlEnclosure;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlError;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlGuid;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlItem;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlResponse;
+import org.nzbhydra.mapping.newznab.xml.Xml;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Reads newznab and torznab XML responses using StAX while they're being received, so the whole response doesn't have to be kept in memory.
+ * Only the items are kept, everything else in the response is skipped.
+ */
+public class NewznabXmlStreamReader {
+
+    private static final Logger logger = LoggerFactory.getLogger(NewznabXmlStreamReader.class);
+
+    private static final String NEWZNAB_NAMESPACE = "http://www.newznab.com/DTD/2010/feeds/attributes/";
+    private static final String TORZNAB_NAMESPACE = "http://torznab.com/schemas/2015/feed";
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_COALESCING, true);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final RssDateParser dateParser;
+
+    /**
+     * @param dateParser Used to parse the items' pubDate
+     */
+    public NewznabXmlStreamReader(RssDateParser dateParser) {
+        this.dateParser = dateParser;
+    }
+
+    /**
+     * @return A {@link NewznabStreamedResponse}, a {@link NewznabXmlError} or null if the root element is unknown
+     */
+    public Xml read(InputStream inputStream) throws IOException {
+        XMLStreamReader reader = null;
+        try {
+            reader = XML_INPUT_FACTORY.createXMLStreamReader(inputStream);
+            if (nextStartOrEndElement(reader) != XMLStreamConstants.START_ELEMENT) {
+                return null;
+            }
+            switch (reader.getLocalName()) {
+                case "rss":
+                    return readRss(reader);
+                case "error":
+                    return new NewznabXmlError(reader.getAttributeValue(null, "code"), reader.getAttributeValue(null, "description"));
+                default:
+                    logger.debug("Unknown root element {}", reader.getLocalName());
+                    return null;
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Unable to parse response: " + e.getMessage(), e);
+        } finally {
+            if (reader != null) {
+                try {
+                    reader.close();
+                } catch (XMLStreamException ignored) {
+                }
+            }
+        }
+    }
+
+    private NewznabStreamedResponse readRss(XMLStreamReader reader) throws XMLStreamException {
+        NewznabStreamedResponse response = new NewznabStreamedResponse();
+        while (reader.hasNext()) {
+            if (reader.next() != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            String name = reader.getLocalName();
+            if (name.equals("item")) {
+                response.getItems().add(readItem(reader));
+            } else if (name.equals("response") && NEWZNAB_NAMESPACE.equals(reader.getNamespaceURI())) {
+                response.setNewznabResponse(new NewznabXmlResponse(parseInteger(reader.getAttributeValue(null, "offset")), parseInteger(reader.getAttributeValue(null, "total"))));
+            }
+        }
+        return response;
+    }
+
+    private NewznabXmlItem readItem(XMLStreamReader reader) throws XMLStreamException {
+        NewznabXmlItem item = new NewznabXmlItem();
+        while (nextStartOrEndElement(reader) == XMLStreamConstants.START_ELEMENT) {
+            switch (reader.getLocalName()) {
+                case "title":
+                    item.setTitle(reader.getElementText());
+                    break;
+                case "link":
+                    item.setLink(reader.getElementText());
+                    break;
+                case "enclosure":
+                    item.setEnclosure(new NewznabXmlEnclosure(reader.getAttributeValue(null, "url"), parseLong(reader.getAttributeValue(null, "length")), reader.getAttributeValue(null, "type")));
+                    skipElement(reader);
+                    break;
+                case "pubDate":
+                    String pubDate = reader.getElementText();
+                    item.setPubDate(dateParser.parse(pubDate).orElse(null));
+                    if (item.getPubDate() == null) {
+                        logger.debug("Unable to parse pubDate {}", pubDate);
+                    }
+                    break;
+                case "guid":
+                    boolean isPermaLink = "true".equals(reader.getAttributeValue(null, "isPermaLink"));
+                    item.setRssGuid(new NewznabXmlGuid(reader.getElementText(), isPermaLink));
+                    break;
+                case "description":
+                    item.setDescription(reader.getElementText());
+                    break;
+                case "comments":
+                    item.setComments(reader.getElementText());
+                    break;
+                case "category":
+                    item.setCategory(reader.getElementText());
+                    break;
+                case "grabs":
+                    item.setGrabs(parseInteger(reader.getElementText()));
+                    break;
+                case "attr":
+                    NewznabAttribute attribute = new NewznabAttribute(reader.getAttributeValue(null, "name"), reader.getAttributeValue(null, "value"));
+                    if (NEWZNAB_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        item.getNewznabAttributes().add(attribute);
+                    } else if (TORZNAB_NAMESPACE.equals(reader.getNamespaceURI())) {
+                        item.getTorznabAttributes().add(attribute);
+                    }
+                    skipElement(reader);
+                    break;
+                default:
+                    skipElement(reader);
+            }
+        }
+        return item;
+    }
+
+    /**
+     * Moves to the next start or end tag, ignoring text, comments etc. in between.
+     */
+    private int nextStartOrEndElement(XMLStreamReader reader) throws XMLStreamException {
+        while (reader.hasNext()) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT || event == XMLStreamConstants.END_ELEMENT) {
+                return event;
+            }
+        }
+        return XMLStreamConstants.END_DOCUMENT;
+    }
+
+    /**
+     * Skips the current element including all its children. Afterwards the reader is positioned at the element's end tag.
+     */
+    private void skipElement(XMLStreamReader reader) throws XMLStreamException {
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.START_ELEMENT) {
+                depth++;
+            } else if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+            }
+        }
+    }
+
+    private static Integer parseInteger(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Long parseLong(String value) {
+        if (value == null) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+}
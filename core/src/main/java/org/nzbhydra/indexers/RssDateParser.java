@@ -0,0 +1,247 @@
+package org.nzbhydra.indexers;
+
+import java.text.ParsePosition;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.Month;
+import java.time.Year;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Parses the dates contained in newznab responses (pubDate, usenetdate). Dates are usually RFC 1123 dates which are parsed by hand,
+ * other formats are parsed using {@link DateTimeFormatter}s. Every indexer has its own parser which remembers the format that worked last
+ * and tries that one first. Results often share the same dates so recently parsed dates are cached.
+ * <p>
+ * No exceptions are thrown or used for control flow, unparseable dates result in an empty optional.
+ */
+public class RssDateParser {
+
+    private static final int CACHE_SIZE = 256;
+    private static final String[] MONTHS = {"jan", "feb", "mar", "apr", "may", "jun", "jul", "aug", "sep", "oct", "nov", "dec"};
+
+    private static final List<Function<String, Instant>> FORMATS = Arrays.asList(
+            RssDateParser::parseRfc1123,
+            x -> parseWithFormatter(DateTimeFormatter.RFC_1123_DATE_TIME, x),
+            x -> parseWithFormatter(DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.ENGLISH), x)
+    );
+
+    private volatile int lastSuccessfulFormat = 0;
+
+    private final Map<String, Instant> cache = new LinkedHashMap<String, Instant>(CACHE_SIZE, 0.75F, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Instant> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+
+    public Optional<Instant> parse(String dateString) {
+        if (dateString == null) {
+            return Optional.empty();
+        }
+        dateString = dateString.trim();
+        synchronized (cache) {
+            Instant cached = cache.get(dateString);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Instant instant = parseUncached(dateString);
+        if (instant == null) {
+            return Optional.empty();
+        }
+        synchronized (cache) {
+            cache.put(dateString, instant);
+        }
+        return Optional.of(instant);
+    }
+
+    private Instant parseUncached(String dateString) {
+        int formatToTryFirst = lastSuccessfulFormat;
+        Instant instant = FORMATS.get(formatToTryFirst).apply(dateString);
+        if (instant != null) {
+            return instant;
+        }
+        for (int i = 0; i < FORMATS.size(); i++) {
+            if (i == formatToTryFirst) {
+                continue;
+            }
+            instant = FORMATS.get(i).apply(dateString);
+            if (instant != null) {
+                lastSuccessfulFormat = i;
+                return instant;
+            }
+        }
+        return null;
+    }
+
+    private static Instant parseWithFormatter(DateTimeFormatter formatter, String dateString) {
+        //Check if the string matches the pattern without resolving it, which doesn't throw an exception
+        ParsePosition position = new ParsePosition(0);
+        TemporalAccessor unresolved = formatter.parseUnresolved(dateString, position);
+        if (unresolved == null || position.getErrorIndex() >= 0 || position.getIndex() != dateString.length()) {
+            return null;
+        }
+        try {
+            return Instant.from(formatter.parse(dateString));
+        } catch (DateTimeException e) {
+            //Matches the pattern but contains invalid values
+            return null;
+        }
+    }
+
+    /**
+     * Parses dates like "Mon, 2 Jan 2017 15:04:05 +0100" or "02 Jan 2017 15:04 GMT". The day of the week is optional and not validated.
+     *
+     * @return the parsed instant or null if the string is not an RFC 1123 date
+     */
+    static Instant parseRfc1123(String text) {
+        int length = text.length();
+        int pos = 0;
+        int comma = text.indexOf(',');
+        if (comma >= 0) {
+            if (comma > 9) {
+                return null;
+            }
+            pos = skipSpaces(text, comma + 1);
+        }
+
+        int day = 0;
+        int dayStart = pos;
+        while (pos < length && pos - dayStart < 2 && isDigit(text.charAt(pos))) {
+            day = day * 10 + (text.charAt(pos++) - '0');
+        }
+        if (pos == dayStart || pos >= length || text.charAt(pos) != ' ') {
+            return null;
+        }
+        pos++;
+
+        if (pos + 4 > length || text.charAt(pos + 3) != ' ') {
+            return null;
+        }
+        int month = parseMonth(text, pos);
+        if (month == 0) {
+            return null;
+        }
+        pos += 4;
+
+        int year = parseNumber(text, pos, 4);
+        if (year < 0 || pos + 4 >= length || text.charAt(pos + 4) != ' ') {
+            return null;
+        }
+        pos += 5;
+
+        int hour = parseNumber(text, pos, 2);
+        if (hour < 0 || pos + 2 >= length || text.charAt(pos + 2) != ':') {
+            return null;
+        }
+        pos += 3;
+        int minute = parseNumber(text, pos, 2);
+        if (minute < 0) {
+            return null;
+        }
+        pos += 2;
+        int second = 0;
+        if (pos < length && text.charAt(pos) == ':') {
+            second = parseNumber(text, pos + 1, 2);
+            if (second < 0) {
+                return null;
+            }
+            pos += 3;
+        }
+        if (pos >= length || text.charAt(pos) != ' ') {
+            return null;
+        }
+        pos++;
+
+        int offsetSeconds = parseOffset(text, pos);
+        if (offsetSeconds == Integer.MIN_VALUE) {
+            return null;
+        }
+
+        if (day < 1 || day > Month.of(month).length(Year.isLeap(year)) || hour > 23 || minute > 59 || second > 59) {
+            return null;
+        }
+        long epochSecond = LocalDate.of(year, month, day).toEpochDay() * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond);
+    }
+
+    /**
+     * @return the offset in seconds or Integer.MIN_VALUE if the zone isn't known
+     */
+    private static int parseOffset(String text, int pos) {
+        String zone = text.substring(pos);
+        switch (zone) {
+            case "GMT":
+            case "UT":
+            case "UTC":
+            case "Z":
+                return 0;
+        }
+        if (zone.length() != 5 && zone.length() != 6) {
+            return Integer.MIN_VALUE;
+        }
+        char sign = zone.charAt(0);
+        if (sign != '+' && sign != '-') {
+            return Integer.MIN_VALUE;
+        }
+        int hours = parseNumber(zone, 1, 2);
+        int minutesStart = zone.length() == 6 ? 4 : 3;
+        if (zone.length() == 6 && zone.charAt(3) != ':') {
+            return Integer.MIN_VALUE;
+        }
+        int minutes = parseNumber(zone, minutesStart, 2);
+        if (hours < 0 || minutes < 0 || hours > 18 || minutes > 59) {
+            return Integer.MIN_VALUE;
+        }
+        int offset = hours * 3600 + minutes * 60;
+        return sign == '-' ? -offset : offset;
+    }
+
+    private static int parseMonth(String text, int pos) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (text.regionMatches(true, pos, MONTHS[i], 0, 3)) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the number with exactly the given count of digits or -1 if the text doesn't contain one at that position
+     */
+    private static int parseNumber(String text, int pos, int digits) {
+        if (pos + digits > text.length()) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = pos; i < pos + digits; i++) {
+            char c = text.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    private static int skipSpaces(String text, int pos) {
+        while (pos < text.length() && text.charAt(pos) == ' ') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+}
@@ -17,7 +17,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Getter
 @Setter
@@ -26,32 +30,29 @@ public class Torznab extends Newznab {
 
     private static final Logger logger = LoggerFactory.getLogger(Torznab.class);
 
+    protected static final Map<String, AttributeHandler> TORZNAB_ATTRIBUTE_HANDLERS = new HashMap<>();
+
+    static {
+        TORZNAB_ATTRIBUTE_HANDLERS.put("grabs", NEWZNAB_ATTRIBUTE_HANDLERS.get("grabs"));
+        TORZNAB_ATTRIBUTE_HANDLERS.put("guid", NEWZNAB_ATTRIBUTE_HANDLERS.get("guid"));
+        TORZNAB_ATTRIBUTE_HANDLERS.put("seeders", (indexer, item, value, categories) -> item.setSeeders(Integer.valueOf(value)));
+        TORZNAB_ATTRIBUTE_HANDLERS.put("peers", (indexer, item, value, categories) -> item.setPeers(Integer.valueOf(value)));
+        TORZNAB_ATTRIBUTE_HANDLERS.put("category", (indexer, item, value, categories) -> {
+            try {
+                categories.add(Integer.parseInt(value));
+            } catch (NumberFormatException ignored) {
+            }
+        });
+    }
+
     protected SearchResultItem createSearchResultItem(NewznabXmlItem item) {
         item.getRssGuid().setPermaLink(true); //Not set in RSS but actually always true
         SearchResultItem searchResultItem = super.createSearchResultItem(item);
-        String categoryFromAttributes = null;
         searchResultItem.setGrabs(item.getGrabs());
         searchResultItem.setIndexerGuid(item.getRssGuid().getGuid());
-        for (NewznabAttribute attribute : item.getTorznabAttributes()) {
-            searchResultItem.getAttributes().put(attribute.getName(), attribute.getValue());
-            switch (attribute.getName()) {
-                case "grabs":
-                    searchResultItem.setGrabs(Integer.valueOf(attribute.getValue()));
-                    break;
-                case "guid":
-                    searchResultItem.setIndexerGuid(attribute.getValue());
-                    break;
-                case "seeders":
-                    searchResultItem.setSeeders(Integer.valueOf(attribute.getValue()));
-                    break;
-                case "peers":
-                    searchResultItem.setPeers(Integer.valueOf(attribute.getValue()));
-                    break;
-                case "category":
-                    categoryFromAttributes = attribute.getValue();
-            }
-        }
-        Integer categoryInt = tryAndGetCategoryAsNumber(categoryFromAttributes, item.getCategory());
+        List<Integer> categoriesFromAttributes = new ArrayList<>(1);
+        applyAttributes(item.getTorznabAttributes(), TORZNAB_ATTRIBUTE_HANDLERS, searchResultItem, categoriesFromAttributes);
+        Integer categoryInt = tryAndGetCategoryAsNumber(categoriesFromAttributes.isEmpty() ? null : categoriesFromAttributes.get(categoriesFromAttributes.size() - 1), item.getCategory());
         if (categoryInt != null) {
             computeCategory(searchResultItem, Collections.singletonList(categoryInt));
         } else {
@@ -64,14 +65,8 @@ public class Torznab extends Newznab {
         return searchResultItem;
     }
 
-    private Integer tryAndGetCategoryAsNumber(String category, String categoryFromItem) {
-        Integer categoryInt = null;
-        if (category != null) {
-            try {
-                categoryInt = Integer.parseInt(category);
-            } catch (NumberFormatException e) {
-            }
-        }
+    private Integer tryAndGetCategoryAsNumber(Integer categoryFromAttributes, String categoryFromItem) {
+        Integer categoryInt = categoryFromAttributes;
         if (categoryFromItem != null) {
             try {
                 categoryInt = Integer.parseInt(categoryFromItem);
@@ -88,12 +83,11 @@ public class Torznab extends Newznab {
 
     @Override
     protected void completeIndexerSearchResult(Xml response, IndexerSearchResult indexerSearchResult, AcceptorResult acceptorResult, SearchRequest searchRequest, int offset, Integer limit) {
-        NewznabXmlChannel rssChannel = ((NewznabXmlRoot) response).getRssChannel();
         super.completeIndexerSearchResult(response, indexerSearchResult, acceptorResult, searchRequest, offset, limit);
         indexerSearchResult.setTotalResultsKnown(true);
         indexerSearchResult.setHasMoreResults(false);
         indexerSearchResult.setOffset(0);
-        indexerSearchResult.setTotalResults(rssChannel.getItems().size());
+        indexerSearchResult.setTotalResults(getNumberOfItems(response));
         indexerSearchResult.setLimit(searchRequest.getLimit().orElse(100));
     }
 
@@ -16,16 +16,24 @@
 
 package org.nzbhydra.okhttp;
 
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
 import com.google.common.net.InetAddresses;
 import joptsimple.internal.Strings;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.ToString;
 import okhttp3.ConnectionPool;
 import okhttp3.Credentials;
+import okhttp3.Dispatcher;
 import okhttp3.OkHttpClient;
 import okhttp3.OkHttpClient.Builder;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.Route;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.MainConfig;
 import org.nzbhydra.config.ProxyType;
@@ -36,6 +44,7 @@ import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.client.AsyncClientHttpRequest;
@@ -75,6 +84,7 @@ import java.security.cert.X509Certificate;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -90,10 +100,18 @@ public class HydraOkHttp3ClientHttpRequestFactory
     private static final Logger logger = LoggerFactory.getLogger(HydraOkHttp3ClientHttpRequestFactory.class);
     private static Pattern HOST_PATTERN = Pattern.compile("(\\w+\\.)?(\\S+\\.\\S+)", Pattern.CASE_INSENSITIVE);
 
+    private static final int TLS_SESSION_CACHE_SIZE = 100;
+    private static final int TLS_SESSION_TIMEOUT_SECONDS = 60 * 60;
+
     private OkHttpClient client;
     @Autowired
     private ConfigProvider configProvider;
     private final ConnectionPool connectionPool = new ConnectionPool(10, 5, TimeUnit.MINUTES);
+    private final Dispatcher dispatcher = new Dispatcher();
+    private final Map<ClientProfile, OkHttpClient> clients = new ConcurrentHashMap<>();
+    private final Supplier<X509TrustManager> defaultTrustManager = Suppliers.memoize(this::getDefaultX509TrustManager);
+    private final Supplier<SSLSocketFactory> verifyingSslSocketFactory = Suppliers.memoize(() -> createSslSocketFactory(defaultTrustManager.get()));
+    private final Supplier<SSLSocketFactory> trustingSslSocketFactory = Suppliers.memoize(() -> createSslSocketFactory(getAllTrustingX509TrustManager()));
 
 
     /**
@@ -150,14 +168,8 @@ public class HydraOkHttp3ClientHttpRequestFactory
     @Override
     public void destroy() throws IOException {
         // Clean up the client if we created it in the constructor
-        try {
-            if (this.client.cache() != null) {
-                this.client.cache().close();
-            }
-            this.client.dispatcher().executorService().shutdown();
-        } catch (NullPointerException e) {
-            //Ignore
-        }
+        dispatcher.executorService().shutdown();
+        connectionPool.evictAll();
     }
 
 
@@ -184,52 +196,71 @@ public class HydraOkHttp3ClientHttpRequestFactory
         return (StringUtils.hasText(rawContentType) ? okhttp3.MediaType.parse(rawContentType) : null);
     }
 
+    /**
+     * Returns a client to be used for calls to the given URI. Clients are cached per proxy, SSL and timeout settings, so all calls with the same
+     * settings share their dispatcher, connections and TLS sessions.
+     *
+     * @param timeout Connect, read and write timeout in seconds. If null the default read timeout is used.
+     */
+    public OkHttpClient getOkHttpClient(URI requestUri, Integer timeout) {
+        MainConfig main = configProvider.getBaseConfig().getMain();
+        boolean useProxy = main.getProxyType() != ProxyType.NONE && !isUriToBeIgnoredByProxy(requestUri.getHost());
+        if (main.getProxyType() != ProxyType.NONE && !useProxy) {
+            logger.debug("Not using proxy for request to {}", requestUri.getHost());
+        }
+        ClientProfile profile = useProxy ?
+                new ClientProfile(main.isVerifySsl(), main.getProxyType(), main.getProxyHost(), main.getProxyPort(), main.getProxyUsername(), main.getProxyPassword(), timeout) :
+                new ClientProfile(main.isVerifySsl(), ProxyType.NONE, null, 0, null, null, timeout);
+        return clients.computeIfAbsent(profile, this::buildClient);
+    }
+
+    /**
+     * Returns a builder for a client to be used for calls to the given URI. Clients built by it share the dispatcher, connections and TLS sessions
+     * with all other clients, so building one is cheap. Use {@link #getOkHttpClient(URI, Integer)} if only the timeout needs to be changed.
+     */
     public Builder getOkHttpClientBuilder(URI requestUri) {
+        return getOkHttpClient(requestUri, null).newBuilder();
+    }
+
+    private OkHttpClient buildClient(ClientProfile profile) {
+        logger.debug("Creating HTTP client for {}", profile);
         Builder builder = getBaseBuilder();
-        if (!configProvider.getBaseConfig().getMain().isVerifySsl()) {
+        if (profile.getTimeout() != null) {
+            builder.readTimeout(profile.getTimeout(), TimeUnit.SECONDS).connectTimeout(profile.getTimeout(), TimeUnit.SECONDS).writeTimeout(profile.getTimeout(), TimeUnit.SECONDS);
+        }
+        if (!profile.isVerifySsl()) {
             builder = getUnsafeOkHttpClientBuilder(builder);
         } else {
-            try {
-                SSLSocketFactory sslSocketFactory = getSslSocketFactory(new TrustManager[]{
-                        getDefaultX509TrustManager()
-                });
-                builder = builder.sslSocketFactory(new SniWhitelistingSocketFactory(sslSocketFactory), getDefaultX509TrustManager());
-            } catch (NoSuchAlgorithmException | KeyManagementException e) {
-                throw new RuntimeException("Unable to create SSLSocketFactory", e);
-            }
-        }
-
-        MainConfig main = configProvider.getBaseConfig().getMain();
-        if (main.getProxyType() == ProxyType.NONE) {
-            return builder;
+            builder = builder.sslSocketFactory(verifyingSslSocketFactory.get(), defaultTrustManager.get());
         }
 
-        if (isUriToBeIgnoredByProxy(requestUri.getHost())) {
-            logger.debug("Not using proxy for request to {}", requestUri.getHost());
-            return builder;
-        }
-
-
-        if (main.getProxyType() == ProxyType.SOCKS) {
-            SockProxySocketFactory sockProxySocketFactory = new SockProxySocketFactory(main.getProxyHost(), main.getProxyPort(), main.getProxyUsername(), main.getProxyPassword());
-            return builder.socketFactory(sockProxySocketFactory);
-        } else if (main.getProxyType() == ProxyType.HTTP) {
-            builder = builder.proxy(new Proxy(Type.HTTP, new InetSocketAddress(main.getProxyHost(), main.getProxyPort()))).proxyAuthenticator((Route route, Response response) -> {
+        if (profile.getProxyType() == ProxyType.SOCKS) {
+            SockProxySocketFactory sockProxySocketFactory = new SockProxySocketFactory(profile.getProxyHost(), profile.getProxyPort(), profile.getProxyUsername(), profile.getProxyPassword());
+            return builder.socketFactory(sockProxySocketFactory).build();
+        } else if (profile.getProxyType() == ProxyType.HTTP) {
+            builder = builder.proxy(new Proxy(Type.HTTP, new InetSocketAddress(profile.getProxyHost(), profile.getProxyPort()))).proxyAuthenticator((Route route, Response response) -> {
                 if (response.request().header("Proxy-Authorization") != null) {
                     logger.warn("Authentication with proxy failed");
                     return null; // Give up, we've already failed to authenticate.
                 }
 
-                String credential = Credentials.basic(main.getProxyUsername(), main.getProxyPassword());
+                String credential = Credentials.basic(profile.getProxyUsername(), profile.getProxyPassword());
                 return response.request().newBuilder()
                         .header("Proxy-Authorization", credential).build();
             });
         }
-        return builder;
+        return builder.build();
     }
 
     protected Builder getBaseBuilder() {
-        return new OkHttpClient().newBuilder().connectionPool(connectionPool).readTimeout(timeout, TimeUnit.SECONDS);
+        //HTTP/2 is used if the indexer supports it (and ALPN is available), otherwise HTTP/1.1
+        return new OkHttpClient.Builder().connectionPool(connectionPool).dispatcher(dispatcher).protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1)).readTimeout(timeout, TimeUnit.SECONDS);
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        //Proxy or SSL settings may have changed
+        clients.clear();
     }
 
     protected boolean isUriToBeIgnoredByProxy(String host) {
@@ -282,10 +313,8 @@ public class HydraOkHttp3ClientHttpRequestFactory
                     getAllTrustingX509TrustManager()
             };
 
-            final SSLSocketFactory sslSocketFactory = new SniWhitelistingSocketFactory(getSslSocketFactory(trustAllCerts));
-
             return builder
-                    .sslSocketFactory(sslSocketFactory, (X509TrustManager) trustAllCerts[0])
+                    .sslSocketFactory(trustingSslSocketFactory.get(), (X509TrustManager) trustAllCerts[0])
                     .hostnameVerifier(new HostnameVerifier() {
                         @Override
                         public boolean verify(String hostname, SSLSession session) {
@@ -298,10 +327,17 @@ public class HydraOkHttp3ClientHttpRequestFactory
         }
     }
 
-    private SSLSocketFactory getSslSocketFactory(TrustManager[] trustAllCerts) throws NoSuchAlgorithmException, KeyManagementException {
-        final SSLContext sslContext = SSLContext.getInstance("SSL");
-        sslContext.init(null, trustAllCerts, new java.security.SecureRandom());
-        return sslContext.getSocketFactory();
+    private SSLSocketFactory createSslSocketFactory(TrustManager trustManager) {
+        try {
+            final SSLContext sslContext = SSLContext.getInstance("TLS");
+            sslContext.init(null, new TrustManager[]{trustManager}, new java.security.SecureRandom());
+            //TLS sessions are cached per context. Because the context is reused sessions can be resumed instead of doing a full handshake for every connection
+            sslContext.getClientSessionContext().setSessionCacheSize(TLS_SESSION_CACHE_SIZE);
+            sslContext.getClientSessionContext().setSessionTimeout(TLS_SESSION_TIMEOUT_SECONDS);
+            return new SniWhitelistingSocketFactory(sslContext.getSocketFactory());
+        } catch (NoSuchAlgorithmException | KeyManagementException e) {
+            throw new RuntimeException("Unable to create SSLSocketFactory", e);
+        }
     }
 
     private X509TrustManager getDefaultX509TrustManager() {
@@ -415,4 +451,17 @@ public class HydraOkHttp3ClientHttpRequestFactory
         }
     }
 
+    @Data
+    @AllArgsConstructor
+    @ToString(exclude = "proxyPassword")
+    private static class ClientProfile {
+        private boolean verifySsl;
+        private ProxyType proxyType;
+        private String proxyHost;
+        private int proxyPort;
+        private String proxyUsername;
+        private String proxyPassword;
+        private Integer timeout;
+    }
+
 }
@@ -8,6 +8,7 @@ import okhttp3.Request;
 import okhttp3.Request.Builder;
 import okhttp3.Response;
 import okio.BufferedSink;
+import okio.BufferedSource;
 import okio.Okio;
 import org.nzbhydra.logging.LoggingMarkers;
 import org.slf4j.Logger;
@@ -45,21 +46,11 @@ public class WebAccess {
     }
 
     public String callUrl(String url, Map<String, String> headers, int timeout) throws IOException {
-        Builder builder = new Builder().url(url);
-        for (Entry<String, String> entry : headers.entrySet()) {
-            builder.addHeader(entry.getKey(), entry.getValue());
-        }
-
-        Request request = builder.build();
-
-        OkHttpClient client = requestFactory.getOkHttpClientBuilder(request.url().uri()).readTimeout(timeout, TimeUnit.SECONDS).connectTimeout(timeout, TimeUnit.SECONDS).writeTimeout(timeout, TimeUnit.SECONDS).build();
+        Request request = buildRequest(url, headers);
+        OkHttpClient client = requestFactory.getOkHttpClient(request.url().uri(), timeout);
         logger.debug(LoggingMarkers.HTTP, "Calling URL {} with headers {} and timeout{}", url, headers.entrySet().stream().map(x -> x.getKey() + ":" + x.getValue()).collect(Collectors.joining(", ")), timeout);
         try (Response response = client.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                String error = String.format("URL call to %s returned %d: %s", url, response.code(), response.message());
-                logger.error(error);
-                throw new IOException(error);
-            }
+            checkSuccessful(url, response);
             String body = response.body().string();
             logger.debug(LoggingMarkers.HTTP, "Call to {} successful with content length {} and headers {}", url, body.length(), response.headers());
             response.body().close();
@@ -67,6 +58,37 @@ public class WebAccess {
         }
     }
 
+    /**
+     * Calls the URL and lets the reader consume the response body while it's being received, without buffering the whole body in memory.
+     */
+    public <T> T callUrl(String url, Map<String, String> headers, int timeout, ResponseBodyReader<T> reader) throws IOException {
+        Request request = buildRequest(url, headers);
+        OkHttpClient client = requestFactory.getOkHttpClient(request.url().uri(), timeout);
+        logger.debug(LoggingMarkers.HTTP, "Calling URL {} with headers {} and timeout{}", url, headers.entrySet().stream().map(x -> x.getKey() + ":" + x.getValue()).collect(Collectors.joining(", ")), timeout);
+        try (Response response = client.newCall(request).execute()) {
+            checkSuccessful(url, response);
+            T result = reader.read(response.body().source());
+            logger.debug(LoggingMarkers.HTTP, "Call to {} successful with headers {}", url, response.headers());
+            return result;
+        }
+    }
+
+    private Request buildRequest(String url, Map<String, String> headers) {
+        Builder builder = new Builder().url(url);
+        for (Entry<String, String> entry : headers.entrySet()) {
+            builder.addHeader(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    private void checkSuccessful(String url, Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            String error = String.format("URL call to %s returned %d: %s", url, response.code(), response.message());
+            logger.error(error);
+            throw new IOException(error);
+        }
+    }
+
     public <T> T callUrl(String url, Map<String, String> headers, Class<T> clazz) throws IOException {
         String body = callUrl(url, headers);
         return objectMapper.readValue(body, clazz);
@@ -97,4 +119,9 @@ public class WebAccess {
         }
     }
 
+    @FunctionalInterface
+    public interface ResponseBodyReader<T> {
+        T read(BufferedSource source) throws IOException;
+    }
+
 }
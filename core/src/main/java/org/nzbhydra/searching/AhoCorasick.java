@@ -0,0 +1,88 @@
+package org.nzbhydra.searching;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * Finds all occurrences of a set of strings in a text in one pass, regardless of the number of strings. Immutable and thread safe once built.
+ */
+class AhoCorasick {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>();
+    private final int[] failures;
+    private final int[][] outputs;
+    private final int numberOfPatterns;
+
+    AhoCorasick(List<String> patterns) {
+        numberOfPatterns = patterns.size();
+        List<List<Integer>> outputLists = new ArrayList<>();
+        transitions.add(new HashMap<>());
+        outputLists.add(new ArrayList<>());
+        for (int i = 0; i < patterns.size(); i++) {
+            int node = 0;
+            for (char c : patterns.get(i).toCharArray()) {
+                Integer next = transitions.get(node).get(c);
+                if (next == null) {
+                    next = transitions.size();
+                    transitions.get(node).put(c, next);
+                    transitions.add(new HashMap<>());
+                    outputLists.add(new ArrayList<>());
+                }
+                node = next;
+            }
+            outputLists.get(node).add(i);
+        }
+
+        //Breadth first so that the failure node (which is less deep) of every node is complete before the node itself is handled
+        failures = new int[transitions.size()];
+        Queue<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> entry : transitions.get(node).entrySet()) {
+                int child = entry.getValue();
+                if (node != 0) {
+                    int failure = failures[node];
+                    while (failure != 0 && !transitions.get(failure).containsKey(entry.getKey())) {
+                        failure = failures[failure];
+                    }
+                    failures[child] = transitions.get(failure).getOrDefault(entry.getKey(), 0);
+                    outputLists.get(child).addAll(outputLists.get(failures[child]));
+                }
+                queue.add(child);
+            }
+        }
+
+        outputs = new int[outputLists.size()][];
+        for (int i = 0; i < outputLists.size(); i++) {
+            outputs[i] = outputLists.get(i).stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    /**
+     * @return The indexes of all patterns contained in the text
+     */
+    BitSet findAll(String text) {
+        BitSet found = new BitSet(numberOfPatterns);
+        if (numberOfPatterns == 0) {
+            return found;
+        }
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            while (node != 0 && !transitions.get(node).containsKey(c)) {
+                node = failures[node];
+            }
+            node = transitions.get(node).getOrDefault(c, 0);
+            for (int output : outputs[node]) {
+                found.set(output);
+            }
+        }
+        return found;
+    }
+
+}
@@ -13,6 +13,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
@@ -25,6 +26,9 @@ public class CategoryProvider implements InitializingBean {
 
     private static final Logger logger = LoggerFactory.getLogger(CategoryProvider.class);
 
+    private static final int MAX_INDEXED_NUMBER = 9999;
+    private static final int MAX_CACHED_RESULT_CATEGORIES = 1000;
+
     /**
      * List of all categories in the order in which they are configured and to be shown in the dropdown
      */
@@ -40,6 +44,24 @@ public class CategoryProvider implements InitializingBean {
      */
     protected Map<Integer, Category> categoryMapByNumber = new HashMap<>();
 
+    /**
+     * Categories by their newznab numbers for all numbers up to 9999 (the standard newznab categories), compiled from the config so that
+     * the categories of search results can be looked up without hashing
+     */
+    private Category[] categoryByNumber = new Category[MAX_INDEXED_NUMBER + 1];
+
+    /**
+     * For every main category (1000, 2000, ...) the position of the first configured category containing it, -1 if none
+     */
+    private int[] positionByMainCategory = new int[MAX_INDEXED_NUMBER / 1000 + 1];
+
+    private Map<Subtype, Category> categoryBySubtype = new EnumMap<>(Subtype.class);
+
+    /**
+     * Category of search results by their (sorted) newznab categories. Most indexers only use a handful of combinations
+     */
+    private Map<List<Integer>, Category> resultCategoryCache = new ConcurrentHashMap<>();
+
     @Autowired
     protected BaseConfig baseConfig;
 
@@ -64,19 +86,35 @@ public class CategoryProvider implements InitializingBean {
 
     protected void initialize() {
         categories = baseConfig.getCategoriesConfig().getCategories();
+        Category[] newCategoryByNumber = new Category[MAX_INDEXED_NUMBER + 1];
+        int[] newPositionByMainCategory = new int[MAX_INDEXED_NUMBER / 1000 + 1];
+        Arrays.fill(newPositionByMainCategory, -1);
+        Map<Subtype, Category> newCategoryBySubtype = new EnumMap<>(Subtype.class);
         if (categories != null) {
-            categoryMap = categories.stream().collect(Collectors.toMap(Category::getName, Function.identity()));
             categoryMapByNumber.clear();
-            for (Category category : categories) {
+            for (int i = 0; i < categories.size(); i++) {
+                Category category = categories.get(i);
+                newCategoryBySubtype.putIfAbsent(category.getSubtype(), category);
                 for (Integer integer : category.getNewznabCategories()) {
                     categoryMapByNumber.put(integer, category);
+                    if (integer >= 0 && integer <= MAX_INDEXED_NUMBER) {
+                        newCategoryByNumber[integer] = category;
+                        if (integer % 1000 == 0 && newPositionByMainCategory[integer / 1000] == -1) {
+                            newPositionByMainCategory[integer / 1000] = i;
+                        }
+                    }
                 }
             }
+            categoryMap = categories.stream().collect(Collectors.toMap(Category::getName, Function.identity()));
         } else {
             logger.error("Configuration incomplete, categories not set");
             categoryMap = Collections.emptyMap();
             categoryMapByNumber = new HashMap<>();
         }
+        categoryByNumber = newCategoryByNumber;
+        positionByMainCategory = newPositionByMainCategory;
+        categoryBySubtype = newCategoryBySubtype;
+        resultCategoryCache = new ConcurrentHashMap<>();
     }
 
     public List<Category> getCategories() {
@@ -126,7 +164,7 @@ public class CategoryProvider implements InitializingBean {
     }
 
     public Optional<Category> fromSubtype(Subtype subtype) {
-        return categories.stream().filter(x -> x.getSubtype() == subtype).findFirst();
+        return Optional.ofNullable(categoryBySubtype.get(subtype));
     }
 
 
@@ -160,7 +198,14 @@ public class CategoryProvider implements InitializingBean {
             return naCategory;
         }
         cats.sort((o1, o2) -> Integer.compare(o2, o1));
-        return getMatchingCategoryOrMatchingMainCategory(cats, naCategory);
+        Category category = resultCategoryCache.get(cats);
+        if (category == null) {
+            category = getMatchingCategoryOrMatchingMainCategory(cats, naCategory);
+            if (resultCategoryCache.size() < MAX_CACHED_RESULT_CATEGORIES) {
+                resultCategoryCache.put(new ArrayList<>(cats), category);
+            }
+        }
+        return category;
     }
 
     protected Category getCategory(List<Integer> cats, Category defaultCategory) {
@@ -224,16 +269,47 @@ public class CategoryProvider implements InitializingBean {
 
 
     public Category getMatchingCategoryOrMatchingMainCategory(List<Integer> cats, Category defaultCategory) {
-        Optional<Category> matchingCategory;
         for (Integer cat : cats) {
-            if (categoryMapByNumber.containsKey(cat)) {
-                return categoryMapByNumber.get(cat);
+            Category category = getByNumber(cat);
+            if (category != null) {
+                return category;
             }
         }
 
-        //Let's try to find a more general one
-        matchingCategory = categories.stream().filter(x -> cats.stream().anyMatch(y -> x.getNewznabCategories().contains(y / 1000 * 1000))).findFirst();
-        return matchingCategory.orElse(defaultCategory);
+        //Let's try to find a more general one. Use the first configured category which contains any of the main categories
+        int firstPosition = Integer.MAX_VALUE;
+        for (Integer cat : cats) {
+            int mainCategory = cat / 1000 * 1000;
+            int position;
+            if (mainCategory >= 0 && mainCategory <= MAX_INDEXED_NUMBER) {
+                position = positionByMainCategory[mainCategory / 1000];
+            } else {
+                position = getPositionOfFirstCategoryContaining(mainCategory);
+            }
+            if (position >= 0 && position < firstPosition) {
+                firstPosition = position;
+            }
+        }
+        return firstPosition == Integer.MAX_VALUE ? defaultCategory : categories.get(firstPosition);
+    }
+
+    private Category getByNumber(int number) {
+        if (number >= 0 && number <= MAX_INDEXED_NUMBER) {
+            return categoryByNumber[number];
+        }
+        return categoryMapByNumber.get(number);
+    }
+
+    private int getPositionOfFirstCategoryContaining(int number) {
+        if (categories == null) {
+            return -1;
+        }
+        for (int i = 0; i < categories.size(); i++) {
+            if (categories.get(i).getNewznabCategories().contains(number)) {
+                return i;
+            }
+        }
+        return -1;
     }
 
 
@@ -0,0 +1,107 @@
+package org.nzbhydra.searching;
+
+import com.google.common.collect.HashMultiset;
+import com.google.common.collect.Multiset;
+import org.nzbhydra.indexers.Indexer;
+
+import java.util.*;
+
+/**
+ * Contains the duplicate groups found for a set of search results. New results can be added at any time and are only compared to
+ * existing results with the same (normalized) title and a similar age. See {@link DuplicateDetector#detectDuplicates(DuplicateDetectionState, Collection)}.
+ * <p>
+ * Not thread safe, callers need to synchronize on the state.
+ */
+public class DuplicateDetectionState {
+
+    private final Map<String, TitleGroup> titleGroups = new LinkedHashMap<>();
+    private final List<LinkedHashSet<SearchResultItem>> duplicateGroups = new ArrayList<>();
+    private final Multiset<Indexer> uniqueResultsPerIndexer = HashMultiset.create();
+    private final Map<Indexer, Integer> indexerNumbers = new HashMap<>();
+    //Results equal to each other may still be different results (e.g. returned for different searches), so we check for identity
+    private final Set<SearchResultItem> knownItems = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /**
+     * @return true if the item (that instance) was not yet added to this state
+     */
+    boolean markKnown(SearchResultItem item) {
+        return knownItems.add(item);
+    }
+
+    TitleGroup getTitleGroup(String normalizedTitle) {
+        return titleGroups.computeIfAbsent(normalizedTitle, x -> new TitleGroup());
+    }
+
+    void addToNewBucket(TitleGroup titleGroup, SearchResultItem item) {
+        Bucket bucket = new Bucket(titleGroup.buckets.size(), duplicateGroups.size());
+        titleGroup.buckets.add(bucket);
+        duplicateGroups.add(bucket.items);
+        addToBucket(titleGroup, bucket, item);
+        uniqueResultsPerIndexer.add(item.getIndexer());
+    }
+
+    void addToBucket(TitleGroup titleGroup, Bucket bucket, SearchResultItem item) {
+        if (bucket.items.size() == 1) {
+            //The result in the bucket isn't unique anymore
+            uniqueResultsPerIndexer.remove(bucket.items.iterator().next().getIndexer());
+        }
+        bucket.items.add(item);
+        bucket.indexers.set(getIndexerNumber(item.getIndexer()));
+        item.setDuplicateIdentifier(bucket.duplicateIdentifier);
+        if (item.getBestDate() != null) {
+            titleGroup.itemsByEpochSecond.computeIfAbsent(item.getBestDate().getEpochSecond(), x -> new ArrayList<>()).add(new BucketEntry(item, bucket));
+        }
+    }
+
+    int getIndexerNumber(Indexer indexer) {
+        return indexerNumbers.computeIfAbsent(indexer, x -> indexerNumbers.size());
+    }
+
+    public int getNumberOfResults() {
+        return knownItems.size();
+    }
+
+    public DuplicateDetectionResult toResult() {
+        return new DuplicateDetectionResult(Collections.unmodifiableList(duplicateGroups), HashMultiset.create(uniqueResultsPerIndexer));
+    }
+
+    /**
+     * All results with the same normalized title.
+     */
+    static class TitleGroup {
+        /**
+         * Buckets in the order in which they were created
+         */
+        final List<Bucket> buckets = new ArrayList<>();
+        /**
+         * Every result in this group by its best date. Allows to only compare a new result with those of similar age
+         */
+        final NavigableMap<Long, List<BucketEntry>> itemsByEpochSecond = new TreeMap<>();
+    }
+
+    /**
+     * A set of results which are duplicates of each other.
+     */
+    static class Bucket {
+        final int positionInTitleGroup;
+        final int duplicateIdentifier;
+        final LinkedHashSet<SearchResultItem> items = new LinkedHashSet<>();
+        final BitSet indexers = new BitSet();
+
+        Bucket(int positionInTitleGroup, int duplicateIdentifier) {
+            this.positionInTitleGroup = positionInTitleGroup;
+            this.duplicateIdentifier = duplicateIdentifier;
+        }
+    }
+
+    static class BucketEntry {
+        final SearchResultItem item;
+        final Bucket bucket;
+
+        BucketEntry(SearchResultItem item, Bucket bucket) {
+            this.item = item;
+            this.bucket = bucket;
+        }
+    }
+
+}
@@ -1,29 +1,22 @@
 package org.nzbhydra.searching;
 
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Multiset;
 import org.nzbhydra.config.ConfigProvider;
-import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.logging.LoggingMarkers;
+import org.nzbhydra.searching.DuplicateDetectionState.Bucket;
+import org.nzbhydra.searching.DuplicateDetectionState.BucketEntry;
+import org.nzbhydra.searching.DuplicateDetectionState.TitleGroup;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.LinkedHashSet;
-import java.util.List;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
+import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
-import static com.google.common.collect.Lists.newArrayList;
-
 @Component
 public class DuplicateDetector {
 
@@ -33,66 +26,80 @@ public class DuplicateDetector {
     protected ConfigProvider configProvider;
 
     public DuplicateDetectionResult detectDuplicates(List<SearchResultItem> results) {
+        return detectDuplicates(new DuplicateDetectionState(), results);
+    }
+
+    /**
+     * Adds the given results to the duplicate groups of the given state. Results already contained in the state are ignored. Every new result is
+     * only compared to results with the same title and a similar age which aren't in a group with a result from the same indexer.
+     *
+     * @param state      The state containing the already known results. Will be updated
+     * @param newResults Results to add
+     * @return The result containing all duplicate groups of the state
+     */
+    public DuplicateDetectionResult detectDuplicates(DuplicateDetectionState state, Collection<SearchResultItem> newResults) {
         Stopwatch stopwatch = Stopwatch.createStarted();
-        Map<String, List<SearchResultItem>> groupedByTitle = results.stream().collect(Collectors.groupingBy(x -> x.getTitle().replaceFirst("[ .\\-_]", "")));
-        Multiset<Indexer> countUniqueResultsPerIndexer = HashMultiset.create();
-        List<LinkedHashSet<SearchResultItem>> duplicateGroups = new ArrayList<>();
-
-        //In each list of searchResults with the same title we want to find the duplicates
-        int countDetectedDuplicates = 0;
-        for (List<SearchResultItem> titleGroup : groupedByTitle.values()) {
-            titleGroup = titleGroup.stream().sorted(Comparator.comparing(SearchResultItem::getBestDate).reversed()).collect(Collectors.toList());
-            //So we start with a bucket with the first (later we have a list of buckets where all searchResults in a bucket are duplicates)
-            List<LinkedHashSet<SearchResultItem>> listOfBuckets = new ArrayList<>();
-            listOfBuckets.add(new LinkedHashSet<>(newArrayList(titleGroup.get(0))));
-            //And iterate over every other item in the list
-            for (int i = 1; i < titleGroup.size(); i++) {
-                SearchResultItem searchResultItem = titleGroup.get(i);
-                boolean foundBucket = false;
-                //Iterate over already existing buckets
-                for (LinkedHashSet<SearchResultItem> bucket : listOfBuckets) {
-                    if (bucket.stream().map(SearchResultItem::getIndexer).collect(Collectors.toList()).contains(searchResultItem.getIndexer())) {
-                        continue;
-                    }
-                    //And all searchResults in those buckets
-                    for (SearchResultItem other : bucket) {
-                        //Now we can check if the two searchResults are duplicates
-                        boolean same = testForSameness(searchResultItem, other);
-                        if (same) {
-                            //If they are the same we found a bucket for the result. We add it and continue
-                            foundBucket = true;
-                            bucket.add(searchResultItem);
-                            countDetectedDuplicates++;
-                            break;
-                        }
-                    }
-                    //If we already found a bucket for the result we can go on with the next
-                    if (foundBucket) {
-                        break;
+        float duplicateAgeThreshold = configProvider.getBaseConfig().getSearching().getDuplicateAgeThreshold();
+        //Thresholds may be doubled (see testForSameness). The age is compared in full hours
+        long maxAgeDifferenceInSeconds = (long) (Math.floor(duplicateAgeThreshold * 2) + 1) * 60 * 60;
+
+        synchronized (state) {
+            Map<String, List<SearchResultItem>> newResultsGroupedByTitle = newResults.stream().filter(state::markKnown).collect(Collectors.groupingBy(x -> normalizeTitle(x.getTitle()), LinkedHashMap::new, Collectors.toList()));
+
+            int countDetectedDuplicates = 0;
+            for (Entry<String, List<SearchResultItem>> entry : newResultsGroupedByTitle.entrySet()) {
+                TitleGroup titleGroup = state.getTitleGroup(entry.getKey());
+                //Newest first, results without date can't be duplicates
+                List<SearchResultItem> titleGroupResults = entry.getValue().stream().sorted(Comparator.comparing(SearchResultItem::getBestDate, Comparator.nullsLast(Comparator.reverseOrder()))).collect(Collectors.toList());
+                for (SearchResultItem searchResultItem : titleGroupResults) {
+                    Optional<Bucket> bucket = findBucket(state, titleGroup, searchResultItem, maxAgeDifferenceInSeconds);
+                    if (bucket.isPresent()) {
+                        state.addToBucket(titleGroup, bucket.get(), searchResultItem);
+                        countDetectedDuplicates++;
+                    } else {
+                        state.addToNewBucket(titleGroup, searchResultItem);
                     }
                 }
-                //If we didn't find a bucket for the result we start a new one
-                if (!foundBucket) {
-                    listOfBuckets.add(new LinkedHashSet<>(newArrayList(searchResultItem)));
-                }
             }
-            LinkedHashSet<SearchResultItem> lastBucket = Iterables.getLast(listOfBuckets);
-            if (lastBucket.size() == 1) {
-                countUniqueResultsPerIndexer.add(lastBucket.iterator().next().getIndexer());
+
+            logger.debug(LoggingMarkers.PERFORMANCE, "Duplicate detection for {} new of {} search results took {}ms. Found {} duplicates", newResultsGroupedByTitle.values().stream().mapToInt(List::size).sum(), state.getNumberOfResults(), stopwatch.elapsed(TimeUnit.MILLISECONDS), countDetectedDuplicates);
+            return state.toResult();
+        }
+    }
+
+    /**
+     * Finds the first bucket (in order of creation) which contains a result of similar age which is a duplicate of the given one and doesn't contain a result from the same indexer.
+     */
+    private Optional<Bucket> findBucket(DuplicateDetectionState state, TitleGroup titleGroup, SearchResultItem searchResultItem, long maxAgeDifferenceInSeconds) {
+        if (searchResultItem.getBestDate() == null) {
+            return Optional.empty();
+        }
+        long epochSecond = searchResultItem.getBestDate().getEpochSecond();
+        int indexerNumber = state.getIndexerNumber(searchResultItem.getIndexer());
+        //Candidates sorted by the position of their bucket
+        SortedMap<Integer, List<SearchResultItem>> candidatesByBucketPosition = new TreeMap<>();
+        Map<Integer, Bucket> bucketsByPosition = new HashMap<>();
+        for (List<BucketEntry> entries : titleGroup.itemsByEpochSecond.subMap(epochSecond - maxAgeDifferenceInSeconds, true, epochSecond + maxAgeDifferenceInSeconds, true).values()) {
+            for (BucketEntry bucketEntry : entries) {
+                if (bucketEntry.bucket.indexers.get(indexerNumber)) {
+                    continue;
+                }
+                candidatesByBucketPosition.computeIfAbsent(bucketEntry.bucket.positionInTitleGroup, x -> new ArrayList<>()).add(bucketEntry.item);
+                bucketsByPosition.put(bucketEntry.bucket.positionInTitleGroup, bucketEntry.bucket);
             }
-            duplicateGroups.addAll(listOfBuckets);
         }
-        int duplicateIdentifier = 0;
-        for (LinkedHashSet<SearchResultItem> group : duplicateGroups) {
-            for (SearchResultItem x : group) {
-                x.setDuplicateIdentifier(duplicateIdentifier);
+        for (Entry<Integer, List<SearchResultItem>> entry : candidatesByBucketPosition.entrySet()) {
+            for (SearchResultItem other : entry.getValue()) {
+                if (testForSameness(searchResultItem, other)) {
+                    return Optional.of(bucketsByPosition.get(entry.getKey()));
+                }
             }
-            duplicateIdentifier++;
         }
+        return Optional.empty();
+    }
 
-        logger.debug(LoggingMarkers.PERFORMANCE, "Duplicate detection for {} search results took {}ms. Found {} duplicates", results.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS), countDetectedDuplicates);
-
-        return new DuplicateDetectionResult(duplicateGroups, countUniqueResultsPerIndexer);
+    protected String normalizeTitle(String title) {
+        return title.replaceFirst("[ .\\-_]", "");
     }
 
     private boolean testForSameness(SearchResultItem result1, SearchResultItem result2) {
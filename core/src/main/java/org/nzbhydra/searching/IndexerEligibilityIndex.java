@@ -0,0 +1,202 @@
+package org.nzbhydra.searching;
+
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.logging.LoggingMarkers;
+import org.nzbhydra.mediainfo.InfoProvider.IdType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Contains the parts of the indexer configs needed to pick indexers for a search in a form that can be checked quickly: parsed schedules
+ * and bitmasks of the enabled categories and the supported search IDs. Entries are created when an indexer is first checked and replaced
+ * when the config is changed.
+ */
+@Component
+public class IndexerEligibilityIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(IndexerEligibilityIndex.class);
+
+    public static final Pattern SCHEDULER_PATTERN = Pattern.compile("(?<day1>(?:mo|tu|we|th|fr|sa|su))?\\-?(?<day2>(?:mo|tu|we|th|fr|sa|su))?(?<hour1>\\d{1,2})?\\-?(?<hour2>\\d{1,2})?", Pattern.CASE_INSENSITIVE);
+    private static final List<String> DAYS = Arrays.asList("mo", "tu", "we", "th", "fr", "sa", "su");
+
+    private final ConcurrentMap<String, IndexerEligibility> eligibilityByIndexerName = new ConcurrentHashMap<>();
+    /**
+     * Every category name gets its own bit in the bitmasks of enabled categories
+     */
+    private final ConcurrentMap<String, Integer> categoryBits = new ConcurrentHashMap<>();
+    private final AtomicInteger nextCategoryBit = new AtomicInteger();
+
+    public IndexerEligibility get(IndexerConfig indexerConfig) {
+        IndexerEligibility eligibility = eligibilityByIndexerName.get(indexerConfig.getName());
+        if (eligibility == null || !eligibility.isCurrent(indexerConfig)) {
+            eligibility = new IndexerEligibility(indexerConfig);
+            eligibilityByIndexerName.put(indexerConfig.getName(), eligibility);
+        }
+        return eligibility;
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        eligibilityByIndexerName.clear();
+    }
+
+    private int getCategoryBit(String categoryName) {
+        //The size of the map can't be used because it may not be updated yet when another category is added concurrently
+        return categoryBits.computeIfAbsent(categoryName, x -> nextCategoryBit.getAndIncrement());
+    }
+
+    /**
+     * @return The bitmask of the given ID types
+     */
+    public static int toIdMask(Collection<IdType> idTypes) {
+        int mask = 0;
+        for (IdType idType : idTypes) {
+            mask |= 1 << idType.ordinal();
+        }
+        return mask;
+    }
+
+    public class IndexerEligibility {
+        private final IndexerConfig indexerConfig;
+        private final List<String> scheduleStrings;
+        private final List<String> enabledCategoryNames;
+        private final List<IdType> supportedSearchIds;
+        private final List<Schedule> schedules = new ArrayList<>();
+        private final BitSet enabledCategories = new BitSet();
+        private final boolean allCategoriesEnabled;
+        private final int supportedIdsMask;
+        private final Set<IdType> supportedIds;
+
+        IndexerEligibility(IndexerConfig indexerConfig) {
+            this.indexerConfig = indexerConfig;
+            this.scheduleStrings = indexerConfig.getSchedule();
+            this.enabledCategoryNames = indexerConfig.getEnabledCategories();
+            this.supportedSearchIds = indexerConfig.getSupportedSearchIds();
+            for (String scheduleString : indexerConfig.getSchedule()) {
+                Optional<Schedule> schedule = Schedule.parse(scheduleString);
+                if (schedule.isPresent()) {
+                    schedules.add(schedule.get());
+                } else {
+                    //Will never match
+                    logger.error("Unable to parse schedule string {} of indexer {}", scheduleString, indexerConfig.getName());
+                }
+            }
+            allCategoriesEnabled = indexerConfig.getEnabledCategories().isEmpty();
+            indexerConfig.getEnabledCategories().forEach(x -> enabledCategories.set(getCategoryBit(x)));
+            supportedIds = indexerConfig.getSupportedSearchIds().isEmpty() ? EnumSet.noneOf(IdType.class) : EnumSet.copyOf(indexerConfig.getSupportedSearchIds());
+            supportedIdsMask = toIdMask(supportedIds);
+        }
+
+        /**
+         * Cheap check if the entry was created from the given config as it is now. Setters replace the lists, so comparing their identity is enough.
+         */
+        boolean isCurrent(IndexerConfig indexerConfig) {
+            return this.indexerConfig == indexerConfig
+                    && scheduleStrings == indexerConfig.getSchedule()
+                    && enabledCategoryNames == indexerConfig.getEnabledCategories()
+                    && supportedSearchIds == indexerConfig.getSupportedSearchIds();
+        }
+
+        public boolean hasSchedule() {
+            return !scheduleStrings.isEmpty();
+        }
+
+        public boolean isInSchedule(LocalDateTime now) {
+            return schedules.stream().anyMatch(x -> x.matches(now));
+        }
+
+        public boolean isEnabledForCategory(String categoryName) {
+            if (allCategoriesEnabled) {
+                return true;
+            }
+            Integer bit = categoryBits.get(categoryName);
+            return bit != null && enabledCategories.get(bit);
+        }
+
+        /**
+         * @param idMask Bitmask of ID types as created by {@link #toIdMask(Collection)}
+         */
+        public boolean supportsAnyId(int idMask) {
+            return (supportedIdsMask & idMask) != 0;
+        }
+
+        public Set<IdType> getSupportedIds() {
+            return supportedIds;
+        }
+    }
+
+    /**
+     * A parsed schedule entry like "mo-fr6-22": The days of the week (1-7) and hours of the day in which an indexer may be used. Zero or
+     * negative values mean that any day or hour matches.
+     */
+    static class Schedule {
+        private final String scheduleString;
+        private final int fromDay;
+        private final int toDay;
+        private final int fromHour;
+        private final int toHour;
+
+        private Schedule(String scheduleString, int fromDay, int toDay, int fromHour, int toHour) {
+            this.scheduleString = scheduleString;
+            this.fromDay = fromDay;
+            this.toDay = toDay;
+            this.fromHour = fromHour;
+            this.toHour = toHour;
+        }
+
+        static Optional<Schedule> parse(String scheduleString) {
+            Matcher matcher = SCHEDULER_PATTERN.matcher(scheduleString.toLowerCase());
+            if (!matcher.matches()) {
+                return Optional.empty();
+            }
+            int fromDay = 0;
+            int toDay = 0;
+            if (matcher.group("day1") != null) {
+                fromDay = DAYS.indexOf(matcher.group("day1")) + 1;
+                toDay = matcher.group("day2") == null ? fromDay : DAYS.indexOf(matcher.group("day2")) + 1;
+            }
+            int fromHour = -1;
+            int toHour = -1;
+            if (matcher.group("hour1") != null) {
+                fromHour = Integer.parseInt(matcher.group("hour1"));
+                toHour = matcher.group("hour2") == null ? fromHour : Integer.parseInt(matcher.group("hour2"));
+            }
+            return Optional.of(new Schedule(scheduleString, fromDay, toDay, fromHour, toHour));
+        }
+
+        boolean matches(LocalDateTime now) {
+            if (fromDay > 0) {
+                int currentDay = now.getDayOfWeek().getValue();
+                if (currentDay < Math.min(fromDay, toDay) || currentDay > Math.max(fromDay, toDay)) {
+                    logger.debug(LoggingMarkers.SCHEDULER, "Current date does not match scheduler string {}: Current day {} is not between {} and {}", scheduleString, currentDay, fromDay, toDay);
+                    return false;
+                }
+            }
+            if (fromHour >= 0) {
+                int currentHour = now.getHour();
+                if (fromHour > toHour) {
+                    if (!(currentHour >= fromHour || currentHour <= toHour)) {
+                        logger.debug(LoggingMarkers.SCHEDULER, "Current date does not match scheduler string {}: Current hour {} is not between {} and {}", scheduleString, currentHour, toHour, fromHour);
+                        return false;
+                    }
+                } else if (currentHour < fromHour || currentHour > toHour) {
+                    logger.debug(LoggingMarkers.SCHEDULER, "Current date does not match scheduler string {}: Current hour {} is not between {} and {}", scheduleString, currentHour, fromHour, toHour);
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
@@ -2,8 +2,6 @@ package org.nzbhydra.searching;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Stopwatch;
-import com.google.common.collect.Iterables;
-import com.google.common.collect.Sets;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -12,42 +10,40 @@ import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchModuleType;
 import org.nzbhydra.config.SearchSourceRestriction;
-import org.nzbhydra.downloading.FileDownloadEntity;
-import org.nzbhydra.downloading.FileDownloadRepository;
 import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerCircuitBreaker;
+import org.nzbhydra.indexers.IndexerCircuitBreaker.CircuitState;
+import org.nzbhydra.indexers.IndexerLimitTracker;
 import org.nzbhydra.logging.LoggingMarkers;
 import org.nzbhydra.mediainfo.InfoProvider;
+import org.nzbhydra.searching.IndexerEligibilityIndex.IndexerEligibility;
+import org.nzbhydra.searching.IndexerEligibilityIndex.Schedule;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.data.domain.Page;
-import org.springframework.data.domain.PageRequest;
+import org.springframework.context.annotation.Scope;
 import org.springframework.stereotype.Component;
-import org.springframework.web.context.annotation.RequestScope;
 
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.persistence.Query;
-import java.sql.Timestamp;
 import java.time.*;
-import java.time.format.TextStyle;
 import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.TimeUnit;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
+/**
+ * Picks the indexers for a search. Keeps state for the search, so a new instance must be used for every search. Searches may be executed
+ * outside of web requests (e.g. by background tasks), so a prototype instead of a request scoped bean is used.
+ */
 @Component
-@RequestScope
+@Scope(ConfigurableBeanFactory.SCOPE_PROTOTYPE)
 public class IndexerForSearchSelector {
 
     private static final Logger logger = LoggerFactory.getLogger(IndexerForSearchSelector.class);
-    public static final Pattern SCHEDULER_PATTERN = Pattern.compile("(?<day1>(?:mo|tu|we|th|fr|sa|su))?\\-?(?<day2>(?:mo|tu|we|th|fr|sa|su))?(?<hour1>\\d{1,2})?\\-?(?<hour2>\\d{1,2})?", Pattern.CASE_INSENSITIVE);
     private static final Random random = new Random();
 
     @Autowired
@@ -55,13 +51,15 @@ public class IndexerForSearchSelector {
     @Autowired
     private SearchModuleProvider searchModuleProvider;
     @Autowired
-    private FileDownloadRepository nzbDownloadRepository;
+    private IndexerEligibilityIndex eligibilityIndex;
+    @Autowired
+    private IndexerLimitTracker indexerLimitTracker;
+    @Autowired
+    private IndexerCircuitBreaker indexerCircuitBreaker;
     @Autowired
     private ConfigProvider configProvider;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
-    @PersistenceContext
-    private EntityManager entityManager;
 
     protected Clock clock = Clock.systemDefaultZone();
 
@@ -116,10 +114,13 @@ public class IndexerForSearchSelector {
             if (!checkIndexerHitLimit(indexer)) {
                 continue;
             }
+            if (!checkTestCallAllowed(indexer)) {
+                continue;
+            }
 
             selectedIndexers.add(indexer);
         }
-        logger.debug(LoggingMarkers.PERFORMANCE, "Selection of indexers took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        logger.debug(LoggingMarkers.PERFORMANCE, "Selection of indexers took {}µs", stopwatch.elapsed(TimeUnit.MICROSECONDS));
         if (selectedIndexers.isEmpty()) {
             logger.warn("No indexers were selected for this search. You probably don't have any indexers configured which support the provided ID type or all of your indexers which do are currently disabled. You can enable query generation to work around this.");
         } else {
@@ -142,8 +143,9 @@ public class IndexerForSearchSelector {
     protected boolean checkSearchId(Indexer indexer) {
         boolean needToSearchById = !searchRequest.getIdentifiers().isEmpty() && !searchRequest.getQuery().isPresent();
         if (needToSearchById) {
-            boolean canUseAnyProvidedId = !Collections.disjoint(searchRequest.getIdentifiers().keySet(), indexer.getConfig().getSupportedSearchIds());
-            boolean cannotSearchProvidedOrConvertableId = !canUseAnyProvidedId && !infoProvider.canConvertAny(searchRequest.getIdentifiers().keySet(), Sets.newHashSet(indexer.getConfig().getSupportedSearchIds()));
+            IndexerEligibility eligibility = eligibilityIndex.get(indexer.getConfig());
+            boolean canUseAnyProvidedId = eligibility.supportsAnyId(IndexerEligibilityIndex.toIdMask(searchRequest.getIdentifiers().keySet()));
+            boolean cannotSearchProvidedOrConvertableId = !canUseAnyProvidedId && !infoProvider.canConvertAny(searchRequest.getIdentifiers().keySet(), eligibility.getSupportedIds());
             boolean queryGenerationEnabled = configProvider.getBaseConfig().getSearching().getGenerateQueries().meets(searchRequest.getSource());
             if (cannotSearchProvidedOrConvertableId && !queryGenerationEnabled) {
                 String message = String.format("Not using %s because the search did not provide any ID that the indexer can handle and query generation is disabled", indexer.getName());
@@ -166,7 +168,7 @@ public class IndexerForSearchSelector {
         if (searchRequest.getCategory().getSubtype().equals(Subtype.ALL)) {
             return true;
         }
-        boolean indexerDisabledForThisCategory = !indexer.getConfig().getEnabledCategories().isEmpty() && !indexer.getConfig().getEnabledCategories().contains(searchRequest.getCategory().getName());
+        boolean indexerDisabledForThisCategory = !eligibilityIndex.get(indexer.getConfig()).isEnabledForCategory(searchRequest.getCategory().getName());
         if (indexerDisabledForThisCategory) {
             String message = String.format("Not using %s because it's disabled for category %s", indexer.getName(), searchRequest.getCategory().getName());
             return handleIndexerNotSelected(indexer, message, "Disabled for category");
@@ -175,10 +177,8 @@ public class IndexerForSearchSelector {
     }
 
     protected boolean checkIndexerStatus(Indexer indexer) {
-        if (indexer.getConfig().getState() == IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY) {
-            if (indexer.getConfig().getDisabledUntil() == null || Instant.ofEpochMilli(indexer.getConfig().getDisabledUntil()).isBefore(clock.instant())) {
-                return true;
-            }
+        CircuitState circuitState = indexerCircuitBreaker.getState(indexer.getConfig());
+        if (circuitState == CircuitState.OPEN) {
             if (configProvider.getBaseConfig().getSearching().isIgnoreTemporarilyDisabled()) {
                 logger.debug("{} is marked as disabled until {} but user chose to ignore this", indexer.getName(), indexer.getConfig().getDisabledUntil());
                 return true;
@@ -193,6 +193,21 @@ public class IndexerForSearchSelector {
         return true;
     }
 
+    /**
+     * Only one search may test if an indexer works again after it was disabled. Must be the last check: The permission is only released when the
+     * result of the call is reported, so an indexer which takes it and is then not selected would block other searches from testing it.
+     */
+    protected boolean checkTestCallAllowed(Indexer indexer) {
+        if (indexerCircuitBreaker.getState(indexer.getConfig()) != CircuitState.HALF_OPEN || indexerCircuitBreaker.tryAcquirePermission(indexer.getConfig())) {
+            return true;
+        }
+        if (configProvider.getBaseConfig().getSearching().isIgnoreTemporarilyDisabled()) {
+            return true;
+        }
+        String message = String.format("Not using %s because it failed before and another search is testing if it works again", indexer.getName());
+        return handleIndexerNotSelected(indexer, message, "Disabled temporarily because of previous errors");
+    }
+
     protected boolean checkIndexerSelectedByUser(Indexer indexer) {
         boolean indexerNotSelectedByUser =
                 searchRequest.getSource() == SearchSource.INTERNAL
@@ -237,34 +252,32 @@ public class IndexerForSearchSelector {
             comparisonTime = now.minus(1, ChronoUnit.DAYS);
         }
         if (indexerConfig.getHitLimit().isPresent()) {
-            Query query = entityManager.createNativeQuery("SELECT x.TIME FROM INDEXERAPIACCESS_SHORT x WHERE x.INDEXER_ID = (:indexerId) ORDER BY TIME DESC LIMIT (:hitLimit)");
-            query.setParameter("indexerId", indexer.getIndexerEntity().getId());
-            query.setParameter("hitLimit", indexerConfig.getHitLimit().get());
-            List resultList = query.getResultList();
-
-            if (resultList.size() == indexerConfig.getHitLimit().get()) { //Found as many as we want, so now we must check if they're all in the time window
-                Instant earliestAccess = ((Timestamp) Iterables.getLast(resultList)).toInstant();
-                if (earliestAccess.isAfter(comparisonTime.toInstant(ZoneOffset.UTC))) {
-                    LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, earliestAccess);
-
-                    String message = String.format("Not using %s because all %d allowed API hits were already made. The next API hit should be possible at %s", indexerConfig.getName(), indexerConfig.getHitLimit().get(), nextPossibleHit);
-                    logger.debug(LoggingMarkers.PERFORMANCE, "Detection of API limit reached took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
-                    return handleIndexerNotSelected(indexer, message, "API hit limit reached");
-                }
+            //If as many hits as allowed were made we must check if they're all in the time window
+            Optional<Instant> earliestAccess = indexerLimitTracker.getOldestOfRecentApiHits(indexer.getIndexerEntity(), indexerConfig.getHitLimit().get());
+            if (earliestAccess.isPresent() && earliestAccess.get().isAfter(comparisonTime.toInstant(ZoneOffset.UTC))) {
+                LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, earliestAccess.get());
+
+                String message = String.format("Not using %s because all %d allowed API hits were already made. The next API hit should be possible at %s", indexerConfig.getName(), indexerConfig.getHitLimit().get(), nextPossibleHit);
+                logger.debug(LoggingMarkers.PERFORMANCE, "Detection of API limit reached took {}µs", stopwatch.elapsed(TimeUnit.MICROSECONDS));
+                return handleIndexerNotSelected(indexer, message, "API hit limit reached");
+            }
+            if (indexerLimitTracker.isThrottled(indexer.getIndexerEntity(), indexerConfig.getHitLimit().get())) {
+                String message = String.format("Not using %s because its %d allowed API hits are spread over the day and too many were made recently", indexerConfig.getName(), indexerConfig.getHitLimit().get());
+                return handleIndexerNotSelected(indexer, message, "API hits throttled");
             }
         }
         if (indexerConfig.getDownloadLimit().isPresent()) {
-            Page<FileDownloadEntity> page = nzbDownloadRepository.findBySearchResultIndexerOrderByTimeDesc(indexer.getIndexerEntity(), new PageRequest(0, indexerConfig.getDownloadLimit().get()));
-            if (page.getContent().size() == indexerConfig.getDownloadLimit().get() && Iterables.getLast(page.getContent()).getTime().isAfter(comparisonTime.toInstant(ZoneOffset.UTC))) {
-                LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, page.getContent().get(page.getContent().size() - 1).getTime());
+            Optional<Instant> earliestDownload = indexerLimitTracker.getOldestOfRecentDownloads(indexer.getIndexerEntity(), indexerConfig.getDownloadLimit().get());
+            if (earliestDownload.isPresent() && earliestDownload.get().isAfter(comparisonTime.toInstant(ZoneOffset.UTC))) {
+                LocalDateTime nextPossibleHit = calculateNextPossibleHit(indexerConfig, earliestDownload.get());
 
                 String message = String.format("Not using %s because all %d allowed download were already made. The next download should be possible at %s", indexerConfig.getName(), indexerConfig.getDownloadLimit().get(), nextPossibleHit);
-                logger.debug(LoggingMarkers.PERFORMANCE, "Detection of download limit reached took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
+                logger.debug(LoggingMarkers.PERFORMANCE, "Detection of download limit reached took {}µs", stopwatch.elapsed(TimeUnit.MICROSECONDS));
                 return handleIndexerNotSelected(indexer, message, "Download limit reached");
             }
         }
 
-        logger.debug(LoggingMarkers.PERFORMANCE, "Detection if hit limits were reached for indexer {} took {}ms", indexer.getName(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        logger.debug(LoggingMarkers.PERFORMANCE, "Detection if hit limits were reached for indexer {} took {}µs", indexer.getName(), stopwatch.elapsed(TimeUnit.MICROSECONDS));
         return true;
     }
 
@@ -306,7 +319,8 @@ public class IndexerForSearchSelector {
     }
 
     protected boolean checkSchedule(Indexer indexer) {
-        if (!indexer.getConfig().getSchedule().isEmpty() && indexer.getConfig().getSchedule().stream().noneMatch(this::isInTime)) {
+        IndexerEligibility eligibility = eligibilityIndex.get(indexer.getConfig());
+        if (eligibility.hasSchedule() && !eligibility.isInSchedule(LocalDateTime.now(clock))) {
             String message = String.format("Not using %s because the current time is out of its schedule", indexer.getName());
             return handleIndexerNotSelected(indexer, message, "Out of schedule");
         }
@@ -314,61 +328,12 @@ public class IndexerForSearchSelector {
     }
 
     protected boolean isInTime(String scheduleTime) {
-        Map<String, Integer> days = new HashMap<>();
-        days.put("mo", 1);
-        days.put("tu", 2);
-        days.put("we", 3);
-        days.put("th", 4);
-        days.put("fr", 5);
-        days.put("sa", 6);
-        days.put("su", 7);
-
-        LocalDateTime now = LocalDateTime.now(clock);
-        Matcher matcher = SCHEDULER_PATTERN.matcher(scheduleTime.toLowerCase());
-        if (!matcher.matches()) {
+        Optional<Schedule> schedule = Schedule.parse(scheduleTime);
+        if (!schedule.isPresent()) {
             logger.error("Unable to parse schedule string {}", scheduleTime);
             return false;
         }
-        if (matcher.group("day1") != null) {
-            int fromDay = days.get(matcher.group("day1"));
-            int toDay;
-            if (matcher.group("day2") == null) {
-                toDay = fromDay;
-            } else {
-                toDay = days.get(matcher.group("day2"));
-            }
-
-            DayOfWeek currentDay = now.getDayOfWeek();
-            if (!inRange(fromDay, toDay, currentDay.getValue())) {
-                logger.debug(LoggingMarkers.SCHEDULER, "Current date does not match scheduler string {}: Current day {} is not between {} and {}", scheduleTime, currentDay.getDisplayName(TextStyle.FULL, Locale.US), DayOfWeek.of(fromDay).getDisplayName(TextStyle.FULL, Locale.US), DayOfWeek.of(toDay).getDisplayName(TextStyle.FULL, Locale.US));
-                return false;
-            }
-        }
-
-        if (matcher.group("hour1") != null) {
-            int fromHour = Integer.valueOf(matcher.group("hour1"));
-            int toHour;
-            if (matcher.group("hour2") != null) {
-                toHour = Integer.valueOf(matcher.group("hour2"));
-            } else {
-                toHour = fromHour;
-            }
-            if (fromHour > toHour) {
-                if (!(now.getHour() >= fromHour || now.getHour() <= toHour)) {
-                    logger.debug(LoggingMarkers.SCHEDULER, "Current date does not match scheduler string {}: Current hour {} is not between {} and {}", scheduleTime, now.getHour(), toHour, fromHour);
-                    return false;
-                }
-            } else if (now.getHour() < fromHour || now.getHour() > toHour) {
-                logger.debug(LoggingMarkers.SCHEDULER, "Current date does not match scheduler string {}: Current hour {} is not between {} and {}", scheduleTime, now.getHour(), fromHour, toHour);
-                return false;
-            }
-        }
-
-        return true;
-    }
-
-    private boolean inRange(int a, int b, int val) {
-        return val >= Math.min(a, b) && val <= Math.max(a, b);
+        return schedule.get().matches(LocalDateTime.now(clock));
     }
 
     private boolean handleIndexerNotSelected(Indexer indexer, String message, String reason) {
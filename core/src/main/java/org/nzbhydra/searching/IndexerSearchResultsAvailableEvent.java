@@ -0,0 +1,22 @@
+package org.nzbhydra.searching;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+
+@Data
+@AllArgsConstructor
+public class IndexerSearchResultsAvailableEvent {
+
+    private SearchRequest searchRequest;
+    private String indexerName;
+    /**
+     * Number of results of the indexer which weren't already found
+     */
+    private int numberOfNewResults;
+    /**
+     * Number of results found by all indexers for this search yet
+     */
+    private int numberOfFoundResults;
+
+}
@@ -14,8 +14,10 @@ import org.nzbhydra.searching.searchrequests.SearchRequest;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @Data
 public class SearchCacheEntry {
@@ -24,6 +26,21 @@ public class SearchCacheEntry {
     private SearchRequest searchRequest;
     private Map<Indexer, List<IndexerSearchResult>> indexerSearchResultsByIndexer = new HashMap<>();
     private Map<IndexerEntity, IndexerSearchEntity> indexerSearchEntitiesByIndexer = new HashMap<>();
+    /**
+     * All distinct items from all successful indexer searches, in the order in which they arrived
+     */
+    private Set<SearchResultItem> allSearchResultItems = new LinkedHashSet<>();
+    /**
+     * Duplicate groups of all items. New items are added as they arrive so that loading more results doesn't require detecting all duplicates again
+     */
+    private DuplicateDetectionState duplicateDetectionState = new DuplicateDetectionState();
+    /**
+     * The best item of each duplicate group (by duplicate identifier), used to only update the changed groups when results are deduplicated for API searches
+     */
+    private Map<Integer, SearchResultItem> bestSearchResultItemByDuplicateGroup = new HashMap<>();
+    /**
+     * Items sorted newest first. Contains only the best item of each duplicate group for API searches
+     */
     private List<SearchResultItem> searchResultItems = new ArrayList<>();
     private IndexerForSearchSelection pickingResult;
     private SearchEntity searchEntity;
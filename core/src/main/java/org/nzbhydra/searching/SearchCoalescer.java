@@ -0,0 +1,83 @@
+package org.nzbhydra.searching;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * Executes identical searches only once. Callers making a search while the same search (identified by its key) is running wait for it
+ * and get its result or exception instead of executing it again.
+ *
+ * @param <K> Identifies a search
+ * @param <V> The result of a search
+ */
+public class SearchCoalescer<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> runningSearches = new ConcurrentHashMap<>();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    public V execute(K key, Supplier<V> search) {
+        return execute(key, search, () -> {
+        }, UnaryOperator.identity());
+    }
+
+    /**
+     * @param key              Identifies the search
+     * @param search           Executes the search
+     * @param onWaiting        Called by a caller before it waits for the same search already running
+     * @param forWaitingCaller Applied to the result for every waiting caller, e.g. to give each its own copy
+     */
+    public V execute(K key, Supplier<V> search, Runnable onWaiting, UnaryOperator<V> forWaitingCaller) {
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> runningSearch = runningSearches.putIfAbsent(key, future);
+        if (runningSearch != null) {
+            coalesced.incrementAndGet();
+            onWaiting.run();
+            return forWaitingCaller.apply(waitFor(runningSearch));
+        }
+        try {
+            V result = search.get();
+            future.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            runningSearches.remove(key, future);
+        }
+    }
+
+    private V waitFor(CompletableFuture<V> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for running search", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    public boolean isRunning(K key) {
+        return runningSearches.containsKey(key);
+    }
+
+    public int getNumberOfRunningSearches() {
+        return runningSearches.size();
+    }
+
+    /**
+     * @return The number of callers which waited for a running search instead of executing it
+     */
+    public long getNumberOfCoalescedSearches() {
+        return coalesced.get();
+    }
+
+}
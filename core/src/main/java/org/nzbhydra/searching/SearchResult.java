@@ -26,6 +26,23 @@ public class SearchResult {
     private int numberOfRemovedDuplicates;
 
 
+    /**
+     * @return A copy with its own lists and multisets so that it can be modified without affecting this result. The contained items are not copied.
+     */
+    public SearchResult copy() {
+        SearchResult copy = new SearchResult();
+        copy.setSearchResultItems(new ArrayList<>(searchResultItems));
+        copy.setIndexerSearchResults(new ArrayList<>(indexerSearchResults));
+        copy.setOffset(offset);
+        copy.setLimit(limit);
+        copy.setReasonsForRejection(HashMultiset.create(reasonsForRejection));
+        copy.setPickingResult(pickingResult);
+        copy.setUniqueResultsPerIndexer(uniqueResultsPerIndexer == null ? null : HashMultiset.create(uniqueResultsPerIndexer));
+        copy.setNumberOfTotalAvailableResults(numberOfTotalAvailableResults);
+        copy.setNumberOfRemovedDuplicates(numberOfRemovedDuplicates);
+        return copy;
+    }
+
     public int getNumberOfProcessedResults() {
         return getNumberOfRejectedResults() + getNumberOfAcceptedResults();
     }
@@ -2,29 +2,42 @@ package org.nzbhydra.searching;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.Multiset.Entry;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import lombok.AllArgsConstructor;
 import lombok.Data;
+import lombok.Getter;
 import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchSourceRestriction;
+import org.nzbhydra.config.SearchingConfig;
 import org.nzbhydra.logging.LoggingMarkers;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validation;
 import javax.validation.Validator;
-import javax.validation.ValidatorFactory;
 import java.util.*;
-import java.util.regex.Matcher;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -33,12 +46,20 @@ public class SearchResultAcceptor {
 
     private static final Logger logger = LoggerFactory.getLogger(SearchResultAcceptor.class);
 
-    private static final Pattern TITLE_PATTERN = Pattern.compile("(\\w[\\w']*\\w|\\w)");
+    private static final int MAX_CACHED_RESTRICTIONS = 100;
+    private static final WordList EMPTY_WORD_LIST = new WordList(Collections.emptyList());
 
-    private Map<String, List<String>> titleWordCache = new HashMap<>();
+    /**
+     * Compiled restrictions from the searching config. Null if not yet compiled for the current config
+     */
+    private volatile Restrictions globalRestrictions;
+    private final ConcurrentMap<String, Restrictions> categoryRestrictions = new ConcurrentHashMap<>();
+    //Word lists (e.g. from queries) and regexes by their source
+    private final Cache<List<String>, WordList> wordListCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_RESTRICTIONS).build();
+    private final Cache<String, Pattern> patternCache = CacheBuilder.newBuilder().maximumSize(MAX_CACHED_RESTRICTIONS).build();
 
-    private ValidatorFactory factory = Validation.buildDefaultValidatorFactory();
-    private Validator validator = factory.getValidator();
+    //Only used when debugging the result acceptor, see checkForNeededAttributesSuccessfullyMapped
+    private final Supplier<Validator> validator = Suppliers.memoize(() -> Validation.buildDefaultValidatorFactory().getValidator());
 
 
     @Autowired
@@ -46,7 +67,11 @@ public class SearchResultAcceptor {
 
     public AcceptorResult acceptResults(List<SearchResultItem> items, SearchRequest searchRequest, IndexerConfig indexerConfig) {
         BaseConfig baseConfig = configProvider.getBaseConfig();
-        titleWordCache = new HashMap<>();
+        //Compile everything needed for the word and regex checks once and not for every result
+        Restrictions globalRestrictions = getGlobalRestrictions(baseConfig);
+        WordList requestForbiddenWords = getWordList(searchRequest.getInternalData().getForbiddenWords());
+        WordList requestRequiredWords = getWordList(searchRequest.getInternalData().getRequiredWords());
+        boolean onlyContainedForbiddenWords = isOnlyContainedForbiddenWords(indexerConfig);
         List<SearchResultItem> acceptedResults = new ArrayList<>();
         Multiset<String> reasonsForRejection = HashMultiset.create();
         HashSet<SearchResultItem> itemsWithoutActualDuplicates = new HashSet<>(items);
@@ -81,41 +106,26 @@ public class SearchResultAcceptor {
                 continue;
             }
 
-            //Forbidden words from query
-            if (!checkForForbiddenWords(indexerConfig, reasonsForRejection, searchRequest.getInternalData().getForbiddenWords(), item)) {
+            WordList.Title title = new WordList.Title(item.getTitle());
+
+            //Forbidden and required words from query
+            if (!checkForForbiddenWords(reasonsForRejection, requestForbiddenWords, onlyContainedForbiddenWords, title, item)) {
                 continue;
             }
-
-            if (!checkRequiredWords(reasonsForRejection, searchRequest.getInternalData().getRequiredWords(), item)) {
+            if (!checkRequiredWords(reasonsForRejection, requestRequiredWords, title, item)) {
                 continue;
             }
 
             //Globally configured
             boolean applyWordAndRegexRestrictions = baseConfig.getSearching().getApplyRestrictions() == SearchSourceRestriction.BOTH || Objects.equals(searchRequest.getSource().name(), baseConfig.getSearching().getApplyRestrictions().name());
-            if (applyWordAndRegexRestrictions) {
-                if (!checkRegexes(item, reasonsForRejection, baseConfig.getSearching().getRequiredRegex().orElse(null), baseConfig.getSearching().getForbiddenRegex().orElse(null))) {
-                    continue;
-                }
-                if (!checkRequiredWords(reasonsForRejection, baseConfig.getSearching().getRequiredWords(), item)) {
-                    continue;
-                }
-                if (!checkForForbiddenWords(indexerConfig, reasonsForRejection, baseConfig.getSearching().getForbiddenWords(), item)) {
-                    continue;
-                }
+            if (applyWordAndRegexRestrictions && !checkRestrictions(reasonsForRejection, globalRestrictions, onlyContainedForbiddenWords, title, item)) {
+                continue;
             }
 
             //Per category
             applyWordAndRegexRestrictions = item.getCategory().getApplyRestrictionsType() == SearchSourceRestriction.BOTH || Objects.equals(searchRequest.getSource().name(), item.getCategory().getApplyRestrictionsType().name());
-            if (applyWordAndRegexRestrictions) {
-                if (!checkRegexes(item, reasonsForRejection, item.getCategory().getRequiredRegex().orElse(null), item.getCategory().getForbiddenRegex().orElse(null))) {
-                    continue;
-                }
-                if (!checkRequiredWords(reasonsForRejection, item.getCategory().getRequiredWords(), item)) {
-                    continue;
-                }
-                if (!checkForForbiddenWords(indexerConfig, reasonsForRejection, item.getCategory().getForbiddenWords(), item)) {
-                    continue;
-                }
+            if (applyWordAndRegexRestrictions && !checkRestrictions(reasonsForRejection, getCategoryRestrictions(item.getCategory()), onlyContainedForbiddenWords, title, item)) {
+                continue;
             }
 
             acceptedResults.add(item);
@@ -131,24 +141,15 @@ public class SearchResultAcceptor {
     }
 
     protected boolean checkForNeededAttributesSuccessfullyMapped(Multiset<String> reasonsForRejection, SearchResultItem item) {
-        boolean accepted = true;
-        Set<ConstraintViolation<SearchResultItem>> constraintViolations = validator.validate(item);
-        if (!constraintViolations.isEmpty()) {
-
-            Set<String> messages = new HashSet<>(constraintViolations.size());
-            messages.addAll(constraintViolations.stream()
-                    .map(constraintViolation -> String.format("%s value '%s' %s", constraintViolation.getPropertyPath(),
-                            constraintViolation.getInvalidValue(), constraintViolation.getMessage()))
-                    .collect(Collectors.toList()));
-            logger.error("Coding error: SearchResultItem validation messages: {}", Joiner.on(" ").join(messages));
+        //Bean validation is slow and only needed to find out which constraint is violated, the fast path only checks the mandatory fields
+        List<String> violations = logger.isDebugEnabled(LoggingMarkers.RESULT_ACCEPTOR) ? getConstraintViolations(item) : getMissingMandatoryFields(item);
+        if (!violations.isEmpty()) {
+            logger.error("Coding error: SearchResultItem validation messages: {}", Joiner.on(" ").join(violations));
             reasonsForRejection.add("Important data could not be mapped from the indexers returned response");
             return false;
         }
         if (item.getBestDate() == null) {
             logger.error("Coding error: Neither pubdate nor usenet date could be found or parsed");
-            accepted = false;
-        }
-        if (!accepted) {
             reasonsForRejection.add("Important data could not be mapped from the indexers returned response");
             return false;
         }
@@ -156,6 +157,37 @@ public class SearchResultAcceptor {
         return true;
     }
 
+    /**
+     * Checks the fields of {@link SearchResultItem} annotated with {@link javax.validation.constraints.NotNull}. Must be kept in sync.
+     */
+    protected static List<String> getMissingMandatoryFields(SearchResultItem item) {
+        if (item.getIndexer() != null && item.getIndexerGuid() != null && item.getIndexerScore() != null && item.getLink() != null && item.getTitle() != null) {
+            return Collections.emptyList();
+        }
+        List<String> violations = new ArrayList<>();
+        addIfMissing(violations, "indexer", item.getIndexer());
+        addIfMissing(violations, "indexerGuid", item.getIndexerGuid());
+        addIfMissing(violations, "indexerScore", item.getIndexerScore());
+        addIfMissing(violations, "link", item.getLink());
+        addIfMissing(violations, "title", item.getTitle());
+        return violations;
+    }
+
+    private static void addIfMissing(List<String> violations, String fieldName, Object value) {
+        if (value == null) {
+            violations.add(String.format("%s value '%s' %s", fieldName, null, "may not be null"));
+        }
+    }
+
+    protected List<String> getConstraintViolations(SearchResultItem item) {
+        Set<ConstraintViolation<SearchResultItem>> constraintViolations = validator.get().validate(item);
+        return constraintViolations.stream()
+                .map(constraintViolation -> String.format("%s value '%s' %s", constraintViolation.getPropertyPath(),
+                        constraintViolation.getInvalidValue(), constraintViolation.getMessage()))
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
     protected boolean checkForCategoryShouldBeIgnored(SearchRequest searchRequest, Multiset<String> reasonsForRejection, SearchResultItem item) {
         if (item.getCategory().getIgnoreResultsFrom().meets(searchRequest.getSource())) {
             logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "{} is in forbidden category", item.getTitle(), searchRequest.getCategory().getName());
@@ -240,87 +272,112 @@ public class SearchResultAcceptor {
         return true;
     }
 
+    protected boolean checkRestrictions(Multiset<String> reasonsForRejection, Restrictions restrictions, boolean onlyContainedForbiddenWords, WordList.Title title, SearchResultItem item) {
+        return checkRegexes(item, reasonsForRejection, restrictions.getRequiredRegex(), restrictions.getForbiddenRegex())
+                && checkRequiredWords(reasonsForRejection, restrictions.getRequiredWords(), title, item)
+                && checkForForbiddenWords(reasonsForRejection, restrictions.getForbiddenWords(), onlyContainedForbiddenWords, title, item);
+    }
+
     protected boolean checkRegexes(SearchResultItem item, Multiset<String> reasonsForRejection, String requiredRegex, String forbiddenRegex) {
-        if (!Strings.isNullOrEmpty(requiredRegex)) {
-            Pattern requiredPattern = Pattern.compile(requiredRegex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-            if (!requiredPattern.matcher(item.getTitle()).find()) {
-                logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not find required regex in {}", item.getTitle());
-                reasonsForRejection.add("Required regex doesn't match");
-                return false;
-            }
+        return checkRegexes(item, reasonsForRejection, getPattern(requiredRegex), getPattern(forbiddenRegex));
+    }
+
+    private boolean checkRegexes(SearchResultItem item, Multiset<String> reasonsForRejection, Optional<Pattern> requiredPattern, Optional<Pattern> forbiddenPattern) {
+        if (requiredPattern.isPresent() && !requiredPattern.get().matcher(item.getTitle()).find()) {
+            logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not find required regex in {}", item.getTitle());
+            reasonsForRejection.add("Required regex doesn't match");
+            return false;
         }
-        if (!Strings.isNullOrEmpty(forbiddenRegex)) {
-            Pattern forbiddenPattern = Pattern.compile(forbiddenRegex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
-            if (forbiddenPattern.matcher(item.getTitle()).find()) {
-                logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden regex in {}", item.getTitle());
-                reasonsForRejection.add("Forbidden regex matches");
-                return false;
-            }
+        if (forbiddenPattern.isPresent() && forbiddenPattern.get().matcher(item.getTitle()).find()) {
+            logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden regex in {}", item.getTitle());
+            reasonsForRejection.add("Forbidden regex matches");
+            return false;
         }
 
         return true;
     }
 
     protected boolean checkRequiredWords(Multiset<String> reasonsForRejection, List<String> requiredWords, SearchResultItem item) {
-        if (!requiredWords.isEmpty()) {
-            List<String> titleWords = getTitleWords(item);
-            boolean allPresent = true;
-            for (String requiredWord : requiredWords) {
-                if (requiredWord.contains(".") || requiredWord.contains("-")) {
-                    if (!item.getTitle().toLowerCase().contains(requiredWord.toLowerCase())) {
-                        logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", requiredWord, item.getTitle());
-                        allPresent = false;
-                        break;
-                    }
-                } else {
-                    if (!titleWords.contains(requiredWord.toLowerCase())) { //Words must match
-                        logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", requiredWord, item.getTitle());
-                        allPresent = false;
-                        break;
-                    }
-                }
-            }
-            if (!allPresent) {
-                reasonsForRejection.add("No required word found");
-                return false;
-            }
+        return checkRequiredWords(reasonsForRejection, getWordList(requiredWords), new WordList.Title(item.getTitle()), item);
+    }
+
+    private boolean checkRequiredWords(Multiset<String> reasonsForRejection, WordList requiredWords, WordList.Title title, SearchResultItem item) {
+        Optional<String> missingWord = requiredWords.findMissingIn(title);
+        if (missingWord.isPresent()) {
+            logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Did not found required word {} in the title {}", missingWord.get(), item.getTitle());
+            reasonsForRejection.add("No required word found");
+            return false;
         }
         return true;
     }
 
-    private List<String> getTitleWords(SearchResultItem item) {
-        return titleWordCache.computeIfAbsent(item.getTitle(), s -> {
-            List<String> titleWords = new ArrayList<>();
-            Matcher matcher = TITLE_PATTERN.matcher(item.getTitle().toLowerCase());
-            while (matcher.find()) {
-                titleWords.add(matcher.group().toLowerCase());
-            }
-            return titleWords;
-        });
-
+    protected boolean checkForForbiddenWords(IndexerConfig indexerConfig, Multiset<String> reasonsForRejection, List<String> forbiddenWords, SearchResultItem item) {
+        return checkForForbiddenWords(reasonsForRejection, getWordList(forbiddenWords), isOnlyContainedForbiddenWords(indexerConfig), new WordList.Title(item.getTitle()), item);
     }
 
-    protected boolean checkForForbiddenWords(IndexerConfig indexerConfig, Multiset<String> reasonsForRejection, List<String> forbiddenWords, SearchResultItem item) {
-        for (String forbiddenWord : forbiddenWords) {
-            if (forbiddenWord.contains("-") || forbiddenWord.contains(".") || indexerConfig.getHost().toLowerCase().contains("nzbgeek")) {
-                if (item.getTitle().toLowerCase().contains(forbiddenWord.toLowerCase())) {
-                    reasonsForRejection.add("Forbidden word");
-                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word {} in title {]", forbiddenWord, item.getTitle());
-                    return false;
-                }
-            } else {
-                List<String> titleWords = getTitleWords(item);
-                Optional<String> found = titleWords.stream().filter(x -> x.toLowerCase().equals(forbiddenWord.toLowerCase())).findFirst(); //Title word must match excluded word to reject result, not just be contained
-                if (found.isPresent()) {
-                    logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word in title word {}", found.get());
-                    reasonsForRejection.add("Forbidden word");
-                    return false;
-                }
-            }
+    private boolean checkForForbiddenWords(Multiset<String> reasonsForRejection, WordList forbiddenWords, boolean onlyContainedForbiddenWords, WordList.Title title, SearchResultItem item) {
+        //Title word must match excluded word to reject result, not just be contained (unless the word contains a dash or dot)
+        Optional<String> foundWord = forbiddenWords.findAnyIn(title, onlyContainedForbiddenWords);
+        if (foundWord.isPresent()) {
+            logger.debug(LoggingMarkers.RESULT_ACCEPTOR, "Found forbidden word {} in title {}", foundWord.get(), item.getTitle());
+            reasonsForRejection.add("Forbidden word");
+            return false;
         }
         return true;
     }
 
+    private boolean isOnlyContainedForbiddenWords(IndexerConfig indexerConfig) {
+        return indexerConfig.getHost().toLowerCase().contains("nzbgeek");
+    }
+
+    private Restrictions getGlobalRestrictions(BaseConfig baseConfig) {
+        Restrictions restrictions = globalRestrictions;
+        if (restrictions == null) {
+            SearchingConfig searchingConfig = baseConfig.getSearching();
+            restrictions = new Restrictions(getPattern(searchingConfig.getRequiredRegex().orElse(null)), getPattern(searchingConfig.getForbiddenRegex().orElse(null)), getWordList(searchingConfig.getRequiredWords()), getWordList(searchingConfig.getForbiddenWords()));
+            globalRestrictions = restrictions;
+        }
+        return restrictions;
+    }
+
+    private Restrictions getCategoryRestrictions(Category category) {
+        return categoryRestrictions.computeIfAbsent(category.getName(), x -> new Restrictions(getPattern(category.getRequiredRegex().orElse(null)), getPattern(category.getForbiddenRegex().orElse(null)), getWordList(category.getRequiredWords()), getWordList(category.getForbiddenWords())));
+    }
+
+    private WordList getWordList(List<String> words) {
+        if (words.isEmpty()) {
+            return EMPTY_WORD_LIST;
+        }
+        //Copy because the key must not change. Word lists from search requests may be changed afterwards
+        List<String> key = ImmutableList.copyOf(words);
+        try {
+            return wordListCache.get(key, () -> new WordList(key));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private Optional<Pattern> getPattern(String regex) {
+        if (Strings.isNullOrEmpty(regex)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(patternCache.get(regex, () -> Pattern.compile(regex, Pattern.CASE_INSENSITIVE | Pattern.DOTALL)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    @EventListener
+    public void handleNewConfig(ConfigChangedEvent configChangedEvent) {
+        globalRestrictions = null;
+        categoryRestrictions.clear();
+        wordListCache.invalidateAll();
+        patternCache.invalidateAll();
+    }
+
     protected boolean checkForPassword(Multiset<String> reasonsForRejection, SearchResultItem item) {
         if (configProvider.getBaseConfig().getSearching().isIgnorePassworded() && item.isPassworded()) {
             reasonsForRejection.add("Ignore passworded");
@@ -329,6 +386,18 @@ public class SearchResultAcceptor {
         return true;
     }
 
+    /**
+     * Compiled word and regex restrictions from one source (e.g. the searching config or a category)
+     */
+    @Getter
+    @AllArgsConstructor
+    protected static class Restrictions {
+        private final Optional<Pattern> requiredRegex;
+        private final Optional<Pattern> forbiddenRegex;
+        private final WordList requiredWords;
+        private final WordList forbiddenWords;
+    }
+
     @Data
     @AllArgsConstructor
     public static class AcceptorResult {
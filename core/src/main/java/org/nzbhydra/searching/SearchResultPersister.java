@@ -0,0 +1,192 @@
+package org.nzbhydra.searching;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.debuginfos.MetricsProvider;
+import org.nzbhydra.logging.LoggingMarkers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Writes search results to the database in the background so that indexer searches never have to wait for the database. Results are queued
+ * and written in batches, either when enough results are queued or after a short time. Because the IDs of search results are calculated from
+ * their content the results can be used before they're written.
+ * <p>
+ * Anything that loads a search result by its ID right after it was found (e.g. a download) must call {@link #flushIfPending(long)} first.
+ */
+@Component
+public class SearchResultPersister implements MetricsProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(SearchResultPersister.class);
+
+    private static final int QUEUE_CAPACITY = 10_000;
+    private static final int BATCH_SIZE = 500;
+    private static final long FLUSH_INTERVAL_MS = 500;
+
+    //Results already in the database are skipped, so existing rows (and their first found date) are never changed
+    private static final String INSERT_SQL = "INSERT INTO SEARCHRESULT (ID, DETAILS, DOWNLOAD_TYPE, FIRST_FOUND, INDEXERGUID, LINK, PUB_DATE, TITLE, INDEXER_ID) " +
+            "SELECT ?, ?, ?, ?, ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM SEARCHRESULT WHERE ID = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final BlockingQueue<SearchResultEntity> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+    /**
+     * IDs of results which are queued or being written
+     */
+    private final Set<Long> pendingIds = ConcurrentHashMap.newKeySet();
+    /**
+     * IDs of results written recently. The same results are usually found again and again (e.g. by RSS searches), so we don't even try to write them.
+     * Must expire long before results are deleted by {@link OldResultsCleanup}
+     */
+    private final Cache<Long, Boolean> recentlyPersistedIds = CacheBuilder.newBuilder().maximumSize(100_000).expireAfterWrite(1, TimeUnit.HOURS).build();
+    private final Object flushLock = new Object();
+    private ScheduledExecutorService executor;
+
+    private final AtomicLong persistedResults = new AtomicLong();
+    private final AtomicLong failedResults = new AtomicLong();
+    private final AtomicLong flushesByCaller = new AtomicLong();
+
+    @Autowired
+    public SearchResultPersister(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void init() {
+        executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder().setNameFormat("searchresult-writer").setDaemon(true).build());
+        executor.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Queues the given results for being written. Only blocks if the queue is full, in which case the results are written by the calling thread.
+     *
+     * @param searchResultEntities Results with their ID set
+     */
+    public void persist(Collection<SearchResultEntity> searchResultEntities) {
+        for (SearchResultEntity searchResultEntity : searchResultEntities) {
+            if (recentlyPersistedIds.getIfPresent(searchResultEntity.getId()) != null || !pendingIds.add(searchResultEntity.getId())) {
+                continue;
+            }
+            while (!queue.offer(searchResultEntity)) {
+                flushesByCaller.incrementAndGet();
+                flush();
+            }
+        }
+        if (queue.size() >= BATCH_SIZE) {
+            executor.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Makes sure the result with the given ID is written to the database if it was queued.
+     */
+    public void flushIfPending(long searchResultId) {
+        if (pendingIds.contains(searchResultId)) {
+            logger.debug("Search result with ID {} not yet written to database. Writing queued results now", searchResultId);
+            //A result not queued anymore is being written by another thread, so this waits for that
+            flush();
+        }
+    }
+
+    /**
+     * Writes all queued results to the database.
+     */
+    public void flush() {
+        synchronized (flushLock) {
+            List<SearchResultEntity> batch = new ArrayList<>();
+            while (queue.drainTo(batch, BATCH_SIZE) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            logger.error("Unexpected error while writing search results to the database", e);
+        }
+    }
+
+    private void write(List<SearchResultEntity> batch) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch.stream().map(this::toParameters).collect(Collectors.toList()));
+            persistedResults.addAndGet(batch.size());
+            batch.forEach(x -> recentlyPersistedIds.put(x.getId(), true));
+            logger.debug(LoggingMarkers.PERFORMANCE, "Writing {} search results to the database took {}ms", batch.size(), stopwatch.elapsed(TimeUnit.MILLISECONDS));
+        } catch (Exception e) {
+            //Don't lose the whole batch because of a single result
+            logger.warn("Unable to save {} search results to the database in one batch. Saving them one by one: {}", batch.size(), e.getMessage());
+            batch.forEach(this::writeSingle);
+        } finally {
+            batch.forEach(x -> pendingIds.remove(x.getId()));
+        }
+    }
+
+    private void writeSingle(SearchResultEntity entity) {
+        try {
+            jdbcTemplate.update(INSERT_SQL, toParameters(entity));
+            persistedResults.incrementAndGet();
+            recentlyPersistedIds.put(entity.getId(), true);
+        } catch (Exception e) {
+            failedResults.incrementAndGet();
+            logger.error("Unable to save search result with ID {} to the database", entity.getId(), e);
+        }
+    }
+
+    private Object[] toParameters(SearchResultEntity entity) {
+        return new Object[]{
+                entity.getId(),
+                entity.getDetails(),
+                entity.getDownloadType() == null ? null : entity.getDownloadType().name(),
+                entity.getFirstFound() == null ? null : Timestamp.from(entity.getFirstFound()),
+                entity.getIndexerGuid(),
+                entity.getLink(),
+                entity.getPubDate() == null ? null : Timestamp.from(entity.getPubDate()),
+                entity.getTitle(),
+                entity.getIndexer().getId(),
+                entity.getId()
+        };
+    }
+
+    @EventListener
+    public void onShutdown(ShutdownEvent event) {
+        if (!queue.isEmpty()) {
+            logger.debug("Writing {} queued search results to the database", queue.size());
+        }
+        executor.shutdownNow();
+        flushQuietly();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "searchResultPersistence";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("queueSize", queue.size());
+        metrics.put("persistedResults", persistedResults.get());
+        metrics.put("failedResults", failedResults.get());
+        metrics.put("flushesByCaller", flushesByCaller.get());
+        return metrics;
+    }
+
+}
@@ -3,8 +3,6 @@ package org.nzbhydra.searching;
 import com.google.common.base.Splitter;
 import com.google.common.base.Stopwatch;
 import com.google.common.base.Strings;
-import lombok.Data;
-import lombok.NoArgsConstructor;
 import net.jodah.expiringmap.ExpirationPolicy;
 import net.jodah.expiringmap.ExpiringMap;
 import org.nzbhydra.config.Category;
@@ -19,18 +17,21 @@ import org.springframework.context.event.EventListener;
 import org.springframework.http.MediaType;
 import org.springframework.security.access.annotation.Secured;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.ArrayList;
-import java.util.List;
-import java.util.Map;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @RestController
 public class SearchWeb {
 
     private static final Logger logger = LoggerFactory.getLogger(SearchWeb.class);
+    private static final long EMITTER_TIMEOUT_MS = 5 * 60 * 1000;
 
     @Autowired
     private Searcher searcher;
@@ -41,9 +42,10 @@ public class SearchWeb {
     @Autowired
     private InternalSearchResultProcessor searchResultProcessor;
 
-    private Lock lock = new ReentrantLock();
-
-    private Map<Long, SearchState> searchStates = ExpiringMap.builder()
+    /**
+     * Maps the ID of a search request to the state of that search. Every state handles concurrent updates itself
+     */
+    private ExpiringMap<Long, SearchState> searchStates = ExpiringMap.builder()
             .maxSize(10)
             .expiration(5, TimeUnit.MINUTES) //This should be more than enough... Nobody will wait that long
             .expirationPolicy(ExpirationPolicy.ACCESSED)
@@ -60,10 +62,7 @@ public class SearchWeb {
 
         SearchResponse searchResponse = searchResultProcessor.createSearchResponse(searchResult);
 
-        lock.lock();
-        SearchState searchState = searchStates.get(searchRequest.getSearchRequestId());
-        searchState.setSearchFinished(true);
-        lock.unlock();
+        findSearchState(searchRequest).ifPresent(SearchState::finishSearch);
 
         logger.info("Search took {}ms", stopwatch.elapsed(TimeUnit.MILLISECONDS));
         return searchResponse;
@@ -75,6 +74,22 @@ public class SearchWeb {
         return searchStates.getOrDefault(searchRequestId, new SearchState());
     }
 
+    /**
+     * Streams the progress of a search (selected and finished indexers, messages and the number of results found) as server-sent events
+     * until the search is finished. The events may be subscribed to before the search is started.
+     */
+    @Secured({"ROLE_USER"})
+    @RequestMapping(value = "/internalapi/search/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getSearchEvents(@RequestParam("searchrequestid") long searchRequestId) {
+        SseEmitter emitter = new SseEmitter(EMITTER_TIMEOUT_MS);
+        searchStates.computeIfAbsent(searchRequestId, x -> new SearchState()).subscribe(emitter);
+        return emitter;
+    }
+
+    private Optional<SearchState> findSearchState(SearchRequest searchRequest) {
+        return Optional.ofNullable(searchStates.get(searchRequest.getSearchRequestId()));
+    }
+
     private SearchRequest createSearchRequest(@RequestBody SearchRequestParameters parameters) {
         Category category = categoryProvider.getByInternalName(parameters.getCategory());
         SearchType searchType = category.getSearchType() == null ? SearchType.SEARCH : category.getSearchType();
@@ -125,65 +140,141 @@ public class SearchWeb {
 
         searchRequest = searchRequestFactory.extendWithSavedIdentifiers(searchRequest);
 
-        //Initialize messages for this search request
-        searchStates.put(searchRequest.getSearchRequestId(), new SearchState());
+        //Initialize messages for this search request. The UI may already have subscribed to its events
+        SearchState existingSearchState = searchStates.putIfAbsent(searchRequest.getSearchRequestId(), new SearchState());
+        if (existingSearchState != null && existingSearchState.isSearchFinished()) {
+            searchStates.put(searchRequest.getSearchRequestId(), new SearchState());
+        }
 
         return searchRequest;
     }
 
     @EventListener
     public void handleSearchMessageEvent(SearchMessageEvent event) {
-        if (searchStates.containsKey(event.getSearchRequest().getSearchRequestId())) {
-            lock.lock();
-            SearchState searchState = searchStates.get(event.getSearchRequest().getSearchRequestId());
-            if (!searchState.getMessages().contains(event.getMessage())) {
-                searchState.getMessages().add(event.getMessage());
-            }
-            lock.unlock();
-        }
+        findSearchState(event.getSearchRequest()).ifPresent(x -> x.addMessage(event.getMessage()));
     }
 
     @EventListener
     public void handleIndexerSelectionEvent(IndexerSelectionEvent event) {
-        if (searchStates.containsKey(event.getSearchRequest().getSearchRequestId())) {
-            lock.lock();
-            SearchState searchState = searchStates.get(event.getSearchRequest().getSearchRequestId());
-            searchState.setIndexerSelectionFinished(true);
-            searchState.setIndexersSelected(event.getIndexersSelected());
-            lock.unlock();
-        }
+        findSearchState(event.getSearchRequest()).ifPresent(x -> x.finishIndexerSelection(event.getIndexersSelected()));
     }
 
     @EventListener
     public void handleFallbackSearchInitatedEvent(FallbackSearchInitiatedEvent event) {
         //An indexer will do a fallback search, meaning we'll have to wait for another indexer search. On the GUI side that's the same as if one more indexer had been selected
-        if (searchStates.containsKey(event.getSearchRequest().getSearchRequestId())) {
-            lock.lock();
-            SearchState searchState = searchStates.get(event.getSearchRequest().getSearchRequestId());
-            searchState.setIndexersSelected(searchState.getIndexersSelected() + 1);
-            lock.unlock();
-        }
+        findSearchState(event.getSearchRequest()).ifPresent(SearchState::addSelectedIndexer);
     }
 
     @EventListener
     public void handleIndexerSearchFinishedEvent(IndexerSearchFinishedEvent event) {
-        if (searchStates.containsKey(event.getSearchRequest().getSearchRequestId())) {
-            lock.lock();
-            SearchState searchState = searchStates.get(event.getSearchRequest().getSearchRequestId());
-            searchState.setIndexersFinished(searchState.getIndexersFinished() + 1);
-            lock.unlock();
-        }
+        findSearchState(event.getSearchRequest()).ifPresent(SearchState::finishIndexerSearch);
     }
 
-    @Data
-    @NoArgsConstructor
-    private static class SearchState {
+    @EventListener
+    public void handleIndexerSearchResultsAvailableEvent(IndexerSearchResultsAvailableEvent event) {
+        findSearchState(event.getSearchRequest()).ifPresent(x -> x.setNumberOfFoundResults(event.getNumberOfFoundResults()));
+    }
+
+    /**
+     * The progress of a search. Updated concurrently by the indexer threads without locking. Every update is pushed to the subscribed emitters.
+     */
+    protected static class SearchState {
+
+        private volatile boolean indexerSelectionFinished = false;
+        private volatile boolean searchFinished = false;
+        private final AtomicInteger indexersSelected = new AtomicInteger();
+        private final AtomicInteger indexersFinished = new AtomicInteger();
+        private final AtomicInteger numberOfFoundResults = new AtomicInteger();
+        private final Set<String> knownMessages = ConcurrentHashMap.newKeySet();
+        private final Queue<String> messages = new ConcurrentLinkedQueue<>();
+        private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+
+        public boolean isIndexerSelectionFinished() {
+            return indexerSelectionFinished;
+        }
+
+        public boolean isSearchFinished() {
+            return searchFinished;
+        }
+
+        public int getIndexersSelected() {
+            return indexersSelected.get();
+        }
 
-        private boolean indexerSelectionFinished = false;
-        private boolean searchFinished = false;
-        private int indexersSelected = 0;
-        private int indexersFinished = 0;
-        private List<String> messages = new ArrayList<>();
+        public int getIndexersFinished() {
+            return indexersFinished.get();
+        }
+
+        public int getNumberOfFoundResults() {
+            return numberOfFoundResults.get();
+        }
+
+        public List<String> getMessages() {
+            return new ArrayList<>(messages);
+        }
+
+        void addMessage(String message) {
+            if (knownMessages.add(message)) {
+                messages.add(message);
+                send("message", Collections.singletonMap("message", message));
+            }
+        }
+
+        void finishIndexerSelection(int indexersSelected) {
+            this.indexersSelected.set(indexersSelected);
+            indexerSelectionFinished = true;
+            send("indexerSelection", this);
+        }
+
+        void addSelectedIndexer() {
+            indexersSelected.incrementAndGet();
+            send("indexerSelection", this);
+        }
+
+        void finishIndexerSearch() {
+            indexersFinished.incrementAndGet();
+            send("indexerFinished", this);
+        }
+
+        void setNumberOfFoundResults(int numberOfFoundResults) {
+            this.numberOfFoundResults.set(numberOfFoundResults);
+            send("results", this);
+        }
+
+        void finishSearch() {
+            searchFinished = true;
+            send("finished", this);
+            emitters.forEach(SseEmitter::complete);
+            emitters.clear();
+        }
+
+        void subscribe(SseEmitter emitter) {
+            emitter.onCompletion(() -> emitters.remove(emitter));
+            emitter.onTimeout(() -> emitters.remove(emitter));
+            emitters.add(emitter);
+            //Send the current state so that nothing that happened before subscribing is missed
+            send(emitter, "state", this);
+            if (searchFinished) {
+                emitters.remove(emitter);
+                emitter.complete();
+            }
+        }
+
+        private void send(String eventName, Object data) {
+            for (SseEmitter emitter : emitters) {
+                send(emitter, eventName, data);
+            }
+        }
+
+        private void send(SseEmitter emitter, String eventName, Object data) {
+            try {
+                emitter.send(SseEmitter.event().name(eventName).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                //Client has disconnected
+                logger.debug("Unable to send search event: {}", e.getMessage());
+                emitters.remove(emitter);
+            }
+        }
 
     }
 
@@ -8,16 +8,18 @@ import net.jodah.expiringmap.ExpirationPolicy;
 import net.jodah.expiringmap.ExpiringMap;
 import org.nzbhydra.ShutdownEvent;
 import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.debuginfos.MetricsProvider;
 import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerCallExecutor;
 import org.nzbhydra.indexers.IndexerSearchEntity;
 import org.nzbhydra.indexers.IndexerSearchRepository;
 import org.nzbhydra.logging.LoggingMarkers;
-import org.nzbhydra.logging.MdcThreadPoolExecutor;
 import org.nzbhydra.searching.IndexerForSearchSelector.IndexerForSearchSelection;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
@@ -27,13 +29,17 @@ import java.time.Instant;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.*;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 @Component
-public class Searcher {
+public class Searcher implements MetricsProvider {
 
     private static final Logger logger = LoggerFactory.getLogger(Searcher.class);
 
+    private static final Comparator<SearchResultItem> NEWEST_FIRST = Comparator.comparingLong((SearchResultItem x) -> x.getBestDate().getEpochSecond()).reversed();
+    private static final Comparator<SearchResultItem> BEST_OF_DUPLICATE_GROUP = Comparator.comparingInt((SearchResultItem x) -> x.getIndexerScore() == null ? 0 : x.getIndexerScore()).reversed().thenComparing(NEWEST_FIRST);
+
     @Autowired
     protected DuplicateDetector duplicateDetector;
     @Autowired
@@ -41,33 +47,19 @@ public class Searcher {
     @Autowired
     private SearchRepository searchRepository;
     @Autowired
-    protected IndexerForSearchSelector indexerPicker;
+    protected ObjectFactory<IndexerForSearchSelector> indexerPickerFactory;
     @Autowired
     private ApplicationEventPublisher eventPublisher;
     @Autowired
     private ConfigProvider configProvider;
-    private final Set<ExecutorService> executors = Collections.synchronizedSet(new HashSet<>());
+    @Autowired
+    protected IndexerCallExecutor indexerCallExecutor;
     private boolean shutdownRequested = false;
 
     @EventListener
     public void onShutdown(ShutdownEvent event) {
+        //Running indexer searches are handled by the executor
         shutdownRequested = true;
-        synchronized (executors) {
-            if (executors.size() > 0) {
-                logger.debug("Waiting up to 10 seconds for {} background tasks to finish", executors.size());
-            }
-            Iterator<ExecutorService> iterator = executors.iterator();
-            while (iterator.hasNext()) {
-                ExecutorService executorService = iterator.next();
-                executorService.shutdown();
-                try {
-                    executorService.awaitTermination(10, TimeUnit.SECONDS);
-                } catch (InterruptedException e) {
-                    logger.warn("Waited too long for termination of task, interrupting");
-                    Thread.currentThread().interrupt();
-                }
-            }
-        }
     }
 
     /**
@@ -80,7 +72,63 @@ public class Searcher {
             .expirationListener((k, v) -> logger.debug("Removing expired search cache entry {}", ((SearchCacheEntry) v).getSearchRequest()))
             .build();
 
+    /**
+     * Identical API searches (e.g. from multiple instances of the same program) wait for the running search instead of calling the indexers again
+     */
+    private final SearchCoalescer<List<Object>, SearchResult> runningApiSearches = new SearchCoalescer<>();
+
     public SearchResult search(SearchRequest searchRequest) {
+        if (searchRequest.getSource() != SearchSource.API) {
+            return executeSearch(searchRequest);
+        }
+        return runningApiSearches.execute(getNormalizedSearchParameters(searchRequest), () -> executeSearch(searchRequest), () -> {
+            logger.info("Identical search is already running. Will wait for its results instead of searching again");
+            //The search is shown in the history and statistics like any other
+            eventPublisher.publishEvent(new SearchEvent(searchRequest));
+            searchRepository.save(createSearchEntity(searchRequest));
+        }, SearchResult::copy);
+    }
+
+    /**
+     * @return All parameters which influence the results of a search, normalized so that requests which only differ in case or whitespace are equal
+     */
+    protected static List<Object> getNormalizedSearchParameters(SearchRequest searchRequest) {
+        Map<String, String> identifiers = new TreeMap<>();
+        searchRequest.getIdentifiers().entrySet().stream().filter(x -> x.getValue() != null).forEach(x -> identifiers.put(x.getKey().name(), normalize(x.getValue())));
+        List<Integer> newznabCategories = new ArrayList<>(searchRequest.getInternalData().getNewznabCategories());
+        Collections.sort(newznabCategories);
+        return Arrays.asList(
+                searchRequest.getSource(),
+                searchRequest.getSearchType(),
+                searchRequest.getDownloadType(),
+                searchRequest.getCategory().getName(),
+                newznabCategories,
+                searchRequest.getIndexers().map(TreeSet::new).orElse(null),
+                searchRequest.getOffset().orElse(0),
+                searchRequest.getLimit().orElse(100),
+                searchRequest.isLoadAll(),
+                normalize(searchRequest.getQuery().orElse(null)),
+                identifiers,
+                normalize(searchRequest.getTitle().orElse(null)),
+                searchRequest.getSeason().orElse(null),
+                normalize(searchRequest.getEpisode().orElse(null)),
+                normalize(searchRequest.getAuthor().orElse(null)),
+                searchRequest.getMinsize().orElse(null),
+                searchRequest.getMaxsize().orElse(null),
+                searchRequest.getMinage().orElse(null),
+                searchRequest.getMaxage().orElse(null)
+        );
+    }
+
+    private static String normalize(String value) {
+        if (value == null) {
+            return null;
+        }
+        String normalized = value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+        return normalized.isEmpty() ? null : normalized;
+    }
+
+    protected SearchResult executeSearch(SearchRequest searchRequest) {
         Stopwatch stopwatch = Stopwatch.createStarted();
         eventPublisher.publishEvent(new SearchEvent(searchRequest));
         SearchCacheEntry searchCacheEntry = getSearchCacheEntry(searchRequest);
@@ -106,26 +154,33 @@ public class Searcher {
                 logger.debug("Going to call {} indexers because {} of {} wanted results were loaded yet", indexersToSearchAndTheirResults.size(), searchCacheEntry.getNumberOfFoundResults(), numberOfWantedResults);
             }
 
-            //Do the actual search
-            indexersToSearchAndTheirResults = callSearchModules(searchRequest, indexersToSearchAndTheirResults);
+            //Do the actual search. Results are put into the cache and classified as duplicates or not as soon as each indexer has responded
+            List<SearchResultItem> newSearchResultItems = new ArrayList<>();
+            indexersToSearchAndTheirResults = callSearchModules(searchRequest, indexersToSearchAndTheirResults, indexerSearchResult -> {
+                List<SearchResultItem> newItems = handleIndexerSearchResult(searchCacheEntry, indexerSearchResult);
+                newSearchResultItems.addAll(newItems);
+                if (searchRequest.getSource() == SearchSource.INTERNAL) {
+                    eventPublisher.publishEvent(new IndexerSearchResultsAvailableEvent(searchRequest, indexerSearchResult.getIndexer().getName(), newItems.size(), searchCacheEntry.getAllSearchResultItems().size()));
+                }
+            });
 
             //Update cache
             searchCacheEntry.getIndexerSearchResultsByIndexer().putAll(indexersToSearchAndTheirResults);
             searchRequestCache.put(searchRequest.hashCode(), searchCacheEntry);
 
-
-            //Use search result items from the cache which contains *all* search searchResults, not just the latest. That allows finding duplicates over multiple searches
-            searchResultItems = searchCacheEntry.getIndexerSearchResultsByIndexer().values().stream().flatMap(Collection::stream).filter(IndexerSearchResult::isWasSuccessful).flatMap(x -> x.getSearchResultItems().stream()).distinct().collect(Collectors.toList());
-            DuplicateDetectionResult duplicateDetectionResult = duplicateDetector.detectDuplicates(searchResultItems);
+            //The duplicate detection state contains *all* search results, not just the latest. That allows finding duplicates over multiple searches
+            DuplicateDetectionResult duplicateDetectionResult = searchCacheEntry.getDuplicateDetectionState().toResult();
 
             //Save to database
             createOrUpdateIndexerSearchEntity(searchCacheEntry, indexersToSearchAndTheirResults, duplicateDetectionResult);
 
-            //Remove duplicates for external searches
             if (searchRequest.getSource() == SearchSource.API) {
-                int beforeDuplicateRemoval = searchResultItems.size();
-                searchResultItems = getNewestSearchResultItemFromEachDuplicateGroup(duplicateDetectionResult.getDuplicateGroups());
-                searchResult.setNumberOfRemovedDuplicates(beforeDuplicateRemoval - searchResultItems.size());
+                //Remove duplicates for external searches
+                searchResultItems = mergeNewestSearchResultItemsOfChangedDuplicateGroups(searchCacheEntry, searchResultItems, newSearchResultItems, duplicateDetectionResult.getDuplicateGroups());
+                searchResult.setNumberOfRemovedDuplicates(searchCacheEntry.getAllSearchResultItems().size() - searchResultItems.size());
+            } else {
+                newSearchResultItems.sort(NEWEST_FIRST);
+                searchResultItems = mergeSorted(searchResultItems, newSearchResultItems);
             }
 
             //Set the rejection counts from all searches, this and previous
@@ -140,8 +195,6 @@ public class Searcher {
         searchResult.setNumberOfTotalAvailableResults(searchCacheEntry.getNumberOfTotalAvailableResults());
         searchResult.setIndexerSearchResults(searchCacheEntry.getIndexerSearchResultsByIndexer().entrySet().stream().map(x -> Iterables.getLast(x.getValue())).collect(Collectors.toList()));
         searchResult.setReasonsForRejection(searchCacheEntry.getReasonsForRejection());
-        searchResultItems.sort(Comparator.comparingLong(x -> x.getBestDate().getEpochSecond()));
-        Collections.reverse(searchResultItems);
 
         spliceSearchResultItemsAccordingToOffsetAndLimit(searchRequest, searchResult, searchResultItems);
 
@@ -186,20 +239,51 @@ public class Searcher {
         }
     }
 
-    protected List<SearchResultItem> getNewestSearchResultItemFromEachDuplicateGroup(List<LinkedHashSet<SearchResultItem>> duplicateGroups) {
-        //Sort duplicate groups internally, map to list, sort the results
-        return duplicateGroups.stream().map(x -> x.stream()
-                .sorted(Comparator.comparingInt((SearchResultItem searchResultItem) -> searchResultItem.getIndexerScore() == null ? 0 : searchResultItem.getIndexerScore())
-                        .reversed()
-                        .thenComparing(Comparator.comparingLong((SearchResultItem y) -> y.getBestDate().getEpochSecond())
-                                .reversed())
-                )
-                .iterator().next()
-        ).
-                sorted(Comparator.comparingLong((SearchResultItem x) -> x.getBestDate().getEpochSecond())
-                        .reversed()
-                )
-                .collect(Collectors.toList());
+    /**
+     * Updates the list of the best result of each duplicate group. Only the groups of the given new results can have changed, all other results
+     * in the list remain as they are.
+     *
+     * @param searchResultItems    The current list of results, sorted newest first. Will not be changed
+     * @param newSearchResultItems The results found since the list was last updated
+     * @return A new list containing the best result of each duplicate group, sorted newest first
+     */
+    protected List<SearchResultItem> mergeNewestSearchResultItemsOfChangedDuplicateGroups(SearchCacheEntry searchCacheEntry, List<SearchResultItem> searchResultItems, List<SearchResultItem> newSearchResultItems, List<LinkedHashSet<SearchResultItem>> duplicateGroups) {
+        Set<SearchResultItem> replacedItems = Collections.newSetFromMap(new IdentityHashMap<>());
+        List<SearchResultItem> addedItems = new ArrayList<>();
+        Set<Integer> changedGroups = newSearchResultItems.stream().map(SearchResultItem::getDuplicateIdentifier).collect(Collectors.toCollection(LinkedHashSet::new));
+        for (Integer changedGroup : changedGroups) {
+            SearchResultItem bestItem = duplicateGroups.get(changedGroup).stream().sorted(BEST_OF_DUPLICATE_GROUP).iterator().next();
+            SearchResultItem previousBestItem = searchCacheEntry.getBestSearchResultItemByDuplicateGroup().put(changedGroup, bestItem);
+            if (previousBestItem == bestItem) {
+                continue;
+            }
+            if (previousBestItem != null) {
+                replacedItems.add(previousBestItem);
+            }
+            addedItems.add(bestItem);
+        }
+        addedItems.sort(NEWEST_FIRST);
+        List<SearchResultItem> remainingItems = replacedItems.isEmpty() ? searchResultItems : searchResultItems.stream().filter(x -> !replacedItems.contains(x)).collect(Collectors.toList());
+        return mergeSorted(remainingItems, addedItems);
+    }
+
+    /**
+     * Merges two lists sorted newest first into a new list. Avoids sorting all results again when only a few were added.
+     */
+    protected static List<SearchResultItem> mergeSorted(List<SearchResultItem> sortedItems, List<SearchResultItem> sortedNewItems) {
+        List<SearchResultItem> merged = new ArrayList<>(sortedItems.size() + sortedNewItems.size());
+        int i = 0;
+        int j = 0;
+        while (i < sortedItems.size() && j < sortedNewItems.size()) {
+            if (NEWEST_FIRST.compare(sortedNewItems.get(j), sortedItems.get(i)) <= 0) {
+                merged.add(sortedNewItems.get(j++));
+            } else {
+                merged.add(sortedItems.get(i++));
+            }
+        }
+        merged.addAll(sortedItems.subList(i, sortedItems.size()));
+        merged.addAll(sortedNewItems.subList(j, sortedNewItems.size()));
+        return merged;
     }
 
     private void createOrUpdateIndexerSearchEntity(SearchCacheEntry searchCacheEntry, Map<Indexer, List<IndexerSearchResult>> indexersToSearchAndTheirResults, DuplicateDetectionResult duplicateDetectionResult) {
@@ -228,23 +312,14 @@ public class Searcher {
 
         if (searchRequest.getOffset().orElse(0) == 0 || !searchRequestCache.containsKey(searchRequest.hashCode())) {
             //New search
-            SearchEntity searchEntity = new SearchEntity();
-            searchEntity.setSource(searchRequest.getSource());
-            searchEntity.setCategoryName(searchRequest.getCategory().getName());
-            searchEntity.setQuery(searchRequest.getQuery().orElse(null));
-            searchEntity.setIdentifiers(searchRequest.getIdentifiers().entrySet().stream().filter(x -> x.getValue() != null).map(x -> new IdentifierKeyValuePair(x.getKey().name(), x.getValue())).collect(Collectors.toSet()));
-            searchEntity.setSeason(searchRequest.getSeason().orElse(null));
-            searchEntity.setEpisode(searchRequest.getEpisode().orElse(null));
-            searchEntity.setSearchType(searchRequest.getSearchType());
-            searchEntity.setTitle(searchRequest.getTitle().orElse(null));
-            searchEntity.setAuthor(searchRequest.getAuthor().orElse(null));
+            SearchEntity searchEntity = createSearchEntity(searchRequest);
 
             //Extend search request
             searchRequest.extractForbiddenWords();
 
             searchRepository.save(searchEntity);
 
-            IndexerForSearchSelection pickingResult = indexerPicker.pickIndexers(searchRequest);
+            IndexerForSearchSelection pickingResult = indexerPickerFactory.getObject().pickIndexers(searchRequest);
             searchCacheEntry = new SearchCacheEntry(searchRequest, pickingResult, searchEntity);
         } else {
             searchCacheEntry = searchRequestCache.get(searchRequest.hashCode());
@@ -254,6 +329,20 @@ public class Searcher {
         return searchCacheEntry;
     }
 
+    private SearchEntity createSearchEntity(SearchRequest searchRequest) {
+        SearchEntity searchEntity = new SearchEntity();
+        searchEntity.setSource(searchRequest.getSource());
+        searchEntity.setCategoryName(searchRequest.getCategory().getName());
+        searchEntity.setQuery(searchRequest.getQuery().orElse(null));
+        searchEntity.setIdentifiers(searchRequest.getIdentifiers().entrySet().stream().filter(x -> x.getValue() != null).map(x -> new IdentifierKeyValuePair(x.getKey().name(), x.getValue())).collect(Collectors.toSet()));
+        searchEntity.setSeason(searchRequest.getSeason().orElse(null));
+        searchEntity.setEpisode(searchRequest.getEpisode().orElse(null));
+        searchEntity.setSearchType(searchRequest.getSearchType());
+        searchEntity.setTitle(searchRequest.getTitle().orElse(null));
+        searchEntity.setAuthor(searchRequest.getAuthor().orElse(null));
+        return searchEntity;
+    }
+
 
     protected Map<Indexer, List<IndexerSearchResult>> getIndexerSearchResultsToSearch(Map<Indexer, List<IndexerSearchResult>> map) {
         return map.entrySet().stream().filter(x -> {
@@ -265,22 +354,56 @@ public class Searcher {
         }).collect(Collectors.toMap(Entry::getKey, Entry::getValue));
     }
 
-    protected Map<Indexer, List<IndexerSearchResult>> callSearchModules(SearchRequest searchRequest, Map<Indexer, List<IndexerSearchResult>> indexersToSearch) {
+    /**
+     * Adds the items of a newly arrived indexer search result to the cache entry and its duplicate groups. Called once for every indexer as soon as it has responded.
+     *
+     * @return The items which weren't already contained in the cache entry
+     */
+    protected List<SearchResultItem> handleIndexerSearchResult(SearchCacheEntry searchCacheEntry, IndexerSearchResult indexerSearchResult) {
+        if (!indexerSearchResult.isWasSuccessful()) {
+            return Collections.emptyList();
+        }
+        List<SearchResultItem> newSearchResultItems = indexerSearchResult.getSearchResultItems().stream().filter(x -> searchCacheEntry.getAllSearchResultItems().add(x)).collect(Collectors.toList());
+        duplicateDetector.detectDuplicates(searchCacheEntry.getDuplicateDetectionState(), newSearchResultItems);
+        return newSearchResultItems;
+    }
+
+    protected Map<Indexer, List<IndexerSearchResult>> callSearchModules(SearchRequest searchRequest, Map<Indexer, List<IndexerSearchResult>> indexersToSearch, Consumer<IndexerSearchResult> resultConsumer) {
         Map<Indexer, List<IndexerSearchResult>> indexerSearchResults = new HashMap<>(indexersToSearch);
 
-        ExecutorService executor = MdcThreadPoolExecutor.newWithInheritedMdc(indexersToSearch.size());
-        executors.add(executor);
+        CompletionService<IndexerSearchResult> completionService = new ExecutorCompletionService<>(indexerCallExecutor.getSearchExecutor());
 
-        List<Callable<IndexerSearchResult>> callables = getCallables(searchRequest, indexersToSearch);
+        Map<Future<IndexerSearchResult>, Indexer> futuresToIndexers = new HashMap<>();
+        for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearch.entrySet()) {
+            try {
+                futuresToIndexers.put(completionService.submit(getIndexerCallable(searchRequest, entry)), entry.getKey());
+            } catch (RejectedExecutionException e) {
+                logger.error("Unable to search indexer {}: {}", entry.getKey().getName(), e.getMessage());
+            }
+        }
 
+        Optional<Long> deadline = getResponseDeadline(searchRequest);
+        Set<Indexer> indexersWithResults = new HashSet<>();
+        boolean deadlineReached = false;
         try {
-            List<Future<IndexerSearchResult>> futures = executor.invokeAll(callables);
-            for (Future<IndexerSearchResult> future : futures) {
+            for (int i = 0; i < futuresToIndexers.size(); i++) {
+                Future<IndexerSearchResult> future;
+                if (deadline.isPresent()) {
+                    future = completionService.poll(Math.max(0, deadline.get() - System.nanoTime()), TimeUnit.NANOSECONDS);
+                    if (future == null) {
+                        deadlineReached = true;
+                        logger.info("{} of {} indexers did not respond within {}ms. Returning the results available yet", futuresToIndexers.size() - i, futuresToIndexers.size(), configProvider.getBaseConfig().getSearching().getReturnApiResultsAfterMs().get());
+                        break;
+                    }
+                } else {
+                    future = completionService.take();
+                }
+                Indexer indexer = futuresToIndexers.get(future);
                 try {
                     IndexerSearchResult indexerSearchResult = future.get();
-                    List<IndexerSearchResult> previousIndexerSearchResults = indexerSearchResults.get(indexerSearchResult.getIndexer());
-                    previousIndexerSearchResults.add(indexerSearchResult);
-                    indexerSearchResults.put(indexerSearchResult.getIndexer(), previousIndexerSearchResults);
+                    indexerSearchResults.get(indexer).add(indexerSearchResult);
+                    indexersWithResults.add(indexer);
+                    resultConsumer.accept(indexerSearchResult);
                 } catch (ExecutionException e) {
                     logger.error("Unexpected error while searching", e);
                 }
@@ -288,21 +411,33 @@ public class Searcher {
         } catch (InterruptedException e) {
             logger.error("Unexpected error while searching", e);
         } finally {
-            executor.shutdownNow(); //Need to explicitly shutdown executor for threads to be closed
+            if (!deadlineReached) {
+                //Only relevant when interrupted. When the deadline was reached the remaining searches are left running so that their API accesses and results are still saved
+                futuresToIndexers.keySet().stream().filter(x -> !x.isDone()).forEach(x -> x.cancel(true));
+            }
         }
-        executors.remove(executor);
-        indexerSearchResults = handleIndexersWithFailedFutureExecutions(indexersToSearch, indexerSearchResults);
+        indexerSearchResults = handleIndexersWithFailedFutureExecutions(indexersToSearch, indexerSearchResults, indexersWithResults, deadlineReached);
         return indexerSearchResults;
     }
 
+    /**
+     * @return The time (in terms of {@link System#nanoTime()}) after which API searches should not wait for any more indexers, if configured
+     */
+    private Optional<Long> getResponseDeadline(SearchRequest searchRequest) {
+        if (searchRequest.getSource() != SearchSource.API) {
+            return Optional.empty();
+        }
+        Optional<Integer> returnAfterMs = configProvider.getBaseConfig().getSearching().getReturnApiResultsAfterMs();
+        return returnAfterMs.map(ms -> System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(ms));
+    }
+
 
-    private Map<Indexer, List<IndexerSearchResult>> handleIndexersWithFailedFutureExecutions(Map<Indexer, List<IndexerSearchResult>> indexersToSearch, Map<Indexer, List<IndexerSearchResult>> indexerSearchResults) {
+    private Map<Indexer, List<IndexerSearchResult>> handleIndexersWithFailedFutureExecutions(Map<Indexer, List<IndexerSearchResult>> indexersToSearch, Map<Indexer, List<IndexerSearchResult>> indexerSearchResults, Set<Indexer> indexersWithResults, boolean deadlineReached) {
         for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearch.entrySet()) {
-            if (!indexerSearchResults.containsKey(entry.getKey())) {
-                IndexerSearchResult unknownFailureSearchResult = new IndexerSearchResult();
-                unknownFailureSearchResult.setWasSuccessful(false);
+            if (!indexersWithResults.contains(entry.getKey())) {
+                IndexerSearchResult unknownFailureSearchResult = new IndexerSearchResult(entry.getKey(), false);
                 unknownFailureSearchResult.setHasMoreResults(false);
-                unknownFailureSearchResult.setErrorMessage("Unexpected error. Please check the log.");
+                unknownFailureSearchResult.setErrorMessage(deadlineReached ? "Indexer did not respond in time" : "Unexpected error. Please check the log.");
                 List<IndexerSearchResult> previousIndexerSearchResults = indexersToSearch.get(entry.getKey());
                 previousIndexerSearchResults.add(unknownFailureSearchResult);
                 indexerSearchResults.put(entry.getKey(), previousIndexerSearchResults);
@@ -311,16 +446,6 @@ public class Searcher {
         return indexerSearchResults;
     }
 
-    private List<Callable<IndexerSearchResult>> getCallables(SearchRequest searchRequest, Map<Indexer, List<IndexerSearchResult>> indexersToSearch) {
-        List<Callable<IndexerSearchResult>> callables = new ArrayList<>();
-
-        for (Entry<Indexer, List<IndexerSearchResult>> entry : indexersToSearch.entrySet()) {
-            Callable<IndexerSearchResult> callable = getIndexerCallable(searchRequest, entry);
-            callables.add(callable);
-        }
-        return callables;
-    }
-
     private Callable<IndexerSearchResult> getIndexerCallable(SearchRequest searchRequest, Entry<Indexer, List<IndexerSearchResult>> entry) {
         int offset;
         int limit;
@@ -335,6 +460,19 @@ public class Searcher {
         return () -> entry.getKey().search(searchRequest, offset, limit);
     }
 
+    @Override
+    public String getMetricsName() {
+        return "searcher";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("runningApiSearches", runningApiSearches.getNumberOfRunningSearches());
+        metrics.put("coalescedApiSearches", runningApiSearches.getNumberOfCoalescedSearches());
+        return metrics;
+    }
+
     @Getter
     public static class SearchEvent {
         private SearchRequest searchRequest;
@@ -0,0 +1,102 @@
+package org.nzbhydra.searching;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A compiled list of required or forbidden words. Words containing a dash or a dot must be contained in the title, all other words must match
+ * a word of the title (case insensitive). Immutable and thread safe.
+ */
+class WordList {
+
+    private static final Pattern TITLE_PATTERN = Pattern.compile("(\\w[\\w']*\\w|\\w)");
+
+    private final List<String> words = new ArrayList<>();
+    private final BitSet containedWords = new BitSet();
+    private final AhoCorasick ahoCorasick;
+
+    WordList(List<String> words) {
+        for (String word : words) {
+            if (word == null || word.isEmpty()) {
+                continue;
+            }
+            if (word.contains("-") || word.contains(".")) {
+                containedWords.set(this.words.size());
+            }
+            this.words.add(word.toLowerCase());
+        }
+        ahoCorasick = new AhoCorasick(this.words);
+    }
+
+    boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    /**
+     * @param onlyContained If true all words only need to be contained in the title
+     * @return The first word of this list found in the title
+     */
+    Optional<String> findAnyIn(Title title, boolean onlyContained) {
+        if (words.isEmpty()) {
+            return Optional.empty();
+        }
+        BitSet found = ahoCorasick.findAll(title.getLowercase());
+        for (int i = found.nextSetBit(0); i >= 0; i = found.nextSetBit(i + 1)) {
+            if (onlyContained || containedWords.get(i) || title.getWords().contains(words.get(i))) {
+                return Optional.of(words.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * @return The first word of this list not found in the title
+     */
+    Optional<String> findMissingIn(Title title) {
+        if (words.isEmpty()) {
+            return Optional.empty();
+        }
+        BitSet found = ahoCorasick.findAll(title.getLowercase());
+        for (int i = 0; i < words.size(); i++) {
+            //A word not contained in the title can't be a title word either
+            if (!found.get(i) || (!containedWords.get(i) && !title.getWords().contains(words.get(i)))) {
+                return Optional.of(words.get(i));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * A search result title, split into words when needed. Only used by the thread checking the result.
+     */
+    static class Title {
+        private final String lowercase;
+        private Set<String> words;
+
+        Title(String title) {
+            this.lowercase = title.toLowerCase();
+        }
+
+        String getLowercase() {
+            return lowercase;
+        }
+
+        Set<String> getWords() {
+            if (words == null) {
+                words = new HashSet<>();
+                Matcher matcher = TITLE_PATTERN.matcher(lowercase);
+                while (matcher.find()) {
+                    words.add(matcher.group());
+                }
+            }
+            return words;
+        }
+    }
+
+}
@@ -0,0 +1,121 @@
+package org.nzbhydra.web;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import org.nzbhydra.mapping.newznab.caps.CapsRoot;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlError;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
+import org.nzbhydra.mapping.newznab.xml.Xml;
+import org.springframework.oxm.Marshaller;
+import org.springframework.oxm.MarshallingFailureException;
+import org.springframework.oxm.UnmarshallingFailureException;
+import org.springframework.oxm.Unmarshaller;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Marshals and unmarshals newznab and torznab XML (search results, errors and caps). The JAXB context is created once. JAXB marshallers and
+ * unmarshallers are not thread-safe and expensive to create, so every thread keeps its own and reuses them.
+ */
+public class PooledJaxbMarshaller implements Marshaller, Unmarshaller {
+
+    private static final List<Class<?>> SUPPORTED_CLASSES = Arrays.asList(Xml.class, NewznabXmlRoot.class, NewznabXmlError.class, CapsRoot.class);
+
+    private static final Supplier<JAXBContext> JAXB_CONTEXT = Suppliers.memoize(() -> {
+        try {
+            return JAXBContext.newInstance(SUPPORTED_CLASSES.toArray(new Class[0]));
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Unable to create JAXB context", e);
+        }
+    });
+
+    private static final XMLInputFactory XML_INPUT_FACTORY = XMLInputFactory.newFactory();
+
+    static {
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        XML_INPUT_FACTORY.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    }
+
+    private final boolean formattedOutput;
+    private final ThreadLocal<javax.xml.bind.Marshaller> marshallers = ThreadLocal.withInitial(this::createMarshaller);
+    private final ThreadLocal<javax.xml.bind.Unmarshaller> unmarshallers = ThreadLocal.withInitial(this::createUnmarshaller);
+
+    /**
+     * @param formattedOutput If true the marshalled XML is indented
+     */
+    public PooledJaxbMarshaller(boolean formattedOutput) {
+        this.formattedOutput = formattedOutput;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return SUPPORTED_CLASSES.stream().anyMatch(x -> x.isAssignableFrom(clazz));
+    }
+
+    @Override
+    public void marshal(Object graph, Result result) throws MarshallingFailureException {
+        try {
+            marshallers.get().marshal(graph, result);
+        } catch (JAXBException e) {
+            throw new MarshallingFailureException("Unable to marshal " + graph.getClass().getSimpleName(), e);
+        }
+    }
+
+    public String marshalToString(Object graph) throws MarshallingFailureException {
+        StringWriter writer = new StringWriter();
+        try {
+            marshallers.get().marshal(graph, writer);
+        } catch (JAXBException e) {
+            throw new MarshallingFailureException("Unable to marshal " + graph.getClass().getSimpleName(), e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public Object unmarshal(Source source) throws UnmarshallingFailureException {
+        try {
+            if (source instanceof StreamSource && (((StreamSource) source).getInputStream() != null || ((StreamSource) source).getReader() != null)) {
+                //Read using StAX with DTDs and external entities disabled
+                StreamSource streamSource = (StreamSource) source;
+                XMLStreamReader reader = streamSource.getInputStream() != null ? XML_INPUT_FACTORY.createXMLStreamReader(streamSource.getInputStream()) : XML_INPUT_FACTORY.createXMLStreamReader(streamSource.getReader());
+                try {
+                    return unmarshallers.get().unmarshal(reader);
+                } finally {
+                    reader.close();
+                }
+            }
+            return unmarshallers.get().unmarshal(source);
+        } catch (JAXBException | XMLStreamException e) {
+            throw new UnmarshallingFailureException("Unable to unmarshal XML: " + e.getMessage(), e);
+        }
+    }
+
+    private javax.xml.bind.Marshaller createMarshaller() {
+        try {
+            javax.xml.bind.Marshaller marshaller = JAXB_CONTEXT.get().createMarshaller();
+            marshaller.setProperty(javax.xml.bind.Marshaller.JAXB_FORMATTED_OUTPUT, formattedOutput);
+            return marshaller;
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Unable to create JAXB marshaller", e);
+        }
+    }
+
+    private javax.xml.bind.Unmarshaller createUnmarshaller() {
+        try {
+            return JAXB_CONTEXT.get().createUnmarshaller();
+        } catch (JAXBException e) {
+            throw new IllegalStateException("Unable to create JAXB unmarshaller", e);
+        }
+    }
+
+}
@@ -3,6 +3,8 @@ package org.nzbhydra.web;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.function.Supplier;
+
 public class SessionStorage {
 
     private static final Logger logger = LoggerFactory.getLogger(SessionStorage.class);
@@ -16,5 +18,32 @@ public class SessionStorage {
     public static final ThreadLocal<String> requestUrl =
             ThreadLocal.withInitial(() -> null);
 
+    /**
+     * Wraps the given supplier so that when it's called (possibly in another thread) it sees the session values of the current thread.
+     */
+    public static <T> Supplier<T> withCurrentSession(Supplier<T> supplier) {
+        String currentUsername = username.get();
+        String currentIp = IP.get();
+        String currentUserAgent = userAgent.get();
+        String currentRequestUrl = requestUrl.get();
+        return () -> {
+            String previousUsername = username.get();
+            String previousIp = IP.get();
+            String previousUserAgent = userAgent.get();
+            String previousRequestUrl = requestUrl.get();
+            username.set(currentUsername);
+            IP.set(currentIp);
+            userAgent.set(currentUserAgent);
+            requestUrl.set(currentRequestUrl);
+            try {
+                return supplier.get();
+            } finally {
+                username.set(previousUsername);
+                IP.set(previousIp);
+                userAgent.set(previousUserAgent);
+                requestUrl.set(previousRequestUrl);
+            }
+        };
+    }
 
 }
@@ -1,14 +1,17 @@
 package org.nzbhydra.web;
 
 import org.nzbhydra.NzbHydra;
+import org.nzbhydra.api.StreamedNewznabResponse;
 import org.nzbhydra.mapping.newznab.NewznabResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpInputMessage;
 import org.springframework.http.HttpOutputMessage;
 import org.springframework.http.MediaType;
@@ -16,7 +19,9 @@ import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.http.converter.HttpMessageNotWritableException;
 import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
-import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 import org.springframework.web.filter.CharacterEncodingFilter;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
@@ -24,22 +29,26 @@ import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurationSupport;
 import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
 
-import javax.xml.bind.Marshaller;
 import javax.xml.transform.stream.StreamResult;
+import java.io.BufferedOutputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.net.MalformedURLException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.zip.GZIPOutputStream;
 
 @Configuration
 public class WebConfiguration extends WebMvcConfigurationSupport {
 
     @Autowired
     private Interceptor interceptor;
+    @Value("${nzbhydra.api.formattedOutput:true}")
+    private boolean formattedApiOutput;
+    @Value("${nzbhydra.api.gzip:true}")
+    private boolean gzipApiOutput;
 
     private static final Logger logger = LoggerFactory.getLogger(WebConfiguration.class);
 
@@ -97,13 +106,8 @@ public class WebConfiguration extends WebMvcConfigurationSupport {
      * Enable pretty printing of returned XML
      */
     @Bean
-    public Jaxb2Marshaller marshaller() {
-        Jaxb2Marshaller marshaller = new Jaxb2Marshaller();
-        Map<String, Boolean> map = new HashMap<>();
-        map.put(Marshaller.JAXB_FORMATTED_OUTPUT, Boolean.TRUE);
-        marshaller.setMarshallerProperties(map);
-        marshaller.setPackagesToScan("org.nzbhydra");
-        return marshaller;
+    public PooledJaxbMarshaller marshaller() {
+        return new PooledJaxbMarshaller(true);
     }
 
     /**
@@ -117,18 +121,22 @@ public class WebConfiguration extends WebMvcConfigurationSupport {
                 jacksonConverter.setPrettyPrint(true);
             }
         }
-        converters.add(0, new NewznabAndTorznabResponseNamespaceFixer(marshaller()));
+        converters.add(0, new NewznabAndTorznabResponseNamespaceFixer(marshaller(), formattedApiOutput, gzipApiOutput));
     }
 
 
     private static class NewznabAndTorznabResponseNamespaceFixer implements HttpMessageConverter<Object> {
 
-        private final Jaxb2Marshaller marshaller;
+        private final PooledJaxbMarshaller marshaller;
+        private final boolean formattedOutput;
+        private final boolean gzip;
         private MappingJackson2HttpMessageConverter jacksonConverter = new MappingJackson2HttpMessageConverter();
 
 
-        public NewznabAndTorznabResponseNamespaceFixer(Jaxb2Marshaller marshaller) {
+        public NewznabAndTorznabResponseNamespaceFixer(PooledJaxbMarshaller marshaller, boolean formattedOutput, boolean gzip) {
             this.marshaller = marshaller;
+            this.formattedOutput = formattedOutput;
+            this.gzip = gzip;
         }
 
         @Override
@@ -155,6 +163,10 @@ public class WebConfiguration extends WebMvcConfigurationSupport {
         @Override
         public void write(Object o, MediaType contentType, HttpOutputMessage outputMessage) throws IOException, HttpMessageNotWritableException {
             NewznabResponse newznabResponse = (NewznabResponse) o;
+            if (o instanceof StreamedNewznabResponse) {
+                writeStreamed((StreamedNewznabResponse) o, outputMessage);
+                return;
+            }
             if ("json".equalsIgnoreCase(((NewznabResponse) o).getSearchType())) {
                 jacksonConverter.setPrettyPrint(true);
                 jacksonConverter.write(o, MediaType.APPLICATION_JSON_UTF8, outputMessage);
@@ -172,6 +184,29 @@ public class WebConfiguration extends WebMvcConfigurationSupport {
             }
         }
 
+        private void writeStreamed(StreamedNewznabResponse response, HttpOutputMessage outputMessage) throws IOException {
+            outputMessage.getHeaders().setContentType(MediaType.parseMediaType(response.getContentHeader()));
+            if (gzip && isGzipAccepted()) {
+                outputMessage.getHeaders().set(HttpHeaders.CONTENT_ENCODING, "gzip");
+                GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputMessage.getBody(), 8192);
+                response.writeTo(gzipOutputStream, formattedOutput);
+                gzipOutputStream.finish();
+            } else {
+                OutputStream outputStream = new BufferedOutputStream(outputMessage.getBody(), 8192);
+                response.writeTo(outputStream, formattedOutput);
+                outputStream.flush();
+            }
+        }
+
+        private boolean isGzipAccepted() {
+            RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+            if (!(requestAttributes instanceof ServletRequestAttributes)) {
+                return false;
+            }
+            String acceptEncoding = ((ServletRequestAttributes) requestAttributes).getRequest().getHeader(HttpHeaders.ACCEPT_ENCODING);
+            return acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+        }
+
 
     }
 
@@ -3078,6 +3078,15 @@ function getIndexerBoxFields(indexerModel, parentModel, isInitial, CategoriesSer
                 help: 'Supercedes the general timeout in "Searching"'
             }
         },
+        {
+            key: 'maxConcurrentCalls',
+            type: 'horizontalInput',
+            templateOptions: {
+                type: 'number',
+                label: 'Max concurrent calls',
+                help: 'Maximum number of calls made to this indexer at the same time. Leave empty for no limit'
+            }
+        },
         {
             key: 'schedule',
             type: 'horizontalChips',
@@ -3440,6 +3449,7 @@ angular.module('nzbhydraApp').controller('IndexerConfigSelectionBoxInstanceContr
                 hitLimitResetTime: 0,
                 host: null,
                 loadLimitOnRandom: null,
+                maxConcurrentCalls: null,
                 name: null,
                 password: null,
                 preselect: true,
@@ -5334,6 +5344,94 @@ function ConfigFields($injector) {
                                 }
                             }
                         },
+                        {
+                            key: 'adaptiveIndexerTimeouts',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Adaptive timeouts',
+                                help: 'Abort calls to indexers earlier if they take much longer than usual for that indexer (three times the 99th percentile of recent response times, at least 5 seconds). The timeout above is never exceeded'
+                            }
+                        },
+                        {
+                            key: 'hedgeIndexerRequests',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Hedge slow requests',
+                                help: 'Send a second request to an indexer when the first one takes longer than 95% of recent calls and use whichever response arrives first. Not done for indexers with a hit limit or a limit of concurrent calls'
+                            }
+                        },
+                        {
+                            key: 'returnApiResultsAfterMs',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Return API results after',
+                                help: 'When set API searches will only wait this long for indexers and return the results found until then. Indexers responding later are not used for that search',
+                                addonRight: {
+                                    text: 'ms'
+                                }
+                            }
+                        },
+                        {
+                            key: 'apiCacheTimeMinutes',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'API cache time',
+                                help: 'When set results of API searches are cached for this long, even if the caller doesn\'t request it using the cachetime parameter. Slightly older results are returned while the search is repeated in the background',
+                                addonRight: {
+                                    text: 'minutes'
+                                }
+                            }
+                        },
+                        {
+                            key: 'prefetchRssFeeds',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Prefetch RSS feeds',
+                                help: 'Poll the latest results for API searches without query (like the RSS sync of Sonarr or Radarr) in the background. Following searches are answered immediately from the polled results'
+                            }
+                        },
+                        {
+                            key: 'prefetchRssFeedsIntervalMinutes',
+                            type: 'horizontalInput',
+                            hideExpression: '!model.prefetchRssFeeds',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'RSS feed poll interval',
+                                required: true,
+                                help: 'How often prefetched RSS feeds are polled',
+                                addonRight: {
+                                    text: 'minutes'
+                                }
+                            }
+                        },
+                        {
+                            key: 'apiCacheSizeMb',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'API cache size',
+                                required: true,
+                                help: 'Maximum memory used by cached API search results (estimated). The least recently used results are removed first',
+                                addonRight: {
+                                    text: 'MB'
+                                }
+                            }
+                        },
+                        {
+                            key: 'indexerThreadPoolSize',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Indexer threads',
+                                required: true,
+                                help: 'Maximum number of indexer calls executed at the same time over all searches. Additional calls are queued'
+                            }
+                        },
                         {
                             key: 'ignoreTemporarilyDisabled',
                             type: 'horizontalSwitch',
@@ -5343,6 +5441,18 @@ function ConfigFields($injector) {
                                 help: "If enabled access to indexers will never be paused after an error occurred"
                             }
                         },
+                        {
+                            key: 'hitLimitBurstPercent',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Hit limit burst',
+                                help: 'When set API hits of indexers with a hit limit are spread over the day instead of being used up at once. Only this percentage of the hit limit may be used in short succession',
+                                addonRight: {
+                                    text: '%'
+                                }
+                            }
+                        },
                         {
                             key: 'generateQueries',
                             type: 'horizontalSelect',
@@ -7361,6 +7471,7 @@ function SearchService($http) {
         getLastResults: getLastResults,
         loadMore: loadMore,
         getSearchState: getSearchState,
+        getSearchEvents: getSearchEvents,
         getModalInstance: getModalInstance,
         setModalInstance: setModalInstance,
     };
@@ -7419,6 +7530,13 @@ function SearchService($http) {
         return $http.get("internalapi/search/state", {params: {searchrequestid: searchRequestId}});
     }
 
+    function getSearchEvents(searchRequestId) {
+        if (typeof EventSource === "undefined") {
+            return undefined;
+        }
+        return new EventSource("internalapi/search/events?searchrequestid=" + searchRequestId);
+    }
+
     function processData(response) {
         var searchResults = response.data.searchResults;
         var indexerSearchMetaDatas = response.data.indexerSearchMetaDatas;
@@ -8881,43 +8999,84 @@ function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibMod
     $scope.indexersSelected = 0;
     $scope.indexersFinished = 0;
 
-    updateSearchMessagesInterval = $interval(function () {
-        SearchService.getSearchState(searchRequestId).then(function (response) {
-                $scope.indexerSelectionFinished = response.data.indexerSelectionFinished;
-                $scope.searchFinished = response.data.searchFinished;
-                $scope.indexersSelected = response.data.indexersSelected;
-                $scope.indexersFinished = response.data.indexersFinished;
-                $scope.progressMax = response.data.indexersSelected;
-                if ($scope.progressMax > response.data.indexersSelected) {
-                    $scope.progressMax = ">=" + response.data.indexersSelected;
-                }
-                if (response.data.messages) {
-                    $scope.messages = response.data.messages;
-                }
-                if ($scope.searchFinished && !loggedSearchFinished) {
-                    $scope.messages.push("Finished searching. Preparing results...");
-                    loggedSearchFinished = true;
+    $scope.numberOfFoundResults = 0;
+
+    function updateSearchState(state) {
+        $scope.indexerSelectionFinished = state.indexerSelectionFinished;
+        $scope.searchFinished = state.searchFinished;
+        $scope.indexersSelected = state.indexersSelected;
+        $scope.indexersFinished = state.indexersFinished;
+        $scope.numberOfFoundResults = state.numberOfFoundResults;
+        $scope.progressMax = state.indexersSelected;
+        if ($scope.progressMax > state.indexersSelected) {
+            $scope.progressMax = ">=" + state.indexersSelected;
+        }
+        if ($scope.searchFinished && !loggedSearchFinished) {
+            $scope.messages.push("Finished searching. Preparing results...");
+            loggedSearchFinished = true;
+        }
+    }
+
+    //Progress is pushed by the server if the browser supports it, otherwise it's polled
+    var searchEvents = SearchService.getSearchEvents(searchRequestId);
+    if (angular.isDefined(searchEvents)) {
+        var onStateEvent = function (event) {
+            $scope.$evalAsync(function () {
+                updateSearchState(JSON.parse(event.data));
+            });
+        };
+        searchEvents.addEventListener("state", function (event) {
+            $scope.$evalAsync(function () {
+                var state = JSON.parse(event.data);
+                $scope.messages = state.messages;
+                updateSearchState(state);
+            });
+        });
+        searchEvents.addEventListener("message", function (event) {
+            $scope.$evalAsync(function () {
+                $scope.messages.push(JSON.parse(event.data).message);
+            });
+        });
+        searchEvents.addEventListener("indexerSelection", onStateEvent);
+        searchEvents.addEventListener("indexerFinished", onStateEvent);
+        searchEvents.addEventListener("results", onStateEvent);
+        searchEvents.addEventListener("finished", function (event) {
+            onStateEvent(event);
+            searchEvents.close();
+        });
+    } else {
+        updateSearchMessagesInterval = $interval(function () {
+            SearchService.getSearchState(searchRequestId).then(function (response) {
+                    if (response.data.messages) {
+                        $scope.messages = response.data.messages;
+                    }
+                    updateSearchState(response.data);
+                },
+                function () {
+                    $interval.cancel(updateSearchMessagesInterval);
                 }
-            },
-            function () {
-                $interval.cancel(updateSearchMessagesInterval);
-            }
-        );
-    }, 100);
+            );
+        }, 100);
+    }
 
-    $scope.cancelSearch = function () {
+    function stopUpdates() {
         if (angular.isDefined(updateSearchMessagesInterval)) {
             $interval.cancel(updateSearchMessagesInterval);
         }
+        if (angular.isDefined(searchEvents)) {
+            searchEvents.close();
+        }
+    }
+
+    $scope.cancelSearch = function () {
+        stopUpdates();
         onCancel();
         $uibModalInstance.dismiss();
     };
 
 
     $scope.$on('$destroy', function () {
-        if (angular.isDefined(updateSearchMessagesInterval)) {
-            $interval.cancel(updateSearchMessagesInterval);
-        }
+        stopUpdates();
     });
 }
 
@@ -9451,6 +9610,16 @@ function IndexerStatusesController($scope, $http, statuses) {
         }
     };
 
+    $scope.formatCircuitState = function (circuitState) {
+        if (circuitState === "CLOSED") {
+            return "Closed";
+        } else if (circuitState === "OPEN") {
+            return "Open";
+        } else {
+            return "Half open (testing)";
+        }
+    };
+
     $scope.getLabelClass = function (state) {
         if (state === "ENABLED") {
             return "primary";
@@ -11,7 +11,7 @@ $templateCache.put('static/html/restart-modal.html','<div class="modal-header">\
 $templateCache.put('static/html/results-pagination.html','<ul class="pagination" ng-if="1 < pages.length || !autoHide">\r\n    <li ng-if="boundaryLinks" ng-class="{ disabled : pagination.current == 1 }">\r\n        <a href="" ng-click="setCurrent(1)">&laquo;</a>\r\n    </li>\r\n    <li ng-if="directionLinks" ng-class="{ disabled : pagination.current == 1 }">\r\n        <a href="" ng-click="setCurrent(pagination.current - 1)">&lsaquo;</a>\r\n    </li>\r\n    <li ng-repeat="pageNumber in pages track by tracker(pageNumber, $index)"\r\n        ng-class="{ active : pagination.current == pageNumber, disabled : pageNumber == \'...\' }">\r\n        <a href="" ng-click="setCurrent(pageNumber)">{{ pageNumber }}</a>\r\n    </li>\r\n\r\n    <li ng-if="directionLinks" ng-class="{ disabled : pagination.current == pagination.last }">\r\n        <a href="" ng-click="setCurrent(pagination.current + 1)">&rsaquo;</a>\r\n    </li>\r\n    <li ng-if="boundaryLinks" ng-class="{ disabled : pagination.current == pagination.last }">\r\n        <a href="" ng-click="setCurrent(pagination.last)">&raquo;</a>\r\n    </li>\r\n</ul>');
 $templateCache.put('static/html/search-history-details-modal.html','<!--\r\n  ~  (C) Copyright 2017 TheOtherP (theotherp@gmx.de)\r\n  ~\r\n  ~  Licensed under the Apache License, Version 2.0 (the "License");\r\n  ~  you may not use this file except in compliance with the License.\r\n  ~  You may obtain a copy of the License at\r\n  ~\r\n  ~      http://www.apache.org/licenses/LICENSE-2.0\r\n  ~\r\n  ~  Unless required by applicable law or agreed to in writing, software\r\n  ~  distributed under the License is distributed on an "AS IS" BASIS,\r\n  ~  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\r\n  ~  See the License for the specific language governing permissions and\r\n  ~  limitations under the License.\r\n  -->\r\n\r\n<div class="modal-body" style="text-align: left">\r\n   <span ng-show="!details">\r\n   <img src="static/img/spinner.gif">\r\n      Loading...\r\n   </span>\r\n    <table class="table" ng-if="details">\r\n        <caption>Details</caption>\r\n        <thead>\r\n        <tr>\r\n            <th>IP</th>\r\n            <th>User agent</th>\r\n        </tr>\r\n        </thead>\r\n        <tbody>\r\n        <tr>\r\n            <td>{{details.ip}}</td>\r\n            <td>{{details.userAgent}}</td>\r\n        </tr>\r\n        </tbody>\r\n    </table>\r\n\r\n    <table class="table" ng-if="details">\r\n        <caption>Related indexer searches</caption>\r\n        <thead>\r\n        <tr>\r\n            <th>Indexer</th>\r\n            <th>Successful</th>\r\n            <th>Results</th>\r\n        </tr>\r\n        </thead>\r\n        <tbody>\r\n        <tr ng-repeat="entry in details.indexerSearches">\r\n            <td>{{entry.indexerName}}</td>\r\n            <td>{{entry.successful}}</td>\r\n            <td>{{entry.resultsCount}}</td>\r\n        </tr>\r\n        </tbody>\r\n    </table>\r\n</div>\r\n\r\n');
 $templateCache.put('static/html/search-searchhistory-dropdown.html','<ul class="dropdown-menu" role="menu" uib-dropdown-menu aria-labelledby="button-template-url">\r\n    <li role="menuitem" ng-repeat="request in searchHistory"><a href="#" ng-click="repeatSearch(request)"\r\n                                                                ng-bind-html="formatRequest(request)"\r\n                                                                class="search-history-dropdown-entry"></a></li>\r\n</ul>');
-$templateCache.put('static/html/search-state.html','<div class="modal-header">\r\n    <h3 class="modal-title">Searching... Please wait</h3>\r\n</div>\r\n<div class="modal-body" style="text-align: left;">\r\n    <img src="static/img/spinner.gif" ng-if="!messages && !indexerSelectionFinished"/>\r\n\r\n    <div ng-if="messages" style="text-align: left">\r\n\r\n        <ul style="padding-left: 0">\r\n            <li ng-repeat="message in messages" style="list-style-type: none">\r\n                {{message}}\r\n            </li>\r\n\r\n        </ul>\r\n        <img src="static/img/spinner.gif"/>\r\n\r\n    </div>\r\n    <div style="margin-top: 15px; margin-bottom: -20px">\r\n        <div ng-if="indexerSelectionFinished">\r\n            Indexers finished:\r\n            <uib-progressbar max="indexersSelected" class="progress-striped active" value="indexersFinished">\r\n                {{indexersFinished}} / {{progressMax}}\r\n            </uib-progressbar>\r\n        </div>\r\n    </div>\r\n</div>\r\n<div class="modal-footer">\r\n    <span style="float: left; margin-top: 5px">\r\n        This window will close automatically when searching is finished\r\n    </span>\r\n    <button class="btn btn-danger" type="button" ng-click="cancelSearch()"\r\n            uib-tooltip="Will not actually cancel the search but just go back to the search page. Any remaining indexer calls will be continued in the background"\r\n            tooltip-placement="top"\r\n            tooltip-trigger="mouseenter"\r\n    >Cancel\r\n    </button>\r\n</div>\r\n');
+$templateCache.put('static/html/search-state.html','<div class="modal-header">\r\n    <h3 class="modal-title">Searching... Please wait</h3>\r\n</div>\r\n<div class="modal-body" style="text-align: left;">\r\n    <img src="static/img/spinner.gif" ng-if="!messages && !indexerSelectionFinished"/>\r\n\r\n    <div ng-if="messages" style="text-align: left">\r\n\r\n        <ul style="padding-left: 0">\r\n            <li ng-repeat="message in messages" style="list-style-type: none">\r\n                {{message}}\r\n            </li>\r\n\r\n        </ul>\r\n        <img src="static/img/spinner.gif"/>\r\n\r\n    </div>\r\n    <div style="margin-top: 15px; margin-bottom: -20px">\r\n        <div ng-if="indexerSelectionFinished">\r\n            Indexers finished:\r\n            <uib-progressbar max="indexersSelected" class="progress-striped active" value="indexersFinished">\r\n                {{indexersFinished}} / {{progressMax}}\r\n            </uib-progressbar>\r\n        </div>\r\n        <div ng-if="numberOfFoundResults > 0">\r\n            Results found so far: {{numberOfFoundResults}}\r\n        </div>\r\n    </div>\r\n</div>\r\n<div class="modal-footer">\r\n    <span style="float: left; margin-top: 5px">\r\n        This window will close automatically when searching is finished\r\n    </span>\r\n    <button class="btn btn-danger" type="button" ng-click="cancelSearch()"\r\n            uib-tooltip="Will not actually cancel the search but just go back to the search page. Any remaining indexer calls will be continued in the background"\r\n            tooltip-placement="top"\r\n            tooltip-trigger="mouseenter"\r\n    >Cancel\r\n    </button>\r\n</div>\r\n');
 $templateCache.put('static/html/searchtemplate.html','');
 $templateCache.put('static/html/update-modal.html','<!--\n  ~  (C) Copyright 2017 TheOtherP (theotherp@gmx.de)\n  ~\n  ~  Licensed under the Apache License, Version 2.0 (the "License");\n  ~  you may not use this file except in compliance with the License.\n  ~  You may obtain a copy of the License at\n  ~\n  ~      http://www.apache.org/licenses/LICENSE-2.0\n  ~\n  ~  Unless required by applicable law or agreed to in writing, software\n  ~  distributed under the License is distributed on an "AS IS" BASIS,\n  ~  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.\n  ~  See the License for the specific language governing permissions and\n  ~  limitations under the License.\n  -->\n\n<div class="modal-header">\n    <h3 class="modal-title">Update in progress</h3>\n</div>\n<div class="modal-body" style="text-align: left">\n    <img src="static/img/spinner.gif" ng-if="!messages"/>\n\n    <div ng-if="messages" style="text-align: left">\n\n        <ul style="padding-left: 0">\n            <li ng-repeat="message in messages" style="list-style-type: none">\n                {{message}} <img src="static/img/spinner.gif" ng-show="$last"/>\n            </li>\n\n        </ul>\n\n    </div>\n</div>\n');
 $templateCache.put('static/html/welcome-modal.html','<div class="modal-header">\r\n    <h3 class="modal-title">Welcome to NZBHydra 2</h3>\r\n</div>\r\n<div class="modal-body" style="text-align: left">\r\n    This seems to be the first time that you started NZBHydra 2.\r\n    <br><br>\r\n    If you\'re already using NZBHydra 1 (python based) you can <a href="#" ng-click="startMigration()">migrate your\r\n    data</a>.\r\n    <br><br>\r\n    If you\'re a new user (or don\'t want to migrate your data right now) you can start by <a href="#"\r\n                                                                                            ng-click="goToConfig()">configuring\r\n    NZBHydra 2</a>.\r\n    <br>\r\n    You will not be able to use it until you\'ve added at least one indexer.\r\n    <br><br>\r\n    If you\'re stuck you can refer to <a href="https://github.com/theotherp/nzbhydra2/wiki">the wiki</a> or the online\r\n    help (available from the config).<br>\r\n    If you haven\'t found an answer there you\'re welcome to <a href="https://github.com/theotherp/nzbhydra2/issues">raise\r\n    a GitHub issue</a> or create a thread on reddit.\r\n\r\n</div>\r\n<div class="modal-footer">\r\n    <button class="btn btn-success" type="button" ng-click="close()">Close</button>\r\n</div>\r\n');
@@ -52,7 +52,7 @@ $templateCache.put('static/html/directives/updates.html','<div cg-busy="{promise
 $templateCache.put('static/html/states/config.html','<div class="row">\r\n    <form name="form" name="ctrl.myform" novalidate>\r\n        <ul class="nav nav-tabs" role="tablist">\r\n            <li ng-repeat="tab in allTabs" ng-class="{\'active\': $index == activeTab}">\r\n                <a href="" ng-click="goToConfigState($index)">{{ tab.name }}</a>\r\n            </li>\r\n            <li style="float: right">\r\n                <button ng-click="apiHelp()" class="btn config-button config-api-button btn-default">API?</button>\r\n                <button ng-click="help()" class="btn config-button config-help-button btn-default">Help</button>\r\n                <button ng-click="submit()" class="btn config-button"\r\n                        ng-class="{\'btn-info\': isSavingNeeded(), \'pulse2\': isSavingNeeded(), \'btn-success\': !isSavingNeeded()}">\r\n                    Save\r\n                </button>\r\n            </li>\r\n        </ul>\r\n\r\n        <div class="tab-content config">\r\n            <div ng-repeat="tab in allTabs">\r\n                <div class="row config-tab-content">\r\n                    <div class="config-left-space"></div>\r\n                    <div class="config-center-space  ">\r\n                        <formly-form model="tab.model" fields="tab.fields" ng-if="$index == activeTab"\r\n                                     options="tab.options" class="modal-content">\r\n                        </formly-form>\r\n                    </div>\r\n                    <div class="config-right-space"></div>\r\n                </div>\r\n            </div>\r\n        </div>\r\n    </form>\r\n</div>\r\n\r\n\r\n<script type="text/ng-template" id="ui-select-multiple.html">\r\n    <ui-select multiple data-ng-model="model[options.key]" data-required="{{ to.required }}"\r\n               data-disabled="{{ to.disabled }}" theme="bootstrap">\r\n        <ui-select-match class="ui-select-match" placeholder="{{ to.getPlaceholder(model[options.key]) }}">\r\n            {{$item[to.labelProp]}}\r\n        </ui-select-match>\r\n        <ui-select-choices class="ui-select-choices" data-repeat="{{ to.ngOptions }}">\r\n            <div ng-bind-html="option[to.labelProp] | highlight: $select.search"></div>\r\n        </ui-select-choices>\r\n    </ui-select>\r\n</script>\r\n\r\n<script type="text/ng-template" id="button-test-connection.html">\r\n    <span style="text-align: left;"><button class="btn btn-default" id="button-test-connection-{{ uniqueId }}"\r\n                                            type="button" ng-click="testConnection()"><span\r\n            class="glyphicon glyphicon-refresh"></span></button> <span\r\n            id="message-test-connection-{{ uniqueId }}"></span></span>\r\n</script>\r\n\r\n\r\n<script type="text/ng-template" id="button-check-caps.html">\r\n    <span style="text-align: left; float: left"><button class="btn btn-default" id="button-check-caps-{{ uniqueId }}"\r\n                                                        type="button" ng-click="checkCaps()"><span\r\n            class="glyphicon glyphicon-refresh"></span></button> <span\r\n            id="message-check-caps-{{ uniqueId }}"></span></span>\r\n</script>\r\n\r\n\r\n<script type="text/ng-template" id="newznab-preset.html">\r\n    <ui-select ng-model="selectedpreset" theme="bootstrap" on-select="selectPreset($item, $model)"\r\n               search-enabled="false">\r\n        <ui-select-match class="ui-select-match" allow-clear="true">{{ display }}</ui-select-match>\r\n        <ui-select-choices class="ui-select-choices" repeat="preset in presets">\r\n            <div ng-bind-html="preset.name"></div>\r\n        </ui-select-choices>\r\n    </ui-select>\r\n</script>\r\n\r\n<script type="text/ng-template" id="repeatSection.html">\r\n    <!--loop through each element in model array-->\r\n    <div class="{{ hideRepeat }}">\r\n        <div class="repeatsection modal-content" ng-repeat="element in model[options.key]"\r\n             ng-init="fields = copyFields(to.fields)">\r\n            <fieldset>\r\n                <legend>{{ element.name ? element.name : (element.username ? element.username : to.altLegendText)}}\r\n                </legend>\r\n                <formly-form fields="fields"\r\n                             model="element"\r\n                             form="form">\r\n                </formly-form>\r\n                <div style="margin-bottom:20px;">\r\n                    <button type="button" class="btn btn-sm btn-danger" ng-click="remove($index)">\r\n                        Remove {{ element.name }}\r\n                    </button>\r\n                </div>\r\n\r\n            </fieldset>\r\n        </div>\r\n        <hr>\r\n        <p class="AddNewButton">\r\n            <button type="button" class="btn btn-primary" ng-click="addNew()">{{ to.btnText }}</button>\r\n        </p>\r\n    </div>\r\n</script>\r\n\r\n<script type="text/ng-template" id="setting-wrapper.html">\r\n    <div class="form-group form-horizontal setting-wrapper" ng-class="{\'row\': !options.templateOptions.noRow}">\r\n        <!--Test-->\r\n        <div style="text-align:right;">\r\n            <label class="col-md-7 control-label config-label">\r\n                {{ to.label }} {{ to.required ? "*" : ""}}\r\n            </label>\r\n        </div>\r\n        <div class="col-md-6 config-content">\r\n            <formly-transclude></formly-transclude>\r\n            <div class="my-messages" ng-messages="fc.$error" ng-if="options.formControl.$touched || form.$submitted"\r\n                 ng-messages-multiple>\r\n                <div class="some-message has-error control-label" ng-message="{{::name}}"\r\n                     ng-repeat="(name, message) in ::options.validation.messages">\r\n                    {{ message(fc.$viewValue, fc.$modelValue, this)}}\r\n                </div>\r\n            </div>\r\n        </div>\r\n        <span class="col-md-7 config-help help-block" ng-bind-html="to.help | unsafe">{{ to.help | unsafe }}</span>\r\n    </div>\r\n</script>\r\n');
 $templateCache.put('static/html/states/download-history.html','<div class="row" style="margin-top: 30px; margin-bottom: 20px">\n    <div class="col-md-5"></div>\n    <div class="col-md-10" style="text-align: center">\n        <dir-pagination-controls on-page-change="update()" pagination-id="downloads"></dir-pagination-controls>\n    </div>\n</div>\n<table class="table">\n    <thead>\n    <tr>\n        <th class="col-md-2" style="width: {{columnSizes.time}}%;">\n            <column-sortable column="time" start-mode="2">Time\n            </column-sortable>\n            <column-filter-wrapper>\n                <time-filter column="time" selected="preselectedTimeInterval"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-2" style="width: {{columnSizes.indexer}}%;">\n            <column-sortable column="name">Indexer\n            </column-sortable>\n            <column-filter-wrapper>\n                <checkboxes-filter column="name" entries="indexersForFiltering" preselect="true" show-invert="true"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-8" style="width: {{columnSizes.title}}%;">\n            <column-sortable column="title">Title\n            </column-sortable>\n            <column-filter-wrapper>\n                <freetext-filter column="title"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-1" style="width: {{columnSizes.result}}%;">\n            <column-sortable column="status">Result <span class="glyphicon glyphicon-question-sign"\n                                                          tooltip-placement="auto top"\n                                                          uib-tooltip="Actual download result only available if Hydra\'s downloader user scripts are used"></span></div>\n            </column-sortable>\n            <column-filter-wrapper>\n                <checkboxes-filter column="status" entries="statusesForFiltering" preselect="true" show-invert="false"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-1" style="width: {{columnSizes.source}}%;">\n            <column-sortable column="access_source">Source\n            </column-sortable>\n            <column-filter-wrapper>\n                <boolean-filter column="access_source" options="accessOptionsForFiltering" preselect="0"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-1" style="width: {{columnSizes.age}}%;">\n            <column-sortable column="age">Age</column-sortable>\n            <column-filter-wrapper>\n                <freetext-filter column="age"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-2" style="width: {{columnSizes.username}}%;" ng-if="columnSizes.username > 0">\n            <column-sortable column="username">Username</column-sortable>\n            <column-filter-wrapper>\n                <freetext-filter column="username"/>\n            </column-filter-wrapper>\n        </th>\n        <th class="col-md-2" style="width: {{columnSizes.ip}}%" ng-if="columnSizes.ip > 0">\n            <column-sortable column="ip" reversed="false" start-mode="1">IP</column-sortable>\n            <column-filter-wrapper>\n                <freetext-filter column="ip"/>\n            </column-filter-wrapper>\n        </th>\n    </tr>\n    </thead>\n    <tbody>\n    <tr dir-paginate="nzbDownload in nzbDownloads | itemsPerPage:limit" total-items="totalDownloads"\n        current-page="pagination.current" pagination-id="downloads">\n        <td class="narrow-row">{{ ::nzbDownload.time | reformatDate }}</td>\n        <td class="narrow-row">{{ ::nzbDownload.searchResult.indexer.name }}</td>\n        <td class="narrow-row">\n            <span ng-style="{\'visibility\':!nzbDownload.searchResult.indexerGuid ? \'hidden\' : \'initial\'}">\n                <span ng-switch on="::nzbDownload.searchResult.downloadType">\n                    <span ng-switch-when="TORRENT">\n                        <a target="_blank" href="gettorrent/user/{{ ::nzbDownload.searchResult.id }}"\n                           style="vertical-align: middle; margin-left: 3px; margin-right: 3px"\n                           class="no-underline result-torrent-download-link"\n                           uib-tooltip="Download torrent"\n                           tooltip-placement="top"\n                           tooltip-trigger="mouseenter"><span class="glyphicon glyphicon-save"></span>\n                        </a>\n                        <send-torrent-to-blackhole search-result-id="nzbDownload.searchResult.id"\n                                                   ng-if="::result.link.indexOf(\'magnet:\') > -1"></send-torrent-to-blackhole>\n                    </span>\n                    <span ng-switch-default>\n                        <a target="_blank" href="getnzb/user/{{ ::nzbDownload.searchResult.id }}"\n                           style="vertical-align: middle; margin-left: 3px; margin-right: 3px"\n                           class="no-underline result-nzb-download-link"\n                           uib-tooltip="Download NZB"\n                           tooltip-placement="top"\n                           tooltip-trigger="mouseenter"><span class="glyphicon glyphicon-save"></span>\n                        </a>\n                        <addable-nzbs searchresult="::nzbDownload.searchResult" always-ask="true"></addable-nzbs>\n                    </span>\n                </span>\n                <a target="_blank" href="{{ ::nzbDownload.searchResult.details | dereferer }}"\n                   ng-if="nzbDownload.searchResult.details">{{ ::nzbDownload.searchResult.title }}</a><span\n                    ng-if="!nzbDownload.searchResult.details">{{ nzbDownload.searchResult.title }}</span>\n            </span>\n        </td>\n        <td class="narrow-row">\n            <span ng-bind-html="getStatusIcon(nzbDownload.status)" uib-tooltip="{{nzbDownload.status}}"></span>\n        </td>\n        <td class="narrow-row">{{ ::nzbDownload.accessSource === "INTERNAL" ? "Internal" : "API"}}</td>\n        <td class="narrow-row">{{ ::nzbDownload.age }}</td>\n        <td class="narrow-row" ng-if="columnSizes.username > 0">{{ ::nzbDownload.username }}</td>\n        <td class="narrow-row" ng-if="columnSizes.ip > 0">{{ ::nzbDownload.ip }}</td>\n    </tr>\n    </tbody>\n</table>\n\n<dir-pagination-controls on-page-change="pageChanged(newPageNumber)"\n                         pagination-id="downloads"></dir-pagination-controls>\n');
 $templateCache.put('static/html/states/header.html','<nav class="navbar navbar-default navbar-static-top">\n    <div class="container">\n        <div class="navbar-collapse" id="bs-example-navbar-collapse-1">\n            <ul class="nav navbar-nav">\n                <li ui-sref-active="active" ng-if="showSearch"><a ui-sref="root.search"\n                                                                  ui-sref-opts="{inherit: false, reload: true}">Search</a>\n                </li>\n                <li ui-sref-active="{\'active\':\'root.stats\'}" ng-if="showStats"><a ui-sref="root.stats.searches">History\n                    & Stats</a></li>\n                <li ui-sref-active="{\'active\':\'root.config\'}" ng-if="showAdmin"><a ui-sref="root.config.main">Config</a>\n                </li>\n                <li ui-sref-active="{\'active\':\'root.system\'}" ng-if="showAdmin"><a\n                        ui-sref="root.system.control">System</a></li>\n            </ul>\n            <ul class="nav navbar-nav navbar-right" ng-if="showLoginout">\n                <li><a href="" ng-click="loginout()"\n                       uib-tooltip="{{ loginlogoutText}}"\n                       tooltip-placement="bottom"\n                       tooltip-trigger="mouseenter"\n                ><span class="glyphicon glyphicon-off" style="margin-left: 5px"></span></a></li>\n            </ul>\n\n        </div>\n    </div>\n</nav>');
-$templateCache.put('static/html/states/indexer-statuses.html','<table class="table indexer-statuses-table">\r\n    <caption>Indexer statuses sorted by state, then name. Go to to the config to reenable any disabled indexers\r\n    </caption>\r\n    <thead>\r\n    <tr>\r\n        <th class="col-md-2">Indexer</th>\r\n        <th class="col-md-3">State</th>\r\n        <th class="col-md-2">Disabled until</th>\r\n        <th class="col-md-13">Reason</th>\r\n    </tr>\r\n    </thead>\r\n    <tbody>\r\n    <tr ng-repeat="indexerStatus in statuses">\r\n        <td>{{ indexerStatus.indexer }}</td>\r\n        <td>\r\n            <span class="label"\r\n                  ng-class="getLabelClass(indexerStatus.state)"> {{ formatState(indexerStatus.state) }}</span>\r\n        </td>\r\n        <td>\r\n            <span ng-if="indexerStatus.state === \'DISABLED_SYSTEM_TEMPORARY\'">{{ indexerStatus.disabledUntil | reformatDate}}</span>\r\n        </td>\r\n        <td class="indexer-status-reason">{{ indexerStatus.lastError }}</td>\r\n    </tr>\r\n    </tbody>\r\n</table>');
+$templateCache.put('static/html/states/indexer-statuses.html','<table class="table indexer-statuses-table">\r\n    <caption>Indexer statuses sorted by state, then name. Go to to the config to reenable any disabled indexers\r\n    </caption>\r\n    <thead>\r\n    <tr>\r\n        <th class="col-md-2">Indexer</th>\r\n        <th class="col-md-3">State</th>\r\n        <th class="col-md-2">Circuit</th>\r\n        <th class="col-md-2">Disabled until</th>\r\n        <th class="col-md-11">Reason</th>\r\n    </tr>\r\n    </thead>\r\n    <tbody>\r\n    <tr ng-repeat="indexerStatus in statuses">\r\n        <td>{{ indexerStatus.indexer }}</td>\r\n        <td>\r\n            <span class="label"\r\n                  ng-class="getLabelClass(indexerStatus.state)"> {{ formatState(indexerStatus.state) }}</span>\r\n        </td>\r\n        <td>\r\n            <span ng-if="indexerStatus.state === \'ENABLED\' || indexerStatus.state === \'DISABLED_SYSTEM_TEMPORARY\'"\r\n                  uib-tooltip="{{ indexerStatus.recentFailures }} of the last {{ indexerStatus.recentCalls }} calls failed, {{ indexerStatus.recentSlowCalls }} were slow">{{ formatCircuitState(indexerStatus.circuitState) }}</span>\r\n        </td>\r\n        <td>\r\n            <span ng-if="indexerStatus.state === \'DISABLED_SYSTEM_TEMPORARY\'">{{ indexerStatus.disabledUntil | reformatDate}}</span>\r\n        </td>\r\n        <td class="indexer-status-reason">{{ indexerStatus.lastError }}</td>\r\n    </tr>\r\n    </tbody>\r\n</table>');
 $templateCache.put('static/html/states/login.html','<div class="container-fluid">\n    <div class="row">\n        <div class="center-form panel">\n            <div class="panel-body">\n                <h2 class="text-center">Log in</h2>\n                <form method="post" ng-submit="login()" name="loginForm">\n                    <div class="form-group has-feedback">\n                        <input class="form-control input-lg" type="text" name="username" ng-model="user.username"\n                               placeholder="Username" required autofocus auto-focus>\n                        <span class="ion-at form-control-feedback"></span>\n                    </div>\n                    <div class="form-group has-feedback">\n                        <input class="form-control input-lg" type="password" name="password" ng-model="user.password"\n                               placeholder="Password" required>\n                        <span class="ion-key form-control-feedback"></span>\n                    </div>\n                    <button type="submit" ng-disabled="loginForm.$invalid" class="btn btn-lg  btn-block btn-success">Log\n                        in\n                    </button>\n                    You will be forwarded to the search area.\n                </form>\n            </div>\n        </div>\n    </div>\n</div>\n');
 $templateCache.put('static/html/states/main-stats.html','<pattern id="diagonalHatch" patternUnits="userSpaceOnUse" width="4" height="4">\r\n    <path d="M-1,1 l2,-2\r\n           M0,4 l4,-4\r\n           M3,5 l2,-2"></path>\r\n</pattern>\r\n<div class="row" style="margin-top: 30px; margin-bottom: 30px">\r\n    <div class="col-md-6" style="font-size: x-small; text-align: justify; text-justify: auto">\r\n        Disclaimer: Don\'t read too much into these stats. Which indexer is picked for a download depends on its score\r\n        and some more or less random values like posting time of the NZB.\r\n        Some indexers might have nightly downtime which would influence the percentage of successful accesses.\r\n    </div>\r\n    <div class="col-md-4">\r\n        <p class="input-group">\r\n            <span class="input-group-addon" id="after-addon">After</span>\r\n            <input type="text" class="form-control" uib-datepicker-popup ng-model="afterDate" is-open="after.opened"\r\n                   datepicker-options="dateOptions" ng-required="true" close-text="Close"\r\n                   ng-keypress="onKeypress($event)"/>\r\n            <span class="input-group-btn input-group-btn2">\r\n            <button type="button" class="btn btn-default" ng-click="openAfter()"><i\r\n                    class="glyphicon glyphicon-calendar"></i></button>\r\n          </span>\r\n        </p>\r\n    </div>\r\n    <div class="col-md-4">\r\n        <p class="input-group">\r\n            <span class="input-group-addon" id="before-addon">Before</span>\r\n            <input type="text" class="form-control" uib-datepicker-popup ng-model="beforeDate" is-open="before.opened"\r\n                   datepicker-options="dateOptions" ng-required="true" close-text="Close"\r\n                   ng-keypress="onKeypress($event)"/>\r\n            <span class="input-group-btn input-group-btn2">\r\n            <button type="button" class="btn btn-default" ng-click="openBefore()"><i\r\n                    class="glyphicon glyphicon-calendar"></i></button>\r\n          </span>\r\n        </p>\r\n    </div>\r\n    <div class="col-md-3">\r\n        <label>Show disabled indexers</label>\r\n        <input bs-switch type="checkbox" ng-model="foo.includeDisabledIndexersInStats"\r\n               switch-change="toggleIncludeDisabledIndexers()" switch-size="mini"/>\r\n    </div>\r\n    <div class="col-md-3">\r\n        <button type="button" class="btn btn-info" ng-click="refresh()">Refresh</button>\r\n    </div>\r\n</div>\r\n\r\n\r\n<div cg-busy="{promise:statsLoadingPromise,message:\'Calculating stats\', delay:100}">\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                <input bs-switch type="checkbox" ng-model="foo.statsSwichState.avgResponseTimes" switch-size="mini"\r\n                       ng-change="onStatsSwitchToggle(\'avgResponseTimes\')">\r\n                </span>\r\n\r\n\r\n                Avg. response times <span class="glyphicon glyphicon-question-sign" tooltip-placement="auto top"\r\n                                          uib-tooltip="Response time is the time an API request takes, from start to completion of the web call"></span>\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.avgResponseTimes">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>Indexer</th>\r\n                        <th>Avg. response time</th>\r\n                        <th>Delta</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="avgResponseTime in stats.avgResponseTimes">\r\n                        <td>{{ avgResponseTime.indexer }}</td>\r\n                        <td>{{ avgResponseTime.avgResponseTime }}</td>\r\n                        <td>{{ avgResponseTime.delta }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart>\r\n                    <nvd3 options="avgResponseTimesChart.options" data="avgResponseTimesChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n\r\n        <div class="col-md-10 stat-box">\r\n            Indexer search stats are currently disabled due to performance issues. They will be reenabled in a later\r\n            version.\r\n            <!--\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time" tooltip-placement="auto top">\r\n                <input bs-switch type="checkbox" ng-model="foo.statsSwichState.avgIndexerSearchResultsShares" switch-size="mini" ng-change="onStatsSwitchToggle(\'avgIndexerSearchResultsShares\')">\r\n                </span>\r\n                Average results <span class="glyphicon glyphicon-question-sign" tooltip-placement="auto top"\r\n                                      uib-tooltip="How many results the indexer on average contributed to specific searches (i.e. update queries e.g. for the latest releases in a specific category are ignored)"></span>\r\n                and average unique results <span class="glyphicon glyphicon-question-sign" tooltip-placement="auto top-right"\r\n                                                 uib-tooltip-html="\'How many of the results the indexer contributed to searches were unique (only returned by this indexer). <br>Results from raw search engines are excluded because they would be misleading.\'"></span>\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.avgIndexerSearchResultsShares">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>Indexer</th>\r\n                        <th>Avg. results (%)\r\n                        </th>\r\n                        <th>Avg. unique results (%)</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="avgIndexerSearchResultsShare in stats.avgIndexerSearchResultsShares">\r\n                        <td>{{ avgIndexerSearchResultsShare.indexerName }}</td>\r\n                        <td>{{ avgIndexerSearchResultsShare.totalShare | number: 1}}</td>\r\n                        <td>{{ avgIndexerSearchResultsShare.uniqueShare | number: 1}}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n                <chart>\r\n                    <nvd3 options="resultsSharesChart.options" data="resultsSharesChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n-->\r\n        </div>\r\n    </div>\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                <input bs-switch type="checkbox" ng-model="foo.statsSwichState.indexerApiAccessStats" switch-size="mini"\r\n                       ng-change="onStatsSwitchToggle(\'indexerApiAccessStats\')">\r\n                </span>\r\n                <caption>Indexer API accesses <span class="glyphicon glyphicon-question-sign" tooltip-placement="top"\r\n                                                    uib-tooltip="An API access is considered failed only when the indexer could not be reached, not if auth was unsuccessful or Hydra had an unexpected error. The average calculation only spans the time since the first search with the indexer."></span>\r\n                </caption>\r\n            </div>\r\n            <table class="table" style="margin-top: 9px" ng-show="foo.statsSwichState.indexerApiAccessStats">\r\n                <thead>\r\n                <tr>\r\n                    <th>Indexer</th>\r\n                    <th>Avg. per day</th>\r\n                    <th>% successful</th>\r\n                    <th>% failed</th>\r\n                </tr>\r\n                </thead>\r\n                <tbody>\r\n                <tr ng-repeat="avgIndexerAccessSuccess in stats.indexerApiAccessStats">\r\n                    <td>{{ avgIndexerAccessSuccess.indexerName }}</td>\r\n                    <td>{{ avgIndexerAccessSuccess.averageAccessesPerDay | number: 0 }}</td>\r\n                    <td>{{ avgIndexerAccessSuccess.percentSuccessful | number: 0}}</td>\r\n                    <td>{{ avgIndexerAccessSuccess.percentConnectionError | number: 0 }}</td>\r\n                </tr>\r\n                </tbody>\r\n            </table>\r\n        </div>\r\n\r\n\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                <input bs-switch type="checkbox" ng-model="foo.statsSwichState.indexerDownloadShares" switch-size="mini"\r\n                       ng-change="onStatsSwitchToggle(\'indexerDownloadShares\')">\r\n                </span>\r\n                NZB downloads per indexer <span class="glyphicon glyphicon-question-sign" tooltip-placement="top"\r\n                                                uib-tooltip="Only downloads by enabled indexers are taken into account and displayed"></span></caption>\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.indexerDownloadShares">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>Indexer</th>\r\n                        <th>Total</th>\r\n                        <th>% of all enabled</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="indexerDownloads in stats.indexerDownloadShares">\r\n                        <td>{{ indexerDownloads.indexerName }}</td>\r\n                        <td>{{ indexerDownloads.total | number: 0}}</td>\r\n                        <td>{{ indexerDownloads.share | number: 0 }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart>\r\n                    <nvd3 options="indexerDownloadSharesChart.options" data="indexerDownloadSharesChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n\r\n\r\n        </div>\r\n    </div>\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                <input bs-switch type="checkbox" ng-model="foo.statsSwichState.downloadsPerAgeStats" switch-size="mini"\r\n                       ng-change="onStatsSwitchToggle(\'downloadsPerAgeStats\')">\r\n                </span>\r\n                NZB downloads per age (in 100 day steps, all downloads)\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.downloadsPerAgeStats">\r\n                <table class="table">\r\n                    <tbody>\r\n                    <tr>\r\n                        <td>Average age</td>\r\n                        <td>{{ stats.downloadsPerAgeStats.averageAge}}</td>\r\n                    </tr>\r\n                    <tr>\r\n                        <td>% older than 1000 days</td>\r\n                        <td>{{ stats.downloadsPerAgeStats.percentOlder1000 | number : 1}}</td>\r\n                    </tr>\r\n                    <tr>\r\n                        <td>% older than 2000 days</td>\r\n                        <td>{{ stats.downloadsPerAgeStats.percentOlder2000 | number : 1}}</td>\r\n                    </tr>\r\n                    <tr>\r\n                        <td>% older than 3000 days</td>\r\n                        <td>{{ stats.downloadsPerAgeStats.percentOlder3000 | number : 1}}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="downloadsPerAge">\r\n                    <nvd3 options="downloadsPerAgeChart.options" data="downloadsPerAgeChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                <input bs-switch type="checkbox" ng-model="foo.statsSwichState.successfulDownloadsPerIndexer"\r\n                       switch-size="mini" ng-change="onStatsSwitchToggle(\'successfulDownloadsPerIndexer\')">\r\n                    </span>\r\n                Successful downloads per indexer <span class="glyphicon glyphicon-question-sign" tooltip-placement="top"\r\n                                                       uib-tooltip="Only works if user scripts report the actual download result of a NZB\'s content. Shows percentage of successful downloads of all downloads with reported status."></span>\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.successfulDownloadsPerIndexer">\r\n                <table class="table">\r\n                    <thead>\r\n                    <th>Indexer</th>\r\n                    <th>% of successful downloads</th>\r\n                    <th># of all downloads</th>\r\n                    <th># of successful downloads</th>\r\n                    <th># of unsuccessful downloads</th>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.successfulDownloadsPerIndexer">\r\n                        <td>{{ stat.indexerName}}</td>\r\n                        <td>{{ stat.percentSuccessful | number : 1}}</td>\r\n                        <td>{{ stat.countAll | number : 0}}</td>\r\n                        <td>{{ stat.countSuccessful | number : 0}}</td>\r\n                        <td>{{ stat.countError | number : 0}}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="successfulDownloadsPerIndexerChart">\r\n                    <nvd3 options="successfulDownloadsPerIndexerChart.options"\r\n                          data="successfulDownloadsPerIndexerChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n\r\n        </div>\r\n    </div>\r\n\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.searchSharesPerUser"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'searchSharesPerUser\')">\r\n                    </span>\r\n\r\n                Searches per username\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.searchSharesPerUser">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>User</th>\r\n                        <th>Percentage</th>\r\n                        <th>Count</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.searchSharesPerUser">\r\n                        <td>{{ stat.key }}</td>\r\n                        <td>{{ stat.percentage | number : 1}}</td>\r\n                        <td>{{ stat.count }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="searchSharesPerUserChart">\r\n                    <nvd3 options="searchSharesPerUserChart.options" data="searchSharesPerUserChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.downloadSharesPerUser"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'downloadSharesPerUser\')">\r\n                </span>\r\n                Downloads per username\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.downloadSharesPerUser">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>User</th>\r\n                        <th>Percentage</th>\r\n                        <th>Count</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in downloadSharesPerUser">\r\n                        <td>{{ stat.user }}</td>\r\n                        <td>{{ stat.percentage | number : 1}}</td>\r\n                        <td>{{ stat.count}}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="downloadSharesPerUserChart">\r\n                    <nvd3 options="downloadSharesPerUserChart.options" data="downloadSharesPerUserChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n    </div>\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.searchSharesPerIp" switch-size="mini"\r\n                           ng-change="onStatsSwitchToggle(\'searchSharesPerIp\')">\r\n                    </span>\r\n\r\n                Searches per IP\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.searchSharesPerIp">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>IP</th>\r\n                        <th>Percentage</th>\r\n                        <th>Count</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.searchSharesPerIp">\r\n                        <td>{{ stat.key }}</td>\r\n                        <td>{{ stat.percentage | number : 1}}</td>\r\n                        <td>{{ stat.count }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="searchSharesPerIpChart">\r\n                    <nvd3 options="searchSharesPerIpChart.options" data="searchSharesPerIpChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.downloadSharesPerIp"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'downloadSharesPerIp\')">\r\n                </span>\r\n                Downloads per IP\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.downloadSharesPerIp">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>IP</th>\r\n                        <th>Percentage</th>\r\n                        <th>Count</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in downloadSharesPerIp">\r\n                        <td>{{ stat.key }}</td>\r\n                        <td>{{ stat.percentage | number : 1}}</td>\r\n                        <td>{{ stat.count}}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="downloadSharesPerIpChart">\r\n                    <nvd3 options="downloadSharesPerIpChart.options" data="downloadSharesPerIpChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n    </div>\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.userAgentSearchShares"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'userAgentSearchShares\')">\r\n                </span>\r\n                API Searches per user agent <span class="glyphicon glyphicon-question-sign" tooltip-placement="auto top"\r\n                                                  uib-tooltip="Some tools don\'t use specific user agents. They will most likely show up as \'Mozilla\' or as \'Other\'"></span>\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.userAgentSearchShares">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>User agent</th>\r\n                        <th>Percentage</th>\r\n                        <th>Count</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.userAgentSearchShares">\r\n                        <td>{{ stat.userAgent }}</td>\r\n                        <td>{{ stat.percentage | number : 1}}</td>\r\n                        <td>{{ stat.count }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="userAgentSearchSharesChart">\r\n                    <nvd3 options="userAgentSearchSharesChart.options" data="userAgentSearchSharesChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.userAgentDownloadShares"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'userAgentDownloadShares\')">\r\n                </span>\r\n                API downloads per user agent <span class="glyphicon glyphicon-question-sign"\r\n                                                   tooltip-placement="auto top"\r\n                                                   uib-tooltip="Some tools don\'t use specific user agents. They will most likely show up as \'Mozilla\' or as \'Other\'"></span>\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.userAgentDownloadShares">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>User agent</th>\r\n                        <th>Percentage</th>\r\n                        <th>Count</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.userAgentDownloadShares">\r\n                        <td>{{ stat.userAgent }}</td>\r\n                        <td>{{ stat.percentage | number : 1}}</td>\r\n                        <td>{{ stat.count }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="userAgentDownloadSharesChart">\r\n                    <nvd3 options="userAgentDownloadSharesChart.options"\r\n                          data="userAgentDownloadSharesChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n\r\n    </div>\r\n\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.searchesPerDayOfWeek"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'searchesPerDayOfWeek\')">\r\n                </span>\r\n                Searches per day of week\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.searchesPerDayOfWeek">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>Day of the week</th>\r\n                        <th>Searches</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.searchesPerDayOfWeek">\r\n                        <td>{{ stat.day }}</td>\r\n                        <td>{{ stat.count }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="weeklyChart">\r\n                    <nvd3 options="searchesPerDayOfWeekChart.options" data="searchesPerDayOfWeekChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.searchesPerHourOfDay"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'searchesPerHourOfDay\')">\r\n                </span>\r\n                Searches per hour of day\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.searchesPerHourOfDay">\r\n                <table>\r\n                    <table class="table">\r\n                        <thead>\r\n                        <tr>\r\n                            <th>Hour of the day</th>\r\n                            <th>Searches</th>\r\n                        </tr>\r\n                        </thead>\r\n                        <tbody>\r\n                        <tr ng-repeat="stat in stats.searchesPerHourOfDay">\r\n                            <td>{{ stat.hour }}</td>\r\n                            <td>{{ stat.count }}</td>\r\n                        </tr>\r\n                        </tbody>\r\n                    </table>\r\n                </table>\r\n\r\n                <chart class="dailyChart">\r\n                    <nvd3 options="searchesPerHourOfDayChart.options" data="searchesPerHourOfDayChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n\r\n        </div>\r\n    </div>\r\n\r\n\r\n    <div class="row">\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.downloadsPerDayOfWeek"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'downloadsPerDayOfWeek\')">\r\n                </span>\r\n                NZB downloads per day of week\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.downloadsPerDayOfWeek">\r\n                <table class="table">\r\n                    <thead>\r\n                    <tr>\r\n                        <th>Day of the week</th>\r\n                        <th>Downloads</th>\r\n                    </tr>\r\n                    </thead>\r\n                    <tbody>\r\n                    <tr ng-repeat="stat in stats.downloadsPerDayOfWeek">\r\n                        <td>{{ stat.day }}</td>\r\n                        <td>{{ stat.count }}</td>\r\n                    </tr>\r\n                    </tbody>\r\n                </table>\r\n\r\n                <chart class="weeklyChart">\r\n                    <nvd3 options="downloadsPerDayOfWeekChart.options" data="downloadsPerDayOfWeekChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n\r\n\r\n        <div class="col-md-10 stat-box">\r\n            <div class="caption">\r\n                <span uib-tooltip="Hiding a stat will disable its calculation and may improve overall loading time"\r\n                      tooltip-placement="auto top">\r\n                    <input bs-switch type="checkbox" ng-model="foo.statsSwichState.downloadsPerHourOfDay"\r\n                           switch-size="mini" ng-change="onStatsSwitchToggle(\'downloadsPerHourOfDay\')">\r\n                </span>\r\n                NZB downloads per hour of day\r\n            </div>\r\n            <tab-or-chart display="chart" ng-show="foo.statsSwichState.downloadsPerHourOfDay">\r\n                <table>\r\n                    <table class="table">\r\n                        <thead>\r\n                        <tr>\r\n                            <th>Hour of the day</th>\r\n                            <th>Downloads</th>\r\n                        </tr>\r\n                        </thead>\r\n                        <tbody>\r\n                        <tr ng-repeat="stat in stats.downloadsPerHourOfDay">\r\n                            <td>{{ stat.hour }}</td>\r\n                            <td>{{ stat.count }}</td>\r\n                        </tr>\r\n                        </tbody>\r\n                    </table>\r\n                </table>\r\n\r\n                <chart class="dailyChart">\r\n                    <nvd3 options="downloadsPerHourOfDayChart.options" data="downloadsPerHourOfDayChart.data"></nvd3>\r\n                </chart>\r\n            </tab-or-chart>\r\n        </div>\r\n    </div>\r\n\r\n\r\n</div>');
 $templateCache.put('static/html/states/search-history.html','<div id="content">\r\n    <div class="row" style="margin-top: 30px; margin-bottom: 20px">\r\n        <div class="col-md-5"></div>\r\n        <div class="col-md-10" style="text-align: center">\r\n            <dir-pagination-controls on-page-change="update()" pagination-id="searches"></dir-pagination-controls>\r\n        </div>\r\n    </div>\r\n    <table class="table">\r\n        <thead>\r\n        <tr>\r\n            <th class="col-md-2" style="width: {{columnSizes.time}}%;">\r\n                <column-sortable column="time" style="width: 10%" reversed="false" start-mode="2">Time\r\n                </column-sortable>\r\n                <column-filter-wrapper>\r\n                    <time-filter column="time" selected="preselectedTimeInterval"/>\r\n                </column-filter-wrapper>\r\n            </th>\r\n            <th class="col-md-8" style="width: {{columnSizes.query}}%">\r\n                <column-sortable column="query" reversed="false" start-mode="1">Query\r\n                </column-sortable>\r\n                <column-filter-wrapper>\r\n                    <freetext-filter column="query"/>\r\n                </column-filter-wrapper>\r\n            </th>\r\n            <th style="width: {{columnSizes.category}}%">\r\n                <column-sortable column="category_name" reversed="false" start-mode="1">Category\r\n                </column-sortable>\r\n                <column-filter-wrapper>\r\n                    <checkboxes-filter column="category_name" entries="categoriesForFiltering" preselect="true"\r\n                                       show-invert="true"/>\r\n                </column-filter-wrapper>\r\n            </th>\r\n            <th style="width: {{columnSizes.additionalParameters}}%">\r\n                Additional parameters\r\n            </th>\r\n            <th class="col-md-1" style="width: {{columnSizes.source}}%">\r\n                <column-sortable column="source" reversed="false" start-mode="1">Source\r\n                </column-sortable>\r\n                <column-filter-wrapper>\r\n                    <boolean-filter column="source" options="accessOptionsForFiltering" preselect="0"/>\r\n                </column-filter-wrapper>\r\n            </th>\r\n            <th class="col-md-2" style="width: {{columnSizes.username}}%" ng-if="columnSizes.username > 0">\r\n                <column-sortable column="username" reversed="false" start-mode="1">User</column-sortable>\r\n                <column-filter-wrapper>\r\n                    <freetext-filter column="username"/>\r\n                </column-filter-wrapper>\r\n            </th>\r\n            <th class="col-md-2" style="width: {{columnSizes.ip}}%" ng-if="columnSizes.ip > 0">\r\n                <column-sortable column="ip" reversed="false" start-mode="1">IP</column-sortable>\r\n                <column-filter-wrapper>\r\n                    <freetext-filter column="ip"/>\r\n                </column-filter-wrapper>\r\n            </th>\r\n            <th>Details</th>\r\n        </tr>\r\n        </thead>\r\n        <tbody>\r\n        <tr dir-paginate="request in searchRequests | itemsPerPage: limit" total-items="totalRequests"\r\n            current-page="pagination.current" pagination-id="searches">\r\n            <td class="narrow-row">{{ request.time | reformatDate }}</td>\r\n            <td class="narrow-row">\r\n                <a href="" ng-click="openSearch(request)"\r\n                   uib-tooltip="Repeat this search with all currently enabled indexers." tooltip-placement="top"\r\n                   tooltip-trigger="mouseenter"\r\n                ><span class="glyphicon glyphicon-search"></span></a>\r\n                <span ng-class="{\'history-title\': request.title != null || (request.query == null && request.identifiers.length === 0 && request.season ==null && request.episode ==null)}">\r\n                    {{ formatQuery(request) }}\r\n                </span>\r\n            </td>\r\n            <td class="narrow-row">{{ ::request.categoryName }}</td>\r\n            <td class="narrow-row" ng-bind-html="formatAdditional(request)"></td>\r\n            <td class="narrow-row">{{ ::request.source === "INTERNAL" ? "Internal" : "API"}}</td>\r\n            <td class="narrow-row" ng-if="columnSizes.username > 0">{{ ::request.username }}</td>\r\n            <td class="narrow-row" ng-if="columnSizes.ip > 0">{{ ::request.ip }}</td>\r\n            <td class="narrow-row"><span ng-click="showDetails(request.id)" class="glyphicon glyphicon-eye-open"></span>\r\n            </td>\r\n        </tr>\r\n        </tbody>\r\n    </table>\r\n    <dir-pagination-controls on-page-change="pageChanged(newPageNumber)"\r\n                             pagination-id="searches"></dir-pagination-controls>\r\n\r\n</div>');
@@ -0,0 +1,114 @@
+package org.nzbhydra.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nzbhydra.NzbHydra;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.config.SearchModuleType;
+import org.nzbhydra.indexers.IndexerApiAccessWriter;
+import org.nzbhydra.indexers.IndexerRepository;
+import org.nzbhydra.mapping.newznab.ActionAttribute;
+import org.nzbhydra.mapping.newznab.NewznabParameters;
+import org.nzbhydra.searching.SearchModuleConfigProvider;
+import org.nzbhydra.searching.SearchModuleProvider;
+import org.nzbhydra.searching.SearchRepository;
+import org.nzbhydra.searching.SearchResultPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Makes sure that cached API searches can be updated by the searcher in the background, i.e. outside of web requests.
+ */
+@SuppressWarnings("SpringJavaAutowiringInspection")
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = NzbHydra.class)
+@DataJpaTest
+//The searches are executed and saved by other threads which wouldn't see anything written in the test's transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class ApiSearchCacheComponentTest {
+
+    @Autowired
+    private ExternalApi externalApi;
+    @Autowired
+    private ApiSearchCache apiSearchCache;
+    @Autowired
+    private ConfigProvider configProvider;
+    @Autowired
+    private SearchModuleConfigProvider searchModuleConfigProvider;
+    @Autowired
+    private SearchModuleProvider searchModuleProvider;
+    @Autowired
+    private SearchResultPersister searchResultPersister;
+    @Autowired
+    private IndexerApiAccessWriter indexerApiAccessWriter;
+    @Autowired
+    private SearchRepository searchRepository;
+    @Autowired
+    private IndexerRepository indexerRepository;
+
+    @Before
+    public void setUp() {
+        IndexerConfig indexerConfig = new IndexerConfig();
+        indexerConfig.setName("cacheIndexer");
+        indexerConfig.setSearchModuleType(SearchModuleType.DEVONLY);
+        indexerConfig.setState(IndexerConfig.State.ENABLED);
+        indexerConfig.setHost("http://tworesults");
+        searchModuleConfigProvider.setIndexers(Collections.singletonList(indexerConfig));
+        searchModuleProvider.loadIndexers(Collections.singletonList(indexerConfig));
+        searchRepository.deleteAll();
+    }
+
+    @After
+    public void tearDown() {
+        apiSearchCache.clock = Clock.systemUTC();
+        searchResultPersister.flush();
+        indexerApiAccessWriter.flush();
+        searchModuleConfigProvider.setIndexers(Collections.emptyList());
+        searchModuleProvider.loadIndexers(Collections.emptyList());
+        searchRepository.deleteAll();
+        indexerRepository.deleteAll();
+    }
+
+    @Test
+    public void shouldRefreshCachedSearchInBackground() throws Exception {
+        NewznabParameters params = new NewznabParameters();
+        params.setT(ActionAttribute.SEARCH);
+        params.setQ("cachedsearch");
+        params.setCachetime(1);
+        params.setApikey(configProvider.getBaseConfig().getMain().getApiKey());
+        Instant now = Instant.now();
+        apiSearchCache.clock = Clock.fixed(now, ZoneId.of("UTC"));
+
+        externalApi.api(params);
+        assertThat(searchRepository.count()).isEqualTo(1);
+
+        //Cache time exceeded: The cached response is returned and the search executed again by the refresh thread
+        apiSearchCache.clock = Clock.fixed(now.plus(Duration.ofSeconds(90)), ZoneId.of("UTC"));
+        long refreshes = (Long) apiSearchCache.getMetrics().get("refreshes");
+        long failedRefreshes = (Long) apiSearchCache.getMetrics().get("failedRefreshes");
+        externalApi.api(params);
+
+        for (int i = 0; i < 100 && apiSearchCache.getMetrics().get("refreshes").equals(refreshes) && apiSearchCache.getMetrics().get("failedRefreshes").equals(failedRefreshes); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(apiSearchCache.getMetrics().get("failedRefreshes")).isEqualTo(failedRefreshes);
+        assertThat(apiSearchCache.getMetrics().get("refreshes")).isEqualTo(refreshes + 1);
+        assertThat(searchRepository.count()).isEqualTo(2);
+    }
+
+}
@@ -0,0 +1,189 @@
+package org.nzbhydra.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.mapping.newznab.NewznabResponse;
+
+import java.time.Clock;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.when;
+
+public class ApiSearchCacheTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    private BaseConfig baseConfig = new BaseConfig();
+
+    private ApiSearchCache testee;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getSearching().setApiCacheSizeMb(1);
+        testee = new ApiSearchCache(configProviderMock);
+        testee.init();
+        testee.clock = Clock.fixed(Clock.systemUTC().instant(), ZoneId.of("UTC"));
+    }
+
+    @After
+    public void tearDown() {
+        testee.onShutdown(null);
+    }
+
+    @Test
+    public void shouldReturnCachedResponse() {
+        AtomicInteger searches = new AtomicInteger();
+        NewznabResponse first = testee.get(1, 5, countingSearch(searches, 10));
+        NewznabResponse second = testee.get(1, 5, countingSearch(searches, 10));
+
+        assertThat(second).isSameAs(first);
+        assertThat(searches.get()).isEqualTo(1);
+        assertThat(testee.getMetrics().get("hits")).isEqualTo(1L);
+        assertThat(testee.getMetrics().get("misses")).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldEvictLeastRecentlyUsedWhenSizeLimitReached() {
+        AtomicInteger searches = new AtomicInteger();
+        //Every response is estimated at about 200KB, so 5 fit into 1MB
+        int items = 100;
+        for (int i = 1; i <= 5; i++) {
+            testee.get(i, 5, countingSearch(searches, items));
+        }
+        assertThat(searches.get()).isEqualTo(5);
+
+        //Use 1 so that 2 is the least recently used entry
+        testee.get(1, 5, countingSearch(searches, items));
+        assertThat(searches.get()).isEqualTo(5);
+
+        testee.get(6, 5, countingSearch(searches, items));
+        assertThat(searches.get()).isEqualTo(6);
+        assertThat(testee.getMetrics().get("evictions")).isEqualTo(1L);
+
+        testee.get(1, 5, countingSearch(searches, items));
+        assertThat(searches.get()).isEqualTo(6);
+        testee.get(2, 5, countingSearch(searches, items));
+        assertThat(searches.get()).isEqualTo(7);
+    }
+
+    @Test
+    public void shouldExecuteConcurrentSearchesOnlyOnce() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        CountDownLatch finishSearch = new CountDownLatch(1);
+        Supplier<NewznabResponse> search = () -> {
+            searches.incrementAndGet();
+            searchStarted.countDown();
+            try {
+                finishSearch.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response(10);
+        };
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<NewznabResponse>> futures = new ArrayList<>();
+            futures.add(executor.submit(() -> testee.get(1, 5, search)));
+            searchStarted.await(5, TimeUnit.SECONDS);
+            for (int i = 0; i < 3; i++) {
+                futures.add(executor.submit(() -> testee.get(1, 5, search)));
+            }
+            //Wait until all callers wait for the running search
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while ((Long) testee.getMetrics().get("coalesced") < 3 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            finishSearch.countDown();
+
+            NewznabResponse response = futures.get(0).get(5, TimeUnit.SECONDS);
+            for (Future<NewznabResponse> future : futures) {
+                assertThat(future.get(5, TimeUnit.SECONDS)).isSameAs(response);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(searches.get()).isEqualTo(1);
+        assertThat(testee.getMetrics().get("coalesced")).isEqualTo(3L);
+    }
+
+    @Test
+    public void shouldNotCacheFailedSearch() {
+        try {
+            testee.get(1, 5, () -> {
+                throw new RuntimeException("failed");
+            });
+            fail("Exception expected");
+        } catch (RuntimeException e) {
+            assertThat(e.getMessage()).isEqualTo("failed");
+        }
+
+        AtomicInteger searches = new AtomicInteger();
+        testee.get(1, 5, countingSearch(searches, 10));
+        assertThat(searches.get()).isEqualTo(1);
+        assertThat(testee.getMetrics().get("runningSearches")).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldReturnStaleResponseAndRefreshInBackground() throws Exception {
+        AtomicInteger searches = new AtomicInteger();
+        NewznabResponse first = testee.get(1, 5, countingSearch(searches, 10));
+
+        testee.clock = Clock.fixed(testee.clock.instant().plus(6, ChronoUnit.MINUTES), ZoneId.of("UTC"));
+        NewznabResponse stale = testee.get(1, 5, countingSearch(searches, 10));
+        assertThat(stale).isSameAs(first);
+
+        long waitUntil = System.currentTimeMillis() + 5000;
+        NewznabResponse refreshed = first;
+        while (refreshed == first && System.currentTimeMillis() < waitUntil) {
+            Thread.sleep(10);
+            refreshed = testee.get(1, 5, countingSearch(searches, 10));
+        }
+        assertThat(refreshed).isNotSameAs(first);
+        assertThat(searches.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldRepeatSearchWhenResponseIsTooOld() {
+        AtomicInteger searches = new AtomicInteger();
+        NewznabResponse first = testee.get(1, 5, countingSearch(searches, 10));
+
+        testee.clock = Clock.fixed(testee.clock.instant().plus(11, ChronoUnit.MINUTES), ZoneId.of("UTC"));
+        NewznabResponse second = testee.get(1, 5, countingSearch(searches, 10));
+        assertThat(second).isNotSameAs(first);
+        assertThat(searches.get()).isEqualTo(2);
+    }
+
+    private Supplier<NewznabResponse> countingSearch(AtomicInteger searches, int numberOfItems) {
+        return () -> {
+            searches.incrementAndGet();
+            return response(numberOfItems);
+        };
+    }
+
+    private NewznabResponse response(int numberOfItems) {
+        return new StreamedNewznabResponse("application/xml", "newznab", numberOfItems, (outputStream, formatted) -> {
+        });
+    }
+
+}
@@ -0,0 +1,91 @@
+package org.nzbhydra.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
+import org.nzbhydra.api.CapsGenerator.CachedCapsResponse;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.mapping.newznab.OutputType;
+import org.nzbhydra.mapping.newznab.caps.CapsCategory;
+import org.nzbhydra.web.PooledJaxbMarshaller;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class CapsGeneratorTest {
+
+    @Mock
+    private ConfigProvider configProviderMock;
+    @Spy
+    private PooledJaxbMarshaller marshaller = new PooledJaxbMarshaller(true);
+    @Spy
+    private ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    @InjectMocks
+    private CapsGenerator testee = new CapsGenerator();
+
+    private BaseConfig baseConfig = new BaseConfig();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getCategoriesConfig().setCategories(new ArrayList<>(Arrays.asList(
+                category("Movies", 2000),
+                category("Movies HD", 2040, 2050),
+                category("TV SD", 5030),
+                category("Ebook", 7020, 8010)
+        )));
+    }
+
+    @Test
+    public void shouldCreateCategoriesFromConfig() {
+        List<CapsCategory> capsCategories = CapsGenerator.createCapsCategories(baseConfig.getCategoriesConfig().getCategories());
+
+        assertThat(capsCategories).extracting(CapsCategory::getId).containsExactly(2000, 5000, 7000, 8000);
+        assertThat(capsCategories).extracting(CapsCategory::getName).containsExactly("Movies", "TV", "Books", "Other");
+        assertThat(capsCategories.get(0).getSubCategories()).extracting(CapsCategory::getId).containsExactly(2040, 2050);
+        assertThat(capsCategories.get(0).getSubCategories()).extracting(CapsCategory::getName).containsExactly("Movies HD", "Movies HD");
+        assertThat(capsCategories.get(1).getSubCategories()).extracting(CapsCategory::getName).containsExactly("TV SD");
+        assertThat(capsCategories.get(3).getSubCategories()).extracting(CapsCategory::getId).containsExactly(8010);
+    }
+
+    @Test
+    public void shouldCacheCapsUntilConfigChanged() {
+        CachedCapsResponse xml = testee.getCaps(OutputType.XML);
+        String xmlString = new String(xml.getBody(), StandardCharsets.UTF_8);
+        assertThat(xmlString).contains("<caps ");
+        assertThat(xmlString).contains("<subcat id=\"2040\" name=\"Movies HD\"/>");
+        assertThat(new String(testee.getCaps(OutputType.JSON).getBody(), StandardCharsets.UTF_8)).contains("\"server\"");
+
+        assertThat(testee.getCaps(OutputType.XML)).isSameAs(xml);
+        assertThat(testee.getCaps(OutputType.JSON).getEtag()).isNotEqualTo(xml.getEtag());
+
+        baseConfig.getCategoriesConfig().getCategories().add(category("XXX", 6000));
+        assertThat(testee.getCaps(OutputType.XML)).isSameAs(xml);
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, baseConfig));
+        CachedCapsResponse newXml = testee.getCaps(OutputType.XML);
+        assertThat(new String(newXml.getBody(), StandardCharsets.UTF_8)).contains("<category id=\"6000\" name=\"XXX\"");
+        assertThat(newXml.getEtag()).isNotEqualTo(xml.getEtag());
+    }
+
+    private Category category(String name, Integer... newznabCategories) {
+        Category category = new Category(name);
+        category.setNewznabCategories(Arrays.asList(newznabCategories));
+        return category;
+    }
+
+}
@@ -7,6 +7,7 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.nzbhydra.api.CapsGenerator.CachedCapsResponse;
 import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
@@ -16,8 +17,6 @@ import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.mapping.newznab.ActionAttribute;
 import org.nzbhydra.mapping.newznab.NewznabParameters;
 import org.nzbhydra.mapping.newznab.OutputType;
-import org.nzbhydra.mapping.newznab.json.NewznabJsonRoot;
-import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
 import org.nzbhydra.misc.UserAgentMapper;
 import org.nzbhydra.searching.CategoryProvider;
 import org.nzbhydra.searching.SearchResult;
@@ -26,18 +25,24 @@ import org.nzbhydra.searching.Searcher;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.nzbhydra.searching.searchrequests.SearchRequestFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
 
 import javax.xml.transform.stream.StreamResult;
 import java.time.Clock;
 import java.time.ZoneId;
 import java.time.temporal.ChronoUnit;
+import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.Mockito.*;
 
@@ -71,7 +76,12 @@ public class ExternalApiTest {
     private NewznabJsonTransformer newznabJsonTransformerMock;
     @Mock
     private Jaxb2Marshaller jaxb2MarshallerMock;
+    @Mock
+    private CapsGenerator capsGeneratorMock;
+    @Mock
+    private RssFeedPrefetcher rssFeedPrefetcherMock;
     IndexerConfig indexerConfig = new IndexerConfig();
+    private ApiSearchCache apiSearchCache;
 
 
     @Before
@@ -98,6 +108,9 @@ public class ExternalApiTest {
             }
         }).when(jaxb2MarshallerMock).marshal(any(), any());
         when(indexerMock.getConfig()).thenReturn(indexerConfig);
+        apiSearchCache = new ApiSearchCache(configProvider);
+        apiSearchCache.init();
+        testee.apiSearchCache = apiSearchCache;
     }
 
     @Test
@@ -115,6 +128,19 @@ public class ExternalApiTest {
         verify(searcher, times(1)).search(any());
     }
 
+    @Test
+    public void shouldUsePrefetchedRssFeed() throws Exception {
+        NewznabParameters parameters = new NewznabParameters();
+        parameters.setApikey("apikey");
+        parameters.setT(ActionAttribute.TVSEARCH);
+        SearchResult prefetchedSearchResult = new SearchResult();
+        when(rssFeedPrefetcherMock.getPrefetchedResult(any(), anyBoolean())).thenReturn(Optional.of(new RssFeedPrefetcher.PrefetchedResult(prefetchedSearchResult, new SearchRequest(SearchSource.API, SearchType.TVSEARCH, 0, 100))));
+
+        testee.api(parameters);
+
+        verify(searcher, never()).search(any());
+    }
+
     @Test
     public void shouldRepeatSearchWhenCacheTimeIsOver() throws Exception {
         NewznabParameters parameters = new NewznabParameters();
@@ -129,50 +155,42 @@ public class ExternalApiTest {
         testee.api(parameters);
         verify(searcher, times(1)).search(any());
 
-        testee.clock = Clock.fixed(testee.clock.instant().plus(6, ChronoUnit.MINUTES), ZoneId.of("UTC"));
+        //Older than twice the cache time, search is repeated before returning
+        apiSearchCache.clock = Clock.fixed(apiSearchCache.clock.instant().plus(11, ChronoUnit.MINUTES), ZoneId.of("UTC"));
         testee.api(parameters);
         verify(searcher, times(2)).search(any());
     }
 
     @Test
-    public void shouldCacheRemoveEntriesWhenLimitReached() throws Exception {
-        NewznabParameters parameters = getNewznabParameters("q1");
+    public void shouldReturnCachedResultAndRepeatSearchInBackgroundWhenCacheTimeIsSlightlyOver() throws Exception {
+        NewznabParameters parameters = getNewznabParameters("q");
 
         testee.api(parameters);
         verify(searcher).search(any());
 
+        apiSearchCache.clock = Clock.fixed(apiSearchCache.clock.instant().plus(6, ChronoUnit.MINUTES), ZoneId.of("UTC"));
         testee.api(parameters);
-        verify(searcher, times(1)).search(any());
+        verify(searcher, timeout(5000).times(2)).search(any());
+        assertThat(apiSearchCache.getMetrics().get("staleHits")).isEqualTo(1L);
+    }
 
-        parameters.setQ("q2");
-        testee.api(getNewznabParameters("q2"));
+    @Test
+    public void shouldUseConfiguredCacheTime() throws Exception {
+        NewznabParameters parameters = getNewznabParameters("q");
+        parameters.setCachetime(null);
+
+        testee.api(parameters);
+        testee.api(parameters);
         verify(searcher, times(2)).search(any());
-        parameters.setQ("q3");
-        testee.api(getNewznabParameters("q3"));
+
+        baseConfig.getSearching().setApiCacheTimeMinutes(5);
+        testee.api(parameters);
+        testee.api(parameters);
         verify(searcher, times(3)).search(any());
-        parameters.setQ("q4");
-        testee.api(getNewznabParameters("q4"));
-        verify(searcher, times(4)).search(any());
-        parameters.setQ("q5");
-        testee.api(getNewznabParameters("q5"));
-        verify(searcher, times(5)).search(any());
-
-        //q1 is still cached
-        testee.api(getNewznabParameters("q1"));
-        verify(searcher, times(5)).search(any());
-
-        //now q1 is removed as oldest entry
-        testee.api(getNewznabParameters("q6"));
-        verify(searcher, times(6)).search(any());
-        //Not cached anymore, will do another search
-        testee.api(getNewznabParameters("q1"));
-        verify(searcher, times(7)).search(any());
     }
 
     @Test
     public void shouldUseCorrectHeaders() throws Exception {
-        NewznabJsonRoot jsonRoot = new NewznabJsonRoot();
-        when(newznabJsonTransformerMock.transformToRoot(any(), any(), anyInt(), any())).thenReturn(jsonRoot);
         NewznabParameters parameters = new NewznabParameters();
         parameters.setQ("q1");
         parameters.setApikey("apikey");
@@ -182,15 +200,37 @@ public class ExternalApiTest {
         ResponseEntity<?> responseEntity = testee.api(parameters);
         assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_JSON_UTF8);
 
-        NewznabXmlRoot xmlRoot = new NewznabXmlRoot();
-        when(newznabXmlTransformerMock.getRssRoot(any(), any(), anyInt(), any())).thenReturn(xmlRoot);
-
         parameters.setO(OutputType.XML);
         responseEntity = testee.api(parameters);
         assertThat(responseEntity.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_XML);
     }
 
 
+    @Test
+    public void shouldReturnNotModifiedCapsWhenEtagMatches() throws Exception {
+        CachedCapsResponse caps = new CachedCapsResponse("<caps/>".getBytes());
+        when(capsGeneratorMock.getCaps(any())).thenReturn(caps);
+        NewznabParameters parameters = new NewznabParameters();
+        parameters.setApikey("apikey");
+        parameters.setT(ActionAttribute.CAPS);
+
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        try {
+            ResponseEntity<?> responseEntity = testee.api(parameters);
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(responseEntity.getBody()).isEqualTo(caps.getBody());
+            assertThat(responseEntity.getHeaders().getETag()).isEqualTo(caps.getEtag());
+
+            request.addHeader(HttpHeaders.IF_NONE_MATCH, caps.getEtag());
+            responseEntity = testee.api(parameters);
+            assertThat(responseEntity.getStatusCode()).isEqualTo(HttpStatus.NOT_MODIFIED);
+            assertThat(responseEntity.getBody()).isNull();
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
     protected NewznabParameters getNewznabParameters(String q1) {
         NewznabParameters parameters = new NewznabParameters();
         parameters.setQ(q1);
@@ -16,12 +16,88 @@
 
 package org.nzbhydra.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
 import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.downloading.FileHandler;
+import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.searching.DownloadType;
+import org.nzbhydra.searching.SearchResultItem;
+import org.nzbhydra.searching.SearchType;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.when;
 
 public class NewznabJsonTransformerTest {
 
+    @Mock
+    private FileHandler nzbHandler;
+    @Mock
+    private ConfigProvider configProvider;
+    @Mock
+    private Indexer indexerMock;
+
     @InjectMocks
     private NewznabJsonTransformer testee = new NewznabJsonTransformer();
 
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(configProvider.getBaseConfig()).thenReturn(new BaseConfig());
+        IndexerConfig indexerConfig = new IndexerConfig();
+        indexerConfig.setHost("http://127.0.0.1");
+        when(indexerMock.getConfig()).thenReturn(indexerConfig);
+        when(indexerMock.getName()).thenReturn("indexer");
+        when(nzbHandler.getDownloadLink(any(), anyBoolean(), any())).thenAnswer(x -> "http://127.0.0.1/getnzb/" + x.getArgument(0));
+    }
+
+    @Test
+    public void shouldWriteSameJsonAsObjectMapper() throws Exception {
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SearchResultItem searchResultItem = new SearchResultItem();
+            searchResultItem.setIndexer(indexerMock);
+            searchResultItem.setCategory(new Category("category"));
+            searchResultItem.setTitle("title \"" + i);
+            searchResultItem.setSearchResultId((long) i);
+            searchResultItem.setSize(1000L * i);
+            searchResultItem.setPubDate(Instant.ofEpochSecond(1500000000L + i));
+            items.add(searchResultItem);
+        }
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100);
+        searchRequest.setDownloadType(DownloadType.NZB);
+        ObjectMapper objectMapper = new ObjectMapper();
+        String expected = objectMapper.writeValueAsString(testee.transformToRoot(items, 10, 100, searchRequest));
+
+        for (boolean formatted : new boolean[]{true, false}) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            testee.writeJson(items, 10, 100, searchRequest, formatted, outputStream);
+            String json = outputStream.toString("UTF-8");
+
+            JsonNode written = objectMapper.readTree(json);
+            assertThat(written).isEqualTo(objectMapper.readTree(expected));
+            assertThat(written.get("channel").get("item").size()).isEqualTo(3);
+            assertThat(json.contains("\n")).isEqualTo(formatted);
+            //Order of properties must be kept
+            assertThat(json.replaceAll("\\s", "")).isEqualTo(expected.replaceAll("\\s", ""));
+        }
+    }
 
-}
\ No newline at end of file
+}
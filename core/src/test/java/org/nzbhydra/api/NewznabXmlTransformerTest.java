@@ -25,14 +25,25 @@ import org.nzbhydra.config.*;
 import org.nzbhydra.downloading.FileHandler;
 import org.nzbhydra.indexers.Indexer;
 import org.nzbhydra.mapping.newznab.xml.NewznabXmlItem;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
 import org.nzbhydra.searching.DownloadType;
 import org.nzbhydra.searching.SearchResult;
 import org.nzbhydra.searching.SearchResultItem;
 import org.nzbhydra.searching.SearchType;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+import org.nzbhydra.web.PooledJaxbMarshaller;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.Mockito.when;
 
 public class NewznabXmlTransformerTest {
@@ -88,4 +99,40 @@ public class NewznabXmlTransformerTest {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldWriteSameRssAsJaxb() throws Exception {
+        when(nzbHandler.getDownloadLink(any(), anyBoolean(), any())).thenAnswer(x -> "http://127.0.0.1/getnzb/" + x.getArgument(0));
+        when(indexerMock.getName()).thenReturn("indexer");
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            SearchResultItem searchResultItem = new SearchResultItem();
+            searchResultItem.setIndexer(indexerMock);
+            searchResultItem.setCategory(new Category("category"));
+            searchResultItem.setTitle("title <&> " + i);
+            searchResultItem.setSearchResultId((long) i);
+            searchResultItem.setSize(1000L * i);
+            searchResultItem.setPubDate(Instant.ofEpochSecond(1500000000L + i));
+            searchResultItem.setDescription(i == 0 ? null : "description");
+            searchResultItem.getAttributes().put("size", String.valueOf(1000L * i));
+            items.add(searchResultItem);
+        }
+        PooledJaxbMarshaller marshaller = new PooledJaxbMarshaller(false);
+
+        for (DownloadType downloadType : DownloadType.values()) {
+            SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100);
+            searchRequest.setDownloadType(downloadType);
+            NewznabXmlRoot expected = testee.getRssRoot(items, 10, 100, searchRequest);
+            for (boolean formatted : new boolean[]{true, false}) {
+                ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+                testee.writeRss(items, 10, 100, searchRequest, downloadType == DownloadType.TORRENT, formatted, outputStream);
+                String xml = outputStream.toString("UTF-8");
+
+                NewznabXmlRoot written = (NewznabXmlRoot) marshaller.unmarshal(new StreamSource(new StringReader(xml)));
+                assertThat(written).as(downloadType + ", formatted: " + formatted).isEqualTo(expected);
+                assertThat(xml.contains("\n    <channel>")).isEqualTo(formatted);
+                assertThat(xml).contains(downloadType == DownloadType.TORRENT ? "<torznab:attr" : "<newznab:attr");
+            }
+        }
+    }
+
+}
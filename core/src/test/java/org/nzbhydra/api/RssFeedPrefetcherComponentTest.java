@@ -0,0 +1,105 @@
+package org.nzbhydra.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nzbhydra.NzbHydra;
+import org.nzbhydra.api.RssFeedPrefetcher.PrefetchedResult;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.config.SearchModuleType;
+import org.nzbhydra.indexers.IndexerApiAccessWriter;
+import org.nzbhydra.indexers.IndexerRepository;
+import org.nzbhydra.mapping.newznab.ActionAttribute;
+import org.nzbhydra.mapping.newznab.NewznabParameters;
+import org.nzbhydra.searching.SearchModuleConfigProvider;
+import org.nzbhydra.searching.SearchModuleProvider;
+import org.nzbhydra.searching.SearchRepository;
+import org.nzbhydra.searching.SearchResultPersister;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Makes sure that feeds can be polled by the searcher outside of web requests, i.e. by the task scheduler.
+ */
+@SuppressWarnings("SpringJavaAutowiringInspection")
+@RunWith(SpringRunner.class)
+@SpringBootTest(classes = NzbHydra.class)
+@DataJpaTest
+//The searches are executed and saved by other threads which wouldn't see anything written in the test's transaction
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+public class RssFeedPrefetcherComponentTest {
+
+    @Autowired
+    private RssFeedPrefetcher rssFeedPrefetcher;
+    @Autowired
+    private ConfigProvider configProvider;
+    @Autowired
+    private SearchModuleConfigProvider searchModuleConfigProvider;
+    @Autowired
+    private SearchModuleProvider searchModuleProvider;
+    @Autowired
+    private SearchResultPersister searchResultPersister;
+    @Autowired
+    private IndexerApiAccessWriter indexerApiAccessWriter;
+    @Autowired
+    private SearchRepository searchRepository;
+    @Autowired
+    private IndexerRepository indexerRepository;
+
+    private ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    @Before
+    public void setUp() {
+        IndexerConfig indexerConfig = new IndexerConfig();
+        indexerConfig.setName("rssIndexer");
+        indexerConfig.setSearchModuleType(SearchModuleType.DEVONLY);
+        indexerConfig.setState(IndexerConfig.State.ENABLED);
+        indexerConfig.setHost("http://tworesults");
+        searchModuleConfigProvider.setIndexers(Collections.singletonList(indexerConfig));
+        searchModuleProvider.loadIndexers(Collections.singletonList(indexerConfig));
+        configProvider.getBaseConfig().getSearching().setPrefetchRssFeeds(true);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+        configProvider.getBaseConfig().getSearching().setPrefetchRssFeeds(false);
+        searchResultPersister.flush();
+        indexerApiAccessWriter.flush();
+        searchModuleConfigProvider.setIndexers(Collections.emptyList());
+        searchModuleProvider.loadIndexers(Collections.emptyList());
+        searchRepository.deleteAll();
+        indexerRepository.deleteAll();
+    }
+
+    @Test
+    public void shouldPollFeedInBackgroundThread() throws Exception {
+        NewznabParameters params = new NewznabParameters();
+        params.setT(ActionAttribute.SEARCH);
+        assertThat(rssFeedPrefetcher.getPrefetchedResult(params, false)).isEqualTo(Optional.empty());
+
+        //Like the task scheduler: No web request is bound to the thread
+        executor.submit(rssFeedPrefetcher::prefetch).get(30, TimeUnit.SECONDS);
+
+        assertThat(rssFeedPrefetcher.getMetrics().get("failedPolls")).isEqualTo(0L);
+        Optional<PrefetchedResult> result = rssFeedPrefetcher.getPrefetchedResult(params, false);
+        assertThat(result.isPresent()).isTrue();
+        assertThat(result.get().getSearchResult().getSearchResultItems()).hasSize(2);
+    }
+
+}
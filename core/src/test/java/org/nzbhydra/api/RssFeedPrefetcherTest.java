@@ -0,0 +1,218 @@
+package org.nzbhydra.api;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.api.RssFeedPrefetcher.PrefetchedResult;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.mapping.newznab.ActionAttribute;
+import org.nzbhydra.mapping.newznab.NewznabParameters;
+import org.nzbhydra.searching.CategoryProvider;
+import org.nzbhydra.searching.DownloadType;
+import org.nzbhydra.searching.SearchResult;
+import org.nzbhydra.searching.SearchResultItem;
+import org.nzbhydra.searching.SearchType;
+import org.nzbhydra.searching.Searcher;
+import org.nzbhydra.searching.searchrequests.SearchRequest;
+import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
+import org.nzbhydra.searching.searchrequests.SearchRequestFactory;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RssFeedPrefetcherTest {
+
+    @Mock
+    private ConfigProvider configProvider;
+    @Mock
+    private Searcher searcher;
+    @Mock
+    private SearchRequestFactory searchRequestFactory;
+    @Mock
+    private CategoryProvider categoryProvider;
+    @InjectMocks
+    private RssFeedPrefetcher testee = new RssFeedPrefetcher();
+
+    private BaseConfig baseConfig = new BaseConfig();
+    private Instant now = Instant.now();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        when(configProvider.getBaseConfig()).thenReturn(baseConfig);
+        baseConfig.getSearching().setPrefetchRssFeeds(true);
+        when(searchRequestFactory.getSearchRequest(any(), any(), any(), anyLong(), any(), any())).thenAnswer(x -> new SearchRequest(SearchSource.API, x.getArgument(0), 0, 100));
+        setTime(now);
+    }
+
+    @Test
+    public void shouldAnswerRssSearchesFromPolledFeed() {
+        NewznabParameters params = rssParams();
+        params.setCat(Arrays.asList(5040, 5030));
+        assertThat(testee.getPrefetchedResult(params, false)).isEqualTo(Optional.empty());
+
+        when(searcher.search(any())).thenReturn(searchResult(item(1L, 10), item(2L, 20)));
+        testee.prefetch();
+
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+        verify(searcher).search(requestCaptor.capture());
+        assertThat(requestCaptor.getValue().getSearchType()).isEqualTo(SearchType.TVSEARCH);
+        assertThat(requestCaptor.getValue().getDownloadType()).isEqualTo(DownloadType.NZB);
+        assertThat(requestCaptor.getValue().getInternalData().getNewznabCategories()).containsExactly(5030, 5040);
+
+        //Same categories in different order use the same feed
+        params.setCat(Arrays.asList(5030, 5040));
+        Optional<PrefetchedResult> result = testee.getPrefetchedResult(params, false);
+        assertThat(result.isPresent()).isTrue();
+        assertThat(result.get().getSearchResult().getSearchResultItems()).extracting(SearchResultItem::getSearchResultId).containsExactly(1L, 2L);
+
+        //Torznab searches use their own feed
+        assertThat(testee.getPrefetchedResult(params, true)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void shouldMergeResultsOfPolls() {
+        NewznabParameters params = rssParams();
+        params.setLimit(2);
+        testee.getPrefetchedResult(params, false);
+
+        when(searcher.search(any())).thenReturn(searchResult(item(2L, 20), item(3L, 30)));
+        testee.prefetch();
+        when(searcher.search(any())).thenReturn(searchResult(item(1L, 10), item(2L, 20)));
+        setTime(now.plus(10, ChronoUnit.MINUTES));
+        testee.prefetch();
+
+        Optional<PrefetchedResult> result = testee.getPrefetchedResult(params, false);
+        assertThat(result.get().getSearchResult().getSearchResultItems()).extracting(SearchResultItem::getSearchResultId).containsExactly(1L, 2L);
+        assertThat(result.get().getSearchResult().getNumberOfTotalAvailableResults()).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldPollInConfiguredInterval() {
+        baseConfig.getSearching().setPrefetchRssFeedsIntervalMinutes(15);
+        testee.getPrefetchedResult(rssParams(), false);
+        when(searcher.search(any())).thenReturn(searchResult(item(1L, 10)));
+
+        testee.prefetch();
+        setTime(now.plus(14, ChronoUnit.MINUTES));
+        testee.prefetch();
+        verify(searcher, times(1)).search(any());
+
+        setTime(now.plus(15, ChronoUnit.MINUTES));
+        testee.prefetch();
+        verify(searcher, times(2)).search(any());
+    }
+
+    @Test
+    public void shouldFillFeedWithResultsOfFirstSearch() {
+        NewznabParameters params = rssParams();
+        assertThat(testee.getPrefetchedResult(params, false)).isEqualTo(Optional.empty());
+
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.TVSEARCH, 0, 100);
+        testee.addSearchResults(params, false, searchResult(item(1L, 10), item(2L, 20)), searchRequest);
+
+        Optional<PrefetchedResult> result = testee.getPrefetchedResult(params, false);
+        assertThat(result.isPresent()).isTrue();
+        assertThat(result.get().getSearchRequest()).isSameAs(searchRequest);
+        assertThat(result.get().getSearchResult().getSearchResultItems()).extracting(SearchResultItem::getSearchResultId).containsExactly(1L, 2L);
+
+        //Results of searches for unregistered feeds are ignored
+        testee.addSearchResults(params, true, searchResult(item(3L, 10)), searchRequest);
+        assertThat(testee.getPrefetchedResult(params, true)).isEqualTo(Optional.empty());
+    }
+
+    @Test
+    public void shouldOnlyAnswerUnrestrictedSearches() {
+        NewznabParameters params = rssParams();
+        params.setQ("query");
+        assertThat(RssFeedPrefetcher.isRssSearch(params)).isFalse();
+
+        params = rssParams();
+        params.setTvdbid("123");
+        assertThat(RssFeedPrefetcher.isRssSearch(params)).isFalse();
+
+        params = rssParams();
+        params.setSeason(1);
+        assertThat(RssFeedPrefetcher.isRssSearch(params)).isFalse();
+
+        params = rssParams();
+        params.setOffset(100);
+        assertThat(RssFeedPrefetcher.isRssSearch(params)).isFalse();
+
+        params = rssParams();
+        params.setT(ActionAttribute.CAPS);
+        assertThat(RssFeedPrefetcher.isRssSearch(params)).isFalse();
+
+        assertThat(RssFeedPrefetcher.isRssSearch(rssParams())).isTrue();
+    }
+
+    @Test
+    public void shouldNotUseOutdatedOrUnrequestedFeeds() {
+        NewznabParameters params = rssParams();
+        testee.getPrefetchedResult(params, false);
+        when(searcher.search(any())).thenReturn(searchResult(item(1L, 10)));
+        testee.prefetch();
+        assertThat(testee.getPrefetchedResult(params, false).isPresent()).isTrue();
+
+        //Polls failed for too long
+        when(searcher.search(any())).thenThrow(new RuntimeException("error"));
+        setTime(now.plus(31, ChronoUnit.MINUTES));
+        testee.prefetch();
+        assertThat(testee.getPrefetchedResult(params, false)).isEqualTo(Optional.empty());
+
+        //Not requested for too long
+        setTime(now.plus(2, ChronoUnit.HOURS));
+        testee.prefetch();
+        verify(searcher, times(2)).search(any());
+        assertThat(testee.getMetrics().get("feeds")).isEqualTo(0);
+        assertThat(testee.getMetrics().get("failedPolls")).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldNotPrefetchIfDisabled() {
+        baseConfig.getSearching().setPrefetchRssFeeds(false);
+        NewznabParameters params = rssParams();
+        assertThat(testee.getPrefetchedResult(params, false)).isEqualTo(Optional.empty());
+        testee.prefetch();
+        verify(searcher, times(0)).search(any());
+    }
+
+    private NewznabParameters rssParams() {
+        NewznabParameters params = new NewznabParameters();
+        params.setT(ActionAttribute.TVSEARCH);
+        return params;
+    }
+
+    private SearchResultItem item(long id, int ageMinutes) {
+        SearchResultItem item = new SearchResultItem();
+        item.setSearchResultId(id);
+        item.setPubDate(now.minus(ageMinutes, ChronoUnit.MINUTES));
+        return item;
+    }
+
+    private SearchResult searchResult(SearchResultItem... items) {
+        SearchResult searchResult = new SearchResult();
+        searchResult.setSearchResultItems(Arrays.asList(items));
+        return searchResult;
+    }
+
+    private void setTime(Instant instant) {
+        testee.clock = Clock.fixed(instant, ZoneId.of("UTC"));
+    }
+
+}
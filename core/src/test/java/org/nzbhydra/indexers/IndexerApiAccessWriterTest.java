@@ -0,0 +1,73 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.ShutdownEvent;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class IndexerApiAccessWriterTest {
+
+    @Mock
+    private IndexerApiAccessRepository apiAccessRepositoryMock;
+    @Mock
+    private IndexerApiAccessEntityShortRepository shortRepositoryMock;
+    @Mock
+    private IndexerLimitTracker indexerLimitTrackerMock;
+    @Captor
+    private ArgumentCaptor<List<IndexerApiAccessEntity>> apiAccessesCaptor;
+    @Captor
+    private ArgumentCaptor<List<IndexerApiAccessEntityShort>> shortApiAccessesCaptor;
+
+    private IndexerApiAccessWriter testee;
+    private IndexerEntity indexerEntity = new IndexerEntity();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        testee = new IndexerApiAccessWriter(apiAccessRepositoryMock, shortRepositoryMock, indexerLimitTrackerMock);
+        testee.init();
+    }
+
+    @Test
+    public void shouldWriteQueuedAccessesInOneBatch() {
+        testee.onShutdown(new ShutdownEvent()); //Stop the background thread so that we control when the accesses are written
+
+        testee.save(new IndexerApiAccessEntity(indexerEntity), new IndexerApiAccessEntityShort(indexerEntity, true));
+        testee.save(new IndexerApiAccessEntity(indexerEntity), new IndexerApiAccessEntityShort(indexerEntity, false));
+        verify(apiAccessRepositoryMock, never()).save(apiAccessesCaptor.capture());
+        verify(indexerLimitTrackerMock, times(2)).recordApiHit(eq(indexerEntity.getId()), any(Instant.class));
+        assertThat(testee.getMetrics().get("backlog")).isEqualTo(2);
+
+        testee.flush();
+
+        verify(apiAccessRepositoryMock).save(apiAccessesCaptor.capture());
+        verify(shortRepositoryMock).save(shortApiAccessesCaptor.capture());
+        assertThat(apiAccessesCaptor.getValue()).hasSize(2);
+        assertThat(shortApiAccessesCaptor.getValue()).hasSize(2);
+        assertThat(shortApiAccessesCaptor.getValue().get(1).isSuccessful()).isFalse();
+        assertThat(testee.getMetrics().get("backlog")).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldWriteAccessesInBackground() {
+        testee.save(new IndexerApiAccessEntity(indexerEntity), new IndexerApiAccessEntityShort(indexerEntity, true));
+
+        verify(apiAccessRepositoryMock, timeout(5000)).save(apiAccessesCaptor.capture());
+        assertThat(apiAccessesCaptor.getValue()).hasSize(1);
+    }
+
+}
@@ -0,0 +1,88 @@
+package org.nzbhydra.indexers;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class IndexerCallExecutorTest {
+
+    @Mock
+    private ConfigProvider configProvider;
+
+    private IndexerCallExecutor testee;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        BaseConfig baseConfig = new BaseConfig();
+        baseConfig.getSearching().setIndexerThreadPoolSize(2);
+        when(configProvider.getBaseConfig()).thenReturn(baseConfig);
+        testee = new IndexerCallExecutor(configProvider);
+        testee.init();
+    }
+
+    @After
+    public void tearDown() {
+        testee.onShutdown(new ShutdownEvent());
+    }
+
+    @Test
+    public void shouldNotBlockOtherIndexersWhileWaitingForPermit() throws Exception {
+        IndexerConfig limited = new IndexerConfig();
+        limited.setName("limited");
+        limited.setMaxConcurrentCalls(1);
+        IndexerConfig other = new IndexerConfig();
+        other.setName("other");
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<String> first = testee.submitWebAccess(limited, () -> {
+            latch.await();
+            return "first";
+        });
+        Future<String> second = testee.submitWebAccess(limited, () -> "second");
+        assertThat(testee.getMetrics().get("waitingForPermit.limited")).isEqualTo(1);
+
+        //The second pool thread is not taken by the waiting call
+        assertThat(testee.submitWebAccess(other, () -> "other").get(1, TimeUnit.SECONDS)).isEqualTo("other");
+        assertThat(second.isDone()).isFalse();
+
+        latch.countDown();
+        assertThat(first.get(1, TimeUnit.SECONDS)).isEqualTo("first");
+        assertThat(second.get(1, TimeUnit.SECONDS)).isEqualTo("second");
+        assertThat(testee.getMetrics().get("waitingForPermit.limited")).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldSkipCancelledWaitingCalls() throws Exception {
+        IndexerConfig limited = new IndexerConfig();
+        limited.setName("limited");
+        limited.setMaxConcurrentCalls(1);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        Future<String> first = testee.submitWebAccess(limited, () -> {
+            latch.await();
+            return "first";
+        });
+        Future<String> cancelled = testee.submitWebAccess(limited, () -> "cancelled");
+        cancelled.cancel(true);
+        latch.countDown();
+        first.get(1, TimeUnit.SECONDS);
+
+        assertThat(testee.submitWebAccess(limited, () -> "third").get(1, TimeUnit.SECONDS)).isEqualTo("third");
+        assertThat(cancelled.isCancelled()).isTrue();
+    }
+
+}
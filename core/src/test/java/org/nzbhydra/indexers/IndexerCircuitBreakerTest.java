@@ -0,0 +1,151 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.genericstorage.GenericStorage;
+import org.nzbhydra.indexers.IndexerCircuitBreaker.CircuitState;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexerCircuitBreakerTest {
+
+    @Mock
+    private ConfigProvider configProvider;
+    @Mock
+    private GenericStorage genericStorage;
+
+    private IndexerConfig indexerConfig = new IndexerConfig();
+    private Instant now = Instant.now();
+
+    private IndexerCircuitBreaker testee;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        indexerConfig.setName("indexer");
+        indexerConfig.setState(IndexerConfig.State.ENABLED);
+        indexerConfig.setTimeout(10);
+        testee = new IndexerCircuitBreaker(configProvider, new IndexerStatusStore(configProvider, genericStorage));
+        setTime(now);
+    }
+
+    @Test
+    public void shouldOpenWhenFailureRateIsExceeded() {
+        for (int i = 0; i < 5; i++) {
+            testee.recordSuccess(indexerConfig, 100L);
+        }
+        for (int i = 0; i < 4; i++) {
+            testee.recordFailure(indexerConfig, "error");
+        }
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.CLOSED);
+        assertThat(testee.getStatus(indexerConfig).getRecentFailures()).isEqualTo(4);
+
+        testee.recordFailure(indexerConfig, "error");
+
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.OPEN);
+        assertThat(indexerConfig.getState()).isEqualTo(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
+        assertThat(indexerConfig.getDisabledLevel()).isEqualTo(1);
+        assertThat(indexerConfig.getDisabledUntil()).isEqualTo(now.plus(IndexerCircuitBreaker.OPEN_PERIODS_MINUTES.get(1), ChronoUnit.MINUTES).toEpochMilli());
+        assertThat(indexerConfig.getLastError()).isEqualTo("error");
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isFalse();
+    }
+
+    @Test
+    public void shouldOpenWhenMostCallsAreSlow() {
+        //Slower than half of the timeout of 10 seconds
+        long slowResponseTime = 6000L;
+        for (int i = 0; i < 2; i++) {
+            testee.recordSuccess(indexerConfig, 100L);
+        }
+        for (int i = 0; i < 7; i++) {
+            testee.recordSuccess(indexerConfig, slowResponseTime);
+        }
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.CLOSED);
+        assertThat(testee.getStatus(indexerConfig).getRecentSlowCalls()).isEqualTo(7);
+
+        testee.recordSuccess(indexerConfig, slowResponseTime);
+
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.OPEN);
+        assertThat(indexerConfig.getDisabledLevel()).isEqualTo(1);
+        assertThat(indexerConfig.getLastError()).isEqualTo("Indexer responded slowly: 8 of the last 10 calls took longer than 5000ms");
+        assertThat(testee.getMetrics().get("openedCircuitsBecauseSlow")).isEqualTo(1L);
+
+        //A slow test call closes the circuit because the indexer works
+        setTime(now.plus(16, ChronoUnit.MINUTES));
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+        testee.recordSuccess(indexerConfig, slowResponseTime);
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.CLOSED);
+    }
+
+    @Test
+    public void shouldOnlyConsiderRecentCalls() {
+        testee.recordFailure(indexerConfig, "error");
+        for (int i = 0; i < IndexerCircuitBreaker.WINDOW_SIZE; i++) {
+            testee.recordSuccess(indexerConfig, 100L);
+        }
+        testee.recordFailure(indexerConfig, "error");
+
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.CLOSED);
+        assertThat(testee.getStatus(indexerConfig).getRecentCalls()).isEqualTo(IndexerCircuitBreaker.WINDOW_SIZE);
+        assertThat(testee.getStatus(indexerConfig).getRecentFailures()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldAllowSingleProbeWhenHalfOpen() {
+        testee.recordFailure(indexerConfig, "error");
+        testee.recordFailure(indexerConfig, "error");
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.OPEN);
+
+        setTime(now.plus(16, ChronoUnit.MINUTES));
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.HALF_OPEN);
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isFalse();
+
+        //Probe failed: Open again for longer
+        testee.recordFailure(indexerConfig, "error");
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.OPEN);
+        assertThat(indexerConfig.getDisabledLevel()).isEqualTo(2);
+        assertThat(indexerConfig.getDisabledUntil()).isEqualTo(now.plus(16 + IndexerCircuitBreaker.OPEN_PERIODS_MINUTES.get(2), ChronoUnit.MINUTES).toEpochMilli());
+
+        //Probe succeeded: Closed
+        setTime(now.plus(60, ChronoUnit.MINUTES));
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+        testee.recordSuccess(indexerConfig, 100L);
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.CLOSED);
+        assertThat(indexerConfig.getState()).isEqualTo(IndexerConfig.State.ENABLED);
+        assertThat(indexerConfig.getDisabledLevel()).isEqualTo(0);
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+    }
+
+    @Test
+    public void shouldAllowNewProbeIfResultIsNotReported() {
+        //Reenabled after the disabled period, with the level kept
+        indexerConfig.setState(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
+        indexerConfig.setDisabledLevel(1);
+        indexerConfig.setState(IndexerConfig.State.ENABLED);
+        assertThat(testee.getState(indexerConfig)).isEqualTo(CircuitState.HALF_OPEN);
+
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isFalse();
+
+        setTime(now.plus(3, ChronoUnit.MINUTES));
+        assertThat(testee.tryAcquirePermission(indexerConfig)).isTrue();
+        assertThat(testee.getMetrics().get("probes")).isEqualTo(2L);
+        assertThat(testee.getMetrics().get("rejectedCalls")).isEqualTo(1L);
+    }
+
+    private void setTime(Instant instant) {
+        testee.clock = Clock.fixed(instant, ZoneId.of("UTC"));
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Test;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
+import org.nzbhydra.config.IndexerConfig;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class IndexerLatencyTrackerTest {
+
+    private IndexerLatencyTracker testee = new IndexerLatencyTracker();
+
+    @Test
+    public void shouldCalculatePercentiles() {
+        for (int i = 1; i <= 100; i++) {
+            testee.recordResponseTime("indexer", i * 100);
+        }
+
+        //Percentiles are the upper bounds of the histogram buckets and at most 25% higher than the actual value
+        assertThat(testee.getPercentile("indexer", 0.5).get()).isBetween(5000L, 6250L);
+        assertThat(testee.getPercentile("indexer", 0.95).get()).isBetween(9500L, 11875L);
+        assertThat(testee.getPercentile("indexer", 0.99).get()).isBetween(9900L, 12375L);
+    }
+
+    @Test
+    public void shouldOnlyUseMostRecentResponseTimes() {
+        for (int i = 0; i < IndexerLatencyTracker.WINDOW_SIZE; i++) {
+            testee.recordResponseTime("indexer", 60_000);
+        }
+        for (int i = 0; i < IndexerLatencyTracker.WINDOW_SIZE; i++) {
+            testee.recordResponseTime("indexer", 100);
+        }
+
+        assertThat(testee.getPercentile("indexer", 0.99).get()).isBetween(100L, 125L);
+    }
+
+    @Test
+    public void shouldNotReportPercentilesWithoutEnoughSamples() {
+        assertThat(testee.getPercentile("indexer", 0.99)).isEqualTo(Optional.empty());
+
+        for (int i = 1; i < IndexerLatencyTracker.MIN_SAMPLES; i++) {
+            testee.recordResponseTime("indexer", 100);
+        }
+        assertThat(testee.getPercentile("indexer", 0.99)).isEqualTo(Optional.empty());
+
+        testee.recordResponseTime("indexer", 100);
+        assertThat(testee.getPercentile("indexer", 0.99).isPresent()).isTrue();
+    }
+
+    @Test
+    public void shouldRemoveIndexersNotInConfigAnymore() {
+        for (int i = 0; i < IndexerLatencyTracker.MIN_SAMPLES; i++) {
+            testee.recordResponseTime("indexer", 100);
+        }
+        BaseConfig newConfig = new BaseConfig();
+        IndexerConfig indexerConfig = new IndexerConfig();
+        indexerConfig.setName("anotherIndexer");
+        newConfig.setIndexers(Collections.singletonList(indexerConfig));
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, new BaseConfig(), newConfig));
+
+        assertThat(testee.getPercentile("indexer", 0.99)).isEqualTo(Optional.empty());
+    }
+
+}
@@ -0,0 +1,146 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.downloading.FileDownloadEntity;
+import org.nzbhydra.downloading.FileDownloadEvent;
+import org.nzbhydra.downloading.FileDownloadRepository;
+import org.nzbhydra.searching.SearchResultEntity;
+import org.springframework.data.domain.PageImpl;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexerLimitTrackerTest {
+
+    @Mock
+    private EntityManager entityManagerMock;
+    @Mock
+    private Query queryMock;
+    @Mock
+    private FileDownloadRepository fileDownloadRepositoryMock;
+    @Mock
+    private ConfigProvider configProviderMock;
+    @InjectMocks
+    private IndexerLimitTracker testee = new IndexerLimitTracker();
+
+    private IndexerEntity indexerEntity = new IndexerEntity();
+    private BaseConfig baseConfig = new BaseConfig();
+    private Instant now = Instant.now();
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        indexerEntity.setId(1);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
+        testee.clock = Clock.fixed(now, ZoneId.of("UTC"));
+        when(entityManagerMock.createNativeQuery(anyString())).thenReturn(queryMock);
+        when(queryMock.getResultList()).thenReturn(Collections.emptyList());
+        when(fileDownloadRepositoryMock.findBySearchResultIndexerOrderByTimeDesc(any(), any())).thenReturn(new PageImpl<>(Collections.emptyList()));
+    }
+
+    @Test
+    public void shouldLoadApiHitsFromDatabaseOnlyOnce() {
+        when(queryMock.getResultList()).thenReturn(Arrays.asList(Timestamp.from(now.minus(1, ChronoUnit.HOURS)), Timestamp.from(now.minus(2, ChronoUnit.HOURS))));
+
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.of(now.minus(2, ChronoUnit.HOURS)));
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.of(now.minus(2, ChronoUnit.HOURS)));
+        verify(entityManagerMock, times(1)).createNativeQuery(anyString());
+
+        //More hits allowed than were made
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 3)).isEqualTo(Optional.empty());
+        verify(entityManagerMock, times(2)).createNativeQuery(anyString());
+    }
+
+    @Test
+    public void shouldKeepMostRecentApiHits() {
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.empty());
+
+        testee.recordApiHit(1, now.minus(3, ChronoUnit.HOURS));
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.empty());
+
+        testee.recordApiHit(1, now.minus(1, ChronoUnit.HOURS));
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.of(now.minus(3, ChronoUnit.HOURS)));
+
+        testee.recordApiHit(1, now);
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.of(now.minus(1, ChronoUnit.HOURS)));
+
+        //Recorded out of order
+        testee.recordApiHit(1, now.minus(30, ChronoUnit.MINUTES));
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 2)).isEqualTo(Optional.of(now.minus(30, ChronoUnit.MINUTES)));
+        verify(entityManagerMock, times(1)).createNativeQuery(anyString());
+    }
+
+    @Test
+    public void shouldTrackDownloads() {
+        assertThat(testee.getOldestOfRecentDownloads(indexerEntity, 1)).isEqualTo(Optional.empty());
+
+        SearchResultEntity searchResultEntity = new SearchResultEntity();
+        searchResultEntity.setIndexer(indexerEntity);
+        FileDownloadEntity downloadEntity = new FileDownloadEntity();
+        downloadEntity.setSearchResult(searchResultEntity);
+        downloadEntity.setTime(now);
+        testee.onFileDownload(new FileDownloadEvent(downloadEntity));
+
+        assertThat(testee.getOldestOfRecentDownloads(indexerEntity, 1)).isEqualTo(Optional.of(now));
+        verify(fileDownloadRepositoryMock, times(1)).findBySearchResultIndexerOrderByTimeDesc(any(), any());
+    }
+
+    @Test
+    public void shouldKeepLargeNumberOfApiHits() {
+        testee.getOldestOfRecentApiHits(indexerEntity, 1000);
+        for (int i = 1500; i > 0; i--) {
+            testee.recordApiHit(1, now.minusSeconds(i));
+        }
+        assertThat(testee.getOldestOfRecentApiHits(indexerEntity, 1000)).isEqualTo(Optional.of(now.minusSeconds(1000)));
+    }
+
+    @Test
+    public void shouldNotThrottleIfNoBurstConfigured() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(testee.isThrottled(indexerEntity, 10)).isFalse();
+            testee.recordApiHit(1, now);
+        }
+    }
+
+    @Test
+    public void shouldThrottleApiHitsAfterBurst() {
+        baseConfig.getSearching().setHitLimitBurstPercent(10);
+        //Burst of 2 hits (10% of 24 per day), then one hit per hour
+        for (int i = 0; i < 2; i++) {
+            assertThat(testee.isThrottled(indexerEntity, 24)).isFalse();
+            testee.recordApiHit(1, now);
+        }
+        assertThat(testee.isThrottled(indexerEntity, 24)).isTrue();
+
+        testee.clock = Clock.fixed(now.plus(30, ChronoUnit.MINUTES), ZoneId.of("UTC"));
+        assertThat(testee.isThrottled(indexerEntity, 24)).isTrue();
+
+        testee.clock = Clock.fixed(now.plus(61, ChronoUnit.MINUTES), ZoneId.of("UTC"));
+        assertThat(testee.isThrottled(indexerEntity, 24)).isFalse();
+        testee.recordApiHit(1, testee.clock.instant());
+        assertThat(testee.isThrottled(indexerEntity, 24)).isTrue();
+        assertThat(testee.getMetrics().get("throttledHits")).isEqualTo(3L);
+    }
+
+}
@@ -0,0 +1,109 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigProvider;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.genericstorage.GenericStorage;
+import org.nzbhydra.indexers.IndexerStatusStore.IndexerStatus;
+import org.nzbhydra.indexers.IndexerStatusStore.IndexerStatuses;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class IndexerStatusStoreTest {
+
+    @Mock
+    private ConfigProvider configProvider;
+    @Mock
+    private GenericStorage genericStorage;
+    @Captor
+    private ArgumentCaptor<IndexerStatuses> statusesCaptor;
+
+    private BaseConfig baseConfig = new BaseConfig();
+    private IndexerConfig indexerConfig1 = new IndexerConfig();
+    private IndexerConfig indexerConfig2 = new IndexerConfig();
+
+    private IndexerStatusStore testee;
+
+    @Before
+    public void setUp() {
+        MockitoAnnotations.initMocks(this);
+        indexerConfig1.setName("indexer1");
+        indexerConfig1.setState(IndexerConfig.State.ENABLED);
+        indexerConfig2.setName("indexer2");
+        indexerConfig2.setState(IndexerConfig.State.DISABLED_USER);
+        baseConfig.setIndexers(Arrays.asList(indexerConfig1, indexerConfig2));
+        when(configProvider.getBaseConfig()).thenReturn(baseConfig);
+        when(genericStorage.get(anyString(), eq(IndexerStatuses.class))).thenReturn(Optional.empty());
+
+        testee = new IndexerStatusStore(configProvider, genericStorage);
+    }
+
+    @Test
+    public void shouldOnlyWriteWhenStatusChanged() {
+        assertThat(testee.setStatus(indexerConfig1, IndexerConfig.State.ENABLED, null, 0, null)).isFalse();
+        testee.writeIfChanged();
+        verify(genericStorage, never()).save(anyString(), any());
+
+        assertThat(testee.setStatus(indexerConfig1, IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY, 1000L, 1, "error")).isTrue();
+        assertThat(testee.setStatus(indexerConfig1, IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY, 2000L, 2, "error")).isTrue();
+        assertThat(indexerConfig1.getDisabledUntil()).isEqualTo(2000L);
+        testee.writeIfChanged();
+        testee.writeIfChanged();
+
+        verify(genericStorage, times(1)).save(eq(IndexerStatusStore.STORAGE_KEY), statusesCaptor.capture());
+        IndexerStatus status = statusesCaptor.getValue().getStatuses().get("indexer1");
+        assertThat(status.getState()).isEqualTo(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
+        assertThat(status.getDisabledUntil()).isEqualTo(2000L);
+        assertThat(status.getDisabledLevel()).isEqualTo(2);
+        assertThat(status.getLastError()).isEqualTo("error");
+        assertThat(statusesCaptor.getValue().getStatuses().get("indexer2").getState()).isEqualTo(IndexerConfig.State.DISABLED_USER);
+    }
+
+    @Test
+    public void shouldKeepDisabledLevelWhenReenabled() {
+        testee.setStatus(indexerConfig1, IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY, 1000L, 3, "error");
+
+        testee.setStatus(indexerConfig1, IndexerConfig.State.ENABLED, null, 3, null);
+
+        assertThat(indexerConfig1.getState()).isEqualTo(IndexerConfig.State.ENABLED);
+        assertThat(indexerConfig1.getDisabledLevel()).isEqualTo(3);
+        assertThat(indexerConfig1.getDisabledUntil()).isNull();
+    }
+
+    @Test
+    public void shouldLoadStatusesButKeepUserDecision() {
+        IndexerStatuses statuses = new IndexerStatuses();
+        statuses.getStatuses().put("indexer1", new IndexerStatus(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY, 1000L, 1, "error"));
+        statuses.getStatuses().put("indexer2", new IndexerStatus(IndexerConfig.State.DISABLED_SYSTEM, null, 0, "error"));
+        when(genericStorage.get(IndexerStatusStore.STORAGE_KEY, IndexerStatuses.class)).thenReturn(Optional.of(statuses));
+
+        testee.init();
+        testee.onShutdown(new ShutdownEvent());
+
+        assertThat(indexerConfig1.getState()).isEqualTo(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
+        assertThat(indexerConfig1.getDisabledUntil()).isEqualTo(1000L);
+        assertThat(indexerConfig1.getDisabledLevel()).isEqualTo(1);
+        assertThat(indexerConfig1.getLastError()).isEqualTo("error");
+        assertThat(indexerConfig2.getState()).isEqualTo(IndexerConfig.State.DISABLED_USER);
+        //Nothing was changed
+        verify(genericStorage, never()).save(anyString(), any());
+    }
+
+}
@@ -23,6 +23,7 @@ import org.mockito.MockitoAnnotations;
 import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.genericstorage.GenericStorage;
 
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
@@ -37,6 +38,8 @@ public class IndexerStatusesCleanupTaskTest {
     private ConfigProvider configProvider;
     @Mock
     private BaseConfig baseConfig;
+    @Mock
+    private GenericStorage genericStorage;
     IndexerConfig indexerConfigEnabled = new IndexerConfig();
     IndexerConfig indexerConfigDisabledSystem = new IndexerConfig();
     IndexerConfig indexerConfigDisabledTempInTimeWindow = new IndexerConfig();
@@ -49,7 +52,7 @@ public class IndexerStatusesCleanupTaskTest {
     @Before
     public void setUp() throws Exception {
         MockitoAnnotations.initMocks(this);
-        testee = new IndexerStatusesCleanupTask(configProvider);
+        testee = new IndexerStatusesCleanupTask(configProvider, new IndexerStatusStore(configProvider, genericStorage));
         indexerConfigEnabled.setState(IndexerConfig.State.ENABLED);
         indexerConfigUserDisabled.setState(IndexerConfig.State.DISABLED_USER);
         indexerConfigDisabledSystem.setState(IndexerConfig.State.DISABLED_SYSTEM);
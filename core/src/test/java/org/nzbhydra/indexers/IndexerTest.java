@@ -1,7 +1,6 @@
 package org.nzbhydra.indexers;
 
 import com.google.common.collect.HashMultiset;
-import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.*;
@@ -60,11 +59,13 @@ public class IndexerTest {
     @Mock
     private IndexerWebAccess indexerWebAccessMock;
     @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepositoryMock;
+    private IndexerApiAccessWriter indexerApiAccessWriterMock;
     @Mock
-    private IndexerApiAccessEntityShortRepository shortRepositoryMock;
-    @Mock
-    private SearchResultRepository searchResultRepositoryMock;
+    private SearchResultPersister searchResultPersisterMock;
+    @Spy
+    private IndexerStatusStore indexerStatusStore = new IndexerStatusStore(null, null);
+    @Spy
+    private IndexerCircuitBreaker indexerCircuitBreaker = new IndexerCircuitBreaker(null, indexerStatusStore);
     @Captor
     private ArgumentCaptor<List<SearchResultEntity>> searchResultEntitiesCaptor;
     @Captor
@@ -149,7 +150,7 @@ public class IndexerTest {
     }
 
     @Test
-    public void shouldCreateNewSearchResultEntityWhenNoneIsFound() throws Exception {
+    public void shouldCreateSearchResultEntities() throws Exception {
         SearchResultItem item = new SearchResultItem();
         item.setIndexer(indexerMock);
         item.setTitle("title");
@@ -158,29 +159,14 @@ public class IndexerTest {
 
         testee.persistSearchResults(Collections.singletonList(item));
 
-        verify(searchResultRepositoryMock).save(searchResultEntitiesCaptor.capture());
+        verify(searchResultPersisterMock).persist(searchResultEntitiesCaptor.capture());
 
         List<SearchResultEntity> persistedEntities = searchResultEntitiesCaptor.getValue();
         assertThat(persistedEntities.size(), is(1));
         assertThat(persistedEntities.get(0).getTitle(), is("title"));
         assertThat(persistedEntities.get(0).getDetails(), is("details"));
         assertThat(persistedEntities.get(0).getIndexerGuid(), is("guid"));
-    }
-
-    @Test
-    public void shouldNotCreateNewSearchResultEntityWhenOneExists() throws Exception {
-        SearchResultItem item = new SearchResultItem();
-        item.setIndexerGuid("guid");
-        item.setIndexer(indexerMock);
-        when(searchResultEntityMock.getIndexerGuid()).thenReturn("guid");
-        when(searchResultRepositoryMock.findAllIdsByIdIn(anyList())).thenReturn(Sets.newHashSet(299225959498991027L));
-
-        testee.persistSearchResults(Collections.singletonList(item));
-
-        verify(searchResultRepositoryMock).save(searchResultEntitiesCaptor.capture());
-
-        List<SearchResultEntity> persistedEntities = searchResultEntitiesCaptor.getValue();
-        assertThat(persistedEntities.size(), is(0));
+        assertThat(persistedEntities.get(0).getId(), is(item.getSearchResultId()));
     }
 
 
@@ -203,12 +189,16 @@ public class IndexerTest {
         indexerConfig.setDisabledLevel(0);
         indexerConfig.setDisabledUntil(null);
 
+        testee.handleFailure("reason", false, null, null, null);
+        //A single failure doesn't open the circuit
+        assertThat(indexerConfig.getState(), is(IndexerConfig.State.ENABLED));
+
         testee.handleFailure("reason", false, null, null, null);
 
         assertThat(indexerConfig.getState(), is(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY));
         assertThat(indexerConfig.getDisabledLevel(), is(1));
         long disabledPeriod = Math.abs(Instant.ofEpochMilli(indexerConfig.getDisabledUntil()).getEpochSecond() - Instant.now().getEpochSecond());
-        long delta = Math.abs(Indexer.DISABLE_PERIODS.get(1) * 60 - disabledPeriod);
+        long delta = Math.abs(IndexerCircuitBreaker.OPEN_PERIODS_MINUTES.get(1) * 60 - disabledPeriod);
         org.assertj.core.api.Assertions.assertThat(delta).isLessThan(5);
 
         indexerConfig.setState(IndexerConfig.State.ENABLED);
@@ -11,18 +11,30 @@ import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.config.SearchingConfig;
+import org.nzbhydra.indexers.exceptions.IndexerUnreachableException;
 import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
 import org.nzbhydra.okhttp.WebAccess;
 import org.springframework.oxm.Unmarshaller;
 
+import java.io.IOException;
+import java.net.SocketTimeoutException;
 import java.net.URI;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
 import static org.assertj.core.data.MapEntry.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.when;
 
 public class IndexerWebAccessTest {
@@ -56,6 +68,10 @@ public class IndexerWebAccessTest {
         when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
         when(searchingConfigMock.getUserAgent()).thenReturn(Optional.of("globalUa"));
         when(searchingConfigMock.getTimeout()).thenReturn(100);
+        when(searchingConfigMock.getIndexerThreadPoolSize()).thenReturn(2);
+        testee.indexerCallExecutor = new IndexerCallExecutor(configProviderMock);
+        testee.indexerCallExecutor.init();
+        testee.indexerLatencyTracker = new IndexerLatencyTracker();
         indexerConfig.setTimeout(10);
         indexerConfig.setUserAgent("indexerUa");
         when(unmarshallerMock.unmarshal(any())).thenReturn(new NewznabXmlRoot());
@@ -78,6 +94,29 @@ public class IndexerWebAccessTest {
         assertThat(headers).contains(entry("User-Agent", "globalUa"));
     }
 
+    @Test
+    public void shouldLimitConcurrentCallsPerIndexer() throws Exception {
+        indexerConfig.setName("indexer");
+        indexerConfig.setMaxConcurrentCalls(1);
+        AtomicInteger runningCalls = new AtomicInteger();
+        AtomicInteger maxRunningCalls = new AtomicInteger();
+        when(webAccessMock.callUrl(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            maxRunningCalls.accumulateAndGet(runningCalls.incrementAndGet(), Math::max);
+            Thread.sleep(100);
+            runningCalls.decrementAndGet();
+            return "<?xml version=\"1.0\" ?><metadata></metadata>";
+        });
+
+        ExecutorService executorService = Executors.newFixedThreadPool(2);
+        Future<Object> first = executorService.submit(() -> testee.get(new URI("http://127.0.0.1"), indexerConfig));
+        Future<Object> second = executorService.submit(() -> testee.get(new URI("http://127.0.0.1"), indexerConfig));
+        first.get();
+        second.get();
+        executorService.shutdown();
+
+        assertThat(maxRunningCalls.get()).isEqualTo(1);
+    }
+
     @Test
     public void shouldUseIndexerTimeout() throws Exception{
         testee.get(new URI("http://127.0.0.1"), indexerConfig);
@@ -93,7 +132,119 @@ public class IndexerWebAccessTest {
         assertThat(timeoutCaptor.getValue()).isEqualTo(100);
     }
 
+    @Test
+    public void shouldAdaptTimeoutToResponseTimes() throws Exception {
+        indexerConfig.setName("indexer");
+        when(searchingConfigMock.isAdaptiveIndexerTimeouts()).thenReturn(true);
+        assertThat(testee.getTimeout(indexerConfig)).isEqualTo(10);
+
+        for (int i = 0; i < IndexerLatencyTracker.MIN_SAMPLES; i++) {
+            testee.indexerLatencyTracker.recordResponseTime("indexer", 2000);
+        }
+        assertThat(testee.getTimeout(indexerConfig)).isBetween(6, 8);
+
+        for (int i = 0; i < IndexerLatencyTracker.WINDOW_SIZE; i++) {
+            testee.indexerLatencyTracker.recordResponseTime("indexer", 100);
+        }
+        assertThat(testee.getTimeout(indexerConfig)).isEqualTo(5);
+
+        when(searchingConfigMock.isAdaptiveIndexerTimeouts()).thenReturn(false);
+        assertThat(testee.getTimeout(indexerConfig)).isEqualTo(10);
+    }
+
+    @Test
+    public void shouldRaiseAdaptiveTimeoutWhenIndexerBecomesSlower() throws Exception {
+        indexerConfig.setName("indexer");
+        indexerConfig.setTimeout(60);
+        when(searchingConfigMock.isAdaptiveIndexerTimeouts()).thenReturn(true);
+        for (int i = 0; i < IndexerLatencyTracker.WINDOW_SIZE; i++) {
+            testee.indexerLatencyTracker.recordResponseTime("indexer", 100);
+        }
+        assertThat(testee.getTimeout(indexerConfig)).isEqualTo(5);
+
+        //The indexer now takes longer than the adaptive timeout
+        when(webAccessMock.callUrl(anyString(), any(), timeoutCaptor.capture())).thenThrow(new SocketTimeoutException("timeout"));
+        for (int i = 0; i < 3; i++) {
+            callExpectingTimeout();
+        }
+        assertThat(timeoutCaptor.getValue()).isEqualTo(5);
+        assertThat(testee.getTimeout(indexerConfig)).isBetween(15, 60);
+
+        //Raised until the configured timeout is reached
+        for (int i = 0; i < 10; i++) {
+            callExpectingTimeout();
+        }
+        assertThat(testee.getTimeout(indexerConfig)).isEqualTo(60);
+    }
+
+    private void callExpectingTimeout() throws Exception {
+        try {
+            testee.get(new URI("http://127.0.0.1"), indexerConfig, String.class);
+            fail("Expected exception");
+        } catch (IndexerUnreachableException e) {
+            assertThat(e.getMessage()).contains("timed out");
+        }
+    }
 
+    @Test
+    public void shouldSendHedgedRequestIfIndexerIsSlowerThanUsual() throws Exception {
+        indexerConfig.setName("indexer");
+        when(searchingConfigMock.isHedgeIndexerRequests()).thenReturn(true);
+        for (int i = 0; i < IndexerLatencyTracker.MIN_SAMPLES; i++) {
+            testee.indexerLatencyTracker.recordResponseTime("indexer", 50);
+        }
+        AtomicInteger calls = new AtomicInteger();
+        when(webAccessMock.callUrl(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(5000);
+            }
+            return "response";
+        });
+
+        long start = System.currentTimeMillis();
+        String response = testee.get(new URI("http://127.0.0.1"), indexerConfig, String.class);
+
+        assertThat(response).isEqualTo("response");
+        assertThat(calls.get()).isEqualTo(2);
+        assertThat(System.currentTimeMillis() - start).isLessThan(4000);
+        //The hedged request is counted after it completed the result
+        for (int i = 0; i < 50 && testee.indexerLatencyTracker.getMetrics().get("hedgedRequestsWon").equals(0L); i++) {
+            Thread.sleep(20);
+        }
+        assertThat(testee.indexerLatencyTracker.getMetrics().get("hedgedRequestsWon")).isEqualTo(1L);
+    }
 
+    @Test
+    public void shouldFailIfFirstRequestFailedAndHedgedRequestWasRejected() throws Exception {
+        indexerConfig.setName("indexer");
+        when(searchingConfigMock.isHedgeIndexerRequests()).thenReturn(true);
+        for (int i = 0; i < IndexerLatencyTracker.MIN_SAMPLES; i++) {
+            testee.indexerLatencyTracker.recordResponseTime("indexer", 50);
+        }
+        when(webAccessMock.callUrl(anyString(), any(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            throw new IOException("error");
+        });
+        testee.indexerCallExecutor = spy(testee.indexerCallExecutor);
+        AtomicInteger submits = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (submits.incrementAndGet() == 1) {
+                return invocation.callRealMethod();
+            }
+            //Make sure the first request failed before
+            Thread.sleep(500);
+            throw new RejectedExecutionException("Pool saturated");
+        }).when(testee.indexerCallExecutor).submitWebAccess(any(), any());
+
+        long start = System.currentTimeMillis();
+        try {
+            testee.get(new URI("http://127.0.0.1"), indexerConfig, String.class);
+            fail("Expected exception");
+        } catch (IndexerUnreachableException e) {
+            assertThat(e.getMessage()).contains("error");
+        }
+        //Not waiting for the timeout
+        assertThat(System.currentTimeMillis() - start).isLessThan(5000);
+    }
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,132 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.base.Stopwatch;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.CategoriesConfig;
+import org.nzbhydra.config.Category;
+import org.nzbhydra.config.IndexerConfig;
+import org.nzbhydra.mapping.newznab.xml.NewznabAttribute;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlItem;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
+import org.nzbhydra.searching.CategoryProvider;
+import org.nzbhydra.searching.SearchResultItem;
+import org.nzbhydra.web.PooledJaxbMarshaller;
+
+import javax.xml.transform.stream.StreamSource;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the attribute parsing using the dispatch table with the previous implementation which first collected the attributes in a map
+ * and then looked up every known attribute. Uses a recorded response with 100 items. Run manually.
+ */
+@Ignore //Only run when needed
+public class NewznabAttributesBenchmark {
+
+    private static final int ROUNDS = 5000;
+
+    @Test
+    public void compareAttributeParsing() throws Exception {
+        NewznabXmlRoot root = (NewznabXmlRoot) new PooledJaxbMarshaller(false).unmarshal(new StreamSource(getClass().getResourceAsStream("/org/nzbhydra/mapping/nzbsOrgResponse.xml")));
+        List<NewznabXmlItem> items = root.getRssChannel().getItems();
+
+        Newznab newznab = new Newznab();
+        newznab.config = new IndexerConfig();
+        newznab.categoryProvider = createCategoryProvider();
+
+        //Warmup
+        run(newznab, items, true);
+        run(newznab, items, false);
+
+        long dispatchTableNanos = run(newznab, items, true);
+        long mapNanos = run(newznab, items, false);
+        System.out.println(String.format("Dispatch table: %dns per item", dispatchTableNanos / ((long) items.size() * ROUNDS)));
+        System.out.println(String.format("Map lookups: %dns per item", mapNanos / ((long) items.size() * ROUNDS)));
+    }
+
+    private long run(Newznab newznab, List<NewznabXmlItem> items, boolean dispatchTable) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        for (int round = 0; round < ROUNDS; round++) {
+            for (NewznabXmlItem item : items) {
+                SearchResultItem searchResultItem = new SearchResultItem();
+                if (dispatchTable) {
+                    newznab.parseAttributes(item, searchResultItem);
+                } else {
+                    parseAttributesUsingMap(newznab, item, searchResultItem);
+                }
+            }
+        }
+        return stopwatch.elapsed(TimeUnit.NANOSECONDS);
+    }
+
+    private void parseAttributesUsingMap(Newznab newznab, NewznabXmlItem item, SearchResultItem searchResultItem) {
+        Map<String, String> attributes = item.getNewznabAttributes().stream().collect(Collectors.toMap(NewznabAttribute::getName, NewznabAttribute::getValue, (a, b) -> b));
+        List<Integer> newznabCategories = item.getNewznabAttributes().stream().filter(x -> x.getName().equals("category") && !"None".equals(x.getValue())).map(newznabAttribute -> Integer.parseInt(newznabAttribute.getValue())).collect(Collectors.toList());
+        searchResultItem.setAttributes(attributes);
+        if (attributes.containsKey("usenetdate")) {
+            newznab.tryParseDate(attributes.get("usenetdate")).ifPresent(searchResultItem::setUsenetDate);
+        }
+        if (attributes.containsKey("password") && Integer.parseInt(attributes.get("password")) > 0) {
+            searchResultItem.setPassworded(true);
+        }
+        if (attributes.containsKey("nfo")) {
+            searchResultItem.setHasNfo(attributes.get("nfo").equals("1") ? SearchResultItem.HasNfo.YES : SearchResultItem.HasNfo.NO);
+        }
+        if (attributes.containsKey("poster") && !attributes.get("poster").equals("not available")) {
+            searchResultItem.setPoster(attributes.get("poster"));
+        }
+        if (attributes.containsKey("group") && !attributes.get("group").equals("not available")) {
+            searchResultItem.setGroup(attributes.get("group"));
+        }
+        if (attributes.containsKey("files")) {
+            searchResultItem.setFiles(Integer.valueOf(attributes.get("files")));
+        }
+        if (attributes.containsKey("comments")) {
+            searchResultItem.setCommentsCount(Integer.valueOf(attributes.get("comments")));
+        }
+        if (attributes.containsKey("grabs")) {
+            searchResultItem.setGrabs(Integer.valueOf(attributes.get("grabs")));
+        }
+        if (attributes.containsKey("guid")) {
+            searchResultItem.setIndexerGuid(attributes.get("guid"));
+        }
+        if (attributes.containsKey("size")) {
+            searchResultItem.setSize(Long.valueOf(attributes.get("size")));
+        }
+        newznab.computeCategory(searchResultItem, newznabCategories);
+    }
+
+    private CategoryProvider createCategoryProvider() throws Exception {
+        CategoriesConfig categoriesConfig = new CategoriesConfig();
+        categoriesConfig.setCategories(Arrays.asList(
+                createCategory("All", Collections.emptyList()),
+                createCategory("N/A", Collections.emptyList()),
+                createCategory("Movies", Arrays.asList(2000)),
+                createCategory("Audio", Arrays.asList(3000)),
+                createCategory("TV", Arrays.asList(5000)),
+                createCategory("TV HD", Arrays.asList(5040)),
+                createCategory("XXX", Arrays.asList(6000)),
+                createCategory("Other", Arrays.asList(7000))
+        ));
+        BaseConfig config = new BaseConfig();
+        config.setCategoriesConfig(categoriesConfig);
+        CategoryProvider categoryProvider = new CategoryProvider() {{
+            baseConfig = config;
+        }};
+        categoryProvider.afterPropertiesSet();
+        return categoryProvider;
+    }
+
+    private Category createCategory(String name, List<Integer> newznabCategories) {
+        Category category = new Category(name);
+        category.setNewznabCategories(newznabCategories);
+        return category;
+    }
+
+}
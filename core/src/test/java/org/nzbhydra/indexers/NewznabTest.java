@@ -2,6 +2,7 @@ package org.nzbhydra.indexers;
 
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Lists;
+import okio.Buffer;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.*;
@@ -23,6 +24,7 @@ import org.nzbhydra.mapping.newznab.xml.*;
 import org.nzbhydra.mediainfo.InfoProvider;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.mediainfo.MediaInfo;
+import org.nzbhydra.okhttp.WebAccess.ResponseBodyReader;
 import org.nzbhydra.searching.*;
 import org.nzbhydra.searching.SearchResultAcceptor.AcceptorResult;
 import org.nzbhydra.searching.SearchResultItem.DownloadType;
@@ -63,13 +65,15 @@ public class NewznabTest {
     @Mock
     private IndexerSearchRepository indexerSearchRepositoryMock;
     @Mock
-    private IndexerApiAccessEntityShortRepository shortRepositoryMock;
-    @Mock
-    private SearchResultRepository searchResultRepositoryMock;
+    private SearchResultPersister searchResultPersisterMock;
     @Mock
     private IndexerRepository indexerRepositoryMock;
     @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepositoryMock;
+    private IndexerApiAccessWriter indexerApiAccessWriterMock;
+    @Mock
+    private IndexerStatusStore indexerStatusStoreMock;
+    @Mock
+    private IndexerCircuitBreaker indexerCircuitBreakerMock;
     @Mock
     private UriComponentsBuilder uriComponentsBuilderMock;
     @Mock
@@ -137,7 +141,7 @@ public class NewznabTest {
     @Test
     public void shouldReturnCorrectSearchResults() throws Exception {
         NewznabXmlRoot root = RssBuilder.builder().items(Arrays.asList(RssItemBuilder.builder("title").build())).newznabResponse(0, 1).build();
-        when(indexerWebAccessMock.get(any(), eq(testee.config), any())).thenReturn(root);
+        mockStreamedResponse(root);
 
         IndexerSearchResult indexerSearchResult = testee.searchInternal(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), 0, 100);
 
@@ -157,7 +161,7 @@ public class NewznabTest {
                 RssItemBuilder.builder("title5").build()
         );
         NewznabXmlRoot root = RssBuilder.builder().items(items).newznabResponse(100, 105).build();
-        when(indexerWebAccessMock.get(any(), eq(testee.config), any())).thenReturn(root);
+        mockStreamedResponse(root);
 
         //Two items will be rejected
         when(resultAcceptorMock.acceptResults(any(), any(), any())).thenAnswer(new Answer<AcceptorResult>() {
@@ -303,7 +307,7 @@ public class NewznabTest {
 
     @Test(expected = IndexerAuthException.class)
     public void shouldThrowAuthException() throws Exception {
-        doReturn(new NewznabXmlError("101", "Wrong API key")).when(testee).getAndStoreResultToDatabase(any(), eq(Xml.class), eq(IndexerApiAccessType.SEARCH));
+        doReturn(new NewznabXmlError("101", "Wrong API key")).when(testee).getAndStoreStreamedResultToDatabase(any(), any(), eq(IndexerApiAccessType.SEARCH));
         doNothing().when(testee).handleFailure(errorMessageCaptor.capture(), disabledPermanentlyCaptor.capture(), any(IndexerApiAccessType.class), any(), indexerApiAccessResultCaptor.capture());
 
         testee.searchInternal(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), 0, 100);
@@ -311,7 +315,7 @@ public class NewznabTest {
 
     @Test(expected = IndexerErrorCodeException.class)
     public void shouldThrowErrorCodeWhen100ApiHitLimits() throws Exception {
-        doReturn(new NewznabXmlError("100", "Daily Hits Limit Reached\"")).when(testee).getAndStoreResultToDatabase(any(), eq(Xml.class), eq(IndexerApiAccessType.SEARCH));
+        doReturn(new NewznabXmlError("100", "Daily Hits Limit Reached\"")).when(testee).getAndStoreStreamedResultToDatabase(any(), any(), eq(IndexerApiAccessType.SEARCH));
         doNothing().when(testee).handleFailure(errorMessageCaptor.capture(), disabledPermanentlyCaptor.capture(), any(IndexerApiAccessType.class), any(), indexerApiAccessResultCaptor.capture());
 
         testee.searchInternal(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), 0, 100);
@@ -320,7 +324,7 @@ public class NewznabTest {
 
     @Test(expected = IndexerProgramErrorException.class)
     public void shouldThrowProgramErrorCodeException() throws Exception {
-        doReturn(new NewznabXmlError("200", "Whatever")).when(testee).getAndStoreResultToDatabase(any(), eq(Xml.class), eq(IndexerApiAccessType.SEARCH));
+        doReturn(new NewznabXmlError("200", "Whatever")).when(testee).getAndStoreStreamedResultToDatabase(any(), any(), eq(IndexerApiAccessType.SEARCH));
         doNothing().when(testee).handleFailure(errorMessageCaptor.capture(), disabledPermanentlyCaptor.capture(), any(IndexerApiAccessType.class), any(), indexerApiAccessResultCaptor.capture());
 
         testee.searchInternal(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), 0, 100);
@@ -328,7 +332,7 @@ public class NewznabTest {
 
     @Test(expected = IndexerErrorCodeException.class)
     public void shouldThrowErrorCodeThatsNotMyFaultException() throws Exception {
-        doReturn(new NewznabXmlError("123", "Whatever")).when(testee).getAndStoreResultToDatabase(any(), eq(Xml.class), eq(IndexerApiAccessType.SEARCH));
+        doReturn(new NewznabXmlError("123", "Whatever")).when(testee).getAndStoreStreamedResultToDatabase(any(), any(), eq(IndexerApiAccessType.SEARCH));
         doNothing().when(testee).handleFailure(errorMessageCaptor.capture(), disabledPermanentlyCaptor.capture(), any(IndexerApiAccessType.class), any(), indexerApiAccessResultCaptor.capture());
 
         testee.searchInternal(new SearchRequest(SearchSource.INTERNAL, SearchType.SEARCH, 0, 100), 0, 100);
@@ -655,4 +659,11 @@ public class NewznabTest {
         assertThat(uri, containsString("imdbid=123"));
     }
 
-}
\ No newline at end of file
+    private void mockStreamedResponse(Xml response) throws Exception {
+        when(indexerWebAccessMock.getStreamed(any(), eq(testee.config), any())).thenAnswer(invocation -> {
+            ResponseBodyReader<?> reader = invocation.getArgument(2);
+            return reader.read(new Buffer().writeUtf8(response.toXmlString()));
+        });
+    }
+
+}
@@ -0,0 +1,53 @@
+package org.nzbhydra.indexers;
+
+import com.google.common.io.Resources;
+import org.junit.Test;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlError;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
+import org.nzbhydra.mapping.newznab.xml.Xml;
+import org.nzbhydra.web.WebConfiguration;
+import org.springframework.oxm.Unmarshaller;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NewznabXmlStreamReaderTest {
+
+    private Unmarshaller unmarshaller = new WebConfiguration().marshaller();
+
+    @Test
+    public void shouldReadResponsesLikeJaxb() throws Exception {
+        for (String file : new String[]{"nzbsOrgResponse.xml", "drunkenSlugResponse.xml", "nzbCatResponse.xml", "newztownResponse.xml", "tabulaRasaResponse.xml", "btnJackettResponse.xml", "cardigann.xml", "nzbFinderResponse.xml"}) {
+            byte[] bytes = Resources.toByteArray(Resources.getResource(NewznabXmlStreamReaderTest.class, "/org/nzbhydra/mapping/" + file));
+            NewznabXmlRoot jaxbRoot = (NewznabXmlRoot) unmarshaller.unmarshal(new StreamSource(new ByteArrayInputStream(bytes)));
+
+            NewznabStreamedResponse response = (NewznabStreamedResponse) new NewznabXmlStreamReader(new RssDateParser()).read(new ByteArrayInputStream(bytes));
+
+            assertThat(response.getItems()).as(file).isEqualTo(jaxbRoot.getRssChannel().getItems());
+            if (jaxbRoot.getRssChannel().getNewznabResponse() != null) {
+                assertThat(response.getNewznabResponse().getTotal()).as(file).isEqualTo(jaxbRoot.getRssChannel().getNewznabResponse().getTotal());
+                assertThat(response.getNewznabResponse().getOffset()).as(file).isEqualTo(jaxbRoot.getRssChannel().getNewznabResponse().getOffset());
+            } else {
+                assertThat(response.getNewznabResponse()).as(file).isNull();
+            }
+        }
+    }
+
+    @Test
+    public void shouldReadError() throws Exception {
+        Xml response = new NewznabXmlStreamReader(new RssDateParser()).read(new ByteArrayInputStream("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<error code=\"100\" description=\"Incorrect user credentials\"/>".getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(response).isInstanceOf(NewznabXmlError.class);
+        assertThat(((NewznabXmlError) response).getCode()).isEqualTo("100");
+        assertThat(((NewznabXmlError) response).getDescription()).isEqualTo("Incorrect user credentials");
+    }
+
+    @Test
+    public void shouldReturnNullForUnknownResponse() throws Exception {
+        assertThat(new NewznabXmlStreamReader(new RssDateParser()).read(new ByteArrayInputStream("<html><body>Not an API</body></html>".getBytes(StandardCharsets.UTF_8)))).isNull();
+    }
+
+}
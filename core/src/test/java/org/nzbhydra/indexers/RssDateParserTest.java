@@ -0,0 +1,44 @@
+package org.nzbhydra.indexers;
+
+import org.junit.Test;
+
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class RssDateParserTest {
+
+    private RssDateParser testee = new RssDateParser();
+
+    @Test
+    public void shouldParseRfc1123DatesLikeDateTimeFormatter() {
+        String[] dates = {"Mon, 02 Jan 2017 15:04:05 +0100", "Tue, 3 Jan 2017 15:04:05 -0530", "03 Jan 2017 15:04:05 GMT", "Mon, 29 Feb 2016 23:59:59 +0000", "Sun, 31 Dec 2017 00:00 GMT"};
+        for (String date : dates) {
+            Instant expected = OffsetDateTime.parse(date, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant();
+            assertThat(RssDateParser.parseRfc1123(date)).as(date).isEqualTo(expected);
+            assertThat(testee.parse(date)).as(date).isEqualTo(Optional.of(expected));
+        }
+    }
+
+    @Test
+    public void shouldParseOtherFormatsWithoutExceptions() {
+        assertThat(RssDateParser.parseRfc1123("Mon, 02 Jan 2017 15:04:05 CET")).isNull();
+        assertThat(testee.parse("Mon, 02 Jan 2017 15:04:05 CET")).isEqualTo(Optional.of(Instant.parse("2017-01-02T14:04:05Z")));
+        //Learned format is tried first, other formats still work
+        assertThat(testee.parse("Mon, 02 Jan 2017 15:04:05 +0000")).isEqualTo(Optional.of(Instant.parse("2017-01-02T15:04:05Z")));
+    }
+
+    @Test
+    public void shouldReturnEmptyForInvalidDates() {
+        assertThat(testee.parse(null)).isEqualTo(Optional.empty());
+        assertThat(testee.parse("")).isEqualTo(Optional.empty());
+        assertThat(testee.parse("yesterday")).isEqualTo(Optional.empty());
+        assertThat(testee.parse("Mon, 30 Feb 2017 15:04:05 +0000")).isEqualTo(Optional.empty());
+        assertThat(testee.parse("Mon, 02 Foo 2017 15:04:05 +0000")).isEqualTo(Optional.empty());
+        assertThat(testee.parse("Mon, 02 Jan 2017 25:04:05 +0000")).isEqualTo(Optional.empty());
+    }
+
+}
@@ -43,7 +43,7 @@ public class TorznabTest {
     @Mock
     private IndexerRepository indexerRepositoryMock;
     @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepositoryMock;
+    private IndexerApiAccessWriter indexerApiAccessWriterMock;
     @Mock
     private UriComponentsBuilder uriComponentsBuilderMock;
     @Captor
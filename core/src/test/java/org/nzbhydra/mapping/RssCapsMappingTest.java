@@ -8,9 +8,9 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.nzbhydra.mapping.newznab.caps.CapsCategory;
 import org.nzbhydra.mapping.newznab.caps.CapsRoot;
+import org.nzbhydra.web.PooledJaxbMarshaller;
 import org.nzbhydra.web.WebConfiguration;
 import org.springframework.http.MediaType;
-import org.springframework.oxm.jaxb.Jaxb2Marshaller;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.client.MockRestServiceServer;
 import org.springframework.web.client.RestTemplate;
@@ -31,7 +31,7 @@ import static org.springframework.test.web.client.response.MockRestResponseCreat
 public class RssCapsMappingTest {
 
 
-    private Jaxb2Marshaller jaxb2Marshaller = new WebConfiguration().marshaller();
+    private PooledJaxbMarshaller jaxb2Marshaller = new WebConfiguration().marshaller();
 
     @Before
     public void setUp() throws Exception {
@@ -7,6 +7,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.nzbhydra.config.BaseConfig;
+import org.nzbhydra.config.ConfigChangedEvent;
 import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.ProxyType;
 import org.nzbhydra.okhttp.HydraOkHttp3ClientHttpRequestFactory.SockProxySocketFactory;
@@ -17,6 +18,8 @@ import java.net.URISyntaxException;
 import java.util.Arrays;
 
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
 import static org.hamcrest.Matchers.nullValue;
 import static org.hamcrest.core.Is.is;
 import static org.junit.Assert.assertThat;
@@ -96,4 +99,35 @@ public class HydraOkHttp3ClientHttpRequestFactoryTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    public void shouldReuseClients() throws URISyntaxException {
+        baseConfig.getMain().setProxyType(ProxyType.NONE);
+        OkHttpClient client = testee.getOkHttpClient(new URI("https://www.google.de"), null);
+
+        assertThat(testee.getOkHttpClient(new URI("https://www.github.com"), null), is(sameInstance(client)));
+        assertThat(testee.getOkHttpClient(new URI("https://www.github.com"), 5), is(not(sameInstance(client))));
+        assertThat(testee.getOkHttpClient(new URI("https://www.github.com"), 5).readTimeoutMillis(), is(5000));
+        //Builders derived from the cached client share its TLS session cache and dispatcher
+        OkHttpClient derivedClient = testee.getOkHttpClientBuilder(new URI("https://www.github.com")).build();
+        assertThat(derivedClient.sslSocketFactory(), is(sameInstance(client.sslSocketFactory())));
+        assertThat(derivedClient.dispatcher(), is(sameInstance(client.dispatcher())));
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, baseConfig));
+        assertThat(testee.getOkHttpClient(new URI("https://www.google.de"), null), is(not(sameInstance(client))));
+    }
+
+    @Test
+    public void shouldUseDifferentClientsForProxiedAndIgnoredHosts() throws URISyntaxException {
+        baseConfig.getMain().setProxyType(ProxyType.HTTP);
+        baseConfig.getMain().setProxyHost("proxyhost");
+        baseConfig.getMain().setProxyPort(1234);
+
+        OkHttpClient proxiedClient = testee.getOkHttpClient(new URI("http://www.google.de"), null);
+        OkHttpClient localClient = testee.getOkHttpClient(new URI("http://127.0.0.1"), null);
+
+        assertThat(proxiedClient.proxy().address(), equalTo(new InetSocketAddress("proxyhost", 1234)));
+        assertThat(localClient.proxy(), is(nullValue()));
+        assertThat(localClient.sslSocketFactory(), is(sameInstance(proxiedClient.sslSocketFactory())));
+    }
+
+}
@@ -0,0 +1,41 @@
+package org.nzbhydra.searching;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class AhoCorasickTest {
+
+    @Test
+    public void shouldFindAllPatterns() {
+        AhoCorasick testee = new AhoCorasick(Arrays.asList("he", "she", "his", "hers", "xyz"));
+
+        BitSet found = testee.findAll("ushers");
+
+        assertThat(found.get(0)).isTrue();
+        assertThat(found.get(1)).isTrue();
+        assertThat(found.get(2)).isFalse();
+        assertThat(found.get(3)).isTrue();
+        assertThat(found.get(4)).isFalse();
+    }
+
+    @Test
+    public void shouldFindPatternsFollowingFailures() {
+        AhoCorasick testee = new AhoCorasick(Arrays.asList("abcd", "bce", "720p.hdtv"));
+
+        assertThat(testee.findAll("abce").get(1)).isTrue();
+        assertThat(testee.findAll("abce").get(0)).isFalse();
+        assertThat(testee.findAll("show.s01e03.720p.720p.hdtv.mkv").get(2)).isTrue();
+        assertThat(testee.findAll("show.s01e03.720p.hdt").get(2)).isFalse();
+    }
+
+    @Test
+    public void shouldHandleNoPatterns() {
+        assertThat(new AhoCorasick(Collections.emptyList()).findAll("abc").isEmpty()).isTrue();
+    }
+
+}
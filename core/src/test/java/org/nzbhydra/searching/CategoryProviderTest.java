@@ -119,6 +119,26 @@ public class CategoryProviderTest {
     }
 
 
+    @Test
+    public void shouldUseNewCategoriesAfterConfigChange() throws Exception {
+        assertThat(testee.fromResultNewznabCategories(new ArrayList<>(Arrays.asList(4030))).getName(), is("4030"));
+        assertThat(testee.fromResultNewznabCategories(new ArrayList<>(Arrays.asList(100030))).getName(), is("N/A"));
+        assertThat(testee.fromSubtype(Subtype.ANIME).get().getName(), is("7020,8010"));
+
+        Category category = new Category();
+        category.setName("other 4030");
+        category.setSubtype(Subtype.ANIME);
+        category.setNewznabCategories(Arrays.asList(4030, 100030));
+        testee.baseConfig.getCategoriesConfig().setCategories(Arrays.asList(category));
+        testee.handleNewConfigEvent(null);
+
+        assertThat(testee.fromResultNewznabCategories(new ArrayList<>(Arrays.asList(4030))).getName(), is("other 4030"));
+        assertThat(testee.fromResultNewznabCategories(new ArrayList<>(Arrays.asList(100030))).getName(), is("other 4030"));
+        assertThat(testee.fromResultNewznabCategories(new ArrayList<>(Arrays.asList(4090))).getName(), is("N/A"));
+        assertThat(testee.fromSubtype(Subtype.ANIME).get().getName(), is("other 4030"));
+        assertThat(testee.fromSubtype(Subtype.COMIC).isPresent(), is(false));
+    }
+
     @Test
     public void testcheckCategoryMatchingMainCategory() {
         assertThat(testee.checkCategoryMatchingMainCategory(5030, 5000), is(true));
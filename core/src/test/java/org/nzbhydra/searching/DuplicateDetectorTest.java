@@ -118,6 +118,47 @@ public class DuplicateDetectorTest {
         assertThat(items.get(0).getDuplicateIdentifier()).isEqualTo(items.get(1).getDuplicateIdentifier()).as("Duplicates should have the same duplicate identifiers");
     }
 
+    @Test
+    public void shouldAddNewResultsToExistingGroups() throws Exception {
+        //Same date so that the order of the groups is defined
+        Instant now = Instant.now();
+        SearchResultItem item1 = new SearchResultItem();
+        setValues(item1, "1", "poster1", "group", now);
+        SearchResultItem item2 = new SearchResultItem();
+        setValues(item2, "2", "poster2", "group", now);
+        DuplicateDetectionState state = new DuplicateDetectionState();
+
+        DuplicateDetectionResult result = testee.detectDuplicates(state, Arrays.asList(item1, item2));
+        assertThat(result.getDuplicateGroups().size()).isEqualTo(2);
+        assertThat(result.getUniqueResultsPerIndexer().count(item1.getIndexer())).isEqualTo(1);
+        assertThat(result.getUniqueResultsPerIndexer().count(item2.getIndexer())).isEqualTo(1);
+
+        SearchResultItem item3 = new SearchResultItem();
+        setValues(item3, "3", "poster1", "group", now);
+        result = testee.detectDuplicates(state, Arrays.asList(item1, item3));
+
+        assertThat(result.getDuplicateGroups().size()).isEqualTo(2);
+        assertThat(result.getDuplicateGroups().get(0)).containsExactly(item1, item3);
+        assertThat(item3.getDuplicateIdentifier()).isEqualTo(item1.getDuplicateIdentifier());
+        assertThat(result.getUniqueResultsPerIndexer().count(item1.getIndexer())).isEqualTo(0);
+        assertThat(result.getUniqueResultsPerIndexer().count(item2.getIndexer())).isEqualTo(1);
+        assertThat(result.getUniqueResultsPerIndexer().count(item3.getIndexer())).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldNotGroupResultsWithDifferentAge() throws Exception {
+        SearchResultItem item1 = new SearchResultItem();
+        setValues(item1, "1", "poster", "group", Instant.now());
+        SearchResultItem item2 = new SearchResultItem();
+        setValues(item2, "2", "poster", "group", Instant.now().minus(5, ChronoUnit.HOURS));
+        SearchResultItem item3 = new SearchResultItem();
+        setValues(item3, "3", "poster", "group", null);
+
+        DuplicateDetectionResult result = testee.detectDuplicates(Arrays.asList(item1, item2, item3));
+
+        assertThat(result.getDuplicateGroups().size()).isEqualTo(3);
+    }
+
     @Test
     public void shouldUseUsenetDateForComparison() throws Exception {
         SearchResultItem item1 = new SearchResultItem();
@@ -5,23 +5,21 @@ import org.junit.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.mockito.Spy;
 import org.mockito.internal.util.collections.Sets;
 import org.nzbhydra.config.*;
 import org.nzbhydra.config.Category.Subtype;
-import org.nzbhydra.downloading.FileDownloadRepository;
 import org.nzbhydra.indexers.Indexer;
-import org.nzbhydra.indexers.IndexerApiAccessRepository;
+import org.nzbhydra.indexers.IndexerCircuitBreaker;
 import org.nzbhydra.indexers.IndexerEntity;
+import org.nzbhydra.indexers.IndexerLimitTracker;
+import org.nzbhydra.indexers.IndexerStatusStore;
 import org.nzbhydra.mediainfo.InfoProvider;
 import org.nzbhydra.mediainfo.InfoProvider.IdType;
 import org.nzbhydra.searching.searchrequests.SearchRequest;
 import org.nzbhydra.searching.searchrequests.SearchRequest.SearchSource;
 import org.springframework.context.ApplicationEventPublisher;
-import org.springframework.data.domain.PageImpl;
 
-import javax.persistence.EntityManager;
-import javax.persistence.Query;
-import java.sql.Timestamp;
 import java.time.*;
 import java.time.temporal.ChronoField;
 import java.time.temporal.ChronoUnit;
@@ -30,15 +28,11 @@ import java.util.*;
 import static junit.framework.TestCase.*;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.Mockito.*;
 
 public class IndexerForSearchSelectorTest {
 
-    @Mock
-    private IndexerApiAccessRepository indexerApiAccessRepository;
-    @Mock
-    private FileDownloadRepository nzbDownloadRepository;
     @Mock
     private SearchModuleProvider searchModuleProviderMock;
     @Mock
@@ -61,9 +55,11 @@ public class IndexerForSearchSelectorTest {
     @Mock
     private Category category;
     @Mock
-    private EntityManager entityManagerMock;
-    @Mock
-    private Query queryMock;
+    private IndexerLimitTracker indexerLimitTrackerMock;
+    @Spy
+    private IndexerEligibilityIndex eligibilityIndex = new IndexerEligibilityIndex();
+    @Spy
+    private IndexerCircuitBreaker indexerCircuitBreaker = new IndexerCircuitBreaker(mock(ConfigProvider.class), mock(IndexerStatusStore.class));
 
     private Map<Indexer, String> count;
 
@@ -76,13 +72,15 @@ public class IndexerForSearchSelectorTest {
         count = new HashMap<>();
         when(searchModuleProviderMock.getIndexers()).thenReturn(Arrays.asList(indexer));
         when(configProvider.getBaseConfig()).thenReturn(baseConfig);
+        indexerConfigMock.setName("indexer");
         when(indexer.getConfig()).thenReturn(indexerConfigMock);
         when(indexer.getName()).thenReturn("indexer");
         when(indexer.getIndexerEntity()).thenReturn(indexerEntity);
         when(baseConfig.getSearching()).thenReturn(searchingConfig);
         when(category.getName()).thenReturn("category");
         when(category.getSubtype()).thenReturn(Subtype.NONE);
-        when(entityManagerMock.createNativeQuery(anyString())).thenReturn(queryMock);
+        when(indexerLimitTrackerMock.getOldestOfRecentApiHits(any(), anyInt())).thenReturn(Optional.empty());
+        when(indexerLimitTrackerMock.getOldestOfRecentDownloads(any(), anyInt())).thenReturn(Optional.empty());
     }
 
 
@@ -137,6 +135,50 @@ public class IndexerForSearchSelectorTest {
         assertFalse(testee.checkIndexerStatus(indexer));
     }
 
+    @Test
+    public void shouldAllowOnlyOneTestCallAfterDisabledPeriod() {
+        when(searchingConfig.isIgnoreTemporarilyDisabled()).thenReturn(false);
+        indexerConfigMock.setState(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
+        indexerConfigMock.setDisabledLevel(1);
+        indexerConfigMock.setDisabledUntil(Instant.now().minus(1, ChronoUnit.MINUTES).toEpochMilli());
+
+        assertTrue(testee.checkIndexerStatus(indexer));
+        assertTrue(testee.checkTestCallAllowed(indexer));
+        assertFalse(testee.checkTestCallAllowed(indexer));
+
+        //Reenabled by the cleanup task, the level is kept until a call succeeds
+        indexerConfigMock.setState(IndexerConfig.State.ENABLED);
+        indexerConfigMock.setDisabledUntil(null);
+        assertFalse(testee.checkTestCallAllowed(indexer));
+
+        indexerCircuitBreaker.recordSuccess(indexerConfigMock, null);
+        indexerConfigMock.setDisabledLevel(0);
+        assertTrue(testee.checkTestCallAllowed(indexer));
+        assertTrue(testee.checkTestCallAllowed(indexer));
+    }
+
+    @Test
+    public void shouldNotUseTestCallForIndexerWhichIsNotSelected() {
+        when(searchingConfig.isIgnoreTemporarilyDisabled()).thenReturn(false);
+        when(searchingConfig.getGenerateQueries()).thenReturn(SearchSourceRestriction.NONE);
+        when(searchRequest.getSource()).thenReturn(SearchSource.API);
+        when(searchRequest.getCategory()).thenReturn(category);
+        when(searchRequest.getIdentifiers()).thenReturn(new HashMap<>());
+        when(searchRequest.getQuery()).thenReturn(Optional.of("query"));
+        indexerConfigMock.setState(IndexerConfig.State.DISABLED_SYSTEM_TEMPORARY);
+        indexerConfigMock.setDisabledLevel(1);
+        indexerConfigMock.setDisabledUntil(Instant.now().minus(1, ChronoUnit.MINUTES).toEpochMilli());
+        //Practically never picked
+        indexerConfigMock.setLoadLimitOnRandom(Integer.MAX_VALUE);
+
+        assertThat(testee.pickIndexers(searchRequest).getSelectedIndexers()).isEmpty();
+
+        //The next search may still test the indexer
+        indexerConfigMock.setLoadLimitOnRandom(null);
+        assertThat(testee.pickIndexers(searchRequest).getSelectedIndexers()).containsExactly(indexer);
+        assertFalse(testee.checkTestCallAllowed(indexer));
+    }
+
     @Test
     public void shouldCheckForCategory() {
         when(searchRequest.getCategory()).thenReturn(category);
@@ -208,35 +250,50 @@ public class IndexerForSearchSelectorTest {
         indexerConfigMock.setHitLimit(null);
         indexerConfigMock.setDownloadLimit(null);
         testee.checkIndexerHitLimit(indexer);
-        verify(nzbDownloadRepository, never()).findBySearchResultIndexerOrderByTimeDesc(any(), any());
-        verify(indexerApiAccessRepository, never()).findByIndexerOrderByTimeDesc(any(), any());
+        verifyZeroInteractions(indexerLimitTrackerMock);
     }
 
     @Test
     public void shouldIgnoreHitLimitIfNotYetReached() {
         indexerConfigMock.setHitLimit(10);
-        when(queryMock.getResultList()).thenReturn(Collections.emptyList());
         boolean result = testee.checkIndexerHitLimit(indexer);
         assertTrue(result);
-        verify(entityManagerMock).createNativeQuery(anyString());
+        verify(indexerLimitTrackerMock).getOldestOfRecentApiHits(indexerEntity, 10);
     }
 
     @Test
     public void shouldFollowApiHitLimit() {
         indexerConfigMock.setHitLimit(1);
-        when(queryMock.getResultList()).thenReturn(Arrays.asList(Timestamp.from(Instant.now().minus(10, ChronoUnit.MILLIS))));
+        when(indexerLimitTrackerMock.getOldestOfRecentApiHits(indexerEntity, 1)).thenReturn(Optional.of(Instant.now().minus(10, ChronoUnit.MILLIS)));
         boolean result = testee.checkIndexerHitLimit(indexer);
         assertFalse(result);
-        verify(entityManagerMock).createNativeQuery(anyString());
+        assertThat(testee.notSelectedIndersWithReason).containsEntry(indexer, "API hit limit reached");
+    }
+
+    @Test
+    public void shouldNotUseThrottledIndexer() {
+        indexerConfigMock.setHitLimit(10);
+        when(indexerLimitTrackerMock.isThrottled(indexerEntity, 10)).thenReturn(true);
+        assertFalse(testee.checkIndexerHitLimit(indexer));
+        assertThat(testee.notSelectedIndersWithReason).containsEntry(indexer, "API hits throttled");
     }
 
     @Test
     public void shouldIgnoreDownloadLimitIfNotYetReached() {
         indexerConfigMock.setDownloadLimit(10);
-        when(nzbDownloadRepository.findBySearchResultIndexerOrderByTimeDesc(any(), any())).thenReturn(new PageImpl<>(Collections.emptyList()));
         boolean result = testee.checkIndexerHitLimit(indexer);
         assertTrue(result);
-        verify(nzbDownloadRepository).findBySearchResultIndexerOrderByTimeDesc(any(), any());
+        verify(indexerLimitTrackerMock).getOldestOfRecentDownloads(indexerEntity, 10);
+    }
+
+    @Test
+    public void shouldFollowDownloadLimit() {
+        indexerConfigMock.setDownloadLimit(2);
+        when(indexerLimitTrackerMock.getOldestOfRecentDownloads(indexerEntity, 2)).thenReturn(Optional.of(Instant.now().minus(2, ChronoUnit.DAYS)));
+        assertTrue("Downloads older than a day should not count", testee.checkIndexerHitLimit(indexer));
+
+        when(indexerLimitTrackerMock.getOldestOfRecentDownloads(indexerEntity, 2)).thenReturn(Optional.of(Instant.now().minus(1, ChronoUnit.HOURS)));
+        assertFalse(testee.checkIndexerHitLimit(indexer));
     }
 
     @Test
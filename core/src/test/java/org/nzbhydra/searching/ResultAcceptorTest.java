@@ -20,6 +20,7 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Optional;
 
+import static junit.framework.TestCase.assertEquals;
 import static junit.framework.TestCase.assertFalse;
 import static junit.framework.TestCase.assertTrue;
 import static org.mockito.Mockito.when;
@@ -129,6 +130,68 @@ public class ResultAcceptorTest {
         assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
     }
 
+    @Test
+    public void shouldOnlyCheckIfForbiddenWordsAreContainedForNzbGeek() throws Exception {
+        internalData.getForbiddenWords().clear();
+        internalData.getForbiddenWords().add("abc");
+        item.setTitle("abcdef ghi");
+        assertTrue(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+
+        when(indexerConfig.getHost()).thenReturn("https://api.nzbgeek.info");
+        assertFalse(testee.checkForForbiddenWords(indexerConfig, HashMultiset.create(), internalData.getForbiddenWords(), item));
+    }
+
+    @Test
+    public void shouldUseNewRestrictionsAfterConfigChange() throws Exception {
+        when(searchingConfig.getForbiddenWords()).thenReturn(Arrays.asList("abc"));
+        when(searchingConfig.getRequiredWords()).thenReturn(Collections.emptyList());
+        when(searchingConfig.getApplyRestrictions()).thenReturn(SearchSourceRestriction.BOTH);
+        when(searchingConfig.getRequiredRegex()).thenReturn(Optional.empty());
+        when(searchingConfig.getForbiddenRegex()).thenReturn(Optional.empty());
+        when(searchRequest.getSource()).thenReturn(SearchSource.INTERNAL);
+        Indexer indexer = new Newznab();
+        indexer.initialize(indexerConfig, new IndexerEntity());
+        when(indexerConfig.getEnabledCategories()).thenReturn(Collections.emptyList());
+        category.setIgnoreResultsFrom(SearchSourceRestriction.NONE);
+        category.setApplyRestrictionsType(SearchSourceRestriction.NONE);
+        item.setTitle("abc def");
+        item.setIndexer(indexer);
+        item.setIndexerGuid("guid");
+        item.setIndexerScore(0);
+        item.setLink("link");
+        item.setPubDate(Instant.now());
+        item.setSize(1000L);
+
+        assertTrue(testee.acceptResults(Arrays.asList(item), searchRequest, indexerConfig).getAcceptedResults().isEmpty());
+
+        when(searchingConfig.getForbiddenWords()).thenReturn(Arrays.asList("xyz"));
+        assertTrue("Restrictions are only compiled again after a config change", testee.acceptResults(Arrays.asList(item), searchRequest, indexerConfig).getAcceptedResults().isEmpty());
+
+        testee.handleNewConfig(new ConfigChangedEvent(this, baseConfig, baseConfig));
+        assertFalse(testee.acceptResults(Arrays.asList(item), searchRequest, indexerConfig).getAcceptedResults().isEmpty());
+    }
+
+    @Test
+    public void shouldCheckForMandatoryFields() throws Exception {
+        item.setTitle("title");
+        item.setIndexer(new Newznab());
+        item.setIndexerGuid("guid");
+        item.setIndexerScore(0);
+        item.setLink("link");
+        item.setPubDate(Instant.now());
+        assertTrue(testee.checkForNeededAttributesSuccessfullyMapped(HashMultiset.create(), item));
+        assertTrue(testee.getConstraintViolations(item).isEmpty());
+
+        item.setLink(null);
+        assertFalse(testee.checkForNeededAttributesSuccessfullyMapped(HashMultiset.create(), item));
+        //Fast path must find the same violations as bean validation
+        assertEquals(testee.getConstraintViolations(item), SearchResultAcceptor.getMissingMandatoryFields(item));
+
+        item.setLink("link");
+        item.setPubDate(null);
+        assertFalse(testee.checkForNeededAttributesSuccessfullyMapped(HashMultiset.create(), item));
+    }
+
     @Test
     public void shouldCheckForPassword() throws Exception {
         when(searchingConfig.isIgnorePassworded()).thenReturn(false);
@@ -0,0 +1,102 @@
+package org.nzbhydra.searching;
+
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class SearchCoalescerTest {
+
+    private SearchCoalescer<String, StringBuilder> testee = new SearchCoalescer<>();
+
+    @Test
+    public void shouldExecuteIdenticalSearchesOnce() throws Exception {
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        CountDownLatch searchMayFinish = new CountDownLatch(1);
+        AtomicInteger searches = new AtomicInteger();
+        AtomicInteger waitingCallers = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<StringBuilder> first = executor.submit(() -> testee.execute("key", () -> {
+                searches.incrementAndGet();
+                searchStarted.countDown();
+                awaitUninterruptibly(searchMayFinish);
+                return new StringBuilder("result");
+            }));
+            searchStarted.await(5, TimeUnit.SECONDS);
+            assertThat(testee.isRunning("key")).isTrue();
+            Future<StringBuilder> second = executor.submit(() -> testee.execute("key", () -> {
+                searches.incrementAndGet();
+                return new StringBuilder("other");
+            }, waitingCallers::incrementAndGet, StringBuilder::new));
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while (testee.getNumberOfCoalescedSearches() == 0 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            searchMayFinish.countDown();
+
+            StringBuilder firstResult = first.get(5, TimeUnit.SECONDS);
+            StringBuilder secondResult = second.get(5, TimeUnit.SECONDS);
+            assertThat(secondResult.toString()).isEqualTo("result");
+            assertThat(secondResult).isNotSameAs(firstResult);
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(searches.get()).isEqualTo(1);
+        assertThat(waitingCallers.get()).isEqualTo(1);
+        assertThat(testee.getNumberOfCoalescedSearches()).isEqualTo(1L);
+        assertThat(testee.getNumberOfRunningSearches()).isEqualTo(0);
+    }
+
+    @Test
+    public void shouldPassExceptionToWaitingCallers() throws Exception {
+        CountDownLatch searchStarted = new CountDownLatch(1);
+        CountDownLatch searchMayFinish = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<StringBuilder> first = executor.submit(() -> testee.execute("key", () -> {
+                searchStarted.countDown();
+                awaitUninterruptibly(searchMayFinish);
+                throw new IllegalStateException("failed");
+            }));
+            searchStarted.await(5, TimeUnit.SECONDS);
+            Future<StringBuilder> second = executor.submit(() -> testee.execute("key", StringBuilder::new));
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while (testee.getNumberOfCoalescedSearches() == 0 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            searchMayFinish.countDown();
+
+            for (Future<StringBuilder> future : new Future[]{first, second}) {
+                try {
+                    future.get(5, TimeUnit.SECONDS);
+                    fail("Expected exception");
+                } catch (ExecutionException e) {
+                    assertThat(e.getCause()).isInstanceOf(IllegalStateException.class);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertThat(testee.isRunning("key")).isFalse();
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -0,0 +1,61 @@
+package org.nzbhydra.searching;
+
+import com.google.common.base.Stopwatch;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.nzbhydra.indexers.Newznab;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bean validation of search result items with the fast path used by the result acceptor. Run manually.
+ */
+@Ignore //Only run when needed
+public class SearchResultItemValidationBenchmark {
+
+    private static final int ITEMS = 1500; //100 results from 15 indexers
+    private static final int ROUNDS = 200;
+
+    @Test
+    public void compareValidation() {
+        SearchResultAcceptor acceptor = new SearchResultAcceptor();
+        List<SearchResultItem> items = new ArrayList<>();
+        for (int i = 0; i < ITEMS; i++) {
+            SearchResultItem item = new SearchResultItem();
+            item.setTitle("title" + i);
+            item.setIndexer(new Newznab());
+            item.setIndexerGuid("guid" + i);
+            item.setIndexerScore(0);
+            item.setLink("link" + i);
+            item.setPubDate(Instant.now());
+            items.add(item);
+        }
+
+        //Warmup
+        run(acceptor, items, true);
+        run(acceptor, items, false);
+
+        long beanValidationNanos = run(acceptor, items, true);
+        long fastPathNanos = run(acceptor, items, false);
+        System.out.println(String.format("Bean validation: %dns per item", beanValidationNanos / ((long) ITEMS * ROUNDS)));
+        System.out.println(String.format("Fast path: %dns per item", fastPathNanos / ((long) ITEMS * ROUNDS)));
+    }
+
+    private long run(SearchResultAcceptor acceptor, List<SearchResultItem> items, boolean beanValidation) {
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        int violations = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            for (SearchResultItem item : items) {
+                violations += beanValidation ? acceptor.getConstraintViolations(item).size() : SearchResultAcceptor.getMissingMandatoryFields(item).size();
+            }
+        }
+        if (violations > 0) {
+            throw new IllegalStateException("Unexpected violations");
+        }
+        return stopwatch.elapsed(TimeUnit.NANOSECONDS);
+    }
+
+}
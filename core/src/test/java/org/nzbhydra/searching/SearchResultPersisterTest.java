@@ -0,0 +1,114 @@
+package org.nzbhydra.searching;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.nzbhydra.ShutdownEvent;
+import org.nzbhydra.indexers.IndexerEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchResultPersisterTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private SearchResultPersister testee;
+    private IndexerEntity indexerEntity = new IndexerEntity();
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:searchResultPersisterTest;DB_CLOSE_DELAY=-1", "sa", ""));
+        jdbcTemplate.execute("CREATE TABLE INDEXER (ID INTEGER PRIMARY KEY NOT NULL, NAME VARCHAR(255))");
+        jdbcTemplate.execute("CREATE TABLE SEARCHRESULT (ID BIGINT PRIMARY KEY NOT NULL, DETAILS VARCHAR(4000), DOWNLOAD_TYPE VARCHAR(255), FIRST_FOUND TIMESTAMP, INDEXERGUID VARCHAR(255) NOT NULL, LINK VARCHAR(4000), PUB_DATE TIMESTAMP, TITLE VARCHAR(4000) NOT NULL, INDEXER_ID INTEGER NOT NULL, FOREIGN KEY (INDEXER_ID) REFERENCES INDEXER (ID))");
+        jdbcTemplate.execute("INSERT INTO INDEXER (ID, NAME) VALUES (1, 'indexer')");
+        indexerEntity.setName("indexer");
+        indexerEntity.setId(1);
+
+        testee = new SearchResultPersister(jdbcTemplate);
+        testee.init();
+    }
+
+    @After
+    public void tearDown() {
+        testee.onShutdown(new ShutdownEvent());
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+    }
+
+    @Test
+    public void shouldWriteQueuedResults() {
+        SearchResultEntity entity1 = createEntity("guid1", Instant.now());
+        SearchResultEntity entity2 = createEntity("guid2", Instant.now());
+
+        testee.persist(Arrays.asList(entity1, entity2));
+        testee.flushIfPending(entity1.getId());
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM SEARCHRESULT", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT TITLE FROM SEARCHRESULT WHERE ID = ?", String.class, entity2.getId())).isEqualTo("title guid2");
+        assertThat(jdbcTemplate.queryForObject("SELECT DOWNLOAD_TYPE FROM SEARCHRESULT WHERE ID = ?", String.class, entity2.getId())).isEqualTo("NZB");
+    }
+
+    @Test
+    public void shouldNotChangeExistingResults() {
+        Instant firstFound = Instant.now().minus(10, ChronoUnit.DAYS);
+        SearchResultEntity entity = createEntity("guid", firstFound);
+        testee.persist(Collections.singletonList(entity));
+        testee.flush();
+
+        //Simulate restart
+        testee = new SearchResultPersister(jdbcTemplate);
+        testee.init();
+        testee.persist(Collections.singletonList(createEntity("guid", Instant.now())));
+        testee.flush();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM SEARCHRESULT", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("SELECT FIRST_FOUND FROM SEARCHRESULT", Timestamp.class).toInstant()).isEqualTo(firstFound);
+    }
+
+    @Test
+    public void shouldWriteOtherResultsIfOneOfBatchFails() {
+        //Older databases may still have a unique index on the GUID
+        jdbcTemplate.execute("CREATE UNIQUE INDEX SEARCHRESULT_GUID ON SEARCHRESULT (INDEXER_ID, INDEXERGUID)");
+        testee.persist(Collections.singletonList(createEntity("guid1", Instant.now())));
+        testee.flush();
+
+        //Title changed, so the ID is different
+        SearchResultEntity changed = new SearchResultEntity(indexerEntity, Instant.now(), "changed title", "guid1", "link", "details", SearchResultItem.DownloadType.NZB, Instant.now());
+        changed.setId(SearchResultIdCalculator.calculateSearchResultId(changed));
+        SearchResultEntity entity2 = createEntity("guid2", Instant.now());
+        testee.persist(Arrays.asList(changed, entity2));
+        testee.flush();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM SEARCHRESULT", Integer.class)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM SEARCHRESULT WHERE ID = ?", Integer.class, entity2.getId())).isEqualTo(1);
+        assertThat(testee.getMetrics().get("persistedResults")).isEqualTo(2L);
+        assertThat(testee.getMetrics().get("failedResults")).isEqualTo(1L);
+    }
+
+    @Test
+    public void shouldWriteResultsInBackground() throws Exception {
+        SearchResultEntity entity = createEntity("guid", Instant.now());
+
+        testee.persist(Collections.singletonList(entity));
+
+        //The counter is increased after the batch was written
+        for (int i = 0; i < 50 && testee.getMetrics().get("persistedResults").equals(0L); i++) {
+            Thread.sleep(100);
+        }
+        assertThat(jdbcTemplate.queryForObject("SELECT count(*) FROM SEARCHRESULT", Integer.class)).isEqualTo(1);
+        assertThat(testee.getMetrics().get("persistedResults")).isEqualTo(1L);
+    }
+
+    private SearchResultEntity createEntity(String guid, Instant firstFound) {
+        SearchResultEntity entity = new SearchResultEntity(indexerEntity, firstFound, "title " + guid, guid, "link", "details", SearchResultItem.DownloadType.NZB, Instant.now());
+        entity.setId(SearchResultIdCalculator.calculateSearchResultId(entity));
+        return entity;
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.nzbhydra.searching;
+
+import org.junit.Test;
+import org.nzbhydra.searching.SearchWeb.SearchState;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class SearchWebTest {
+
+    @Test
+    public void shouldUpdateStateConcurrently() throws Exception {
+        SearchState searchState = new SearchState();
+        searchState.finishIndexerSelection(100);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 100; i++) {
+            int indexer = i;
+            executor.submit(() -> {
+                searchState.addMessage("Indexer " + indexer + " completed search");
+                searchState.addMessage("Indexer " + indexer + " completed search");
+                searchState.finishIndexerSearch();
+            });
+        }
+        executor.shutdown();
+        assertThat(executor.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+
+        assertThat(searchState.getIndexersFinished()).isEqualTo(100);
+        assertThat(searchState.getMessages()).hasSize(100).doesNotHaveDuplicates();
+    }
+
+    @Test
+    public void shouldSendEventsToSubscribers() {
+        SearchState searchState = new SearchState();
+        searchState.addMessage("message before subscribing");
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        searchState.subscribe(emitter);
+        searchState.finishIndexerSelection(2);
+        searchState.addMessage("message");
+        searchState.addMessage("message");
+        searchState.finishIndexerSearch();
+        searchState.setNumberOfFoundResults(10);
+        searchState.finishSearch();
+        searchState.addMessage("message after search finished");
+
+        assertThat(emitter.events).hasSize(6);
+        assertThat(emitter.events.get(0)).contains("event:state");
+        assertThat(emitter.events.get(1)).contains("event:indexerSelection");
+        assertThat(emitter.events.get(2)).contains("event:message");
+        assertThat(emitter.events.get(3)).contains("event:indexerFinished");
+        assertThat(emitter.events.get(4)).contains("event:results");
+        assertThat(emitter.events.get(5)).contains("event:finished");
+        assertThat(emitter.completed).isTrue();
+    }
+
+    @Test
+    public void shouldCompleteSubscriptionToFinishedSearch() {
+        SearchState searchState = new SearchState();
+        searchState.finishSearch();
+        RecordingEmitter emitter = new RecordingEmitter();
+
+        searchState.subscribe(emitter);
+
+        assertThat(emitter.events).hasSize(1);
+        assertThat(emitter.completed).isTrue();
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+        private boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder event = new StringBuilder();
+            builder.build().forEach(x -> event.append(x.getData()));
+            events.add(event.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+
+}
@@ -1,8 +1,8 @@
 package org.nzbhydra.searching;
 
+import com.google.common.base.Stopwatch;
 import com.google.common.collect.HashMultiset;
 import com.google.common.collect.Multiset;
-import com.google.common.collect.Sets;
 import org.junit.Before;
 import org.junit.Test;
 import org.mockito.ArgumentCaptor;
@@ -12,9 +12,12 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockito.invocation.InvocationOnMock;
 import org.mockito.stubbing.Answer;
+import org.nzbhydra.config.BaseConfig;
 import org.nzbhydra.config.Category;
+import org.nzbhydra.config.ConfigProvider;
 import org.nzbhydra.config.IndexerConfig;
 import org.nzbhydra.indexers.Indexer;
+import org.nzbhydra.indexers.IndexerCallExecutor;
 import org.nzbhydra.indexers.IndexerEntity;
 import org.nzbhydra.indexers.IndexerSearchEntity;
 import org.nzbhydra.indexers.IndexerSearchRepository;
@@ -29,10 +32,14 @@ import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.LinkedHashSet;
+import java.util.Collection;
 import java.util.List;
 import java.util.Random;
-import java.util.stream.Collectors;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.hamcrest.CoreMatchers.is;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -86,14 +93,21 @@ public class SearcherUnitTest {
     private IndexerSearchEntity indexerSearchEntityMock;
     @Mock
     private ApplicationEventPublisher applicationEventPublisherMock;
+    @Mock
+    private ConfigProvider configProviderMock;
+    private BaseConfig baseConfig = new BaseConfig();
     private Random random = new Random();
 
 
     @Before
     public void setUp() {
         MockitoAnnotations.initMocks(this);
+        when(configProviderMock.getBaseConfig()).thenReturn(baseConfig);
         when(searchResultEntityMock.getIndexer()).thenReturn(indexerEntity);
         searcher.duplicateDetector = duplicateDetector;
+        searcher.indexerPickerFactory = () -> indexerPicker;
+        searcher.indexerCallExecutor = new IndexerCallExecutor(configProviderMock);
+        searcher.indexerCallExecutor.init();
 
         when(indexer1.getName()).thenReturn("indexer1");
         when(indexer2.getName()).thenReturn("indexer2");
@@ -108,15 +122,18 @@ public class SearcherUnitTest {
         when(indexerSearchRepository.findByIndexerEntityAndSearchEntity(any(), any())).thenReturn(indexerSearchEntityMock);
 
         when(pickingResultMock.getSelectedIndexers()).thenReturn(Arrays.asList(indexer1));
-        when(duplicateDetector.detectDuplicates(any())).thenAnswer(new Answer<DuplicateDetectionResult>() {
+        when(duplicateDetector.detectDuplicates(any(), any())).thenAnswer(new Answer<DuplicateDetectionResult>() {
             @Override
             public DuplicateDetectionResult answer(InvocationOnMock invocation) throws Throwable {
-                List<SearchResultItem> items = invocation.getArgument(0);
-                List<LinkedHashSet<SearchResultItem>> sets = items.stream().map(x -> {
-                    return Sets.newLinkedHashSet(Arrays.asList(x));
-                }).collect(Collectors.toList());
-
-                return new DuplicateDetectionResult(sets, HashMultiset.create());
+                //Every item is in its own group
+                DuplicateDetectionState state = invocation.getArgument(0);
+                Collection<SearchResultItem> items = invocation.getArgument(1);
+                for (SearchResultItem item : items) {
+                    if (state.markKnown(item)) {
+                        state.addToNewBucket(state.getTitleGroup(item.getTitle()), item);
+                    }
+                }
+                return state.toResult();
             }
         });
     }
@@ -192,6 +209,113 @@ public class SearcherUnitTest {
         verify(indexer1, times(2)).search(any(), anyInt(), any());
     }
 
+    @Test
+    public void shouldOnlyDetectDuplicatesOfNewResultsWhenLoadingMore() throws Exception {
+        when(indexer1.search(any(), anyInt(), anyInt())).thenReturn(mockIndexerSearchResult(0, 10, true, 20, indexer1), mockIndexerSearchResult(10, 10, false, 20, indexer1));
+
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 10);
+        searchRequest.setTitle("some title so it will be found in the search request cache");
+        searcher.search(searchRequest);
+        searchRequest.setOffset(10);
+        SearchResult result = searcher.search(searchRequest);
+
+        assertThat(result.getSearchResultItems().size(), is(10));
+        assertThat(result.getSearchResultItems().get(0).getTitle(), is("item10"));
+        ArgumentCaptor<DuplicateDetectionState> stateCaptor = ArgumentCaptor.forClass(DuplicateDetectionState.class);
+        ArgumentCaptor<Collection> newItemsCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(duplicateDetector, times(2)).detectDuplicates(stateCaptor.capture(), newItemsCaptor.capture());
+        assertThat(newItemsCaptor.getAllValues().get(1).size(), is(10));
+        assertThat(stateCaptor.getAllValues().get(1).getNumberOfResults(), is(20));
+    }
+
+    @Test
+    public void shouldReturnApiResultsAfterConfiguredTime() throws Exception {
+        baseConfig.getSearching().setReturnApiResultsAfterMs(200);
+        when(pickingResultMock.getSelectedIndexers()).thenReturn(Arrays.asList(indexer1, indexer2));
+        when(indexer1.search(any(), anyInt(), anyInt())).thenReturn(mockIndexerSearchResult(0, 10, false, 10, indexer1));
+        when(indexer2.search(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            Thread.sleep(5000);
+            return mockIndexerSearchResult(0, 10, false, 10, indexer2);
+        });
+
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.SEARCH, 0, 100);
+        searchRequest.setTitle("some title so it will be found in the search request cache");
+        Stopwatch stopwatch = Stopwatch.createStarted();
+        SearchResult result = searcher.search(searchRequest);
+
+        assertThat(stopwatch.elapsed(TimeUnit.MILLISECONDS) < 5000, is(true));
+        assertThat(result.getSearchResultItems().size(), is(10));
+        assertThat(result.getSearchResultItems().stream().allMatch(x -> x.getIndexer() == indexer1), is(true));
+        IndexerSearchResult indexer2Result = result.getIndexerSearchResults().stream().filter(x -> x.getIndexer() == indexer2).findFirst().get();
+        assertThat(indexer2Result.isWasSuccessful(), is(false));
+    }
+
+    @Test
+    public void shouldCoalesceIdenticalConcurrentApiSearches() throws Exception {
+        CountDownLatch indexerCalled = new CountDownLatch(1);
+        CountDownLatch indexerMayRespond = new CountDownLatch(1);
+        when(indexer1.search(any(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            indexerCalled.countDown();
+            indexerMayRespond.await(5, TimeUnit.SECONDS);
+            return mockIndexerSearchResult(0, 10, false, 10, indexer1);
+        });
+
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.TVSEARCH, 0, 100);
+        searchRequest.getIdentifiers().put(InfoProvider.IdType.TVDB, "12345");
+        searchRequest.setSeason(1);
+        //Same search, only differs in the random ID and the case of the query
+        SearchRequest identicalSearchRequest = new SearchRequest(SearchSource.API, SearchType.TVSEARCH, 0, 100);
+        identicalSearchRequest.getIdentifiers().put(InfoProvider.IdType.TVDB, "12345");
+        identicalSearchRequest.setSeason(1);
+        identicalSearchRequest.setSearchRequestId(1);
+        searchRequest.setQuery("Some Show");
+        identicalSearchRequest.setQuery(" some show");
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<SearchResult> first = executor.submit(() -> searcher.search(searchRequest));
+            indexerCalled.await(5, TimeUnit.SECONDS);
+            Future<SearchResult> second = executor.submit(() -> searcher.search(identicalSearchRequest));
+            long waitUntil = System.currentTimeMillis() + 5000;
+            while ((Long) searcher.getMetrics().get("coalescedApiSearches") == 0 && System.currentTimeMillis() < waitUntil) {
+                Thread.sleep(10);
+            }
+            indexerMayRespond.countDown();
+
+            SearchResult firstResult = first.get(5, TimeUnit.SECONDS);
+            SearchResult secondResult = second.get(5, TimeUnit.SECONDS);
+            //Each caller gets its own result which it may modify
+            assertThat(secondResult == firstResult, is(false));
+            assertThat(secondResult.getSearchResultItems(), is(firstResult.getSearchResultItems()));
+            secondResult.getSearchResultItems().clear();
+            assertThat(firstResult.getSearchResultItems().size(), is(10));
+        } finally {
+            executor.shutdownNow();
+        }
+        verify(indexer1, times(1)).search(any(), anyInt(), anyInt());
+        //Both searches are shown in the history
+        verify(searchRepositoryMock, times(2)).save(any(SearchEntity.class));
+        verify(applicationEventPublisherMock, times(2)).publishEvent(any(Searcher.SearchEvent.class));
+        assertThat(searcher.getMetrics().get("coalescedApiSearches"), is(1L));
+        assertThat(searcher.getMetrics().get("runningApiSearches"), is(0));
+    }
+
+    @Test
+    public void shouldNotCoalesceDifferentSearches() {
+        SearchRequest searchRequest = new SearchRequest(SearchSource.API, SearchType.TVSEARCH, 0, 100);
+        searchRequest.setSeason(1);
+        SearchRequest otherSearchRequest = new SearchRequest(SearchSource.API, SearchType.TVSEARCH, 0, 100);
+        otherSearchRequest.setSeason(2);
+        assertThat(Searcher.getNormalizedSearchParameters(searchRequest).equals(Searcher.getNormalizedSearchParameters(otherSearchRequest)), is(false));
+
+        otherSearchRequest.setSeason(1);
+        otherSearchRequest.setOffset(100);
+        assertThat(Searcher.getNormalizedSearchParameters(searchRequest).equals(Searcher.getNormalizedSearchParameters(otherSearchRequest)), is(false));
+
+        otherSearchRequest.setOffset(0);
+        assertThat(Searcher.getNormalizedSearchParameters(searchRequest).equals(Searcher.getNormalizedSearchParameters(otherSearchRequest)), is(true));
+    }
+
     private IndexerSearchResult mockIndexerSearchResult(int offset, int limit, boolean hasMoreResults, int totalAvailableResults, Indexer indexer) {
 
         List<SearchResultItem> items = new ArrayList<>();
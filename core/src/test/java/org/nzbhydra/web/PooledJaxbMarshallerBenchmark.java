@@ -0,0 +1,68 @@
+package org.nzbhydra.web;
+
+import com.google.common.base.Stopwatch;
+import com.google.common.io.Resources;
+import org.junit.Ignore;
+import org.junit.Test;
+import org.springframework.oxm.jaxb.Jaxb2Marshaller;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the pooled marshaller with the previously used {@link Jaxb2Marshaller} which creates a new JAXB unmarshaller for every call.
+ * Uses recorded responses of several indexers. Run manually.
+ */
+@Ignore //Only run when needed
+public class PooledJaxbMarshallerBenchmark {
+
+    private static final String[] RESPONSES = {"nzbsOrgResponse.xml", "drunkenSlugResponse.xml", "nzbCatResponse.xml", "btnJackettResponse.xml", "dognzbCapsResponse.xml"};
+    private static final int THREADS = 8;
+    private static final int CALLS = 2000;
+
+    @Test
+    public void compareUnmarshalling() throws Exception {
+        PooledJaxbMarshaller pooledMarshaller = new PooledJaxbMarshaller(true);
+        Jaxb2Marshaller jaxb2Marshaller = new Jaxb2Marshaller();
+        jaxb2Marshaller.setPackagesToScan("org.nzbhydra");
+        jaxb2Marshaller.afterPropertiesSet();
+        List<byte[]> responses = new ArrayList<>();
+        for (String response : RESPONSES) {
+            responses.add(Resources.toByteArray(Resources.getResource(PooledJaxbMarshallerBenchmark.class, "/org/nzbhydra/mapping/" + response)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            Stopwatch stopwatch = Stopwatch.createStarted();
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < CALLS; i++) {
+                byte[] response = responses.get(i % responses.size());
+                futures.add(executor.submit(() -> pooledMarshaller.unmarshal(new StreamSource(new ByteArrayInputStream(response)))));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+            long pooledMillis = stopwatch.elapsed(TimeUnit.MILLISECONDS);
+
+            futures.clear();
+            stopwatch.reset().start();
+            for (int i = 0; i < CALLS; i++) {
+                byte[] response = responses.get(i % responses.size());
+                futures.add(executor.submit(() -> jaxb2Marshaller.unmarshal(new StreamSource(new ByteArrayInputStream(response)))));
+            }
+            for (Future<Object> future : futures) {
+                future.get();
+            }
+            System.out.println(String.format("%d calls with %d threads: pooled marshaller %dms, Jaxb2Marshaller %dms", CALLS, THREADS, pooledMillis, stopwatch.elapsed(TimeUnit.MILLISECONDS)));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.nzbhydra.web;
+
+import com.google.common.io.Resources;
+import org.junit.After;
+import org.junit.Test;
+import org.nzbhydra.mapping.newznab.caps.CapsRoot;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlError;
+import org.nzbhydra.mapping.newznab.xml.NewznabXmlRoot;
+
+import javax.xml.transform.stream.StreamSource;
+import java.io.ByteArrayInputStream;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PooledJaxbMarshallerTest {
+
+    private static final String[] RESPONSES = {"nzbsOrgResponse.xml", "drunkenSlugResponse.xml", "nzbCatResponse.xml", "btnJackettResponse.xml", "dognzbCapsResponse.xml"};
+    private static final int THREADS = 8;
+    private static final int CALLS = 100;
+
+    private PooledJaxbMarshaller testee = new PooledJaxbMarshaller(true);
+    private ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void shouldUnmarshalNewznabXml() throws Exception {
+        assertThat(testee.unmarshal(new StreamSource(new StringReader("<?xml version=\"1.0\" encoding=\"UTF-8\"?><error code=\"100\" description=\"Incorrect user credentials\"/>")))).isEqualTo(new NewznabXmlError("100", "Incorrect user credentials"));
+        assertThat(testee.unmarshal(new StreamSource(new ByteArrayInputStream(getResponse("dognzbCapsResponse.xml"))))).isInstanceOf(CapsRoot.class);
+        assertThat(testee.supports(NewznabXmlRoot.class)).isTrue();
+        assertThat(testee.supports(String.class)).isFalse();
+    }
+
+    @Test
+    public void shouldUnmarshalAndMarshalInParallel() throws Exception {
+        List<byte[]> responses = new ArrayList<>();
+        List<Object> expected = new ArrayList<>();
+        for (String response : RESPONSES) {
+            byte[] bytes = getResponse(response);
+            responses.add(bytes);
+            expected.add(testee.unmarshal(new StreamSource(new ByteArrayInputStream(bytes))));
+        }
+        String expectedXml = testee.marshalToString(expected.get(0));
+
+        List<Future<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < CALLS; i++) {
+            int index = i % responses.size();
+            futures.add(executor.submit(() -> {
+                Object unmarshalled = testee.unmarshal(new StreamSource(new ByteArrayInputStream(responses.get(index))));
+                return unmarshalled.equals(expected.get(index)) && testee.marshalToString(expected.get(0)).equals(expectedXml);
+            }));
+        }
+        for (Future<Boolean> future : futures) {
+            assertThat(future.get()).isTrue();
+        }
+    }
+
+    private byte[] getResponse(String name) throws Exception {
+        return Resources.toByteArray(Resources.getResource(PooledJaxbMarshallerTest.class, "/org/nzbhydra/mapping/" + name));
+    }
+
+}
@@ -474,6 +474,94 @@ function ConfigFields($injector) {
                                 }
                             }
                         },
+                        {
+                            key: 'adaptiveIndexerTimeouts',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Adaptive timeouts',
+                                help: 'Abort calls to indexers earlier if they take much longer than usual for that indexer (three times the 99th percentile of recent response times, at least 5 seconds). The timeout above is never exceeded'
+                            }
+                        },
+                        {
+                            key: 'hedgeIndexerRequests',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Hedge slow requests',
+                                help: 'Send a second request to an indexer when the first one takes longer than 95% of recent calls and use whichever response arrives first. Not done for indexers with a hit limit or a limit of concurrent calls'
+                            }
+                        },
+                        {
+                            key: 'returnApiResultsAfterMs',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Return API results after',
+                                help: 'When set API searches will only wait this long for indexers and return the results found until then. Indexers responding later are not used for that search',
+                                addonRight: {
+                                    text: 'ms'
+                                }
+                            }
+                        },
+                        {
+                            key: 'apiCacheTimeMinutes',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'API cache time',
+                                help: 'When set results of API searches are cached for this long, even if the caller doesn\'t request it using the cachetime parameter. Slightly older results are returned while the search is repeated in the background',
+                                addonRight: {
+                                    text: 'minutes'
+                                }
+                            }
+                        },
+                        {
+                            key: 'prefetchRssFeeds',
+                            type: 'horizontalSwitch',
+                            templateOptions: {
+                                type: 'switch',
+                                label: 'Prefetch RSS feeds',
+                                help: 'Poll the latest results for API searches without query (like the RSS sync of Sonarr or Radarr) in the background. Following searches are answered immediately from the polled results'
+                            }
+                        },
+                        {
+                            key: 'prefetchRssFeedsIntervalMinutes',
+                            type: 'horizontalInput',
+                            hideExpression: '!model.prefetchRssFeeds',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'RSS feed poll interval',
+                                required: true,
+                                help: 'How often prefetched RSS feeds are polled',
+                                addonRight: {
+                                    text: 'minutes'
+                                }
+                            }
+                        },
+                        {
+                            key: 'apiCacheSizeMb',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'API cache size',
+                                required: true,
+                                help: 'Maximum memory used by cached API search results (estimated). The least recently used results are removed first',
+                                addonRight: {
+                                    text: 'MB'
+                                }
+                            }
+                        },
+                        {
+                            key: 'indexerThreadPoolSize',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Indexer threads',
+                                required: true,
+                                help: 'Maximum number of indexer calls executed at the same time over all searches. Additional calls are queued'
+                            }
+                        },
                         {
                             key: 'ignoreTemporarilyDisabled',
                             type: 'horizontalSwitch',
@@ -483,6 +571,18 @@ function ConfigFields($injector) {
                                 help: "If enabled access to indexers will never be paused after an error occurred"
                             }
                         },
+                        {
+                            key: 'hitLimitBurstPercent',
+                            type: 'horizontalInput',
+                            templateOptions: {
+                                type: 'number',
+                                label: 'Hit limit burst',
+                                help: 'When set API hits of indexers with a hit limit are spread over the day instead of being used up at once. Only this percentage of the hit limit may be used in short succession',
+                                addonRight: {
+                                    text: '%'
+                                }
+                            }
+                        },
                         {
                             key: 'generateQueries',
                             type: 'horizontalSelect',
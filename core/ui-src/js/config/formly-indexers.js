@@ -169,6 +169,15 @@ function getIndexerBoxFields(indexerModel, parentModel, isInitial, CategoriesSer
                 help: 'Supercedes the general timeout in "Searching"'
             }
         },
+        {
+            key: 'maxConcurrentCalls',
+            type: 'horizontalInput',
+            templateOptions: {
+                type: 'number',
+                label: 'Max concurrent calls',
+                help: 'Maximum number of calls made to this indexer at the same time. Leave empty for no limit'
+            }
+        },
         {
             key: 'schedule',
             type: 'horizontalChips',
@@ -531,6 +540,7 @@ angular.module('nzbhydraApp').controller('IndexerConfigSelectionBoxInstanceContr
                 hitLimitResetTime: 0,
                 host: null,
                 loadLimitOnRandom: null,
+                maxConcurrentCalls: null,
                 name: null,
                 password: null,
                 preselect: true,
@@ -17,6 +17,16 @@ function IndexerStatusesController($scope, $http, statuses) {
         }
     };
 
+    $scope.formatCircuitState = function (circuitState) {
+        if (circuitState === "CLOSED") {
+            return "Closed";
+        } else if (circuitState === "OPEN") {
+            return "Open";
+        } else {
+            return "Half open (testing)";
+        }
+    };
+
     $scope.getLabelClass = function (state) {
         if (state === "ENABLED") {
             return "primary";
@@ -371,42 +371,83 @@ function SearchUpdateModalInstanceCtrl($scope, $interval, SearchService, $uibMod
     $scope.indexersSelected = 0;
     $scope.indexersFinished = 0;
 
-    updateSearchMessagesInterval = $interval(function () {
-        SearchService.getSearchState(searchRequestId).then(function (response) {
-                $scope.indexerSelectionFinished = response.data.indexerSelectionFinished;
-                $scope.searchFinished = response.data.searchFinished;
-                $scope.indexersSelected = response.data.indexersSelected;
-                $scope.indexersFinished = response.data.indexersFinished;
-                $scope.progressMax = response.data.indexersSelected;
-                if ($scope.progressMax > response.data.indexersSelected) {
-                    $scope.progressMax = ">=" + response.data.indexersSelected;
-                }
-                if (response.data.messages) {
-                    $scope.messages = response.data.messages;
-                }
-                if ($scope.searchFinished && !loggedSearchFinished) {
-                    $scope.messages.push("Finished searching. Preparing results...");
-                    loggedSearchFinished = true;
+    $scope.numberOfFoundResults = 0;
+
+    function updateSearchState(state) {
+        $scope.indexerSelectionFinished = state.indexerSelectionFinished;
+        $scope.searchFinished = state.searchFinished;
+        $scope.indexersSelected = state.indexersSelected;
+        $scope.indexersFinished = state.indexersFinished;
+        $scope.numberOfFoundResults = state.numberOfFoundResults;
+        $scope.progressMax = state.indexersSelected;
+        if ($scope.progressMax > state.indexersSelected) {
+            $scope.progressMax = ">=" + state.indexersSelected;
+        }
+        if ($scope.searchFinished && !loggedSearchFinished) {
+            $scope.messages.push("Finished searching. Preparing results...");
+            loggedSearchFinished = true;
+        }
+    }
+
+    //Progress is pushed by the server if the browser supports it, otherwise it's polled
+    var searchEvents = SearchService.getSearchEvents(searchRequestId);
+    if (angular.isDefined(searchEvents)) {
+        var onStateEvent = function (event) {
+            $scope.$evalAsync(function () {
+                updateSearchState(JSON.parse(event.data));
+            });
+        };
+        searchEvents.addEventListener("state", function (event) {
+            $scope.$evalAsync(function () {
+                var state = JSON.parse(event.data);
+                $scope.messages = state.messages;
+                updateSearchState(state);
+            });
+        });
+        searchEvents.addEventListener("message", function (event) {
+            $scope.$evalAsync(function () {
+                $scope.messages.push(JSON.parse(event.data).message);
+            });
+        });
+        searchEvents.addEventListener("indexerSelection", onStateEvent);
+        searchEvents.addEventListener("indexerFinished", onStateEvent);
+        searchEvents.addEventListener("results", onStateEvent);
+        searchEvents.addEventListener("finished", function (event) {
+            onStateEvent(event);
+            searchEvents.close();
+        });
+    } else {
+        updateSearchMessagesInterval = $interval(function () {
+            SearchService.getSearchState(searchRequestId).then(function (response) {
+                    if (response.data.messages) {
+                        $scope.messages = response.data.messages;
+                    }
+                    updateSearchState(response.data);
+                },
+                function () {
+                    $interval.cancel(updateSearchMessagesInterval);
                 }
-            },
-            function () {
-                $interval.cancel(updateSearchMessagesInterval);
-            }
-        );
-    }, 100);
+            );
+        }, 100);
+    }
 
-    $scope.cancelSearch = function () {
+    function stopUpdates() {
         if (angular.isDefined(updateSearchMessagesInterval)) {
             $interval.cancel(updateSearchMessagesInterval);
         }
+        if (angular.isDefined(searchEvents)) {
+            searchEvents.close();
+        }
+    }
+
+    $scope.cancelSearch = function () {
+        stopUpdates();
         onCancel();
         $uibModalInstance.dismiss();
     };
 
 
     $scope.$on('$destroy', function () {
-        if (angular.isDefined(updateSearchMessagesInterval)) {
-            $interval.cancel(updateSearchMessagesInterval);
-        }
+        stopUpdates();
     });
 }
@@ -16,6 +16,7 @@ function SearchService($http) {
         getLastResults: getLastResults,
         loadMore: loadMore,
         getSearchState: getSearchState,
+        getSearchEvents: getSearchEvents,
         getModalInstance: getModalInstance,
         setModalInstance: setModalInstance,
     };
@@ -74,6 +75,13 @@ function SearchService($http) {
         return $http.get("internalapi/search/state", {params: {searchrequestid: searchRequestId}});
     }
 
+    function getSearchEvents(searchRequestId) {
+        if (typeof EventSource === "undefined") {
+            return undefined;
+        }
+        return new EventSource("internalapi/search/events?searchrequestid=" + searchRequestId);
+    }
+
     function processData(response) {
         var searchResults = response.data.searchResults;
         var indexerSearchMetaDatas = response.data.indexerSearchMetaDatas;